@@ -98,7 +98,9 @@ public class ControllerChain extends AbstractVerticle implements Watcher<Address
     public void resourcesUpdated(Set<AddressSpace> resources) throws Exception {
         log.debug("Check standard address spaces: " + resources);
 
-        for (AddressSpace addressSpace : resources) {
+        for (AddressSpace original : resources) {
+            // The address spaces may be shared with the controller cache, so work on copies when updating status
+            AddressSpace addressSpace = new AddressSpace.Builder(original).build();
             try {
                 for (Controller controller : chain) {
                     addressSpace = controller.handle(addressSpace);
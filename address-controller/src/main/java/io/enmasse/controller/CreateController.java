@@ -10,6 +10,7 @@ import io.enmasse.controller.common.ControllerKind;
 import io.enmasse.controller.common.Kubernetes;
 import io.enmasse.k8s.api.EventLogger;
 import io.enmasse.k8s.api.SchemaApi;
+import io.enmasse.k8s.api.SchemaProvider;
 import io.fabric8.kubernetes.api.model.KubernetesList;
 import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
 import org.slf4j.Logger;
@@ -23,13 +24,15 @@ public class CreateController implements Controller {
 
     private final Kubernetes kubernetes;
     private final SchemaProvider schemaProvider;
+    private final SchemaApi schemaApi;
     private final InfraResourceFactory infraResourceFactory;
     private final String namespace;
     private final EventLogger eventLogger;
 
-    public CreateController(Kubernetes kubernetes, SchemaProvider schemaProvider, InfraResourceFactory infraResourceFactory, String namespace, EventLogger eventLogger) {
+    public CreateController(Kubernetes kubernetes, SchemaProvider schemaProvider, SchemaApi schemaApi, InfraResourceFactory infraResourceFactory, String namespace, EventLogger eventLogger) {
         this.kubernetes = kubernetes;
         this.schemaProvider = schemaProvider;
+        this.schemaApi = schemaApi;
         this.infraResourceFactory = infraResourceFactory;
         this.namespace = namespace;
         this.eventLogger = eventLogger;
@@ -56,7 +59,7 @@ public class CreateController implements Controller {
             kubernetes.addSystemImagePullerPolicy(namespace, addressSpace);
             kubernetes.addAddressSpaceRoleBindings(addressSpace);
             kubernetes.createServiceAccount(addressSpace.getNamespace(), kubernetes.getAddressSpaceAdminSa());
-            schemaProvider.copyIntoNamespace(addressSpaceResolver.getPlan(addressSpaceResolver.getType(addressSpace), addressSpace), addressSpace.getNamespace());
+            schemaApi.copyIntoNamespace(addressSpaceResolver.getPlan(addressSpaceResolver.getType(addressSpace), addressSpace), addressSpace.getNamespace());
         }
 
         KubernetesList resourceList = new KubernetesListBuilder()
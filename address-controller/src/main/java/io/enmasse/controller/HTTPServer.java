@@ -16,6 +16,7 @@ import io.enmasse.controller.api.v1.http.*;
 import io.enmasse.controller.api.DefaultExceptionMapper;
 import io.enmasse.controller.common.Kubernetes;
 import io.enmasse.k8s.api.AddressSpaceApi;
+import io.enmasse.k8s.api.SchemaProvider;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
@@ -40,7 +40,7 @@ public class Main extends AbstractVerticle {
     @Override
     public void start(Future<Void> startPromise) throws Exception {
         SchemaApi schemaApi = new ConfigMapSchemaApi(controllerClient, options.getNamespace());
-        CachingSchemaProvider schemaProvider = new CachingSchemaProvider(schemaApi);
+        CachingSchemaProvider schemaProvider = new CachingSchemaProvider();
         schemaApi.watchSchema(schemaProvider);
 
         AddressSpaceApi addressSpaceApi = new ConfigMapAddressSpaceApi(controllerClient);
@@ -55,7 +55,7 @@ public class Main extends AbstractVerticle {
         InfraResourceFactory infraResourceFactory = new TemplateInfraResourceFactory(kubernetes, schemaProvider, resolverFactory, authController.getDefaultCertProvider());
 
         ControllerChain controllerChain = new ControllerChain(kubernetes, addressSpaceApi, eventLogger);
-        controllerChain.addController(new CreateController(kubernetes, schemaProvider, infraResourceFactory, kubernetes.getNamespace(), eventLogger));
+        controllerChain.addController(new CreateController(kubernetes, schemaProvider, schemaApi, infraResourceFactory, kubernetes.getNamespace(), eventLogger));
         controllerChain.addController(new StatusController(kubernetes, infraResourceFactory));
         controllerChain.addController(new EndpointController(controllerClient));
         controllerChain.addController(authController);
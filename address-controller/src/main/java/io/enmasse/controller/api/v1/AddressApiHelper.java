@@ -5,7 +5,13 @@
 package io.enmasse.controller.api.v1;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -14,7 +20,7 @@ import javax.ws.rs.NotFoundException;
 import javax.ws.rs.core.SecurityContext;
 
 import io.enmasse.address.model.*;
-import io.enmasse.controller.SchemaProvider;
+import io.enmasse.k8s.api.SchemaProvider;
 import io.enmasse.controller.api.RbacSecurityContext;
 import io.enmasse.controller.api.ResourceVerb;
 import io.enmasse.controller.api.osb.v2.OSBExceptions;
@@ -59,34 +65,40 @@ public class AddressApiHelper {
         AddressApi addressApi = addressSpaceApi.withAddressSpace(addressSpace);
 
         Set<Address> toRemove = new HashSet<>(addressApi.listAddresses());
-        toRemove.removeAll(addressList);
+        toRemove.removeAll(new HashSet<>(addressList));
         toRemove.forEach(addressApi::deleteAddress);
         addressList.forEach(addressApi::createAddress);
         return new AddressList(addressApi.listAddresses());
     }
 
     private void validateAddresses(AddressSpace addressSpace, AddressList addressList) {
-        Schema schema = schemaProvider.getSchema();
-        AddressSpaceType type = schema.findAddressSpaceType(addressSpace.getType()).orElseThrow(() -> new UnresolvedAddressSpaceException("Unable to resolve address space type " + addressSpace.getType()));
-
-        AddressResolver addressResolver = new AddressResolver(schema, type);
-        Set<Address> existingAddresses = addressSpaceApi.withAddressSpace(addressSpace).listAddresses();
+        AddressResolver addressResolver = schemaProvider.getAddressResolver(addressSpace.getType());
+        Map<String, List<Address>> existingByAddress = groupByAddress(addressSpaceApi.withAddressSpace(addressSpace).listAddresses());
+        Map<String, List<Address>> requestedByAddress = groupByAddress(addressList);
         for (Address address : addressList) {
             addressResolver.validate(address);
-            for (Address existing : existingAddresses) {
-                if (address.getAddress().equals(existing.getAddress()) && !address.getName().equals(existing.getName())) {
+            for (Address existing : existingByAddress.getOrDefault(address.getAddress(), Collections.emptyList())) {
+                if (!address.getName().equals(existing.getName())) {
                     throw new BadRequestException("Address '" + address.getAddress() + "' already exists with resource name '" + existing.getName() + "'");
                 }
             }
 
-            for (Address b : addressList) {
-                if (address.getAddress().equals(b.getAddress()) && !address.getName().equals(b.getName())) {
+            for (Address b : requestedByAddress.getOrDefault(address.getAddress(), Collections.emptyList())) {
+                if (!address.getName().equals(b.getName())) {
                     throw new BadRequestException("Address '" + address.getAddress() + "' defined in resource names '" + address.getName() + "' and '" + b.getName() + "'");
                 }
             }
         }
     }
 
+    private static Map<String, List<Address>> groupByAddress(Collection<Address> addresses) {
+        Map<String, List<Address>> byAddress = new HashMap<>();
+        for (Address address : addresses) {
+            byAddress.computeIfAbsent(address.getAddress(), a -> new ArrayList<>()).add(address);
+        }
+        return byAddress;
+    }
+
     private AddressSpace getAddressSpace(String addressSpaceId) throws Exception {
         // TODO: Make our own exception for this API
         return addressSpaceApi.getAddressSpaceWithName(addressSpaceId)
@@ -7,7 +7,7 @@ package io.enmasse.controller.api.v1.http;
 import io.enmasse.address.model.AddressSpace;
 import io.enmasse.address.model.AddressSpaceList;
 import io.enmasse.address.model.AddressSpaceResolver;
-import io.enmasse.controller.SchemaProvider;
+import io.enmasse.k8s.api.SchemaProvider;
 import io.enmasse.controller.api.RbacSecurityContext;
 import io.enmasse.controller.api.ResourceVerb;
 import io.enmasse.controller.api.osb.v2.OSBExceptions;
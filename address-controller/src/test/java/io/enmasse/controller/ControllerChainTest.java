@@ -18,6 +18,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.internal.util.collections.Sets;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -76,5 +78,29 @@ public class ControllerChainTest {
         verify(mockController).handle(eq(a2));
     }
 
+    @Test
+    public void testCachedAddressSpacesNotModified(TestContext context) throws Exception {
+        EventLogger testLogger = mock(EventLogger.class);
+        ControllerChain controllerChain = new ControllerChain(kubernetes, testApi, testLogger);
+        controllerChain.addController(addressSpace -> {
+            addressSpace.getStatus().setReady(true);
+            return addressSpace;
+        });
+
+        vertx.deployVerticle(controllerChain, context.asyncAssertSuccess());
+
+        AddressSpace a1 = new AddressSpace.Builder()
+                .setName("myspace")
+                .setType("type1")
+                .setPlan("myplan")
+                .setStatus(new Status(false))
+                .build();
+
+        controllerChain.resourcesUpdated(Sets.newSet(a1));
+
+        assertFalse(a1.getStatus().isReady());
+        assertTrue(testApi.getAddressSpaceWithName("myspace").get().getStatus().isReady());
+    }
+
 }
 
@@ -40,8 +40,8 @@ public class CreateControllerTest {
         InfraResourceFactory mockResourceFactory = mock(InfraResourceFactory.class);
         when(mockResourceFactory.createResourceList(eq(addressSpace))).thenReturn(Collections.emptyList());
 
-        SchemaProvider testSchema = new TestSchemaProvider();
-        CreateController createController = new CreateController(kubernetes, testSchema, mockResourceFactory, "test", eventLogger);
+        TestSchemaProvider testSchema = new TestSchemaProvider();
+        CreateController createController = new CreateController(kubernetes, testSchema, testSchema.api, mockResourceFactory, "test", eventLogger);
 
         createController.handle(addressSpace);
 
@@ -50,5 +50,6 @@ public class CreateControllerTest {
         AddressSpace value = addressSpaceArgumentCaptor.getValue();
         assertThat(value.getName(), is("myspace"));
         assertThat(value.getNamespace(), is("mynamespace"));
+        assertThat(testSchema.api.getCopiedTo(), is(Collections.singleton("mynamespace")));
     }
 }
@@ -4,9 +4,9 @@
  */
 package io.enmasse.controller;
 
-import io.enmasse.address.model.AddressSpacePlan;
 import io.enmasse.address.model.Schema;
 import io.enmasse.k8s.api.TestSchemaApi;
+import io.enmasse.k8s.api.SchemaProvider;
 
 public class TestSchemaProvider implements SchemaProvider {
     public TestSchemaApi api = new TestSchemaApi();
@@ -15,9 +15,4 @@ public class TestSchemaProvider implements SchemaProvider {
     public Schema getSchema() {
         return api.getSchema();
     }
-
-    @Override
-    public void copyIntoNamespace(AddressSpacePlan plan, String namespace) {
-        api.copyIntoNamespace(plan, namespace);
-    }
 }
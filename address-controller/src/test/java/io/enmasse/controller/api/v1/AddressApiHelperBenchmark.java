@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.controller.api.v1;
+
+import io.enmasse.address.model.Address;
+import io.enmasse.address.model.AddressList;
+import io.enmasse.address.model.AddressResolver;
+import io.enmasse.address.model.AddressSpace;
+import io.enmasse.address.model.AddressSpaceType;
+import io.enmasse.address.model.Schema;
+import io.enmasse.controller.TestSchemaProvider;
+import io.enmasse.k8s.api.AddressApi;
+import io.enmasse.k8s.api.TestAddressSpaceApi;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.SecurityContext;
+import java.security.Principal;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures replacing all addresses of an address space, which validates every address in the request against the
+ * existing addresses and the other addresses in the request. Compares with scanning the addresses for every address,
+ * which is how the addresses were validated before.
+ *
+ * Not run as part of the tests. Run the main method with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class AddressApiHelperBenchmark {
+    @Param({"1000", "10000"})
+    public int numAddresses;
+
+    private AddressApiHelper helper;
+    private SecurityContext securityContext;
+    private AddressList addressList;
+    private AddressSpace addressSpace;
+    private TestAddressSpaceApi addressSpaceApi;
+    private TestSchemaProvider schemaProvider;
+
+    @Setup
+    public void setup() {
+        addressSpace = new AddressSpace.Builder()
+                .setName("myspace")
+                .setType("type1")
+                .build();
+        addressSpaceApi = new TestAddressSpaceApi();
+        addressSpaceApi.createAddressSpace(addressSpace);
+        AddressApi addressApi = addressSpaceApi.withAddressSpace(addressSpace);
+
+        addressList = new AddressList();
+        for (int i = 0; i < numAddresses; i++) {
+            Address address = new Address.Builder()
+                    .setName("queue-" + i)
+                    .setAddress("queue-" + i)
+                    .setAddressSpace("myspace")
+                    .setType("queue")
+                    .setPlan("plan1")
+                    .build();
+            addressList.add(address);
+            addressApi.createAddress(address);
+        }
+
+        securityContext = new SecurityContext() {
+            @Override
+            public Principal getUserPrincipal() {
+                return null;
+            }
+
+            @Override
+            public boolean isUserInRole(String role) {
+                return true;
+            }
+
+            @Override
+            public boolean isSecure() {
+                return true;
+            }
+
+            @Override
+            public String getAuthenticationScheme() {
+                return null;
+            }
+        };
+        schemaProvider = new TestSchemaProvider();
+        helper = new AddressApiHelper(addressSpaceApi, schemaProvider);
+    }
+
+    @Benchmark
+    public AddressList putAddresses() throws Exception {
+        return helper.putAddresses(securityContext, "myspace", addressList);
+    }
+
+    @Benchmark
+    public int nestedLoopValidation() {
+        Schema schema = schemaProvider.getSchema();
+        AddressSpaceType type = schema.findAddressSpaceType(addressSpace.getType()).get();
+        AddressResolver addressResolver = new AddressResolver(schema, type);
+        Set<Address> existingAddresses = addressSpaceApi.withAddressSpace(addressSpace).listAddresses();
+        for (Address address : addressList) {
+            addressResolver.validate(address);
+            for (Address existing : existingAddresses) {
+                if (address.getAddress().equals(existing.getAddress()) && !address.getName().equals(existing.getName())) {
+                    throw new BadRequestException("Address '" + address.getAddress() + "' already exists with resource name '" + existing.getName() + "'");
+                }
+            }
+
+            for (Address b : addressList) {
+                if (address.getAddress().equals(b.getAddress()) && !address.getName().equals(b.getName())) {
+                    throw new BadRequestException("Address '" + address.getAddress() + "' defined in resource names '" + address.getName() + "' and '" + b.getName() + "'");
+                }
+            }
+        }
+        return existingAddresses.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AddressApiHelperBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -24,7 +24,7 @@ import io.enmasse.address.model.Address;
 import io.enmasse.address.model.AddressList;
 import io.enmasse.address.model.AddressSpace;
 import io.enmasse.address.model.Schema;
-import io.enmasse.controller.SchemaProvider;
+import io.enmasse.k8s.api.SchemaProvider;
 import io.enmasse.controller.TestSchemaProvider;
 import io.enmasse.k8s.api.AddressApi;
 import io.enmasse.k8s.api.AddressSpaceApi;
@@ -5,23 +5,55 @@
 package io.enmasse.address.model;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+/**
+ * Resolves the types, plans and resource definitions of addresses in an address space type.
+ *
+ * The lookups are indexed when the resolver is created, so a resolver should be reused for as long as the schema
+ * does not change.
+ */
 public class AddressResolver {
     private final Schema schema;
     private final AddressSpaceType addressSpaceType;
+    private final Map<String, AddressType> addressTypes = new HashMap<>();
+    private final Map<String, Map<String, AddressPlan>> addressPlans = new HashMap<>();
 
     public AddressResolver(Schema schema, AddressSpaceType addressSpaceType) {
         this.schema = schema;
         this.addressSpaceType = addressSpaceType;
+        for (AddressType addressType : addressSpaceType.getAddressTypes()) {
+            if (addressTypes.putIfAbsent(addressType.getName(), addressType) == null) {
+                Map<String, AddressPlan> plans = new HashMap<>();
+                for (AddressPlan addressPlan : addressType.getAddressPlans()) {
+                    plans.putIfAbsent(addressPlan.getName(), addressPlan);
+                }
+                addressPlans.put(addressType.getName(), plans);
+            }
+        }
+    }
+
+    public AddressSpaceType getAddressSpaceType() {
+        return addressSpaceType;
     }
 
     public AddressPlan getPlan(AddressType addressType, Address address) {
-        return addressType.findAddressPlan(address.getPlan()).orElseThrow(() -> new UnresolvedAddressException("Unknown address plan " + address.getPlan()));
+        Map<String, AddressPlan> plans = addressPlans.get(addressType.getName());
+        Optional<AddressPlan> plan = plans != null && addressTypes.get(addressType.getName()) == addressType
+                ? Optional.ofNullable(plans.get(address.getPlan()))
+                : addressType.findAddressPlan(address.getPlan());
+        return plan.orElseThrow(() -> new UnresolvedAddressException("Unknown address plan " + address.getPlan()));
     }
 
     public AddressType getType(Address address) {
-        return addressSpaceType.findAddressType(address.getType()).orElseThrow(() -> new UnresolvedAddressException("Unknown address type " + address.getType()));
+        AddressType addressType = addressTypes.get(address.getType());
+        if (addressType == null) {
+            throw new UnresolvedAddressException("Unknown address type " + address.getType());
+        }
+        return addressType;
     }
 
     public List<ResourceDefinition> getResourceDefinitions(AddressPlan plan) {
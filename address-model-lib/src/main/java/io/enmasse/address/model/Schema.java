@@ -9,10 +9,18 @@ import java.util.*;
 public class Schema {
     private final List<AddressSpaceType> addressSpaceTypes;
     private final List<ResourceDefinition> resourceDefinitions;
+    private final Map<String, AddressSpaceType> addressSpaceTypesByName = new HashMap<>();
+    private final Map<String, ResourceDefinition> resourceDefinitionsByName = new HashMap<>();
 
     public Schema(List<AddressSpaceType> addressSpaceTypes, List<ResourceDefinition> resourceDefinitions) {
         this.addressSpaceTypes = addressSpaceTypes;
         this.resourceDefinitions = resourceDefinitions;
+        for (AddressSpaceType type : addressSpaceTypes) {
+            addressSpaceTypesByName.putIfAbsent(type.getName(), type);
+        }
+        for (ResourceDefinition resourceDefinition : resourceDefinitions) {
+            resourceDefinitionsByName.putIfAbsent(resourceDefinition.getName(), resourceDefinition);
+        }
     }
 
     public List<AddressSpaceType> getAddressSpaceTypes() {
@@ -20,21 +28,11 @@ public class Schema {
     }
 
     public Optional<AddressSpaceType> findAddressSpaceType(String name) {
-        for (AddressSpaceType type : addressSpaceTypes) {
-            if (type.getName().equals(name)) {
-                return Optional.ofNullable(type);
-            }
-        }
-        return Optional.empty();
+        return Optional.ofNullable(addressSpaceTypesByName.get(name));
     }
 
     public Optional<ResourceDefinition> findResourceDefinition(String name) {
-        for (ResourceDefinition resourceDefinition : resourceDefinitions) {
-            if (name.equals(resourceDefinition.getName())) {
-                return Optional.of(resourceDefinition);
-            }
-        }
-        return Optional.empty();
+        return Optional.ofNullable(resourceDefinitionsByName.get(name));
     }
 
     public List<ResourceDefinition> getResourceDefinitions() {
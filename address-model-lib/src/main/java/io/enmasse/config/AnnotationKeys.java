@@ -17,4 +17,5 @@ public interface AnnotationKeys {
     String BROKER_ID = "enmasse.io/broker-id";
     String NAMESPACE = "enmasse.io/namespace";
     String UUID = "enmasse.io/uuid";
+    String BROKER_PLACEMENT = "enmasse.io/broker-placement";
 }
@@ -19,13 +19,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
 
 /**
- * Represents an Artemis broker that may be managed
+ * Represents an Artemis broker that may be managed.
+ *
+ * Requests are pipelined on the management link: up to a limited number of requests may be outstanding at the same
+ * time. Each request is given a correlation id, and a reply carrying one is matched to its request by it. The broker
+ * does not set the correlation id on management replies, but handles the requests of a link in order, so a reply
+ * without one is matched to the oldest outstanding request.
+ *
+ * A request that times out is failed, but stays outstanding until its late reply arrives, so that the reply is not
+ * matched to a later request. Outstanding and waiting requests are failed when the management link or the connection
+ * is lost.
+ *
+ * All request state is only accessed on the context of the connection.
  */
 public class Artemis implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(Artemis.class.getName());
@@ -35,18 +47,23 @@ public class Artemis implements AutoCloseable {
     private final ProtonSender sender;
     private final ProtonReceiver receiver;
     private final String replyTo;
-    private final BlockingQueue<Message> replies;
     private final String brokerContainerId;
-    private long requestTimeoutMillis = 10_000;
-
-    private Artemis(Context context, ProtonConnection connection, ProtonSender sender, ProtonReceiver receiver, String replyTo, BlockingQueue<Message> replies) {
+    private final OutstandingRequests<Request> outstanding = new OutstandingRequests<>(true);
+    private final Deque<Request> waiting = new ArrayDeque<>();
+    private long nextRequestId = 0;
+    // Outstanding requests that timed out, and are only kept to consume their late reply
+    private int numTimedOut = 0;
+    private boolean lost = false;
+    private volatile long requestTimeoutMillis = 10_000;
+    private volatile int maxOutstandingRequests = 100;
+
+    private Artemis(Context context, ProtonConnection connection, ProtonSender sender, ProtonReceiver receiver, String replyTo) {
         this.context = context;
         this.connection = connection;
         this.brokerContainerId = connection.getRemoteContainer();
         this.sender = sender;
         this.receiver = receiver;
         this.replyTo = replyTo;
-        this.replies = replies;
     }
 
     public Artemis setRequestTimeout(long timeout, TimeUnit timeUnit) {
@@ -54,6 +71,18 @@ public class Artemis implements AutoCloseable {
         return this;
     }
 
+    /**
+     * Set the maximum number of requests sent to the broker without having received their reply. Further requests are
+     * sent as replies arrive. The request timeout starts when a request is sent.
+     */
+    public Artemis setMaxOutstandingRequests(int maxOutstandingRequests) {
+        if (maxOutstandingRequests < 1) {
+            throw new IllegalArgumentException("At least one outstanding request must be allowed");
+        }
+        this.maxOutstandingRequests = maxOutstandingRequests;
+        return this;
+    }
+
     public static Future<Artemis> createFromConnection(Vertx vertx, ProtonConnection connection) {
         Future<Artemis> promise = Future.future();
         connection.sessionOpenHandler(ProtonSession::open);
@@ -67,7 +96,22 @@ public class Artemis implements AutoCloseable {
         client.connect(protonClientOptions, host, port, result -> {
             if (result.succeeded()) {
                 ProtonConnection connection = result.result();
-                createSender(vertx, connection, promise, 0);
+                Future<Artemis> opened = Future.future();
+                opened.setHandler(ar -> {
+                    if (ar.succeeded()) {
+                        // The connection is only used by this client
+                        Artemis artemis = ar.result();
+                        connection.closeHandler(closed -> {
+                            artemis.connectionLost("Connection to broker " + artemis.brokerContainerId + " closed");
+                            connection.close();
+                        });
+                        connection.disconnectHandler(disconnected -> artemis.connectionLost("Disconnected from broker " + artemis.brokerContainerId));
+                        promise.complete(artemis);
+                    } else {
+                        promise.fail(ar.cause());
+                    }
+                });
+                createSender(vertx, connection, opened, 0);
                 connection.open();
             } else {
                 promise.fail(result.cause());
@@ -94,14 +138,16 @@ public class Artemis implements AutoCloseable {
     }
 
     private static void createReceiver(Vertx vertx, ProtonConnection connection, ProtonSender sender, Future<Artemis> promise, int retries) {
-        BlockingQueue<Message> replies = new LinkedBlockingDeque<>();
         ProtonReceiver receiver = connection.createReceiver("activemq.management");
         Source source = new Source();
         source.setDynamic(true);
         receiver.setSource(source);
         receiver.openHandler(h -> {
             if (h.succeeded()) {
-                promise.complete(new Artemis(vertx.getOrCreateContext(), connection, sender, receiver, h.result().getRemoteSource().getAddress(), replies));
+                Artemis artemis = new Artemis(vertx.getOrCreateContext(), connection, sender, receiver, h.result().getRemoteSource().getAddress());
+                receiver.handler(artemis::handleReply);
+                receiver.closeHandler(closed -> artemis.connectionLost("Management link to broker " + artemis.brokerContainerId + " closed"));
+                promise.complete(artemis);
             } else {
                 if (retries > maxRetries) {
                     promise.fail(h.cause());
@@ -111,40 +157,20 @@ public class Artemis implements AutoCloseable {
                 }
             }
         });
-        receiver.handler(((protonDelivery, message) -> {
-            try {
-                replies.put(message);
-                ProtonHelper.accepted(protonDelivery, true);
-            } catch (Exception e) {
-                ProtonHelper.rejected(protonDelivery, true);
-            }
-        }));
         receiver.open();
     }
 
-    private Message doOperation(String resource, String operation, Object ... parameters) throws TimeoutException {
+    private CompletableFuture<Message> doOperation(String resource, String operation, Object ... parameters) {
         Message message = createOperationMessage(resource, operation);
-        Message response = doRequestResponse(message, parameters);
-        if (response == null) {
-            throw new TimeoutException("Timed out getting response from broker " + brokerContainerId + " on " + resource + "." + operation + " with parameters: " + Arrays.toString(parameters));
-        }
-        return response;
+        return doRequestResponse(resource + "." + operation, requestTimeoutMillis, message, parameters);
     }
 
-    private Message doAttribute(String resource, String attribute, Object ... parameters) throws TimeoutException {
+    private CompletableFuture<Message> doAttribute(String resource, String attribute, Object ... parameters) {
         Message message = createAttributeMessage(resource, attribute);
-        Message response = doRequestResponse(message, parameters);
-        if (response == null) {
-            throw new TimeoutException("Timed out getting response from broker " + brokerContainerId + " on " + resource + "." + attribute + " with parameters: " + Arrays.toString(parameters));
-        }
-        return response;
-    }
-
-    private Message doRequestResponse(Message message, Object ... parameters) throws TimeoutException {
-        return doRequestResponse(requestTimeoutMillis, TimeUnit.MILLISECONDS, message, parameters);
+        return doRequestResponse(resource + "." + attribute, requestTimeoutMillis, message, parameters);
     }
 
-    private Message doRequestResponse(long timeout, TimeUnit timeUnit, Message message, Object ... parameters) throws TimeoutException {
+    private CompletableFuture<Message> doRequestResponse(String description, long timeoutMillis, Message message, Object ... parameters) {
         JsonArray params = new JsonArray();
         for (Object param : parameters) {
             if (param == null) {
@@ -155,7 +181,9 @@ public class Artemis implements AutoCloseable {
         }
 
         message.setBody(new AmqpValue(Json.encode(params)));
-        return sendMessage(message, timeout, timeUnit);
+        Request request = new Request(description + " with parameters: " + Arrays.toString(parameters), message, timeoutMillis);
+        context.runOnContext(h -> submit(request));
+        return request.response;
     }
 
     private Message createOperationMessage(String resource, String operation) {
@@ -180,85 +208,263 @@ public class Artemis implements AutoCloseable {
         return message;
     }
 
-    private Message sendMessage(Message message, long timeout, TimeUnit timeUnit) {
-        context.runOnContext(h -> sender.send(message));
+    private void submit(Request request) {
+        if (lost) {
+            request.response.completeExceptionally(new IllegalStateException("Connection to broker " + brokerContainerId + " lost"));
+        } else if (outstanding.size() - numTimedOut < maxOutstandingRequests) {
+            send(request);
+        } else {
+            waiting.add(request);
+        }
+    }
+
+    private void send(Request request) {
+        String id = String.valueOf(nextRequestId++);
+        request.message.setMessageId(id);
+        request.message.setCorrelationId(id);
+        outstanding.put(id, request);
+        request.timerId = context.owner().setTimer(request.timeoutMillis, timerId -> requestTimedOut(request));
+        sender.send(request.message);
+    }
+
+    /**
+     * Fail a request that has not been answered in time. It stays outstanding until its late reply arrives, but no
+     * longer counts against the limit of outstanding requests.
+     */
+    private void requestTimedOut(Request request) {
+        if (!request.timedOut && !request.response.isDone()) {
+            request.timedOut = true;
+            numTimedOut++;
+            request.response.completeExceptionally(new TimeoutException("Timed out getting response from broker " + brokerContainerId + " on " + request.description));
+            sendWaiting();
+        }
+    }
+
+    private void handleReply(ProtonDelivery delivery, Message message) {
+        ProtonHelper.accepted(delivery, true);
+        Request request = outstanding.match(message);
+        if (request == null) {
+            log.debug("Ignoring reply from broker {} without matching request", brokerContainerId);
+        } else if (request.timedOut) {
+            numTimedOut--;
+            log.debug("Ignoring late reply from broker {} on {}", brokerContainerId, request.description);
+        } else {
+            context.owner().cancelTimer(request.timerId);
+            request.response.complete(message);
+        }
+        sendWaiting();
+    }
+
+    /**
+     * Fail the outstanding and waiting requests, and any later ones, as their replies will not arrive.
+     */
+    private void connectionLost(String reason) {
+        if (lost) {
+            return;
+        }
+        lost = true;
+        IllegalStateException cause = new IllegalStateException(reason);
+        List<Request> sent = new ArrayList<>(outstanding.values());
+        List<Request> notSent = new ArrayList<>(waiting);
+        outstanding.clear();
+        waiting.clear();
+        numTimedOut = 0;
+        log.warn("{}, failing {} requests", reason, sent.size() + notSent.size());
+        for (Request request : sent) {
+            context.owner().cancelTimer(request.timerId);
+            request.response.completeExceptionally(cause);
+        }
+        for (Request request : notSent) {
+            request.response.completeExceptionally(cause);
+        }
+    }
+
+    private void sendWaiting() {
+        while (outstanding.size() - numTimedOut < maxOutstandingRequests && !waiting.isEmpty()) {
+            send(waiting.poll());
+        }
+    }
+
+    /**
+     * Wait for the response to a request made with one of the asynchronous methods, or to a few of them combined.
+     */
+    public <T> T await(CompletableFuture<T> response) throws TimeoutException {
+        return await(response, requestTimeoutMillis, 1);
+    }
+
+    /**
+     * Wait for the response to a number of requests. Each request fails on its own timer once sent, but requests are
+     * only sent as earlier ones are answered, so the wait is bounded by the time needed to send all of them, and
+     * one more request timeout for the requests already waiting. Must not be called on an event loop thread, as the
+     * replies are handled on one.
+     */
+    private <T> T await(CompletableFuture<T> response, long perRequestTimeoutMillis, int numRequests) throws TimeoutException {
+        if (Context.isOnEventLoopThread()) {
+            throw new IllegalStateException("Blocking on a reply from broker " + brokerContainerId + " on an event loop thread, the asynchronous methods must be used instead");
+        }
+        int maxOutstanding = maxOutstandingRequests;
+        long timeoutMillis = perRequestTimeoutMillis * (1 + (numRequests + maxOutstanding - 1) / maxOutstanding);
         try {
-            Message m = replies.poll(timeout, timeUnit);
-            return m;
+            return response.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new TimeoutException("Timed out waiting for reply from broker " + brokerContainerId + " after " + timeoutMillis + " ms");
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw (TimeoutException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw new RuntimeException(e.getCause());
+            }
         }
     }
 
+    private static String getStringResult(Message response) {
+        String payload = (String) ((AmqpValue)response.getBody()).getValue();
+        JsonArray json = new JsonArray(payload);
+        return json.getString(0);
+    }
+
+    private static Set<String> getStringSetResult(Message response, String excluded) {
+        Set<String> values = new LinkedHashSet<>();
+        JsonArray payload = new JsonArray((String)((AmqpValue)response.getBody()).getValue());
+        for (int i = 0; i < payload.size(); i++) {
+            JsonArray inner = payload.getJsonArray(i);
+            for (int j = 0; j < inner.size(); j++) {
+                String value = inner.getString(j);
+                if (!value.equals(excluded)) {
+                    values.add(value);
+                }
+            }
+        }
+        return values;
+    }
+
     public void deployQueue(String name, String address) throws TimeoutException {
         log.info("Deploying queue {} with address {} on broker {}", name, address, brokerContainerId);
-        doOperation("broker", "deployQueue", address, name, null, false);
+        await(doOperation("broker", "deployQueue", address, name, null, false));
     }
 
     public void createQueue(String name, String address) throws TimeoutException {
         log.info("Creating queue {} with address {} on broker {}", name, address, brokerContainerId);
-        doOperation("broker", "createQueue", address, "ANYCAST", name, null, true, -1, false, true);
+        await(createQueueAsync(name, address));
+    }
+
+    public CompletableFuture<Void> createQueueAsync(String name, String address) {
+        return doOperation("broker", "createQueue", address, "ANYCAST", name, null, true, -1, false, true).thenApply(response -> null);
+    }
+
+    /**
+     * Create queues with the same name as their address, pipelining the requests.
+     */
+    public void createQueues(Collection<String> addresses) throws TimeoutException {
+        await(createQueuesAsync(addresses), requestTimeoutMillis, addresses.size());
+    }
+
+    public CompletableFuture<Void> createQueuesAsync(Collection<String> addresses) {
+        log.info("Creating {} queues on broker {}", addresses.size(), brokerContainerId);
+        return allOf(addresses.stream().map(address -> createQueueAsync(address, address)));
     }
 
     public void createConnectorService(String name, Map<String, String> connParams) throws TimeoutException {
         log.info("Creating connector service {} on broker {}", name, brokerContainerId);
+        await(createConnectorServiceAsync(name, connParams));
+    }
+
+    public CompletableFuture<Void> createConnectorServiceAsync(String name, Map<String, String> connParams) {
         String factoryName = "org.apache.activemq.artemis.integration.amqp.AMQPConnectorServiceFactory";
-        doOperation("broker", "createConnectorService", name, factoryName, connParams);
+        return doOperation("broker", "createConnectorService", name, factoryName, connParams).thenApply(response -> null);
     }
 
     public void destroyQueue(String name) throws TimeoutException {
         log.info("Destroying queue {} on broker {}", name, brokerContainerId);
-        doOperation("broker", "destroyQueue", name, true);
+        await(destroyQueueAsync(name));
+    }
+
+    public CompletableFuture<Void> destroyQueueAsync(String name) {
+        return doOperation("broker", "destroyQueue", name, true).thenApply(response -> null);
+    }
+
+    /**
+     * Destroy queues, pipelining the requests.
+     */
+    public void destroyQueues(Collection<String> names) throws TimeoutException {
+        await(destroyQueuesAsync(names), requestTimeoutMillis, names.size());
+    }
+
+    public CompletableFuture<Void> destroyQueuesAsync(Collection<String> names) {
+        log.info("Destroying {} queues on broker {}", names.size(), brokerContainerId);
+        return allOf(names.stream().map(this::destroyQueueAsync));
     }
 
     public void destroyConnectorService(String address) throws TimeoutException {
-        doOperation("broker", "destroyConnectorService", address);
+        await(destroyConnectorServiceAsync(address));
         log.info("Destroyed connector service {} on broker {}", address, brokerContainerId);
     }
 
+    public CompletableFuture<Void> destroyConnectorServiceAsync(String address) {
+        return doOperation("broker", "destroyConnectorService", address).thenApply(response -> null);
+    }
+
+    private static CompletableFuture<Void> allOf(Stream<CompletableFuture<Void>> futures) {
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+    }
+
     public long getNumQueues() throws TimeoutException {
         return getQueueNames().size();
     }
 
     public long getQueueMessageCount(String queueName) throws TimeoutException {
         log.info("Checking message count for queue {} on broker {}", queueName, brokerContainerId);
-        Message response = doAttribute("queue." + queueName, "messageCount");
-        String payload = (String) ((AmqpValue)response.getBody()).getValue();
-        JsonArray json = new JsonArray(payload);
-        return json.getLong(0);
+        return await(getQueueMessageCountAsync(queueName));
     }
 
+    public CompletableFuture<Long> getQueueMessageCountAsync(String queueName) {
+        return getLongAttributeAsync("queue." + queueName, "messageCount");
+    }
+
+    public CompletableFuture<Long> getTotalMessageCountAsync() {
+        return getLongAttributeAsync("broker", "totalMessageCount");
+    }
+
+    public CompletableFuture<Long> getTotalConsumerCountAsync() {
+        return getLongAttributeAsync("broker", "totalConsumerCount");
+    }
+
+    public CompletableFuture<Long> getAddressMemoryUsagePercentageAsync() {
+        return getLongAttributeAsync("broker", "addressMemoryUsagePercentage");
+    }
+
+    private CompletableFuture<Long> getLongAttributeAsync(String resource, String attribute) {
+        return doAttribute(resource, attribute).thenApply(response -> {
+            String payload = (String) ((AmqpValue)response.getBody()).getValue();
+            JsonArray json = new JsonArray(payload);
+            return ((Number) json.getValue(0)).longValue();
+        });
+    }
 
     public String getQueueAddress(String queueName) throws TimeoutException {
         log.info("Checking queue address for queue {} on broker {}", queueName, brokerContainerId);
-        Message response = doOperation("queue." + queueName, "getAddress");
-        String payload = (String) ((AmqpValue)response.getBody()).getValue();
-        JsonArray json = new JsonArray(payload);
-        return json.getString(0);
+        return await(doOperation("queue." + queueName, "getAddress").thenApply(Artemis::getStringResult));
     }
 
     public void forceShutdown() throws TimeoutException {
         log.info("Sending forceShutdown to broker {}", brokerContainerId);
         Message request = createOperationMessage("broker", "forceFailover");
-        doRequestResponse(10, TimeUnit.SECONDS, request);
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(10);
+        await(doRequestResponse("broker.forceFailover", timeoutMillis, request), timeoutMillis, 1);
     }
 
     public Set<String> getQueueNames() throws TimeoutException {
         log.info("Retrieving queue names for broker {}", brokerContainerId);
-        Message response = doOperation("broker", "getQueueNames");
+        return await(getQueueNamesAsync());
+    }
 
-        Set<String> queues = new LinkedHashSet<>();
-        JsonArray payload = new JsonArray((String)((AmqpValue)response.getBody()).getValue());
-        for (int i = 0; i < payload.size(); i++) {
-            JsonArray inner = payload.getJsonArray(i);
-            for (int j = 0; j < inner.size(); j++) {
-                String queueName = inner.getString(j);
-                if (!queueName.equals(replyTo)) {
-                    queues.add(queueName);
-                }
-            }
-        }
-        return queues;
+    public CompletableFuture<Set<String>> getQueueNamesAsync() {
+        return doOperation("broker", "getQueueNames").thenApply(response -> getStringSetResult(response, replyTo));
     }
 
     public void close() {
@@ -267,35 +473,21 @@ public class Artemis implements AutoCloseable {
 
     public void pauseQueue(String queueName) throws TimeoutException {
         log.info("Pausing queue {}", queueName);
-        doOperation("queue." + queueName, "pause");
+        await(doOperation("queue." + queueName, "pause"));
     }
 
     public void resumeQueue(String queueName) throws TimeoutException {
         log.info("Resuming queue {}", queueName);
-        doOperation("queue." + queueName, "resume");
+        await(doOperation("queue." + queueName, "resume"));
     }
 
     public Set<String> getDivertNames() throws TimeoutException {
         log.info("Retrieving divert names");
-        Message response = doOperation("broker", "getDivertNames");
-
-        Set<String> diverts = new LinkedHashSet<>();
-        JsonArray payload = new JsonArray((String)((AmqpValue)response.getBody()).getValue());
-
-        for (int i = 0; i < payload.size(); i++) {
-            JsonArray inner = payload.getJsonArray(i);
-            for (int j = 0; j < inner.size(); j++) {
-                diverts.add(inner.getString(j));
-            }
-        }
-        return diverts;
+        return await(doOperation("broker", "getDivertNames").thenApply(response -> getStringSetResult(response, null)));
     }
 
     private String doOperationWithStringResult(String resource, String operation, Object ... parameters) throws TimeoutException {
-        Message response = doOperation(resource, operation, parameters);
-        String payload = (String) ((AmqpValue)response.getBody()).getValue();
-        JsonArray json = new JsonArray(payload);
-        return json.getString(0);
+        return await(doOperation(resource, operation, parameters).thenApply(Artemis::getStringResult));
     }
 
     public String getDivertRoutingName(String divertName) throws TimeoutException {
@@ -315,29 +507,35 @@ public class Artemis implements AutoCloseable {
 
     public void createDivert(String divertName, String routingName, String address, String forwardingAddress) throws TimeoutException {
         log.info("Creating divert {}", divertName);
-        doOperation("broker", "createDivert", divertName, routingName, address, forwardingAddress, false, null, null);
+        await(doOperation("broker", "createDivert", divertName, routingName, address, forwardingAddress, false, null, null));
     }
 
     public void destroyDivert(String divertName) throws TimeoutException {
         log.info("Destroying divert {}", divertName);
-        doOperation("broker", "destroyDivert", divertName);
+        await(doOperation("broker", "destroyDivert", divertName));
     }
 
     public Set<String> getConnectorNames() throws TimeoutException {
         log.info("Retrieving conector names for broker {}", brokerContainerId);
-        Message response = doOperation("broker", "getConnectorServices");
+        return await(getConnectorNamesAsync());
+    }
 
-        Set<String> connectors = new LinkedHashSet<>();
-        JsonArray payload = new JsonArray((String)((AmqpValue)response.getBody()).getValue());
-        for (int i = 0; i < payload.size(); i++) {
-            JsonArray inner = payload.getJsonArray(i);
-            for (int j = 0; j < inner.size(); j++) {
-                String connector = inner.getString(j);
-                if (!connector.equals("amqp-connector")) {
-                    connectors.add(connector);
-                }
-            }
+    public CompletableFuture<Set<String>> getConnectorNamesAsync() {
+        return doOperation("broker", "getConnectorServices").thenApply(response -> getStringSetResult(response, "amqp-connector"));
+    }
+
+    private static class Request {
+        final String description;
+        final Message message;
+        final long timeoutMillis;
+        final CompletableFuture<Message> response = new CompletableFuture<>();
+        long timerId;
+        boolean timedOut;
+
+        private Request(String description, Message message, long timeoutMillis) {
+            this.description = description;
+            this.message = message;
+            this.timeoutMillis = timeoutMillis;
         }
-        return connectors;
     }
 }
@@ -37,6 +37,7 @@ public class DispatchRouterJ extends AbstractVerticle {
     private String certDir;
 
     private RoutingTable routingTable = new RoutingTable();
+    private final Set<ProtonConnection> clientConnections = Collections.synchronizedSet(new HashSet<>());
 
     public DispatchRouterJ(String certDir) {
         this.certDir = certDir;
@@ -89,10 +90,12 @@ public class DispatchRouterJ extends AbstractVerticle {
             connection.openHandler(ar -> connectionOpen(ar, isRouteContainer));
             connection.disconnectHandler(conn -> {
                 log.info("Connection disconnected!");
+                clientConnections.remove(connection);
                 connection.disconnect();
             });
             connection.closeHandler(handle -> {
                 log.info("Connection closing!");
+                clientConnections.remove(connection);
                 connection.close();
                 connection.disconnect();
             });
@@ -113,6 +116,8 @@ public class DispatchRouterJ extends AbstractVerticle {
             ProtonConnection connection = result.result();
             if (isRouteContainer) {
                 routingTable.addConnection(connection, vertx.getOrCreateContext());
+            } else {
+                clientConnections.add(connection);
             }
             connection.open();
         }
@@ -140,6 +145,13 @@ public class DispatchRouterJ extends AbstractVerticle {
     public int getRouteContainerPort() {
         return routeContainer.actualPort();
     }
+
+    /**
+     * Returns the number of open connections on the normal ports, not counting the route containers.
+     */
+    public int getNumClientConnections() {
+        return clientConnections.size();
+    }
     public static class Receiver {
         private final ProtonReceiver protonReceiver;
         private final Context context;
@@ -365,7 +377,15 @@ public class DispatchRouterJ extends AbstractVerticle {
         }
 
         public synchronized void addReceiver(String address, ProtonReceiver protonReceiver, Context context) {
-            if (hasLinkRouteFor(address)) {
+            if (address == null) {
+                log.info("Adding anonymous relay receiver");
+                Receiver receiver = new Receiver(protonReceiver, context);
+                protonReceiver.handler(((protonDelivery, message) -> {
+                    handleMessage(receiver, message.getAddress(), protonDelivery, message);
+                }));
+                protonReceiver.closeHandler(handle -> receiver.close(protonReceiver.getRemoteCondition()));
+                protonReceiver.open();
+            } else if (hasLinkRouteFor(address)) {
                 LinkRoute linkRoute = null;
                 for (LinkRoute lr : linkRoutes) {
                     if (address.startsWith(lr.config.prefix)) {
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package io.enmasse.amqp;
+
+import org.apache.qpid.proton.message.Message;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Requests sent on a link and not yet answered, by the id set as their correlation id, in the order they were sent.
+ *
+ * A reply carrying a correlation id is only matched to the request with that id. A reply without one is matched to the
+ * oldest outstanding request if the peer handles the requests of a link in order, and otherwise only if there is a
+ * single candidate.
+ *
+ * Not thread safe, only to be accessed on the context of the connection.
+ */
+class OutstandingRequests<T> {
+    private final Map<String, T> requests = new LinkedHashMap<>();
+    private final boolean repliesInOrder;
+
+    OutstandingRequests(boolean repliesInOrder) {
+        this.repliesInOrder = repliesInOrder;
+    }
+
+    void put(String id, T request) {
+        requests.put(id, request);
+    }
+
+    T remove(String id) {
+        return requests.remove(id);
+    }
+
+    /**
+     * Remove and return the request a reply answers, or null if there is none.
+     */
+    T match(Message reply) {
+        Object correlationId = reply.getCorrelationId();
+        if (correlationId != null) {
+            return requests.remove(String.valueOf(correlationId));
+        }
+        if (requests.isEmpty() || (!repliesInOrder && requests.size() > 1)) {
+            return null;
+        }
+        Iterator<T> oldest = requests.values().iterator();
+        T request = oldest.next();
+        oldest.remove();
+        return request;
+    }
+
+    int size() {
+        return requests.size();
+    }
+
+    Collection<T> values() {
+        return requests.values();
+    }
+
+    void clear() {
+        requests.clear();
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package io.enmasse.amqp;
+
+import io.enmasse.metrics.LatencyHistogram;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.proton.ProtonClient;
+import io.vertx.proton.ProtonClientOptions;
+import io.vertx.proton.ProtonConnection;
+import io.vertx.proton.ProtonReceiver;
+import io.vertx.proton.ProtonSender;
+import org.apache.qpid.proton.amqp.messaging.Source;
+import org.apache.qpid.proton.message.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A request-response client over AMQP that keeps its connection open between requests.
+ *
+ * Requests share a single connection and a single dynamic reply-to address, and responses are matched to requests
+ * by correlation id, so that many requests can be outstanding at the same time. The connection is opened on the
+ * first request, and reopened on the next request after it has been lost.
+ *
+ * If given histograms, the client records the time taken to connect and the time taken by each request.
+ */
+public class ProtonRequestClient implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ProtonRequestClient.class);
+    private final String host;
+    private final int port;
+    private final Vertx vertx;
+    private final ProtonClientOptions clientOptions;
+    private final Context context;
+    private final AtomicLong requestCounter = new AtomicLong(0);
+    private final LatencyHistogram connectLatency;
+    private final LatencyHistogram requestLatency;
+
+    // Only accessed on the context
+    private ProtonConnection connection;
+    private boolean connecting = false;
+    private boolean ready = false;
+    private boolean closed = false;
+    private String replyTo;
+    private final Map<String, ProtonSender> senders = new HashMap<>();
+    private final OutstandingRequests<CompletableFuture<Message>> outstanding = new OutstandingRequests<>(false);
+    private final List<Request> waiting = new ArrayList<>();
+
+    public ProtonRequestClient(String host, int port, Vertx vertx, ProtonClientOptions clientOptions) {
+        this(host, port, vertx, clientOptions, null, null);
+    }
+
+    public ProtonRequestClient(String host, int port, Vertx vertx, ProtonClientOptions clientOptions, LatencyHistogram connectLatency, LatencyHistogram requestLatency) {
+        this.host = host;
+        this.port = port;
+        this.vertx = vertx;
+        this.clientOptions = clientOptions;
+        this.context = vertx.getOrCreateContext();
+        this.connectLatency = connectLatency;
+        this.requestLatency = requestLatency;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Send a request to the address of the message. The returned future completes with the response, or fails if
+     * no response has arrived within the timeout.
+     */
+    public CompletableFuture<Message> requestAsync(Message message, long timeout, TimeUnit timeUnit) {
+        String requestId = "request-" + requestCounter.incrementAndGet();
+        CompletableFuture<Message> response = new CompletableFuture<>();
+        if (requestLatency != null) {
+            long start = System.nanoTime();
+            response.whenComplete((result, error) -> requestLatency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        }
+        context.runOnContext(v -> {
+            Request request = new Request(requestId, message, response);
+            if (closed) {
+                response.completeExceptionally(new IOException("Client for " + host + ":" + port + " is closed"));
+            } else if (ready) {
+                send(request);
+            } else {
+                waiting.add(request);
+                connect();
+            }
+            vertx.setTimer(Math.max(1, timeUnit.toMillis(timeout)), id -> {
+                if (response.completeExceptionally(new TimeoutException("Timed out waiting for response to " + requestId + " from " + host + ":" + port))) {
+                    outstanding.remove(requestId);
+                    waiting.remove(request);
+                }
+            });
+        });
+        return response;
+    }
+
+    public Message request(Message message, long timeout, TimeUnit timeUnit) throws InterruptedException, TimeoutException, ExecutionException {
+        return requestAsync(message, timeout, timeUnit).get(timeout, timeUnit);
+    }
+
+    private void connect() {
+        if (connecting) {
+            return;
+        }
+        connecting = true;
+        log.debug("Connecting to {}:{}", host, port);
+        long start = System.nanoTime();
+        ProtonClient.create(vertx).connect(clientOptions, host, port, connectEvent -> {
+            if (connectEvent.failed()) {
+                connecting = false;
+                failWaiting(connectEvent.cause());
+                return;
+            }
+
+            ProtonConnection conn = connectEvent.result();
+            connection = conn;
+            conn.closeHandler(result -> connectionLost(conn));
+            conn.disconnectHandler(c -> connectionLost(conn));
+            conn.open();
+
+            ProtonReceiver receiver = conn.createReceiver(null);
+            Source source = new Source();
+            source.setDynamic(true);
+            receiver.setSource(source);
+            receiver.handler((delivery, response) -> handleResponse(response));
+            receiver.openHandler(receiverOpenEvent -> {
+                connecting = false;
+                if (receiverOpenEvent.succeeded()) {
+                    if (connectLatency != null) {
+                        connectLatency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    }
+                    if (receiver.getRemoteSource() != null) {
+                        replyTo = receiver.getRemoteSource().getAddress();
+                    }
+                    ready = true;
+                    List<Request> requests = new ArrayList<>(waiting);
+                    waiting.clear();
+                    for (Request request : requests) {
+                        send(request);
+                    }
+                } else {
+                    failWaiting(receiverOpenEvent.cause());
+                    conn.close();
+                    connectionLost(conn);
+                }
+            });
+            receiver.open();
+        });
+    }
+
+    private void send(Request request) {
+        if (request.response.isDone()) {
+            return;
+        }
+        String address = request.message.getAddress();
+        ProtonSender sender = senders.get(address);
+        if (sender == null) {
+            sender = connection.createSender(address);
+            sender.closeHandler(result -> senders.remove(address));
+            sender.open();
+            senders.put(address, sender);
+        }
+        request.message.setMessageId(request.id);
+        request.message.setCorrelationId(request.id);
+        if (replyTo != null) {
+            request.message.setReplyTo(replyTo);
+        }
+        outstanding.put(request.id, request.response);
+        sender.send(request.message);
+    }
+
+    private void handleResponse(Message response) {
+        CompletableFuture<Message> future = outstanding.match(response);
+        if (future != null) {
+            future.complete(response);
+        } else {
+            log.debug("Discarding response with unknown correlation id {} from {}:{}", response.getCorrelationId(), host, port);
+        }
+    }
+
+    private void connectionLost(ProtonConnection conn) {
+        if (conn == null || conn != connection) {
+            return;
+        }
+        log.debug("Connection to {}:{} lost", host, port);
+        connection = null;
+        connecting = false;
+        ready = false;
+        replyTo = null;
+        senders.clear();
+        IOException cause = new IOException("Connection to " + host + ":" + port + " lost");
+        for (CompletableFuture<Message> future : outstanding.values()) {
+            future.completeExceptionally(cause);
+        }
+        outstanding.clear();
+        failWaiting(cause);
+        conn.disconnect();
+    }
+
+    private void failWaiting(Throwable cause) {
+        for (Request request : waiting) {
+            request.response.completeExceptionally(cause);
+        }
+        waiting.clear();
+    }
+
+    @Override
+    public void close() {
+        context.runOnContext(v -> {
+            closed = true;
+            ProtonConnection conn = connection;
+            if (conn != null) {
+                conn.close();
+                connectionLost(conn);
+            }
+            failWaiting(new IOException("Client for " + host + ":" + port + " is closed"));
+        });
+    }
+
+    private static class Request {
+        private final String id;
+        private final Message message;
+        private final CompletableFuture<Message> response;
+
+        private Request(String id, Message message, CompletableFuture<Message> response) {
+            this.id = id;
+            this.message = message;
+            this.response = response;
+        }
+    }
+}
@@ -5,14 +5,11 @@
 
 package io.enmasse.amqp;
 
+import io.enmasse.metrics.LatencyHistogram;
 import io.vertx.core.Vertx;
-import io.vertx.core.net.PemKeyCertOptions;
-import io.vertx.core.net.PemTrustOptions;
-import io.vertx.proton.*;
-import org.apache.qpid.proton.amqp.messaging.Source;
+import io.vertx.proton.ProtonClientOptions;
 import org.apache.qpid.proton.message.Message;
 
-import java.io.File;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -20,15 +17,23 @@ import java.util.concurrent.TimeoutException;
 
 /**
  * A simple client for doing request-response over AMQP.
+ *
+ * The connection and reply-to address are kept open between requests, and reopened if lost. Requests may be made
+ * concurrently from several threads.
  */
 public class SyncRequestClient implements AutoCloseable {
-    private final String host;
-    private final int port;
+    private static Vertx sharedVertx;
+
     private final Vertx vertx;
-    private final ProtonClientOptions clientOptions;
+    private final boolean closeVertx;
+    private final ProtonRequestClient client;
 
+    /**
+     * Create a client running on a Vert.x instance shared by all clients created this way. The shared instance is
+     * created on first use and kept open.
+     */
     public SyncRequestClient(String host, int port) {
-        this(host, port, Vertx.vertx());
+        this(host, port, getSharedVertx(), false, new ProtonClientOptions(), null, null);
     }
 
     public SyncRequestClient(String host, int port, Vertx vertx) {
@@ -36,61 +41,42 @@ public class SyncRequestClient implements AutoCloseable {
     }
 
     public SyncRequestClient(String host, int port, Vertx vertx, ProtonClientOptions clientOptions) {
-        this.host = host;
-        this.port = port;
-        this.vertx = vertx;
-        this.clientOptions = clientOptions;
+        this(host, port, vertx, clientOptions, null, null);
     }
 
-    public Message request(Message message, long timeout, TimeUnit timeUnit) throws InterruptedException, TimeoutException, ExecutionException {
-        String address = message.getAddress();
-        CompletableFuture<Message> response = new CompletableFuture<>();
+    public SyncRequestClient(String host, int port, Vertx vertx, ProtonClientOptions clientOptions, LatencyHistogram connectLatency, LatencyHistogram requestLatency) {
+        this(host, port, vertx, true, clientOptions, connectLatency, requestLatency);
+    }
 
-        ProtonClient client = ProtonClient.create(vertx);
-        client.connect(clientOptions, host, port, connectEvent -> {
-            if (connectEvent.succeeded()) {
-                ProtonConnection connection = connectEvent.result();
-                connection.open();
+    private SyncRequestClient(String host, int port, Vertx vertx, boolean closeVertx, ProtonClientOptions clientOptions, LatencyHistogram connectLatency, LatencyHistogram requestLatency) {
+        this.vertx = vertx;
+        this.closeVertx = closeVertx;
+        this.client = new ProtonRequestClient(host, port, vertx, clientOptions, connectLatency, requestLatency);
+    }
 
-                ProtonSender sender = connection.createSender(address);
-                sender.openHandler(senderOpenEvent -> {
-                    if (senderOpenEvent.succeeded()) {
-                        ProtonReceiver receiver = connection.createReceiver(address);
-                        Source source = new Source();
-                        source.setDynamic(true);
-                        receiver.setSource(source);
-                        receiver.setPrefetch(1);
-                        receiver.handler(((delivery, msg) -> {
-                            response.complete(msg);
+    private static synchronized Vertx getSharedVertx() {
+        if (sharedVertx == null) {
+            sharedVertx = Vertx.vertx();
+        }
+        return sharedVertx;
+    }
 
-                            receiver.close();
-                            sender.close();
-                            connection.close();
-                        }));
+    public Message request(Message message, long timeout, TimeUnit timeUnit) throws InterruptedException, TimeoutException, ExecutionException {
+        return client.request(message, timeout, timeUnit);
+    }
 
-                        receiver.openHandler(receiverOpenEvent -> {
-                            if (receiverOpenEvent.succeeded()) {
-                                if (receiver.getRemoteSource() != null) {
-                                    message.setReplyTo(receiver.getRemoteSource().getAddress());
-                                }
-                                sender.send(message);
-                            } else {
-                                response.completeExceptionally(receiverOpenEvent.cause());
-                            }
-                        });
-                        receiver.open();
-                    }
-                });
-                sender.open();
-            } else {
-                response.completeExceptionally(connectEvent.cause());
-            }
-        });
-        return response.get(timeout, timeUnit);
+    public CompletableFuture<Message> requestAsync(Message message, long timeout, TimeUnit timeUnit) {
+        return client.requestAsync(message, timeout, timeUnit);
     }
 
+    /**
+     * Close the connection, and the Vert.x instance if it was passed to the client. The shared instance stays open.
+     */
     @Override
     public void close() throws Exception {
-        vertx.close();
+        client.close();
+        if (closeVertx) {
+            vertx.close();
+        }
     }
 }
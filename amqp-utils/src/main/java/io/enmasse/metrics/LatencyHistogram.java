@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies with fixed buckets, which can be written in the Prometheus text format.
+ */
+public class LatencyHistogram {
+    private static final long[] BUCKETS_MILLIS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final String name;
+    private final String help;
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKETS_MILLIS.length);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong sumMillis = new AtomicLong(0);
+
+    public LatencyHistogram(String name, String help) {
+        this.name = name;
+        this.help = help;
+    }
+
+    public void record(long latencyMillis) {
+        for (int i = 0; i < BUCKETS_MILLIS.length; i++) {
+            if (latencyMillis <= BUCKETS_MILLIS[i]) {
+                bucketCounts.incrementAndGet(i);
+                break;
+            }
+        }
+        sumMillis.addAndGet(latencyMillis);
+        count.incrementAndGet();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Write the histogram in the Prometheus text format, with latencies in seconds.
+     */
+    public void writePrometheus(StringBuilder builder) {
+        builder.append("# HELP ").append(name).append(" ").append(help).append("\n");
+        builder.append("# TYPE ").append(name).append(" histogram\n");
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS_MILLIS.length; i++) {
+            cumulative += bucketCounts.get(i);
+            builder.append(name).append("_bucket{le=\"").append(BUCKETS_MILLIS[i] / 1000.0).append("\"} ").append(cumulative).append("\n");
+        }
+        builder.append(name).append("_bucket{le=\"+Inf\"} ").append(count.get()).append("\n");
+        builder.append(name).append("_sum ").append(sumMillis.get() / 1000.0).append("\n");
+        builder.append(name).append("_count ").append(count.get()).append("\n");
+    }
+}
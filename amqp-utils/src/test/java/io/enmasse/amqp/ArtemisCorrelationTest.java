@@ -0,0 +1,200 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package io.enmasse.amqp;
+
+import io.vertx.core.Vertx;
+import io.vertx.proton.ProtonClientOptions;
+import io.vertx.proton.ProtonConnection;
+import io.vertx.proton.ProtonSender;
+import io.vertx.proton.ProtonServer;
+import io.vertx.proton.ProtonSession;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.Source;
+import org.apache.qpid.proton.message.Message;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests matching of replies against a fake broker answering queue message count requests with the number in the
+ * queue name. Like Artemis, the fake broker answers the requests of a link in order.
+ */
+public class ArtemisCorrelationTest {
+    private Vertx vertx;
+    private ProtonServer server;
+    private volatile boolean correlateReplies;
+    private volatile String delayedQueue;
+    private volatile int maxInFlight;
+    private final List<ProtonConnection> connections = new ArrayList<>();
+
+    @Before
+    public void setup() throws InterruptedException {
+        vertx = Vertx.vertx();
+        server = ProtonServer.create(vertx);
+        CountDownLatch latch = new CountDownLatch(1);
+        server.connectHandler(conn -> {
+            Map<String, ProtonSender> replySenders = new ConcurrentHashMap<>();
+            AtomicLong lastReplyTime = new AtomicLong(0);
+            AtomicInteger inFlight = new AtomicInteger(0);
+            connections.add(conn);
+            conn.openHandler(o -> conn.open());
+            conn.closeHandler(c -> {
+                conn.close();
+                conn.disconnect();
+            });
+            conn.sessionOpenHandler(ProtonSession::open);
+
+            conn.receiverOpenHandler(receiver -> {
+                receiver.setTarget(receiver.getRemoteTarget());
+                receiver.handler((delivery, message) -> {
+                    String queue = (String) message.getApplicationProperties().getValue().get("_AMQ_ResourceName");
+                    Message response = Message.Factory.create();
+                    response.setAddress(message.getReplyTo());
+                    response.setBody(new AmqpValue("[" + queue.substring("queue.q".length()) + "]"));
+                    if (correlateReplies) {
+                        response.setCorrelationId(message.getCorrelationId());
+                    }
+                    ProtonSender replySender = replySenders.get(message.getReplyTo());
+                    maxInFlight = Math.max(maxInFlight, inFlight.incrementAndGet());
+
+                    // Each request takes a little while, and a reply is never sent before the replies to earlier requests
+                    long now = System.currentTimeMillis();
+                    long replyTime = Math.max(lastReplyTime.get(), now + (queue.equals(delayedQueue) ? 1000 : 20));
+                    lastReplyTime.set(replyTime);
+                    vertx.setTimer(Math.max(1, replyTime - now), id -> {
+                        inFlight.decrementAndGet();
+                        replySender.send(response);
+                    });
+                });
+                receiver.open();
+            });
+
+            conn.senderOpenHandler(sender -> {
+                Source source = (Source) sender.getRemoteSource().copy();
+                source.setAddress("reply");
+                sender.setSource(source);
+                replySenders.put(source.getAddress(), sender);
+                sender.open();
+            });
+        }).listen(12349, res -> latch.countDown());
+        latch.await();
+    }
+
+    @After
+    public void teardown() {
+        server.close();
+        vertx.close();
+    }
+
+    @Test
+    public void testPipelinedCorrelatedReplies() throws Exception {
+        correlateReplies = true;
+        Artemis artemis = connect().setMaxOutstandingRequests(4);
+
+        List<CompletableFuture<Long>> counts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            counts.add(artemis.getQueueMessageCountAsync("q" + i));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Long.valueOf(i), counts.get(i).get(10, TimeUnit.SECONDS));
+        }
+        artemis.close();
+    }
+
+    @Test
+    public void testPipelinedUncorrelatedReplies() throws Exception {
+        correlateReplies = false;
+        Artemis artemis = connect().setMaxOutstandingRequests(4);
+
+        List<CompletableFuture<Long>> counts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            counts.add(artemis.getQueueMessageCountAsync("q" + i));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Long.valueOf(i), counts.get(i).get(10, TimeUnit.SECONDS));
+        }
+        assertTrue("Expected more than one request in flight, was " + maxInFlight, maxInFlight > 1);
+        assertTrue(maxInFlight <= 4);
+        artemis.close();
+    }
+
+    @Test
+    public void testLateUncorrelatedReplyIsNotMatchedToLaterRequest() throws Exception {
+        correlateReplies = false;
+        delayedQueue = "queue.q0";
+        Artemis artemis = connect().setMaxOutstandingRequests(4).setRequestTimeout(500, TimeUnit.MILLISECONDS);
+
+        // The replies to these are only sent after the delayed reply to the first one, after they have timed out
+        List<CompletableFuture<Long>> timedOut = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            timedOut.add(artemis.getQueueMessageCountAsync("q" + i));
+        }
+        for (CompletableFuture<Long> count : timedOut) {
+            try {
+                count.get(10, TimeUnit.SECONDS);
+                fail("Expected request without reply to time out");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+        }
+
+        // The late replies are consumed by the timed out requests, not by the next ones
+        Thread.sleep(1000);
+        assertEquals(Long.valueOf(7), artemis.getQueueMessageCountAsync("q7").get(10, TimeUnit.SECONDS));
+        assertEquals(Long.valueOf(8), artemis.getQueueMessageCountAsync("q8").get(10, TimeUnit.SECONDS));
+        artemis.close();
+    }
+
+    @Test
+    public void testConnectionLostFailsOutstanding() throws Exception {
+        correlateReplies = false;
+        delayedQueue = "queue.q0";
+        Artemis artemis = connect().setMaxOutstandingRequests(1);
+
+        CompletableFuture<Long> outstanding = artemis.getQueueMessageCountAsync("q0");
+        CompletableFuture<Long> waiting = artemis.getQueueMessageCountAsync("q1");
+        vertx.runOnContext(v -> connections.get(0).disconnect());
+
+        for (CompletableFuture<Long> count : Arrays.asList(outstanding, waiting)) {
+            try {
+                count.get(10, TimeUnit.SECONDS);
+                fail("Expected request to fail when the connection is lost");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+        artemis.close();
+    }
+
+    private Artemis connect() throws Exception {
+        CompletableFuture<Artemis> artemis = new CompletableFuture<>();
+        Artemis.create(vertx, new ProtonClientOptions(), "localhost", 12349).setHandler(result -> {
+            if (result.succeeded()) {
+                artemis.complete(result.result());
+            } else {
+                artemis.completeExceptionally(result.cause());
+            }
+        });
+        return artemis.get(10, TimeUnit.SECONDS);
+    }
+}
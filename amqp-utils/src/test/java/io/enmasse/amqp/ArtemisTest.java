@@ -17,6 +17,10 @@ import org.junit.Test;
 import org.junit.Ignore;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 
@@ -34,8 +38,9 @@ public class ArtemisTest {
     }
 
     @After
-    public void teardown() {
+    public void teardown() throws Exception {
         vertx.close();
+        server.stop();
     }
 
 
@@ -70,4 +75,70 @@ public class ArtemisTest {
             });
         });
     }
+
+    @Test
+    public void testPipelinedManagement(TestContext testContext) throws InterruptedException {
+        Future<Artemis> promise = Artemis.create(vertx, new ProtonClientOptions(), "localhost", 12346);
+        Async async = testContext.async();
+        promise.setHandler(result -> {
+            testContext.assertTrue(result.succeeded());
+            Artemis artemis = result.result().setMaxOutstandingRequests(8);
+
+            vertx.executeBlocking(p -> {
+                try {
+                    List<String> queues = new ArrayList<>();
+                    for (int i = 0; i < 50; i++) {
+                        queues.add("pipelined" + i);
+                    }
+                    artemis.createQueues(queues);
+
+                    // Replies of different kinds must be matched to their own requests
+                    CompletableFuture<Set<String>> names = artemis.getQueueNamesAsync();
+                    List<CompletableFuture<Long>> counts = new ArrayList<>();
+                    for (String queue : queues) {
+                        counts.add(artemis.getQueueMessageCountAsync(queue));
+                    }
+                    CompletableFuture<Set<String>> connectors = artemis.getConnectorNamesAsync();
+
+                    testContext.assertTrue(names.get().containsAll(queues));
+                    for (CompletableFuture<Long> count : counts) {
+                        testContext.assertEquals(0L, count.get());
+                    }
+                    testContext.assertTrue(connectors.get().isEmpty());
+                    testContext.assertEquals(0L, artemis.getTotalMessageCountAsync().get());
+                    // The only consumer is the one receiving the management replies
+                    testContext.assertEquals(1L, artemis.getTotalConsumerCountAsync().get());
+                    testContext.assertTrue(artemis.getAddressMemoryUsagePercentageAsync().get() >= 0);
+
+                    artemis.destroyQueues(queues);
+                    testContext.assertEquals(0L, artemis.getNumQueues());
+                    p.complete();
+                } catch (Exception e) {
+                    p.fail(e);
+                }
+            }, r -> {
+                testContext.assertTrue(r.succeeded(), String.valueOf(r.cause()));
+                async.complete();
+            });
+        });
+    }
+
+    @Test
+    public void testBlockingOnEventLoopFails(TestContext testContext) throws InterruptedException {
+        Future<Artemis> promise = Artemis.create(vertx, new ProtonClientOptions(), "localhost", 12346);
+        Async async = testContext.async();
+        promise.setHandler(result -> {
+            testContext.assertTrue(result.succeeded());
+            Artemis artemis = result.result();
+            try {
+                // The reply would be handled on this event loop, so waiting for it would never return
+                artemis.getQueueNames();
+                testContext.fail("Expected blocking on the event loop to fail");
+            } catch (IllegalStateException e) {
+                async.complete();
+            } catch (TimeoutException e) {
+                testContext.fail(e);
+            }
+        });
+    }
 }
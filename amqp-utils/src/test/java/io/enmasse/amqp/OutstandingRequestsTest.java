@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package io.enmasse.amqp;
+
+import org.apache.qpid.proton.message.Message;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class OutstandingRequestsTest {
+
+    @Test
+    public void testMatchByCorrelationId() {
+        OutstandingRequests<String> outstanding = new OutstandingRequests<>(false);
+        outstanding.put("1", "first");
+        outstanding.put("2", "second");
+
+        assertEquals("second", outstanding.match(reply("2")));
+        assertNull(outstanding.match(reply("3")));
+        assertEquals("first", outstanding.match(reply("1")));
+    }
+
+    @Test
+    public void testUncorrelatedRepliesInOrder() {
+        OutstandingRequests<String> outstanding = new OutstandingRequests<>(true);
+        outstanding.put("1", "first");
+        outstanding.put("2", "second");
+
+        assertEquals("first", outstanding.match(reply(null)));
+        assertEquals("second", outstanding.match(reply(null)));
+        assertNull(outstanding.match(reply(null)));
+    }
+
+    @Test
+    public void testUncorrelatedRepliesOutOfOrder() {
+        OutstandingRequests<String> outstanding = new OutstandingRequests<>(false);
+        outstanding.put("1", "first");
+        outstanding.put("2", "second");
+
+        // Ambiguous while more than one request is outstanding
+        assertNull(outstanding.match(reply(null)));
+
+        outstanding.remove("1");
+        assertEquals("second", outstanding.match(reply(null)));
+        assertNull(outstanding.match(reply(null)));
+    }
+
+    private static Message reply(String correlationId) {
+        Message message = Message.Factory.create();
+        message.setCorrelationId(correlationId);
+        return message;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package io.enmasse.amqp;
+
+import io.vertx.core.Vertx;
+import io.vertx.proton.ProtonClientOptions;
+import io.vertx.proton.ProtonConnection;
+import io.vertx.proton.ProtonSender;
+import io.vertx.proton.ProtonServer;
+import io.vertx.proton.ProtonSession;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.Source;
+import org.apache.qpid.proton.message.Message;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProtonRequestClientTest {
+    private Vertx vertx;
+    private ProtonServer server;
+    private final AtomicInteger numConnections = new AtomicInteger(0);
+    private final List<ProtonConnection> connections = new ArrayList<>();
+
+    @Before
+    public void setup() throws InterruptedException {
+        vertx = Vertx.vertx();
+        server = ProtonServer.create(vertx);
+        CountDownLatch latch = new CountDownLatch(1);
+        server.connectHandler(conn -> {
+            numConnections.incrementAndGet();
+            connections.add(conn);
+            Map<String, ProtonSender> replySenders = new ConcurrentHashMap<>();
+            conn.closeHandler(c -> {
+                conn.close();
+                conn.disconnect();
+            });
+            conn.disconnectHandler(c -> conn.disconnect()).open();
+            conn.sessionOpenHandler(ProtonSession::open);
+
+            conn.receiverOpenHandler(receiver -> {
+                receiver.setTarget(receiver.getRemoteTarget());
+                receiver.handler((delivery, message) -> {
+                    Message response = Message.Factory.create();
+                    response.setAddress(message.getReplyTo());
+                    response.setBody(message.getBody());
+                    response.setCorrelationId(message.getMessageId());
+                    replySenders.get(message.getReplyTo()).send(response);
+                });
+                receiver.open();
+            });
+
+            conn.senderOpenHandler(sender -> {
+                Source source = (Source) sender.getRemoteSource().copy();
+                source.setAddress("reply-" + numConnections.get());
+                sender.setSource(source);
+                replySenders.put(source.getAddress(), sender);
+                sender.open();
+            });
+        }).listen(12348, res -> latch.countDown());
+        latch.await();
+    }
+
+    @After
+    public void teardown() {
+        server.close();
+        vertx.close();
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        try (ProtonRequestClient client = new ProtonRequestClient("127.0.0.1", 12348, vertx, new ProtonClientOptions())) {
+            List<CompletableFuture<Message>> responses = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                responses.add(client.requestAsync(createRequest("request " + i), 10, TimeUnit.SECONDS));
+            }
+            for (int i = 0; i < 20; i++) {
+                assertEquals("request " + i, ((AmqpValue) responses.get(i).get(10, TimeUnit.SECONDS).getBody()).getValue());
+            }
+            assertEquals(1, numConnections.get());
+
+            Message response = client.request(createRequest("last"), 10, TimeUnit.SECONDS);
+            assertEquals("last", ((AmqpValue) response.getBody()).getValue());
+            assertEquals(1, numConnections.get());
+        }
+    }
+
+    @Test
+    public void testReconnect() throws Exception {
+        try (ProtonRequestClient client = new ProtonRequestClient("127.0.0.1", 12348, vertx, new ProtonClientOptions())) {
+            client.request(createRequest("first"), 10, TimeUnit.SECONDS);
+            assertEquals(1, numConnections.get());
+
+            CountDownLatch closed = new CountDownLatch(1);
+            vertx.runOnContext(v -> {
+                connections.get(0).close();
+                closed.countDown();
+            });
+            closed.await();
+
+            Message response = null;
+            long end = System.currentTimeMillis() + 10_000;
+            while (response == null && System.currentTimeMillis() < end) {
+                try {
+                    response = client.request(createRequest("second"), 1, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    Thread.sleep(100);
+                }
+            }
+            assertEquals("second", ((AmqpValue) response.getBody()).getValue());
+            assertEquals(2, numConnections.get());
+        }
+    }
+
+    private static Message createRequest(String body) {
+        Message request = Message.Factory.create();
+        request.setAddress("echo");
+        request.setBody(new AmqpValue(body));
+        return request;
+    }
+}
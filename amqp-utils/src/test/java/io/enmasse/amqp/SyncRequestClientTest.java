@@ -6,7 +6,9 @@
 package io.enmasse.amqp;
 
 import io.enmasse.amqp.SyncRequestClient;
+import io.enmasse.metrics.LatencyHistogram;
 import io.vertx.core.Vertx;
+import io.vertx.proton.ProtonClientOptions;
 import io.vertx.proton.ProtonSender;
 import io.vertx.proton.ProtonServer;
 import io.vertx.proton.ProtonSession;
@@ -19,20 +21,24 @@ import org.junit.Test;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class SyncRequestClientTest {
     private Vertx vertx;
     private ProtonServer server;
+    private final AtomicInteger numConnections = new AtomicInteger(0);
 
     @Before
     public void setup() throws InterruptedException {
         vertx = Vertx.vertx();
         server = ProtonServer.create(vertx);
         CountDownLatch latch = new CountDownLatch(1);
-        CompletableFuture<ProtonSender> futureSender = new CompletableFuture<>();
         server.connectHandler(conn -> {
+            CompletableFuture<ProtonSender> futureSender = new CompletableFuture<>();
+            numConnections.incrementAndGet();
             conn.closeHandler(c -> {
                 conn.close();
                 conn.disconnect();
@@ -89,4 +95,35 @@ public class SyncRequestClientTest {
             assertTrue((Boolean) ((AmqpValue) response.getBody()).getValue());
         }
     }
+
+    @Test
+    public void testClientsShareVertx() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            try (SyncRequestClient client = new SyncRequestClient("127.0.0.1", 12347)) {
+                Message request = Message.Factory.create();
+                request.setAddress("health-check");
+                request.setBody(new AmqpValue("[]"));
+                Message response = client.request(request, 10, TimeUnit.SECONDS);
+                assertTrue((Boolean) ((AmqpValue) response.getBody()).getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testConnectionReused() throws Exception {
+        LatencyHistogram connectLatency = new LatencyHistogram("connect_seconds", "Connect time");
+        LatencyHistogram requestLatency = new LatencyHistogram("request_seconds", "Request time");
+        try (SyncRequestClient client = new SyncRequestClient("127.0.0.1", 12347, Vertx.vertx(), new ProtonClientOptions(), connectLatency, requestLatency)) {
+            for (int i = 0; i < 5; i++) {
+                Message request = Message.Factory.create();
+                request.setAddress("health-check");
+                request.setBody(new AmqpValue("[]"));
+                Message response = client.request(request, 10, TimeUnit.SECONDS);
+                assertTrue((Boolean) ((AmqpValue) response.getBody()).getValue());
+            }
+        }
+        assertEquals(1, numConnections.get());
+        assertEquals(1, connectLatency.getCount());
+        assertEquals(5, requestLatency.getCount());
+    }
 }
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -58,8 +59,10 @@ public class QueueDrainer {
         } else {
             Set<String> addresses = getQueues(broker);
 
+            CompletableFuture.allOf(addresses.stream()
+                    .map(broker::destroyConnectorServiceAsync)
+                    .toArray(CompletableFuture[]::new)).get();
             for (String address : addresses) {
-                broker.destroyConnectorService(address);
                 startDrain(to, address);
             }
             log.info("Waiting.....");
@@ -145,10 +148,14 @@ public class QueueDrainer {
     private void waitUntilEmpty(Artemis broker, Collection<String> queues) throws InterruptedException {
         while (true) {
             try {
-                long count = 0;
+                Map<String, CompletableFuture<Long>> counts = new LinkedHashMap<>();
                 for (String queue : queues) {
-                    count += broker.getQueueMessageCount(queue);
-                    log.info("Found " + count + " messages in queue " + queue);
+                    counts.put(queue, broker.getQueueMessageCountAsync(queue));
+                }
+                long count = 0;
+                for (Map.Entry<String, CompletableFuture<Long>> entry : counts.entrySet()) {
+                    count += entry.getValue().get();
+                    log.info("Found " + count + " messages in queue " + entry.getKey());
                 }
                 if (count == 0) {
                     break;
@@ -192,9 +192,10 @@ public class TopicMigrator {
     }
 
     private void destroySubscriptions(Artemis broker, Set<SubscriptionInfo> subscriptions) throws Exception {
+        broker.destroyQueues(subscriptions.stream()
+                .map(subscription -> subscription.getQueueInfo().getQueueName())
+                .collect(Collectors.toList()));
         for (SubscriptionInfo subscription : subscriptions) {
-            QueueInfo queueInfo = subscription.getQueueInfo();
-            broker.destroyQueue(queueInfo.getQueueName());
             if (subscription.getDivertInfo().isPresent()) {
                 broker.destroyDivert(subscription.getDivertInfo().get().getName());
             }
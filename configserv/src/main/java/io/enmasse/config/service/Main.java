@@ -13,6 +13,7 @@ import java.util.Map;
 
 import io.enmasse.amqp.ExternalSaslAuthenticator;
 import io.enmasse.config.service.amqp.AMQPServer;
+import io.enmasse.config.service.amqp.AMQPSubscriber;
 import io.enmasse.config.service.config.ConfigSubscriptionConfig;
 import io.enmasse.config.service.kubernetes.KubernetesResourceDatabase;
 import io.enmasse.config.service.model.ResourceDatabase;
@@ -55,6 +56,8 @@ public class Main {
             Vertx vertx = Vertx.vertx();
             AMQPServer server = new AMQPServer(listenAddress, listenPort, databaseMap, options);
 
+            server.setMaxBacklog(Integer.parseInt(env.getOrDefault("CONFIGURATION_SERVICE_MAX_BACKLOG", String.valueOf(AMQPSubscriber.DEFAULT_MAX_BACKLOG))));
+
             if(useTls) {
                 server.setAuthenticatorFactory(ExternalSaslAuthenticator::new);
             }
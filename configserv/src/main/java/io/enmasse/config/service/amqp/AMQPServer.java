@@ -5,9 +5,13 @@
 
 package io.enmasse.config.service.amqp;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+import io.enmasse.config.service.model.Encoding;
 import io.enmasse.config.service.model.ObserverKey;
 import io.enmasse.config.service.model.ResourceDatabase;
 import io.vertx.core.AbstractVerticle;
@@ -29,7 +33,12 @@ import org.apache.qpid.proton.amqp.messaging.Source;
  * AMQP server endpoint that handles connections to the service and propagates config for a config map specified
  * as the address to which the client wants to receive.
  *
- * TODO: Handle disconnects and unsubscribe
+ * Clients that set 'delta' as a desired capability on their receiver get an initial snapshot followed by deltas.
+ * Clients that set 'amqp-types' as a desired capability get message bodies as AMQP maps and lists rather than JSON,
+ * if the resource type supports it.
+ *
+ * Subscribers are removed from the database when their link is closed or detached, or when the connection is
+ * closed or lost.
  */
 public class AMQPServer extends AbstractVerticle {
     private static final Logger log = LoggerFactory.getLogger(AMQPServer.class.getName());
@@ -40,8 +49,11 @@ public class AMQPServer extends AbstractVerticle {
     private volatile ProtonServer server;
     private static final Symbol LABELS = Symbol.getSymbol("labels");
     private static final Symbol ANNOTATIONS = Symbol.getSymbol("annotations");
+    private static final Symbol DELTA = Symbol.getSymbol("delta");
+    private static final Symbol AMQP_TYPES = Symbol.getSymbol("amqp-types");
     private ProtonServerOptions options;
     private ProtonSaslAuthenticatorFactory authenticatorFactory;
+    private int maxBacklog = AMQPSubscriber.DEFAULT_MAX_BACKLOG;
 
     public AMQPServer(String hostname, int port, Map<String, ResourceDatabase> databaseMap) {
         this(hostname, port, databaseMap, new ProtonServerOptions());
@@ -58,37 +70,69 @@ public class AMQPServer extends AbstractVerticle {
         this.authenticatorFactory = authenticatorFactory;
     }
 
+    public void setMaxBacklog(int maxBacklog) {
+        this.maxBacklog = maxBacklog;
+    }
+
     private void connectHandler(ProtonConnection connection) {
+        // Only accessed on the connection context
+        Map<ProtonSender, Subscription> subscriptions = new HashMap<>();
         connection.setContainer("configuration-service");
         connection.openHandler(conn -> {
             log.debug("Connection opened");
         }).closeHandler(conn -> {
             connection.close();
             connection.disconnect();
+            unsubscribeAll(subscriptions);
             log.debug("Connection closed");
         }).disconnectHandler(protonConnection -> {
             connection.disconnect();
+            unsubscribeAll(subscriptions);
             log.debug("Disconnected");
         }).open();
 
         connection.sessionOpenHandler(ProtonSession::open);
-        connection.senderOpenHandler(sender -> senderOpenHandler(connection, sender));
+        connection.senderOpenHandler(sender -> senderOpenHandler(connection, sender, subscriptions));
     }
 
-    private void senderOpenHandler(ProtonConnection connection, ProtonSender sender) {
+    private void senderOpenHandler(ProtonConnection connection, ProtonSender sender, Map<ProtonSender, Subscription> subscriptions) {
         sender.setSource(sender.getRemoteSource());
         Source source = (Source) sender.getRemoteSource();
         log.info("Got subscription request from {} on {}", connection.getRemoteContainer(), source.getAddress());
+        List<Symbol> offeredCapabilities = new ArrayList<>();
+        boolean deltaEnabled = hasCapability(sender.getRemoteDesiredCapabilities(), DELTA);
+        if (deltaEnabled) {
+            offeredCapabilities.add(DELTA);
+        }
+        Encoding encoding = Encoding.DEFAULT;
+        ResourceDatabase requestedDatabase = databaseMap.get(source.getAddress());
+        if (hasCapability(sender.getRemoteDesiredCapabilities(), AMQP_TYPES) && requestedDatabase != null && requestedDatabase.supportsEncoding(Encoding.AMQP_TYPES)) {
+            encoding = Encoding.AMQP_TYPES;
+            offeredCapabilities.add(AMQP_TYPES);
+        }
+        if (!offeredCapabilities.isEmpty()) {
+            sender.setOfferedCapabilities(offeredCapabilities.toArray(new Symbol[0]));
+        }
 
         Context protonContext = vertx.getOrCreateContext();
+        ObserverKey subscriptionKey = new ObserverKey(createLabelFilter(source.getFilter()), createAnnotationFilter(source.getFilter()));
+        AMQPSubscriber subscriber = new AMQPSubscriber(protonContext, subscriptionKey, connection, sender, deltaEnabled, encoding, maxBacklog);
+
+        sender.closeHandler(res -> {
+            subscriber.close();
+            sender.close();
+            unsubscribe(subscriptions.remove(sender));
+        });
+        sender.detachHandler(res -> {
+            subscriber.close();
+            sender.detach();
+            unsubscribe(subscriptions.remove(sender));
+        });
 
         vertx.executeBlocking(promise -> {
             try {
                 ResourceDatabase database = lookupDatabase(source.getAddress());
-                Map<String, String> labelFilter = createLabelFilter(source.getFilter());
-                Map<String, String> annotationFilter = createAnnotationFilter(source.getFilter());
-                ObserverKey subscriptionKey = new ObserverKey(labelFilter, annotationFilter);
-                database.subscribe(subscriptionKey, new AMQPSubscriber(protonContext, subscriptionKey, connection, sender));
+                database.subscribe(subscriptionKey, subscriber);
 
                 promise.complete(database);
             } catch (Exception e) {
@@ -96,7 +140,14 @@ public class AMQPServer extends AbstractVerticle {
             }
         }, result -> {
             if (result.succeeded()) {
+                Subscription subscription = new Subscription((ResourceDatabase) result.result(), subscriber);
+                if (connection.isDisconnected() || subscriber.isClosed()) {
+                    unsubscribe(subscription);
+                    return;
+                }
+                subscriptions.put(sender, subscription);
                 sender.open();
+                subscriber.flush();
                 log.info("Added subscriber {} for config {}", connection.getRemoteContainer(), sender.getRemoteSource().getAddress());
             } else {
                 sender.close();
@@ -106,6 +157,42 @@ public class AMQPServer extends AbstractVerticle {
         });
     }
 
+    private void unsubscribeAll(Map<ProtonSender, Subscription> subscriptions) {
+        for (Subscription subscription : subscriptions.values()) {
+            unsubscribe(subscription);
+        }
+        subscriptions.clear();
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        if (subscription == null) {
+            return;
+        }
+        subscription.subscriber.close();
+        // Releasing the last subscriber of an observer stops its controller, which blocks
+        vertx.executeBlocking(promise -> {
+            subscription.database.unsubscribe(subscription.subscriber.getSubscriptionKey(), subscription.subscriber);
+            promise.complete();
+        }, result -> {
+            if (result.succeeded()) {
+                log.info("Removed subscriber {} on {}", subscription.subscriber.getId(), subscription.subscriber.getSubscriptionKey());
+            } else {
+                log.warn("Error removing subscriber {}", subscription.subscriber.getId(), result.cause());
+            }
+        });
+    }
+
+    private static boolean hasCapability(Symbol[] capabilities, Symbol capability) {
+        if (capabilities != null) {
+            for (Symbol symbol : capabilities) {
+                if (capability.equals(symbol)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     private ResourceDatabase lookupDatabase(String address) {
         if (databaseMap.containsKey(address)) {
             return databaseMap.get(address);
@@ -140,6 +227,16 @@ public class AMQPServer extends AbstractVerticle {
         return annotationFilter;
     }
 
+    private static class Subscription {
+        private final ResourceDatabase database;
+        private final AMQPSubscriber subscriber;
+
+        private Subscription(ResourceDatabase database, AMQPSubscriber subscriber) {
+            this.database = database;
+            this.subscriber = subscriber;
+        }
+    }
+
     @Override
     public void start(Future<Void> startPromise) {
         server = ProtonServer.create(vertx, options);
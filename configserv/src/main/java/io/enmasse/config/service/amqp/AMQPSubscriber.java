@@ -4,6 +4,7 @@
  */
 package io.enmasse.config.service.amqp;
 
+import io.enmasse.config.service.model.Encoding;
 import io.enmasse.config.service.model.ObserverKey;
 import io.enmasse.config.service.model.Subscriber;
 import io.vertx.core.Context;
@@ -13,19 +14,36 @@ import org.apache.qpid.proton.message.Message;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Subscriber sending updates on an AMQP link. Updates are handed to a {@link ConflatingSender} on the proton
+ * context, so that a subscriber without credit only keeps the latest snapshot.
+ */
 public class AMQPSubscriber implements Subscriber {
     private static final Logger log = LoggerFactory.getLogger(AMQPSubscriber.class);
+    public static final int DEFAULT_MAX_BACKLOG = 10;
 
     private final Context context;
     private final String id;
     private final ObserverKey subscriptionKey;
-    private final ProtonSender sender;
+    private final boolean deltaEnabled;
+    private final Encoding encoding;
+    private final ConflatingSender conflatingSender;
+    private volatile boolean closed = false;
 
     public AMQPSubscriber(Context protonContext, ObserverKey subscriptionKey, ProtonConnection connection, ProtonSender sender) {
+        this(protonContext, subscriptionKey, connection, sender, false, Encoding.DEFAULT, DEFAULT_MAX_BACKLOG);
+    }
+
+    /**
+     * Must be created on the proton context.
+     */
+    public AMQPSubscriber(Context protonContext, ObserverKey subscriptionKey, ProtonConnection connection, ProtonSender sender, boolean deltaEnabled, Encoding encoding, int maxBacklog) {
         this.context = protonContext;
         this.subscriptionKey = subscriptionKey;
         this.id = connection.getRemoteContainer();
-        this.sender = sender;
+        this.deltaEnabled = deltaEnabled;
+        this.encoding = encoding;
+        this.conflatingSender = new ConflatingSender(sender, maxBacklog);
     }
 
     @Override
@@ -33,11 +51,44 @@ public class AMQPSubscriber implements Subscriber {
         return id;
     }
 
+    @Override
+    public boolean isDeltaEnabled() {
+        return deltaEnabled;
+    }
+
+    @Override
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    public ObserverKey getSubscriptionKey() {
+        return subscriptionKey;
+    }
+
     @Override
     public void resourcesUpdated(Message message) {
         context.runOnContext(h -> {
-            log.info("Replying to subscription {} with key {} with payload {}", id, message);
-            sender.send(message);
+            conflatingSender.send(message);
+            log.debug("Updated subscription {} with key {}, {} messages conflated so far", id, subscriptionKey, conflatingSender.getNumConflated());
         });
     }
+
+    /**
+     * Send pending messages after the link has been opened.
+     */
+    public void flush() {
+        context.runOnContext(h -> conflatingSender.flush());
+    }
+
+    /**
+     * Stop sending on the link. Pending and later updates are dropped.
+     */
+    public void close() {
+        closed = true;
+        context.runOnContext(h -> conflatingSender.close());
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
 }
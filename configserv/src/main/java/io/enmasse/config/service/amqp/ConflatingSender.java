@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.config.service.amqp;
+
+import io.enmasse.config.service.kubernetes.SubscriptionManager;
+import io.vertx.proton.ProtonSender;
+import org.apache.qpid.proton.message.Message;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Sends messages on a link only when it has credit. While the link has no credit, at most one snapshot is kept
+ * pending, and a newer snapshot replaces it along with any deltas queued after it. Deltas are kept in a bounded
+ * queue after the pending snapshot. If the queue overflows, the oldest deltas are dropped, and the receiver resyncs
+ * when it sees the version gap.
+ *
+ * Must only be used from the context of the connection owning the sender.
+ */
+public class ConflatingSender {
+    private final ProtonSender sender;
+    private final int maxDeltas;
+
+    private Message pendingSnapshot;
+    private final Deque<Message> pendingDeltas = new ArrayDeque<>();
+    private long numConflated = 0;
+    private boolean closed = false;
+
+    public ConflatingSender(ProtonSender sender, int maxDeltas) {
+        this.sender = sender;
+        this.maxDeltas = Math.max(1, maxDeltas);
+        sender.sendQueueDrainHandler(s -> flush());
+    }
+
+    public void send(Message message) {
+        if (closed) {
+            return;
+        }
+
+        if (isSnapshot(message)) {
+            if (pendingSnapshot != null) {
+                numConflated++;
+            }
+            numConflated += pendingDeltas.size();
+            pendingDeltas.clear();
+            pendingSnapshot = message;
+        } else {
+            pendingDeltas.addLast(message);
+            while (pendingDeltas.size() > maxDeltas) {
+                pendingDeltas.removeFirst();
+                numConflated++;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Drop all pending messages and ignore further ones.
+     */
+    public void close() {
+        closed = true;
+        pendingSnapshot = null;
+        pendingDeltas.clear();
+    }
+
+    public boolean hasPending() {
+        return pendingSnapshot != null || !pendingDeltas.isEmpty();
+    }
+
+    public long getNumConflated() {
+        return numConflated;
+    }
+
+    /**
+     * Send as many pending messages as the link has credit for.
+     */
+    public void flush() {
+        if (closed || !sender.isOpen()) {
+            return;
+        }
+
+        if (pendingSnapshot != null && !sender.sendQueueFull()) {
+            sender.send(pendingSnapshot);
+            pendingSnapshot = null;
+        }
+
+        while (pendingSnapshot == null && !pendingDeltas.isEmpty() && !sender.sendQueueFull()) {
+            sender.send(pendingDeltas.removeFirst());
+        }
+    }
+
+    private static boolean isSnapshot(Message message) {
+        return message.getApplicationProperties() == null
+                || !message.getApplicationProperties().getValue().containsKey(SubscriptionManager.BASE_VERSION);
+    }
+}
@@ -5,7 +5,8 @@
 package io.enmasse.config.service.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.enmasse.config.service.kubernetes.MessageEncoder;
+import io.enmasse.config.service.kubernetes.DeltaMessageEncoder;
+import io.enmasse.config.service.model.Encoding;
 import io.enmasse.address.model.Address;
 import io.enmasse.address.model.AddressList;
 import io.enmasse.address.model.v1.CodecV1;
@@ -16,29 +17,114 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
- * Encodes a set of address configs to an AMQP message
+ * Encodes a set of address configs, or changes to them, to an AMQP message. The body is either the v1 JSON format,
+ * or an AMQP typed map where each address is a list of field values in the order given by the 'fields' entry.
  */
-public class ConfigMessageEncoder implements MessageEncoder<Address> {
+public class ConfigMessageEncoder implements DeltaMessageEncoder<Address> {
     private static final Logger log = LoggerFactory.getLogger(ConfigMessageEncoder.class.getName());
     private static final ObjectMapper mapper = CodecV1.getMapper();
+    // Order of the fields in each item of the AMQP typed encoding
+    private static final List<String> FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "name", "addressSpace", "uuid", "type", "plan", "address", "isReady", "phase", "annotations", "messages"));
 
     @Override
     public Message encode(Set<Address> resources) throws IOException {
+        return encode(resources, Encoding.DEFAULT);
+    }
+
+    @Override
+    public boolean supportsEncoding(Encoding encoding) {
+        return true;
+    }
+
+    @Override
+    public Message encode(Set<Address> resources, Encoding encoding) throws IOException {
         Message message = Message.Factory.create();
-        // TODO: Avoid so much decode/encode
-        AddressList addressList = new AddressList(resources);
         message.setSubject("enmasse.io/v1/AddressList");
-        message.setBody(createBody(addressList));
-        message.setContentType("application/json");
+        if (Encoding.AMQP_TYPES.equals(encoding)) {
+            message.setBody(new AmqpValue(encodeAddressList(resources)));
+        } else {
+            // TODO: Avoid so much decode/encode
+            AddressList addressList = new AddressList(resources);
+            message.setBody(createBody(addressList));
+            message.setContentType("application/json");
+        }
+        return message;
+    }
+
+    @Override
+    public String getKey(Address address) {
+        return address.getName();
+    }
+
+    /**
+     * The resource version changes with every change to the address. Addresses without a version, which are not
+     * read from Kubernetes, are fingerprinted by their JSON encoding.
+     */
+    @Override
+    public Object getFingerprint(Address address) throws IOException {
+        if (address.getVersion() != null) {
+            return address.getVersion();
+        }
+        return mapper.writeValueAsString(address);
+    }
+
+    @Override
+    public Message encodeDelta(Collection<Address> modified, Collection<String> removed) throws IOException {
+        return encodeDelta(modified, removed, Encoding.DEFAULT);
+    }
+
+    @Override
+    public Message encodeDelta(Collection<Address> modified, Collection<String> removed, Encoding encoding) throws IOException {
+        Message message = Message.Factory.create();
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("removed", new ArrayList<>(removed));
+        message.setSubject("enmasse.io/v1/AddressListDelta");
+        if (Encoding.AMQP_TYPES.equals(encoding)) {
+            delta.put("modified", encodeAddressList(modified));
+            message.setBody(new AmqpValue(delta));
+        } else {
+            delta.put("modified", new AddressList(new LinkedHashSet<>(modified)));
+            message.setBody(new AmqpValue(mapper.writeValueAsString(delta)));
+            message.setContentType("application/json");
+        }
         return message;
     }
 
     private Section createBody(List<Address> addressList) throws IOException {
         return new AmqpValue(mapper.writeValueAsString(addressList));
     }
+
+    private static Map<String, Object> encodeAddressList(Collection<Address> addresses) {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("apiVersion", "enmasse.io/v1");
+        root.put("kind", "AddressList");
+        root.put("fields", FIELDS);
+        List<Object> items = new ArrayList<>(addresses.size());
+        for (Address address : addresses) {
+            items.add(encodeAddress(address));
+        }
+        root.put("items", items);
+        return root;
+    }
+
+    /**
+     * Fields that are not set are encoded as null, like in the JSON encoding.
+     */
+    private static List<Object> encodeAddress(Address address) {
+        return Arrays.asList(
+                address.getName(),
+                address.getAddressSpace(),
+                address.getUuid(),
+                address.getType(),
+                address.getPlan(),
+                address.getAddress(),
+                address.getStatus().isReady(),
+                address.getStatus().getPhase() == null ? null : address.getStatus().getPhase().name(),
+                address.getAnnotations().isEmpty() ? null : new LinkedHashMap<>(address.getAnnotations()),
+                address.getStatus().getMessages().isEmpty() ? null : new ArrayList<>(address.getStatus().getMessages()));
+    }
 }
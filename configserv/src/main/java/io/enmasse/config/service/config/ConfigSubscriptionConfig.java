@@ -5,8 +5,6 @@
 package io.enmasse.config.service.config;
 
 import io.enmasse.address.model.Address;
-import io.enmasse.address.model.AddressResolver;
-import io.enmasse.address.model.types.standard.StandardAddressSpaceType;
 import io.enmasse.config.service.kubernetes.MessageEncoder;
 import io.enmasse.config.service.kubernetes.SubscriptionConfig;
 import io.enmasse.config.service.model.ObserverKey;
@@ -21,7 +19,6 @@ import java.util.function.Predicate;
  */
 public class ConfigSubscriptionConfig implements SubscriptionConfig<Address> {
     private final ConfigMessageEncoder encoder = new ConfigMessageEncoder();
-    private final AddressResolver addressResolver = new AddressResolver(new StandardAddressSpaceType());
 
     @Override
     public MessageEncoder<Address> getMessageEncoder() {
@@ -29,12 +26,13 @@ public class ConfigSubscriptionConfig implements SubscriptionConfig<Address> {
     }
 
     @Override
-    public Resource<Address> getResource(ObserverKey observerKey, KubernetesClient client) {
-        return new ConfigMapAddressApi(client, addressResolver, client.getNamespace());
+    public Resource<Address> getResource(KubernetesClient client) {
+        return new ConfigMapAddressApi(client, client.getNamespace());
     }
 
     @Override
-    public Predicate<Address> getResourceFilter() {
+    public Predicate<Address> getResourceFilter(ObserverKey observerKey) {
+        // All addresses are sent regardless of the filter
         return address -> true;
     }
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.config.service.kubernetes;
+
+import io.enmasse.config.service.model.Encoding;
+import org.apache.qpid.proton.message.Message;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Interface for encoding changes to a set of resources as AMQP messages, in addition to full snapshots.
+ */
+public interface DeltaMessageEncoder<T> extends MessageEncoder<T> {
+    /**
+     * Get the key uniquely identifying a resource within a set.
+     */
+    String getKey(T resource);
+
+    /**
+     * Get a value that changes whenever the encoded form of the resource changes.
+     */
+    Object getFingerprint(T resource) throws IOException;
+
+    /**
+     * Encode resources that were added or modified, and keys of resources that were removed.
+     */
+    Message encodeDelta(Collection<T> modified, Collection<String> removed) throws IOException;
+
+    /**
+     * Encode a delta with one of the supported encodings.
+     */
+    default Message encodeDelta(Collection<T> modified, Collection<String> removed, Encoding encoding) throws IOException {
+        return encodeDelta(modified, removed);
+    }
+}
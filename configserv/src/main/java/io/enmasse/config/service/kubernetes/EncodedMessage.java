@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.config.service.kubernetes;
+
+import org.apache.qpid.proton.codec.WritableBuffer;
+import org.apache.qpid.proton.message.Message;
+import org.apache.qpid.proton.message.impl.MessageImpl;
+
+import java.nio.BufferOverflowException;
+import java.util.Arrays;
+
+/**
+ * A message that is encoded once, and copied as is into the delivery of every link it is sent on. The message must
+ * not be modified after it has been created.
+ */
+public class EncodedMessage extends MessageImpl {
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    private final byte[] encoded;
+
+    public EncodedMessage(Message message) {
+        super(message.getHeader(), message.getDeliveryAnnotations(), message.getMessageAnnotations(), message.getProperties(),
+                message.getApplicationProperties(), message.getBody(), message.getFooter());
+        this.encoded = encode(message);
+    }
+
+    private static byte[] encode(Message message) {
+        byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+        while (true) {
+            try {
+                int length = message.encode(buffer, 0, buffer.length);
+                return Arrays.copyOf(buffer, length);
+            } catch (BufferOverflowException e) {
+                buffer = new byte[buffer.length * 2];
+            }
+        }
+    }
+
+    public int getEncodedSize() {
+        return encoded.length;
+    }
+
+    @Override
+    public int encode2(byte[] data, int offset, int length) {
+        if (encoded.length <= length) {
+            System.arraycopy(encoded, 0, data, offset, encoded.length);
+        }
+        return encoded.length;
+    }
+
+    @Override
+    public int encode(byte[] data, int offset, int length) {
+        if (encoded.length > length) {
+            throw new BufferOverflowException();
+        }
+        System.arraycopy(encoded, 0, data, offset, encoded.length);
+        return encoded.length;
+    }
+
+    @Override
+    public int encode(WritableBuffer buffer) {
+        buffer.put(encoded, 0, encoded.length);
+        return encoded.length;
+    }
+}
@@ -5,72 +5,133 @@
 
 package io.enmasse.config.service.kubernetes;
 
+import io.enmasse.config.service.model.Encoding;
 import io.enmasse.config.service.model.ObserverKey;
 import io.enmasse.config.service.model.ResourceDatabase;
 import io.enmasse.config.service.model.Subscriber;
 import io.enmasse.k8s.api.ResourceController;
+import io.enmasse.k8s.api.Watcher;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * ResourceDatabase backed by OpenShift/Kubernetes REST API supporting subscription for a resource of a particular type
+ *
+ * A single resource controller watches the resource for all observer keys, and each key gets its view of the
+ * resources through the resource filter of that key. The controller is started with the first subscriber, and
+ * stopped when the last subscriber is gone.
  */
-public class KubernetesResourceDatabase<T> implements AutoCloseable, ResourceDatabase {
+public class KubernetesResourceDatabase<T> implements AutoCloseable, ResourceDatabase, Watcher<T> {
     private static final Logger log = LoggerFactory.getLogger(KubernetesResourceDatabase.class.getName());
     private final KubernetesClient client;
 
-    private final Map<ObserverKey, DatabaseEntry<T>> entryMap = new LinkedHashMap<>();
+    private final Map<ObserverKey, SubscriptionManager<T>> managerMap = new LinkedHashMap<>();
 
     private final SubscriptionConfig<T> subscriptionConfig;
 
+    private ResourceController<T> controller;
+    private Set<T> resources;
+
     public KubernetesResourceDatabase(KubernetesClient client, SubscriptionConfig<T> subscriptionConfig) {
         this.client = client;
         this.subscriptionConfig = subscriptionConfig;
     }
 
     @Override
-    public synchronized void close() throws Exception {
-        for (DatabaseEntry<T> entry : entryMap.values()) {
-            entry.getController().stop();
+    public void close() throws Exception {
+        ResourceController<T> stopped;
+        synchronized (this) {
+            stopped = detachController();
         }
+        stopController(stopped);
     }
 
     public synchronized void subscribe(ObserverKey observerKey, Subscriber subscriber) throws Exception {
-        DatabaseEntry<T> entry = entryMap.get(observerKey);
-        if (entry == null) {
+        SubscriptionManager<T> subscriptionManager = managerMap.get(observerKey);
+        if (subscriptionManager == null) {
             log.info("Creating new observer with filter " + observerKey);
-            SubscriptionManager<T> subscriptionManager = new SubscriptionManager<>(observerKey, subscriptionConfig.getMessageEncoder(), subscriptionConfig.getResourceFilter());
-            ResourceController<T> controller = ResourceController.create(subscriptionConfig.getResource(observerKey, client), subscriptionManager);
-            entry = new DatabaseEntry<>(controller, subscriptionManager);
-            entryMap.put(observerKey, entry);
-
-            subscriptionManager.subscribe(subscriber);
-            controller.start();
+            subscriptionManager = new SubscriptionManager<>(observerKey, subscriptionConfig.getMessageEncoder(), subscriptionConfig.getResourceFilter(observerKey));
+            managerMap.put(observerKey, subscriptionManager);
+            if (resources != null) {
+                subscriptionManager.resourcesUpdated(resources);
+            }
         } else {
             log.info("Subscribed to existing observer with filter " + observerKey);
-            entry.getSubscriptionManager().subscribe(subscriber);
         }
+        subscriptionManager.subscribe(subscriber);
+
+        if (controller == null) {
+            log.info("Starting resource controller");
+            controller = ResourceController.create(subscriptionConfig.getResource(client), this);
+            controller.start();
+        }
+    }
+
+    @Override
+    public void unsubscribe(ObserverKey observerKey, Subscriber subscriber) {
+        ResourceController<T> stopped;
+        synchronized (this) {
+            SubscriptionManager<T> subscriptionManager = managerMap.get(observerKey);
+            if (subscriptionManager == null || subscriptionManager.unsubscribe(subscriber)) {
+                return;
+            }
+            log.info("Removing observer with filter " + observerKey + " without subscribers");
+            managerMap.remove(observerKey);
+            if (!managerMap.isEmpty()) {
+                return;
+            }
+            stopped = detachController();
+        }
+        stopController(stopped);
     }
 
-    private static class DatabaseEntry<T> {
-        private final ResourceController<T> controller;
-        private final SubscriptionManager<T> subscriptionManager;
+    private ResourceController<T> detachController() {
+        ResourceController<T> detached = controller;
+        controller = null;
+        resources = null;
+        return detached;
+    }
 
-        private DatabaseEntry(ResourceController<T> controller, SubscriptionManager<T> subscriptionManager) {
-            this.controller = controller;
-            this.subscriptionManager = subscriptionManager;
+    /**
+     * Stop a detached controller. Must be called without holding the lock, as the controller may be waiting to
+     * deliver an update.
+     */
+    private static void stopController(ResourceController<?> stopped) {
+        if (stopped != null) {
+            log.info("Stopping resource controller");
+            stopped.stop();
         }
+    }
 
-        public ResourceController<T> getController() {
-            return controller;
+    @Override
+    public synchronized void resourcesUpdated(Set<T> updated) throws Exception {
+        if (controller == null) {
+            return;
         }
+        resources = updated;
+        for (SubscriptionManager<T> subscriptionManager : managerMap.values()) {
+            subscriptionManager.resourcesUpdated(updated);
+        }
+    }
 
-        public SubscriptionManager<T> getSubscriptionManager() {
-            return subscriptionManager;
+    @Override
+    public synchronized void resourcesUpdated(Set<T> updated, Set<String> changedKeys) throws Exception {
+        if (controller == null) {
+            return;
+        }
+        resources = updated;
+        for (SubscriptionManager<T> subscriptionManager : managerMap.values()) {
+            subscriptionManager.resourcesUpdated(updated, changedKeys);
         }
     }
+
+    @Override
+    public boolean supportsEncoding(Encoding encoding) {
+        return subscriptionConfig.getMessageEncoder().supportsEncoding(encoding);
+    }
 }
@@ -4,6 +4,7 @@
  */
 package io.enmasse.config.service.kubernetes;
 
+import io.enmasse.config.service.model.Encoding;
 import org.apache.qpid.proton.message.Message;
 
 import java.io.IOException;
@@ -14,4 +15,15 @@ import java.util.Set;
  */
 public interface MessageEncoder<T> {
     Message encode(Set<T> set) throws IOException;
+
+    default boolean supportsEncoding(Encoding encoding) {
+        return Encoding.DEFAULT.equals(encoding);
+    }
+
+    /**
+     * Encode with one of the supported encodings.
+     */
+    default Message encode(Set<T> set, Encoding encoding) throws IOException {
+        return encode(set);
+    }
 }
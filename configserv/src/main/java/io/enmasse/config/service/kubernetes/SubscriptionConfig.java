@@ -11,10 +11,11 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import java.util.function.Predicate;
 
 /**
- * Configuration for a specific type of resource observation and encoding of those resources
+ * Configuration for a specific type of resource observation and encoding of those resources. The resource is
+ * observed once for all observer keys, and the resources for each key are selected with the resource filter.
  */
 public interface SubscriptionConfig<T> {
     MessageEncoder<T> getMessageEncoder();
-    Resource<T> getResource(ObserverKey observerKey, KubernetesClient client);
-    Predicate<T> getResourceFilter();
+    Resource<T> getResource(KubernetesClient client);
+    Predicate<T> getResourceFilter(ObserverKey observerKey);
 }
@@ -5,9 +5,11 @@
 
 package io.enmasse.config.service.kubernetes;
 
+import io.enmasse.config.service.model.Encoding;
 import io.enmasse.config.service.model.ObserverKey;
 import io.enmasse.config.service.model.Subscriber;
 import io.enmasse.k8s.api.Watcher;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
 import org.apache.qpid.proton.message.Message;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,19 +21,34 @@ import java.util.stream.Collectors;
 
 /**
  * Manages subscribers for a given set of OpenShift resources.
+ *
+ * Every change increments a version number, which is set as the 'version' application property of snapshots. If the
+ * message encoder supports deltas, subscribers that negotiated deltas get the initial snapshot followed by deltas,
+ * which carry the version they apply to in the 'baseVersion' property. A subscriber detecting a version gap should
+ * reattach to get a new snapshot.
+ *
+ * Messages are encoded once per change and encoding, and shared by all subscribers using that encoding.
  */
 public class SubscriptionManager<T> implements Watcher<T> {
     private static final Logger log = LoggerFactory.getLogger(SubscriptionManager.class.getName());
+    public static final String VERSION = "version";
+    public static final String BASE_VERSION = "baseVersion";
 
     private final ObserverKey subscriptionKey;
     private final List<Subscriber> subscriberList = new ArrayList<>();
     private final Set<T> resources = new LinkedHashSet<>();
+    private final Map<String, Object> fingerprints = new HashMap<>();
     private final MessageEncoder<T> messageEncoder;
+    private final DeltaMessageEncoder<T> deltaEncoder;
     private final Predicate<T> resourceFilter;
+    private long version = 0;
+    private int numDeltaSubscribers = 0;
+    private final Map<Encoding, Message> snapshots = new EnumMap<>(Encoding.class);
 
     public SubscriptionManager(ObserverKey subscriptionKey, MessageEncoder<T> messageEncoder, Predicate<T> resourceFilter) {
         this.subscriptionKey = subscriptionKey;
         this.messageEncoder = messageEncoder;
+        this.deltaEncoder = messageEncoder instanceof DeltaMessageEncoder ? (DeltaMessageEncoder<T>) messageEncoder : null;
         this.resourceFilter = resourceFilter;
     }
 
@@ -42,49 +59,208 @@ public class SubscriptionManager<T> implements Watcher<T> {
      */
     public synchronized void subscribe(Subscriber subscriber) {
         subscriberList.add(subscriber);
-        // Notify only when we have values
-        if (!resources.isEmpty()) {
+        if (isDeltaSubscriber(subscriber) && numDeltaSubscribers++ == 0) {
+            fingerprintResources();
+        }
+        // Notify only when we have values, unless the subscriber needs an initial version to apply deltas to
+        if (!resources.isEmpty() || isDeltaSubscriber(subscriber)) {
             log.info("Added new subscriber {} on key {}, notifying with new resources", subscriber.getId(), subscriptionKey);
-            Optional<Message> message = encodeAndLog();
+            Optional<Message> message = encodeAndLog(getEncoding(subscriber));
             message.ifPresent(subscriber::resourcesUpdated);
         } else {
             log.info("Added new subscriber {} on key {}, no resources to updated with", subscriber.getId(), subscriptionKey);
         }
     }
 
+    /**
+     * Remove a subscriber.
+     *
+     * @param subscriber The subscriber handle.
+     * @return true if there are subscribers left.
+     */
+    public synchronized boolean unsubscribe(Subscriber subscriber) {
+        if (subscriberList.remove(subscriber)) {
+            if (isDeltaSubscriber(subscriber)) {
+                numDeltaSubscribers--;
+            }
+            log.info("Removed subscriber {} on key {}", subscriber.getId(), subscriptionKey);
+        }
+        return !subscriberList.isEmpty();
+    }
+
+    private boolean isDeltaSubscriber(Subscriber subscriber) {
+        return deltaEncoder != null && subscriber.isDeltaEnabled();
+    }
+
+    private Encoding getEncoding(Subscriber subscriber) {
+        Encoding encoding = subscriber.getEncoding();
+        return messageEncoder.supportsEncoding(encoding) ? encoding : Encoding.DEFAULT;
+    }
+
     /**
      * Notify subscribers that the set of configs has been updated.
      */
-    private void notifySubscribers() {
-        log.info("Notifying subscribers on {} with updated resources: {}", subscriptionKey, resources);
-        Optional<Message> message = encodeAndLog();
-        message.ifPresent(m -> subscriberList.forEach(s -> {
-            log.info("Notifying {}", s.getId());
-            s.resourcesUpdated(m);
-        }));
+    private void notifySubscribers(Collection<T> modified, Collection<String> removed) {
+        log.info("Notifying {} subscribers on {} with {} resources", subscriberList.size(), subscriptionKey, resources.size());
+        Map<Encoding, Optional<Message>> deltas = new EnumMap<>(Encoding.class);
+        for (Subscriber subscriber : subscriberList) {
+            Encoding encoding = getEncoding(subscriber);
+            Optional<Message> message;
+            if (isDeltaSubscriber(subscriber)) {
+                message = deltas.computeIfAbsent(encoding, e -> encodeDelta(modified, removed, e));
+            } else {
+                message = encodeAndLog(encoding);
+            }
+            message.ifPresent(m -> {
+                log.debug("Notifying {}", subscriber.getId());
+                subscriber.resourcesUpdated(m);
+            });
+        }
+    }
+
+    /**
+     * Get the snapshot for the current version, encoding it if this has not yet been done.
+     */
+    private Optional<Message> encodeAndLog(Encoding encoding) {
+        Message snapshot = snapshots.get(encoding);
+        if (snapshot == null) {
+            Set<T> set = Collections.unmodifiableSet(resources);
+            try {
+                Message message = messageEncoder.encode(set, encoding);
+                setVersion(message, null);
+                EncodedMessage encoded = new EncodedMessage(message);
+                log.debug("Encoded snapshot version {} on {} as {} with size {}", version, subscriptionKey, encoding, encoded.getEncodedSize());
+                snapshot = encoded;
+                snapshots.put(encoding, snapshot);
+            } catch (IOException e) {
+                log.warn("Error encoding message", e);
+            }
+        }
+        return Optional.ofNullable(snapshot);
     }
 
-    private Optional<Message> encodeAndLog() {
-        Set<T> set = Collections.unmodifiableSet(resources);
+    private Optional<Message> encodeDelta(Collection<T> modified, Collection<String> removed, Encoding encoding) {
         try {
-            return Optional.of(messageEncoder.encode(set));
+            Message message = deltaEncoder.encodeDelta(modified, removed, encoding);
+            setVersion(message, version - 1);
+            return Optional.of(new EncodedMessage(message));
         } catch (IOException e) {
-            log.warn("Error encoding message", e);
+            log.warn("Error encoding delta message", e);
             return Optional.empty();
         }
     }
 
+    private void setVersion(Message message, Long baseVersion) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        if (message.getApplicationProperties() != null) {
+            properties.putAll(message.getApplicationProperties().getValue());
+        }
+        properties.put(VERSION, version);
+        if (baseVersion != null) {
+            properties.put(BASE_VERSION, baseVersion);
+        }
+        message.setApplicationProperties(new ApplicationProperties(properties));
+    }
+
+    @Override
     public synchronized void resourcesUpdated(Set<T> updated) {
+        update(updated, key -> true);
+    }
+
+    /**
+     * Only resources with changed keys are compared with their previous version when computing deltas.
+     */
+    @Override
+    public synchronized void resourcesUpdated(Set<T> updated, Set<String> changedKeys) {
+        update(updated, changedKeys::contains);
+    }
+
+    private void update(Set<T> updated, Predicate<String> changed) {
         Set<T> filtered = updated.stream()
                 .filter(resourceFilter)
                 .collect(Collectors.toSet());
 
-        log.info("Resources was filtered on {} from {} to {}", subscriptionKey, updated, filtered);
-        if (!filtered.equals(resources)) {
+        log.debug("Resources was filtered on {} from {} to {}", subscriptionKey, updated.size(), filtered.size());
+        if (deltaEncoder != null) {
+            updateWithDelta(filtered, changed);
+        } else if (!filtered.equals(resources)) {
+            log.info("Updated resources for {}", subscriptionKey);
+            resources.clear();
+            resources.addAll(filtered);
+            version++;
+            snapshots.clear();
+            notifySubscribers(filtered, Collections.emptyList());
+        }
+    }
+
+    private void updateWithDelta(Set<T> filtered, Predicate<String> changed) {
+        if (numDeltaSubscribers == 0) {
+            updateWithoutDelta(filtered, changed);
+            return;
+        }
+
+        Map<String, Object> updatedFingerprints = new HashMap<>();
+        List<T> modified = new ArrayList<>();
+        for (T resource : filtered) {
+            String key = deltaEncoder.getKey(resource);
+            Object previous = fingerprints.get(key);
+            if (previous != null && !changed.test(key)) {
+                updatedFingerprints.put(key, previous);
+                continue;
+            }
+            Object fingerprint;
+            try {
+                fingerprint = deltaEncoder.getFingerprint(resource);
+            } catch (IOException e) {
+                log.warn("Error encoding resource {}", key, e);
+                continue;
+            }
+            updatedFingerprints.put(key, fingerprint);
+            if (!fingerprint.equals(previous)) {
+                modified.add(resource);
+            }
+        }
+        List<String> removed = fingerprints.keySet().stream()
+                .filter(key -> !updatedFingerprints.containsKey(key))
+                .collect(Collectors.toList());
+
+        if (!modified.isEmpty() || !removed.isEmpty()) {
+            log.info("Updated resources for {}: {} modified, {} removed", subscriptionKey, modified.size(), removed.size());
+            resources.clear();
+            resources.addAll(filtered);
+            fingerprints.clear();
+            fingerprints.putAll(updatedFingerprints);
+            version++;
+            snapshots.clear();
+            notifySubscribers(modified, removed);
+        }
+    }
+
+    /**
+     * Fingerprints are only needed to compute deltas, and are not kept while there are no subscribers for deltas.
+     * Changes are then found from the changed keys.
+     */
+    private void updateWithoutDelta(Set<T> filtered, Predicate<String> changed) {
+        fingerprints.clear();
+        boolean modified = filtered.stream().anyMatch(resource -> changed.test(deltaEncoder.getKey(resource)));
+        if (modified || !filtered.equals(resources)) {
             log.info("Updated resources for {}", subscriptionKey);
             resources.clear();
             resources.addAll(filtered);
-            notifySubscribers();
+            version++;
+            snapshots.clear();
+            notifySubscribers(filtered, Collections.emptyList());
+        }
+    }
+
+    private void fingerprintResources() {
+        for (T resource : resources) {
+            String key = deltaEncoder.getKey(resource);
+            try {
+                fingerprints.put(key, deltaEncoder.getFingerprint(resource));
+            } catch (IOException e) {
+                log.warn("Error encoding resource {}", key, e);
+            }
         }
     }
 }
@@ -0,0 +1,20 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.config.service.model;
+
+/**
+ * Message body encodings that a subscriber can negotiate.
+ */
+public enum Encoding {
+    /**
+     * The default encoding of the resource type, i.e. JSON for addresses.
+     */
+    DEFAULT,
+
+    /**
+     * Body encoded as AMQP typed maps and lists, which needs no parsing beyond AMQP decoding.
+     */
+    AMQP_TYPES
+}
@@ -10,4 +10,16 @@ package io.enmasse.config.service.model;
  */
 public interface ResourceDatabase {
     void subscribe(ObserverKey observerKey, Subscriber subscriber) throws Exception;
+
+    /**
+     * Remove a subscriber, releasing the observer for the key if it has no subscribers left.
+     */
+    void unsubscribe(ObserverKey observerKey, Subscriber subscriber);
+
+    /**
+     * Returns true if resources can be sent to subscribers with the given encoding.
+     */
+    default boolean supportsEncoding(Encoding encoding) {
+        return Encoding.DEFAULT.equals(encoding);
+    }
 }
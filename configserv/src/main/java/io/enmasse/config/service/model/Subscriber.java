@@ -12,4 +12,18 @@ import org.apache.qpid.proton.message.Message;
 public interface Subscriber {
     String getId();
     void resourcesUpdated(Message message);
+
+    /**
+     * Returns true if the subscriber has negotiated to receive deltas after the initial snapshot.
+     */
+    default boolean isDeltaEnabled() {
+        return false;
+    }
+
+    /**
+     * Returns the encoding the subscriber has negotiated.
+     */
+    default Encoding getEncoding() {
+        return Encoding.DEFAULT;
+    }
 }
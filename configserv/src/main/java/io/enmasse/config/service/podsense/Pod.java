@@ -22,10 +22,14 @@ public class Pod {
     private final String ready;
     private final String phase;
     private final Map<String, Map<String, Integer>> portMap;
+    private final Map<String, String> labels = new LinkedHashMap<>();
     private final Map<String, String> annotations = new LinkedHashMap<>();
 
     public Pod(io.fabric8.kubernetes.api.model.Pod pod) {
         this.name = pod.getMetadata().getName();
+        if (pod.getMetadata().getLabels() != null) {
+            this.labels.putAll(pod.getMetadata().getLabels());
+        }
         if (pod.getMetadata().getAnnotations() != null) {
             this.annotations.putAll(pod.getMetadata().getAnnotations());
         }
@@ -118,6 +122,10 @@ public class Pod {
         return portMap;
     }
 
+    public Map<String, String> getLabels() {
+        return labels;
+    }
+
     public Map<String, String> getAnnotations() {
         return annotations;
     }
@@ -12,6 +12,8 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.Watch;
 import io.fabric8.kubernetes.client.Watcher;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
@@ -28,37 +30,26 @@ public class PodSenseSubscriptionConfig implements SubscriptionConfig<Pod> {
     }
 
     @Override
-    public Resource<Pod> getResource(ObserverKey observerKey, KubernetesClient client) {
+    public Resource<Pod> getResource(KubernetesClient client) {
         return new Resource<Pod>() {
             @Override
-            public Watch watchResources(Watcher watcher) {
-                return client.pods().inNamespace(client.getNamespace()).withLabels(observerKey.getLabelFilter()).watch(watcher);
+            public List<Watch> watchResources(Watcher watcher) {
+                return Collections.singletonList(client.pods().inNamespace(client.getNamespace()).watch(watcher));
             }
 
             @Override
             public Set<Pod> listResources() {
-                return client.pods().inNamespace(client.getNamespace()).withLabels(observerKey.getLabelFilter()).list().getItems().stream()
-                        .filter(pod -> filterPod(observerKey, pod))
+                return client.pods().inNamespace(client.getNamespace()).list().getItems().stream()
                         .map(Pod::new)
                         .collect(Collectors.toSet());
             }
         };
     }
 
-    private boolean filterPod(ObserverKey observerKey, io.fabric8.kubernetes.api.model.Pod pod) {
-        Map<String, String> annotationFilter = observerKey.getAnnotationFilter();
-        Map<String, String> annotations = pod.getMetadata().getAnnotations();
-        if (annotationFilter.isEmpty()) {
-            return true;
-        }
-
-        if (annotations == null) {
-            return false;
-        }
-
-        for (Map.Entry<String, String> filterEntry : annotationFilter.entrySet()) {
-            String annotationValue = annotations.get(filterEntry.getKey());
-            if (annotationValue == null || !annotationValue.equals(filterEntry.getValue())) {
+    private static boolean matches(Map<String, String> filter, Map<String, String> values) {
+        for (Map.Entry<String, String> filterEntry : filter.entrySet()) {
+            String value = values.get(filterEntry.getKey());
+            if (value == null || !value.equals(filterEntry.getValue())) {
                 return false;
             }
         }
@@ -66,7 +57,9 @@ public class PodSenseSubscriptionConfig implements SubscriptionConfig<Pod> {
     }
 
     @Override
-    public Predicate<Pod> getResourceFilter() {
-        return podResource -> podResource.getHost() != null && !podResource.getHost().isEmpty();
+    public Predicate<Pod> getResourceFilter(ObserverKey observerKey) {
+        return podResource -> podResource.getHost() != null && !podResource.getHost().isEmpty()
+                && matches(observerKey.getLabelFilter(), podResource.getLabels())
+                && matches(observerKey.getAnnotationFilter(), podResource.getAnnotations());
     }
 }
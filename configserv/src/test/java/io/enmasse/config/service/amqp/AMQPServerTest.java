@@ -94,6 +94,19 @@ public class AMQPServerTest {
         assertThat(value, is("test1"));
     }
 
+    @Test
+    public void testUnsubscribeOnClose(TestContext context) throws Exception {
+        ProtonMessageHandler msgHandler = mock(ProtonMessageHandler.class);
+        client.subscribe("foo", null, msgHandler);
+
+        ArgumentCaptor<ObserverKey> keyCapture = ArgumentCaptor.forClass(ObserverKey.class);
+        ArgumentCaptor<Subscriber> subCapture = ArgumentCaptor.forClass(Subscriber.class);
+        verify(database, timeout(10000)).subscribe(keyCapture.capture(), subCapture.capture());
+
+        client.close();
+        verify(database, timeout(10000)).unsubscribe(eq(keyCapture.getValue()), eq(subCapture.getValue()));
+    }
+
     @Test
     public void testSubscribeWithBadKey(TestContext context) throws InterruptedException {
         ProtonMessageHandler msgHandler = mock(ProtonMessageHandler.class);
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.config.service.amqp;
+
+import io.enmasse.config.service.kubernetes.SubscriptionManager;
+import io.vertx.core.Handler;
+import io.vertx.proton.ProtonSender;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.message.Message;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class ConflatingSenderTest {
+    private ProtonSender sender;
+    private Handler<ProtonSender> drainHandler;
+
+    @Before
+    public void setup() {
+        sender = mock(ProtonSender.class);
+        when(sender.isOpen()).thenReturn(true);
+        when(sender.sendQueueFull()).thenReturn(true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConflatingSender createSender(int maxDeltas) {
+        ConflatingSender conflatingSender = new ConflatingSender(sender, maxDeltas);
+        ArgumentCaptor<Handler> captor = ArgumentCaptor.forClass(Handler.class);
+        verify(sender).sendQueueDrainHandler(captor.capture());
+        drainHandler = captor.getValue();
+        return conflatingSender;
+    }
+
+    @Test
+    public void testLatestSnapshotWins() {
+        ConflatingSender conflatingSender = createSender(10);
+        conflatingSender.send(snapshot("v1"));
+        conflatingSender.send(snapshot("v2"));
+        conflatingSender.send(snapshot("v3"));
+        verify(sender, never()).send(any(Message.class));
+        assertEquals(2, conflatingSender.getNumConflated());
+
+        when(sender.sendQueueFull()).thenReturn(false, true);
+        drainHandler.handle(sender);
+
+        List<Message> sent = captureSent(1);
+        assertEquals("v3", ((AmqpValue) sent.get(0).getBody()).getValue());
+        assertFalse(conflatingSender.hasPending());
+    }
+
+    @Test
+    public void testDeltasFollowSnapshot() {
+        ConflatingSender conflatingSender = createSender(2);
+        conflatingSender.send(delta("d0"));
+        conflatingSender.send(snapshot("v1"));
+        conflatingSender.send(delta("d1"));
+        conflatingSender.send(delta("d2"));
+        conflatingSender.send(delta("d3"));
+        assertEquals(2, conflatingSender.getNumConflated());
+
+        when(sender.sendQueueFull()).thenReturn(false);
+        drainHandler.handle(sender);
+
+        List<Message> sent = captureSent(3);
+        assertEquals("v1", ((AmqpValue) sent.get(0).getBody()).getValue());
+        assertEquals("d2", ((AmqpValue) sent.get(1).getBody()).getValue());
+        assertEquals("d3", ((AmqpValue) sent.get(2).getBody()).getValue());
+    }
+
+    @Test
+    public void testClosed() {
+        ConflatingSender conflatingSender = createSender(10);
+        conflatingSender.send(snapshot("v1"));
+        assertTrue(conflatingSender.hasPending());
+        conflatingSender.close();
+        conflatingSender.send(snapshot("v2"));
+        assertFalse(conflatingSender.hasPending());
+
+        when(sender.sendQueueFull()).thenReturn(false);
+        drainHandler.handle(sender);
+        verify(sender, never()).send(any(Message.class));
+    }
+
+    private List<Message> captureSent(int expected) {
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(sender, times(expected)).send(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static Message snapshot(String body) {
+        Message message = Message.Factory.create();
+        message.setBody(new AmqpValue(body));
+        return message;
+    }
+
+    private static Message delta(String body) {
+        Message message = snapshot(body);
+        message.setApplicationProperties(new ApplicationProperties(Collections.singletonMap(SubscriptionManager.BASE_VERSION, 1L)));
+        return message;
+    }
+}
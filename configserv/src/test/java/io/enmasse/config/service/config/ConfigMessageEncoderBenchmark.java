@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.config.service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.enmasse.address.model.Address;
+import io.enmasse.address.model.Status;
+import io.enmasse.config.service.model.Encoding;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.message.Message;
+
+import java.nio.BufferOverflowException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compares the JSON and AMQP typed encodings of address lists: time to encode the message to bytes, payload size,
+ * and time for a receiver to decode the bytes into maps and lists.
+ *
+ * Not run as part of the tests. Run the main method with the test classpath, optionally passing the address counts.
+ */
+public class ConfigMessageEncoderBenchmark {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 10;
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        int[] counts = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : new int[]{1000, 10000, 50000};
+        ConfigMessageEncoder encoder = new ConfigMessageEncoder();
+
+        System.out.println(String.format("%-10s %-12s %14s %14s %14s", "addresses", "encoding", "encode (ms)", "size (bytes)", "decode (ms)"));
+        for (int count : counts) {
+            Set<Address> addresses = createAddresses(count);
+            for (Encoding encoding : Encoding.values()) {
+                Result result = run(encoder, addresses, encoding);
+                System.out.println(String.format("%-10d %-12s %14.2f %14d %14.2f", count, encoding, result.encodeMillis, result.size, result.decodeMillis));
+            }
+        }
+    }
+
+    private static Result run(ConfigMessageEncoder encoder, Set<Address> addresses, Encoding encoding) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            decode(encode(encoder, addresses, encoding), encoding);
+        }
+
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        byte[] payload = null;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            payload = encode(encoder, addresses, encoding);
+            encodeNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            decode(payload, encoding);
+            decodeNanos += System.nanoTime() - start;
+        }
+        return new Result(encodeNanos / 1e6 / ITERATIONS, payload.length, decodeNanos / 1e6 / ITERATIONS);
+    }
+
+    private static byte[] encode(ConfigMessageEncoder encoder, Set<Address> addresses, Encoding encoding) throws Exception {
+        Message message = encoder.encode(addresses, encoding);
+        byte[] buffer = new byte[64 * 1024];
+        while (true) {
+            try {
+                int length = message.encode(buffer, 0, buffer.length);
+                return Arrays.copyOf(buffer, length);
+            } catch (BufferOverflowException e) {
+                buffer = new byte[buffer.length * 2];
+            }
+        }
+    }
+
+    private static Object decode(byte[] payload, Encoding encoding) throws Exception {
+        Message message = Message.Factory.create();
+        message.decode(payload, 0, payload.length);
+        Object body = ((AmqpValue) message.getBody()).getValue();
+        if (Encoding.DEFAULT.equals(encoding)) {
+            return mapper.readValue((String) body, Map.class);
+        }
+        return body;
+    }
+
+    private static Set<Address> createAddresses(int count) {
+        Set<Address> addresses = new LinkedHashSet<>();
+        for (int i = 0; i < count; i++) {
+            addresses.add(new Address.Builder()
+                    .setName("address-" + i)
+                    .setAddress("address-" + i)
+                    .setAddressSpace("myspace")
+                    .setType(i % 2 == 0 ? "queue" : "topic")
+                    .setPlan("pooled-inmemory")
+                    .setUuid("uuid-" + i)
+                    .setStatus(new Status(true))
+                    .build());
+        }
+        return addresses;
+    }
+
+    private static class Result {
+        private final double encodeMillis;
+        private final int size;
+        private final double decodeMillis;
+
+        private Result(double encodeMillis, int size, double decodeMillis) {
+            this.encodeMillis = encodeMillis;
+            this.size = size;
+            this.decodeMillis = decodeMillis;
+        }
+    }
+}
@@ -8,8 +8,7 @@ package io.enmasse.config.service.config;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import io.enmasse.address.model.Address;
 import io.enmasse.address.model.Status;
-import io.enmasse.address.model.types.AddressType;
-import io.enmasse.address.model.types.standard.StandardType;
+import io.enmasse.config.service.model.Encoding;
 import org.apache.qpid.proton.amqp.messaging.AmqpValue;
 import org.apache.qpid.proton.message.Message;
 import org.junit.Test;
@@ -17,10 +16,14 @@ import org.junit.Test;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
 public class ConfigMessageEncoderTest {
@@ -29,9 +32,9 @@ public class ConfigMessageEncoderTest {
         ConfigMessageEncoder encoder = new ConfigMessageEncoder();
 
         Set<Address> configSet = new LinkedHashSet<>(Arrays.asList(
-                createAddress("c1", "myqueue", StandardType.QUEUE),
-                createAddress("c2", "myqueue2", StandardType.QUEUE),
-                createAddress("c3", "mytopic", StandardType.TOPIC)));
+                createAddress("c1", "myqueue", "queue"),
+                createAddress("c2", "myqueue2", "queue"),
+                createAddress("c3", "mytopic", "topic")));
 
         Message message = encoder.encode(configSet);
         String json = (String) ((AmqpValue) message.getBody()).getValue();
@@ -40,13 +43,70 @@ public class ConfigMessageEncoderTest {
 
     }
 
-    private Address createAddress(String name, String address, AddressType addressType) throws JsonProcessingException, UnsupportedEncodingException {
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAmqpTypesEncoder() throws IOException {
+        ConfigMessageEncoder encoder = new ConfigMessageEncoder();
+
+        Set<Address> configSet = new LinkedHashSet<>(Arrays.asList(
+                createAddress("c1", "myqueue", "queue"),
+                createAddress("c3", "mytopic", "topic")));
+
+        Message message = encoder.encode(configSet, Encoding.AMQP_TYPES);
+        assertThat(message.getSubject(), is("enmasse.io/v1/AddressList"));
+        assertNull(message.getContentType());
+
+        Map<String, Object> root = (Map<String, Object>) ((AmqpValue) message.getBody()).getValue();
+        assertThat(root.get("kind"), is("AddressList"));
+        assertThat(root.get("fields"), is(Arrays.asList("name", "addressSpace", "uuid", "type", "plan", "address", "isReady", "phase", "annotations", "messages")));
+        List<List<Object>> items = (List<List<Object>>) root.get("items");
+        assertThat(items.size(), is(2));
+        assertThat(items.get(0), is(Arrays.asList("c1", "unknown", "1234", "queue", "inmemory", "myqueue", false, "Pending", null, null)));
+        assertThat(items.get(1).get(5), is("mytopic"));
+
+        // Typed body survives a round trip through the AMQP codec
+        byte[] buffer = new byte[4096];
+        int length = message.encode(buffer, 0, buffer.length);
+        Message decoded = Message.Factory.create();
+        decoded.decode(buffer, 0, length);
+        assertThat(((AmqpValue) decoded.getBody()).getValue(), is(root));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAmqpTypesEncoderUnsetFields() throws IOException {
+        ConfigMessageEncoder encoder = new ConfigMessageEncoder();
+
+        Address address = new Address.Builder()
+                .setName("c1")
+                .setAddress("myqueue")
+                .setType("queue")
+                .setUuid("1234")
+                .build();
+
+        Message message = encoder.encodeDelta(Collections.singleton(address), Collections.emptyList(), Encoding.AMQP_TYPES);
+        Map<String, Object> delta = (Map<String, Object>) ((AmqpValue) message.getBody()).getValue();
+        List<List<Object>> items = (List<List<Object>>) ((Map<String, Object>) delta.get("modified")).get("items");
+        assertThat(items.get(0), is(Arrays.asList("c1", null, "1234", "queue", null, "myqueue", false, "Pending", null, null)));
+    }
+
+    @Test
+    public void testFingerprint() throws IOException {
+        ConfigMessageEncoder encoder = new ConfigMessageEncoder();
+        Address address = createAddress("c1", "myqueue", "queue");
+
+        assertThat(encoder.getFingerprint(new Address.Builder(address).setVersion("42").build()), is("42"));
+        assertThat(encoder.getFingerprint(address), is(encoder.getFingerprint(createAddress("c1", "myqueue", "queue"))));
+        assertThat(encoder.getFingerprint(address).equals(encoder.getFingerprint(createAddress("c1", "myqueue", "topic"))), is(false));
+    }
+
+    private Address createAddress(String name, String address, String addressType) throws JsonProcessingException, UnsupportedEncodingException {
         return new Address.Builder()
                 .setName(name)
                 .setAddress(address)
                 .setAddressSpace("unknown")
                 .setType(addressType)
-                .setPlan(addressType.getPlans().get(0))
+                .setPlan("inmemory")
                 .setUuid("1234")
                 .setStatus(new Status(false))
                 .build();
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.config.service.kubernetes;
+
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.message.Message;
+import org.junit.Test;
+
+import java.nio.BufferOverflowException;
+
+import static org.junit.Assert.assertEquals;
+
+public class EncodedMessageTest {
+    @Test
+    public void testEncodedOnce() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            body.append("address").append(i);
+        }
+        Message message = Message.Factory.create();
+        message.setSubject("enmasse.io/v1/AddressList");
+        message.setBody(new AmqpValue(body.toString()));
+
+        EncodedMessage encoded = new EncodedMessage(message);
+
+        byte[] buffer = new byte[encoded.getEncodedSize()];
+        assertEquals(buffer.length, encoded.encode(buffer, 0, buffer.length));
+
+        Message decoded = Message.Factory.create();
+        decoded.decode(buffer, 0, buffer.length);
+        assertEquals("enmasse.io/v1/AddressList", decoded.getSubject());
+        assertEquals(body.toString(), ((AmqpValue) decoded.getBody()).getValue());
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void testBufferTooSmall() {
+        Message message = Message.Factory.create();
+        message.setBody(new AmqpValue("value"));
+
+        EncodedMessage encoded = new EncodedMessage(message);
+        byte[] buffer = new byte[encoded.getEncodedSize() - 1];
+        encoded.encode(buffer, 0, buffer.length);
+    }
+}
@@ -27,6 +27,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 @SuppressWarnings("unchecked")
@@ -37,6 +38,7 @@ public class KubernetesResourceDatabaseTest {
     private Map<String, String> testAnnotations = Collections.singletonMap("a1", "v1");
     private TestSubscriptionConfig.TestWatch watch;
     private BlockingQueue<Set<TestResource>> resourceQueue;
+    private TestSubscriptionConfig config;
 
     @Before
     public void setup() {
@@ -44,7 +46,8 @@ public class KubernetesResourceDatabaseTest {
 
         this.watch = new TestSubscriptionConfig.TestWatch();
         resourceQueue = new LinkedBlockingQueue<>();
-        database = new KubernetesResourceDatabase<>(null, new TestSubscriptionConfig(watch, resourceQueue));
+        config = new TestSubscriptionConfig(watch, resourceQueue);
+        database = new KubernetesResourceDatabase<>(null, config);
     }
 
     @After
@@ -98,6 +101,45 @@ public class KubernetesResourceDatabaseTest {
         waitForMessage(sub, Arrays.asList("v2"));
     }
 
+    @Test
+    public void testSharedResource() throws Exception {
+        TestSubscriber sub1 = new TestSubscriber();
+        TestSubscriber sub2 = new TestSubscriber();
+        TestSubscriber sub3 = new TestSubscriber();
+
+        database.subscribe(new ObserverKey(Collections.singletonMap("name", "r1"), Collections.emptyMap()), sub1);
+        database.subscribe(new ObserverKey(Collections.singletonMap("name", "r2"), Collections.emptyMap()), sub2);
+
+        resourceQueue.put(new LinkedHashSet<>(Arrays.asList(new TestResource("r1", "v1"), new TestResource("r2", "v2"))));
+
+        waitForMessage(sub1, Arrays.asList("v1"));
+        waitForMessage(sub2, Arrays.asList("v2"));
+
+        // A new key gets the current resources without waiting for the controller
+        database.subscribe(new ObserverKey(Collections.emptyMap(), Collections.emptyMap()), sub3);
+        assertNotNull(sub3.lastValue);
+        assertEquals(2, ((List<String>) ((AmqpValue) sub3.lastValue.getBody()).getValue()).size());
+
+        assertEquals(1, config.numResources.get());
+    }
+
+    @Test
+    public void testControllerStoppedWithoutSubscribers() throws Exception {
+        TestSubscriber sub = new TestSubscriber();
+        ObserverKey key = new ObserverKey(Collections.emptyMap(), Collections.emptyMap());
+        resourceQueue.put(Collections.singleton(new TestResource("k1", "v1")));
+        database.subscribe(key, sub);
+        waitForMessage(sub, Arrays.asList("v1"));
+
+        database.unsubscribe(key, sub);
+        assertTrue(watch.isClosed);
+
+        resourceQueue.put(Collections.singleton(new TestResource("k1", "v2")));
+        database.subscribe(key, sub);
+        waitForMessage(sub, Arrays.asList("v2"));
+        assertEquals(2, config.numResources.get());
+    }
+
     public static class TestSubscriber implements Subscriber {
         public volatile Message lastValue = null;
 
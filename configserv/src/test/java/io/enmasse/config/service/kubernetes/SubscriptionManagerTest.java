@@ -14,15 +14,17 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.internal.util.collections.Sets;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -63,4 +65,144 @@ public class SubscriptionManagerTest {
         listener.resourcesUpdated(new HashSet<>(Arrays.asList(new TestResource("t2", "v2"), new TestResource("t3", "filtered"))));
         verifyZeroInteractions(mockSub);
     }
+
+    @Test
+    public void testUnsubscribing() throws IOException {
+        MessageEncoder<TestResource> encoder = set -> Message.Factory.create();
+        ObserverKey subKey = new ObserverKey(Collections.emptyMap(), Collections.emptyMap());
+        SubscriptionManager<TestResource> listener = new SubscriptionManager<>(subKey, encoder, resource -> true);
+        Subscriber sub1 = mock(Subscriber.class);
+        Subscriber sub2 = mock(Subscriber.class);
+        listener.subscribe(sub1);
+        listener.subscribe(sub2);
+
+        assertTrue(listener.unsubscribe(sub1));
+        listener.resourcesUpdated(Collections.singleton(new TestResource("t1", "v1")));
+        verify(sub1, never()).resourcesUpdated(any());
+        verify(sub2).resourcesUpdated(any());
+
+        assertFalse(listener.unsubscribe(sub2));
+    }
+
+    @Test
+    public void testDeltaSubscribing() throws IOException {
+        ObserverKey subKey = new ObserverKey(Collections.emptyMap(), Collections.emptyMap());
+        SubscriptionManager<TestResource> listener = new SubscriptionManager<>(subKey, new TestDeltaEncoder(), resource -> true);
+        Subscriber snapshotSub = mock(Subscriber.class);
+        Subscriber deltaSub = mock(Subscriber.class);
+        when(deltaSub.isDeltaEnabled()).thenReturn(true);
+
+        listener.subscribe(snapshotSub);
+        listener.subscribe(deltaSub);
+        verify(snapshotSub, never()).resourcesUpdated(any());
+        verify(deltaSub).resourcesUpdated(messageCaptor.capture());
+        assertThat(messageCaptor.getValue().getSubject(), is("snapshot"));
+        assertThat(messageCaptor.getValue().getApplicationProperties().getValue().get("version"), is(0L));
+
+        clearInvocations(deltaSub);
+        listener.resourcesUpdated(new HashSet<>(Arrays.asList(new TestResource("t1", "v1"), new TestResource("t2", "v2"))));
+        verify(deltaSub).resourcesUpdated(messageCaptor.capture());
+        Message message = messageCaptor.getValue();
+        assertThat(message.getSubject(), is("delta"));
+        assertThat(message.getApplicationProperties().getValue().get("version"), is(1L));
+        assertThat(message.getApplicationProperties().getValue().get("baseVersion"), is(0L));
+        assertThat(((AmqpValue)message.getBody()).getValue(), is("modified=[t1, t2] removed=[]"));
+
+        verify(snapshotSub).resourcesUpdated(messageCaptor.capture());
+        assertThat(messageCaptor.getValue().getSubject(), is("snapshot"));
+
+        clearInvocations(deltaSub);
+        listener.resourcesUpdated(new HashSet<>(Arrays.asList(new TestResource("t1", "v1"), new TestResource("t3", "v3"))));
+        verify(deltaSub).resourcesUpdated(messageCaptor.capture());
+        message = messageCaptor.getValue();
+        assertThat(message.getApplicationProperties().getValue().get("version"), is(2L));
+        assertThat(((AmqpValue)message.getBody()).getValue(), is("modified=[t3] removed=[t2]"));
+
+        clearInvocations(deltaSub);
+        listener.resourcesUpdated(new HashSet<>(Arrays.asList(new TestResource("t1", "v1"), new TestResource("t3", "v3"))));
+        verifyZeroInteractions(deltaSub);
+    }
+
+    @Test
+    public void testDeltaWithChangedKeys() throws IOException {
+        ObserverKey subKey = new ObserverKey(Collections.emptyMap(), Collections.emptyMap());
+        SubscriptionManager<TestResource> listener = new SubscriptionManager<>(subKey, new TestDeltaEncoder(), resource -> true);
+        Subscriber deltaSub = mock(Subscriber.class);
+        when(deltaSub.isDeltaEnabled()).thenReturn(true);
+        listener.subscribe(deltaSub);
+        listener.resourcesUpdated(new HashSet<>(Arrays.asList(new TestResource("t1", "v1"), new TestResource("t2", "v2"))), Sets.newSet("t1", "t2"));
+
+        // Resources not in the changed keys are not compared again
+        clearInvocations(deltaSub);
+        listener.resourcesUpdated(new HashSet<>(Arrays.asList(new TestResource("t1", "v1"), new TestResource("t2", "v3"))), Collections.emptySet());
+        verifyZeroInteractions(deltaSub);
+
+        listener.resourcesUpdated(new HashSet<>(Arrays.asList(new TestResource("t1", "v1"), new TestResource("t2", "v3"))), Sets.newSet("t1", "t2"));
+        verify(deltaSub).resourcesUpdated(messageCaptor.capture());
+        assertThat(((AmqpValue)messageCaptor.getValue().getBody()).getValue(), is("modified=[t2] removed=[]"));
+
+        clearInvocations(deltaSub);
+        listener.resourcesUpdated(Collections.singleton(new TestResource("t2", "v3")), Sets.newSet("t1"));
+        verify(deltaSub).resourcesUpdated(messageCaptor.capture());
+        assertThat(((AmqpValue)messageCaptor.getValue().getBody()).getValue(), is("modified=[] removed=[t1]"));
+    }
+
+    @Test
+    public void testNoFingerprintsWithoutDeltaSubscribers() throws IOException {
+        ObserverKey subKey = new ObserverKey(Collections.emptyMap(), Collections.emptyMap());
+        TestDeltaEncoder encoder = spy(new TestDeltaEncoder());
+        SubscriptionManager<TestResource> listener = new SubscriptionManager<>(subKey, encoder, resource -> true);
+        Subscriber snapshotSub = mock(Subscriber.class);
+        listener.subscribe(snapshotSub);
+
+        listener.resourcesUpdated(new HashSet<>(Arrays.asList(new TestResource("t1", "v1"), new TestResource("t2", "v2"))), Sets.newSet("t1", "t2"));
+        verify(snapshotSub).resourcesUpdated(messageCaptor.capture());
+        assertThat(messageCaptor.getValue().getSubject(), is("snapshot"));
+
+        clearInvocations(snapshotSub);
+        listener.resourcesUpdated(new HashSet<>(Arrays.asList(new TestResource("t1", "v1"), new TestResource("t2", "v2"))), Collections.emptySet());
+        verifyZeroInteractions(snapshotSub);
+
+        listener.resourcesUpdated(new HashSet<>(Arrays.asList(new TestResource("t1", "v1"), new TestResource("t2", "v3"))), Sets.newSet("t2"));
+        verify(snapshotSub).resourcesUpdated(any());
+        verify(encoder, never()).getFingerprint(any());
+
+        // Fingerprints are taken when the first delta subscriber attaches
+        Subscriber deltaSub = mock(Subscriber.class);
+        when(deltaSub.isDeltaEnabled()).thenReturn(true);
+        listener.subscribe(deltaSub);
+        verify(encoder, times(2)).getFingerprint(any());
+
+        clearInvocations(deltaSub);
+        listener.resourcesUpdated(new HashSet<>(Arrays.asList(new TestResource("t1", "v1"), new TestResource("t2", "v3"))), Sets.newSet("t1"));
+        verifyZeroInteractions(deltaSub);
+    }
+
+    private static class TestDeltaEncoder implements DeltaMessageEncoder<TestResource> {
+        @Override
+        public String getKey(TestResource resource) {
+            return resource.getName();
+        }
+
+        @Override
+        public Object getFingerprint(TestResource resource) {
+            return resource.getValue();
+        }
+
+        @Override
+        public Message encodeDelta(Collection<TestResource> modified, Collection<String> removed) {
+            Message message = Message.Factory.create();
+            message.setSubject("delta");
+            List<String> names = modified.stream().map(TestResource::getName).sorted().collect(Collectors.toList());
+            message.setBody(new AmqpValue("modified=" + names + " removed=" + removed));
+            return message;
+        }
+
+        @Override
+        public Message encode(Set<TestResource> set) {
+            Message message = Message.Factory.create();
+            message.setSubject("snapshot");
+            return message;
+        }
+    }
 }
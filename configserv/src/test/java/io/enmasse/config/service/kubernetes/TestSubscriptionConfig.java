@@ -14,9 +14,13 @@ import org.apache.qpid.proton.amqp.messaging.AmqpSequence;
 import org.apache.qpid.proton.amqp.messaging.AmqpValue;
 import org.apache.qpid.proton.message.Message;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -25,6 +29,7 @@ public class TestSubscriptionConfig implements SubscriptionConfig<TestResource>
 
     private final TestWatch testWatch;
     private final BlockingQueue<Set<TestResource>> stream;
+    public final AtomicInteger numResources = new AtomicInteger(0);
 
     public TestSubscriptionConfig(TestWatch testWatch, BlockingQueue<Set<TestResource>> stream) {
         this.testWatch = testWatch;
@@ -42,17 +47,25 @@ public class TestSubscriptionConfig implements SubscriptionConfig<TestResource>
     }
 
     @Override
-    public Resource<TestResource> getResource(ObserverKey observerKey, KubernetesClient client) {
+    public Resource<TestResource> getResource(KubernetesClient client) {
+        numResources.incrementAndGet();
         return new Resource<TestResource>() {
+            private Set<TestResource> latest = Collections.emptySet();
+
             @Override
-            public Watch watchResources(Watcher watcher) {
-                return testWatch;
+            public List<Watch> watchResources(Watcher watcher) {
+                return Collections.singletonList(testWatch);
             }
 
             @Override
             public Set<TestResource> listResources() {
+                // Keep returning the latest value, so that the controller is not blocked when stopped
                 try {
-                    return stream.take();
+                    Set<TestResource> next = stream.poll(100, TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        latest = next;
+                    }
+                    return latest;
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
@@ -61,8 +74,8 @@ public class TestSubscriptionConfig implements SubscriptionConfig<TestResource>
     }
 
     @Override
-    public Predicate<TestResource> getResourceFilter() {
-        return TestResource -> true;
+    public Predicate<TestResource> getResourceFilter(ObserverKey observerKey) {
+        return resource -> observerKey.getLabelFilter().getOrDefault("name", resource.getName()).equals(resource.getName());
     }
 
     public static class TestWatch implements Watch {
@@ -56,10 +56,14 @@ public class PodSenseMessageEncoderTest {
     }
 
     static Pod createPod(String name, String ip, String phase, Map<String, Integer> portMap) {
+        return createPod(name, ip, phase, portMap, Collections.singletonMap("my", "label"));
+    }
+
+    static Pod createPod(String name, String ip, String phase, Map<String, Integer> portMap, Map<String, String> labels) {
         return new Pod(new PodBuilder()
                 .withMetadata(new ObjectMetaBuilder()
                         .withName(name)
-                        .addToLabels("my", "label")
+                        .withLabels(labels)
                         .build())
                 .withSpec(new PodSpecBuilder()
                         .withContainers(new ContainerBuilder()
@@ -5,7 +5,6 @@
 package io.enmasse.config.service.podsense;
 
 import io.enmasse.config.service.kubernetes.MessageEncoder;
-import io.enmasse.config.service.kubernetes.ObserverOptions;
 import io.enmasse.config.service.kubernetes.SubscriptionConfig;
 import io.enmasse.config.service.model.ObserverKey;
 import io.enmasse.k8s.api.Resource;
@@ -30,15 +29,23 @@ public class PodSenseSubscriptionConfigTest {
 
 
         KubernetesClient client = mock(KubernetesClient.class);
-        Resource<Pod> resource = config.getResource(new ObserverKey(Collections.emptyMap(), Collections.emptyMap()), client);
+        Resource<Pod> resource = config.getResource(client);
         assertNotNull(resource);
     }
 
     @Test
     public void testFilter() {
-        Predicate<Pod> filter = new PodSenseSubscriptionConfig().getResourceFilter();
+        Predicate<Pod> filter = new PodSenseSubscriptionConfig().getResourceFilter(new ObserverKey(Collections.emptyMap(), Collections.emptyMap()));
         assertFalse(filter.test(PodSenseMessageEncoderTest.createPod("p1", null, "", Collections.emptyMap())));
         assertFalse(filter.test(PodSenseMessageEncoderTest.createPod("p1", "", "", Collections.emptyMap())));
         assertTrue(filter.test(PodSenseMessageEncoderTest.createPod("p1", "myhost", "", Collections.emptyMap())));
     }
+
+    @Test
+    public void testKeyFilter() {
+        Predicate<Pod> filter = new PodSenseSubscriptionConfig().getResourceFilter(new ObserverKey(Collections.singletonMap("app", "router"), Collections.emptyMap()));
+        assertFalse(filter.test(PodSenseMessageEncoderTest.createPod("p1", "myhost", "", Collections.emptyMap())));
+        assertTrue(filter.test(PodSenseMessageEncoderTest.createPod("p1", "myhost", "", Collections.emptyMap(), Collections.singletonMap("app", "router"))));
+        assertFalse(filter.test(PodSenseMessageEncoderTest.createPod("p1", "myhost", "", Collections.emptyMap(), Collections.singletonMap("app", "broker"))));
+    }
 }
@@ -5,9 +5,11 @@
 
 package enmasse.discovery;
 
-import io.enmasse.k8s.api.Resource;
+import io.enmasse.k8s.api.IncrementalResource;
 import io.enmasse.k8s.api.ResourceController;
 import io.enmasse.k8s.api.Watcher;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
 import io.fabric8.kubernetes.client.DefaultKubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.Watch;
@@ -17,7 +19,7 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.stream.Collectors;
 
-public class DiscoveryClient implements Resource<Pod>, Watcher<Pod> {
+public class DiscoveryClient implements IncrementalResource<Pod>, Watcher<Pod> {
     private final List<DiscoveryListener> listeners = new ArrayList<>();
     private final Logger log = LoggerFactory.getLogger(DiscoveryClient.class.getName());
     private final String containerName;
@@ -88,6 +90,22 @@ public class DiscoveryClient implements Resource<Pod>, Watcher<Pod> {
         return Collections.singletonList(client.pods().withLabels(labelFilter).watch(watcher));
     }
 
+    @Override
+    public List<Watch> watchResources(io.fabric8.kubernetes.client.Watcher watcher, String resourceVersion) {
+        return Collections.singletonList(client.pods().withLabels(labelFilter).withResourceVersion(resourceVersion).watch(watcher));
+    }
+
+    @Override
+    public KubernetesResourceList<? extends HasMetadata> listKubernetesResources() {
+        return client.pods().withLabels(labelFilter).list();
+    }
+
+    @Override
+    public Optional<Pod> decodeResource(HasMetadata object) {
+        Pod pod = new Pod((io.fabric8.kubernetes.api.model.Pod) object);
+        return filterPod(pod) ? Optional.of(pod) : Optional.empty();
+    }
+
     @Override
     public Set<Pod> listResources() {
         return client.pods().withLabels(labelFilter).list().getItems().stream()
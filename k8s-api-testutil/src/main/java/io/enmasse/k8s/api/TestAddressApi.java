@@ -8,6 +8,7 @@ package io.enmasse.k8s.api;
 import io.enmasse.address.model.Address;
 import io.enmasse.address.model.Status;
 
+import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.Optional;
 import java.util.Set;
@@ -31,6 +32,23 @@ public class TestAddressApi implements AddressApi {
         createAddress(destination);
     }
 
+    @Override
+    public boolean replaceAddressStatus(Address destination) {
+        Optional<Address> current = getAddressWithName(destination.getName());
+        if (!current.isPresent()) {
+            return false;
+        }
+        replaceAddress(new Address.Builder(current.get()).setStatus(new Status(destination.getStatus())).build());
+        return true;
+    }
+
+    @Override
+    public void replaceAddressStatuses(Collection<Address> destinations) {
+        for (Address destination : destinations) {
+            replaceAddressStatus(destination);
+        }
+    }
+
     @Override
     public void deleteAddress(Address destination) {
         if (throwException) {
@@ -6,6 +6,7 @@ package io.enmasse.k8s.api;
 
 import io.enmasse.address.model.Address;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.Set;
 
@@ -19,8 +20,27 @@ public interface AddressApi {
 
     void createAddress(Address address);
     void replaceAddress(Address address);
+
+    /**
+     * Write the status of an address. The version of the address is used for optimistic concurrency, and on
+     * conflict the status is written to the latest version of the address if it differs from it.
+     *
+     * @return false if the address no longer exists
+     */
+    boolean replaceAddressStatus(Address address);
+
+    /**
+     * Write the status of many addresses, with a bounded number of writes in flight.
+     */
+    void replaceAddressStatuses(Collection<Address> addresses);
     void deleteAddress(Address address);
 
     Watch watchAddresses(Watcher<Address> watcher) throws Exception;
     Watch watchAddresses(Watcher<Address> watcher, boolean useEventLoop) throws Exception;
+
+    /**
+     * Release the resources held for writing statuses.
+     */
+    default void close() {
+    }
 }
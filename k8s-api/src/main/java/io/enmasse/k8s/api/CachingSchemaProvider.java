@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016-2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.k8s.api;
+
+import io.enmasse.address.model.AddressResolver;
+import io.enmasse.address.model.AddressSpaceType;
+import io.enmasse.address.model.Schema;
+import io.enmasse.address.model.UnresolvedAddressSpaceException;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the latest schema from a schema watch, and the address resolvers of the schema.
+ *
+ * The schema API returns the same schema while its content is unchanged, so a different schema instance is a change.
+ */
+public class CachingSchemaProvider implements SchemaProvider, Watcher<Schema> {
+    private volatile CachedSchema cached = new CachedSchema(null);
+
+    @Override
+    public Schema getSchema() {
+        return cached.schema;
+    }
+
+    /**
+     * Returns a resolver for the address space type, reusing the resolver until the schema changes.
+     */
+    @Override
+    public AddressResolver getAddressResolver(String addressSpaceType) {
+        CachedSchema current = cached;
+        AddressResolver resolver = current.resolvers.get(addressSpaceType);
+        if (resolver == null) {
+            AddressSpaceType type = current.schema.findAddressSpaceType(addressSpaceType).orElseThrow(() -> new UnresolvedAddressSpaceException("Unable to resolve address space type " + addressSpaceType));
+            resolver = new AddressResolver(current.schema, type);
+            current.resolvers.putIfAbsent(addressSpaceType, resolver);
+        }
+        return resolver;
+    }
+
+    @Override
+    public void resourcesUpdated(Set<Schema> resources) {
+        Schema updated = resources.isEmpty() ? null : resources.iterator().next();
+        if (updated != cached.schema) {
+            cached = new CachedSchema(updated);
+        }
+    }
+
+    private static class CachedSchema {
+        private final Schema schema;
+        private final Map<String, AddressResolver> resolvers = new ConcurrentHashMap<>();
+
+        private CachedSchema(Schema schema) {
+            this.schema = schema;
+        }
+    }
+}
@@ -10,29 +10,51 @@ import io.enmasse.address.model.v1.CodecV1;
 import io.enmasse.config.LabelKeys;
 import io.enmasse.config.AnnotationKeys;
 import io.enmasse.address.model.Address;
+import io.enmasse.address.model.Status;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
 import io.fabric8.kubernetes.api.model.ConfigMapList;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implements the AddressApi using config maps.
+ *
+ * Status writes are done with the resource version of the address, without reading the config map first. Batches
+ * of status writes are run on a small pool of threads, which is stopped on close.
  */
-public class ConfigMapAddressApi implements AddressApi, Resource<Address> {
+public class ConfigMapAddressApi implements AddressApi, IncrementalResource<Address> {
 
     private static final Logger log = LoggerFactory.getLogger(ConfigMapAddressApi.class);
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_CONFLICT = 409;
+    private static final int DEFAULT_STATUS_WRITE_CONCURRENCY = 8;
     private final KubernetesClient client;
     private final String namespace;
+    private final int statusWriteConcurrency;
+    private ExecutorService statusWriter;
 
     private final ObjectMapper mapper = CodecV1.getMapper();
 
     public ConfigMapAddressApi(KubernetesClient client, String namespace) {
+        this(client, namespace, DEFAULT_STATUS_WRITE_CONCURRENCY);
+    }
+
+    public ConfigMapAddressApi(KubernetesClient client, String namespace, int statusWriteConcurrency) {
         this.client = client;
         this.namespace = namespace;
+        this.statusWriteConcurrency = statusWriteConcurrency;
     }
 
     @Override
@@ -108,6 +130,107 @@ public class ConfigMapAddressApi implements AddressApi, Resource<Address> {
         }
     }
 
+    @Override
+    public boolean replaceAddressStatus(Address address) {
+        if (address.getVersion() == null) {
+            return replaceStatusOfLatest(address);
+        }
+
+        ConfigMap map = create(address);
+        if (map == null) {
+            return false;
+        }
+        try {
+            client.configMaps().inNamespace(namespace).withName(address.getName()).lockResourceVersion(address.getVersion()).replace(map);
+            return true;
+        } catch (KubernetesClientException e) {
+            if (e.getCode() == HTTP_CONFLICT) {
+                log.debug("Conflict writing status of {} at version {}, retrying with latest version", address.getName(), address.getVersion());
+                return replaceStatusOfLatest(address);
+            } else if (e.getCode() == HTTP_NOT_FOUND) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Write the status to the latest version of the address, keeping the rest of the address as it is stored.
+     */
+    private boolean replaceStatusOfLatest(Address address) {
+        Optional<Address> latest = getAddressWithName(address.getName());
+        if (!latest.isPresent()) {
+            return false;
+        }
+        Status status = latest.get().getStatus();
+        if (status.equals(address.getStatus()) && status.getMessages().equals(address.getStatus().getMessages())) {
+            return true;
+        }
+
+        ConfigMap map = create(new Address.Builder(latest.get()).setStatus(new Status(address.getStatus())).build());
+        if (map == null) {
+            return false;
+        }
+        client.configMaps().inNamespace(namespace).withName(address.getName()).lockResourceVersion(latest.get().getVersion()).replace(map);
+        return true;
+    }
+
+    @Override
+    public void replaceAddressStatuses(Collection<Address> addresses) {
+        if (addresses.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = getStatusWriter();
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (Address address : addresses) {
+            results.add(executor.submit(() -> replaceAddressStatus(address)));
+        }
+
+        RuntimeException failure = null;
+        for (Future<Boolean> result : results) {
+            try {
+                result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                RuntimeException cause = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private synchronized ExecutorService getStatusWriter() {
+        if (statusWriter == null) {
+            AtomicInteger threadNumber = new AtomicInteger(0);
+            statusWriter = Executors.newFixedThreadPool(statusWriteConcurrency, runnable -> {
+                Thread thread = new Thread(runnable, "address-status-writer-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return statusWriter;
+    }
+
+    /**
+     * Stops the threads writing statuses. They are started again by the next batch of status writes.
+     */
+    @Override
+    public synchronized void close() {
+        if (statusWriter != null) {
+            statusWriter.shutdown();
+            statusWriter = null;
+        }
+    }
+
     private ConfigMap create(Address address) {
         String name = address.getName();
         ConfigMapBuilder builder = new ConfigMapBuilder()
@@ -160,8 +283,27 @@ public class ConfigMapAddressApi implements AddressApi, Resource<Address> {
         return Arrays.asList(client.configMaps().inNamespace(namespace).withLabels(labels).watch(watcher));
     }
 
+    @Override
+    public List<io.fabric8.kubernetes.client.Watch> watchResources(io.fabric8.kubernetes.client.Watcher watcher, String resourceVersion) {
+        Map<String, String> labels = new LinkedHashMap<>();
+        labels.put(LabelKeys.TYPE, "address-config");
+        return Arrays.asList(client.configMaps().inNamespace(namespace).withLabels(labels).withResourceVersion(resourceVersion).watch(watcher));
+    }
+
     @Override
     public Set<Address> listResources() {
         return listAddresses();
     }
+
+    @Override
+    public KubernetesResourceList<? extends HasMetadata> listKubernetesResources() {
+        Map<String, String> labels = new LinkedHashMap<>();
+        labels.put(LabelKeys.TYPE, "address-config");
+        return client.configMaps().inNamespace(namespace).withLabels(labels).list();
+    }
+
+    @Override
+    public Optional<Address> decodeResource(HasMetadata object) {
+        return Optional.of(getAddressFromConfig((ConfigMap) object));
+    }
 }
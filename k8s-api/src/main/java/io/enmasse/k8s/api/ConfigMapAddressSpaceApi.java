@@ -12,6 +12,8 @@ import io.enmasse.address.model.AddressSpace;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.ConfigMapList;
 import io.fabric8.kubernetes.api.model.DoneableConfigMap;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
 import io.fabric8.openshift.client.OpenShiftClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -105,16 +107,31 @@ public class ConfigMapAddressSpaceApi implements AddressSpaceApi {
     public Watch watchAddressSpaces(Watcher<AddressSpace> watcher) throws Exception {
         Map<String, String> labels = new LinkedHashMap<>();
         labels.put(LabelKeys.TYPE, "address-space");
-        ResourceController<AddressSpace> controller = ResourceController.create(new Resource<AddressSpace>() {
+        ResourceController<AddressSpace> controller = ResourceController.create(new IncrementalResource<AddressSpace>() {
             @Override
             public List<io.fabric8.kubernetes.client.Watch> watchResources(io.fabric8.kubernetes.client.Watcher w) {
                 return Collections.singletonList(client.configMaps().withLabels(labels).watch(w));
             }
 
+            @Override
+            public List<io.fabric8.kubernetes.client.Watch> watchResources(io.fabric8.kubernetes.client.Watcher w, String resourceVersion) {
+                return Collections.singletonList(client.configMaps().withLabels(labels).withResourceVersion(resourceVersion).watch(w));
+            }
+
             @Override
             public Set<AddressSpace> listResources() {
                 return listAddressSpaces();
             }
+
+            @Override
+            public KubernetesResourceList<? extends HasMetadata> listKubernetesResources() {
+                return client.configMaps().withLabels(labels).list();
+            }
+
+            @Override
+            public Optional<AddressSpace> decodeResource(HasMetadata object) {
+                return Optional.of(getAddressSpaceFromConfig((ConfigMap) object));
+            }
         }, watcher);
 
         controller.start();
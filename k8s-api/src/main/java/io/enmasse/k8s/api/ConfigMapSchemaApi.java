@@ -21,12 +21,21 @@ import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+/**
+ * Schema built from the plan and resource definition config maps. The schema is only built again when the resource
+ * versions of the config maps change, so the same instance is returned while they are unchanged.
+ */
 public class ConfigMapSchemaApi implements SchemaApi, Resource<Schema> {
 
     private static final Logger log = LoggerFactory.getLogger(ConfigMapSchemaApi.class);
+    private static final List<String> schemaTypes = Arrays.asList("address-space-plan", "address-plan", "resource-definition");
     private final KubernetesClient client;
     private final String namespace;
 
+    // Guarded by this
+    private Map<String, String> schemaVersions;
+    private Schema schema;
+
     private static final ObjectMapper mapper = CodecV1.getMapper();
 
     public ConfigMapSchemaApi(KubernetesClient client, String namespace) {
@@ -139,7 +148,30 @@ public class ConfigMapSchemaApi implements SchemaApi, Resource<Schema> {
     }
 
     @Override
-    public Schema getSchema() {
+    public synchronized Schema getSchema() {
+        Map<String, String> versions = listResourceVersions();
+        if (!versions.equals(schemaVersions)) {
+            schema = buildSchema();
+            schemaVersions = versions;
+        }
+        return schema;
+    }
+
+    /**
+     * Returns the resource versions of the config maps the schema is built from, by name. If a config map changes
+     * after being listed here, the schema may already include the change, and is built again on the next call.
+     */
+    private Map<String, String> listResourceVersions() {
+        Map<String, String> versions = new HashMap<>();
+        for (String type : schemaTypes) {
+            for (ConfigMap configMap : listConfigMaps(type).getItems()) {
+                versions.put(configMap.getMetadata().getName(), configMap.getMetadata().getResourceVersion());
+            }
+        }
+        return versions;
+    }
+
+    private Schema buildSchema() {
         List<AddressSpacePlan> addressSpacePlans = listAddressSpacePlans();
         List<AddressPlan> addressPlans = listAddressPlans();
 
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.k8s.api;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.Watch;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A resource that can be kept up to date from the objects delivered with watch events, rather than being relisted
+ * on every change. Resources are keyed by their metadata name.
+ */
+public interface IncrementalResource<T> extends Resource<T> {
+    /**
+     * List the raw kubernetes objects backing this resource. The list resource version is used to start watching.
+     */
+    KubernetesResourceList<? extends HasMetadata> listKubernetesResources();
+
+    /**
+     * Watch for changes occurring after the given resource version.
+     */
+    List<Watch> watchResources(io.fabric8.kubernetes.client.Watcher watcher, String resourceVersion);
+
+    /**
+     * Decode a kubernetes object into a resource. Returns empty if the object is not part of this resource.
+     */
+    Optional<T> decodeResource(HasMetadata object);
+}
@@ -4,6 +4,9 @@
  */
 package io.enmasse.k8s.api;
 
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.Status;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.Watch;
 import org.slf4j.Logger;
@@ -12,34 +15,98 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
 /**
  * A verticle that handles watching a resource with the appropriate reconnect and retry logic,
  * which notifies a resource interface when things change.
+ *
+ * If the resource is an {@link IncrementalResource}, the controller keeps a local cache seeded by a single list,
+ * and updates it from the objects delivered with watch events. The watch is resumed from the last seen resource
+ * version on reconnect, and the resource is only relisted if that version is no longer available.
+ *
+ * Events arriving in a burst are coalesced into a single update. The window is controlled by a minimum delay, the
+ * quiet period after the last event, and a maximum delay after the first event.
+ *
+ * Controllers do not have a thread of their own. Updates are run as reconciles on a
+ * {@link ResourceControllerScheduler}, with at most one reconcile scheduled or running per controller. Started
+ * controllers are registered with the scheduler, which reports their metrics.
  */
-public class ResourceController<T> implements io.fabric8.kubernetes.client.Watcher, Runnable {
+public class ResourceController<T> implements io.fabric8.kubernetes.client.Watcher {
     private static final Logger log = LoggerFactory.getLogger(ResourceController.class.getName());
-    private List<Watch> watches;
+    private static final int HTTP_GONE = 410;
+    private static final long DEFAULT_MIN_DELAY = 250;
+    private static final long DEFAULT_MAX_DELAY = 2000;
+    private static final long RETRY_DELAY = 1000;
+
+    private volatile List<Watch> watches;
     private final Resource<T> resource;
+    private final IncrementalResource<T> incrementalResource;
     private final Watcher<T> changeHandler;
-    private Thread watcherThread;
-    private final BlockingQueue<Action> events = new LinkedBlockingDeque<>();
+    private final ResourceControllerScheduler scheduler;
+    private final BlockingQueue<Event> events = new LinkedBlockingDeque<>();
     private volatile boolean running;
     private final Supplier<Long> resyncSupplier;
     private final boolean useEventLoop;
+    private final long minDelay;
+    private final long maxDelay;
+    private final AtomicLong eventsReceived = new AtomicLong(0);
+    private final AtomicLong updatesRun = new AtomicLong(0);
+    private volatile long lastReconcileMillis = 0;
+
+    // Scheduling state, guarded by this
+    private ScheduledFuture<?> scheduled;
+    private long scheduledTime;
+    private long firstEventTime;
+    private long lastEventTime;
+    private boolean reconciling;
+    private boolean rescheduleNeeded;
+    private boolean registered;
+
+    // Held while reconciling, so that stop can wait for a running reconcile
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+    private volatile boolean updateNeeded = true;
+    private long resyncTime = 0;
+
+    // Incremental mode state. The cache and changed keys are only accessed while holding the reconcile lock.
+    private final Map<String, T> cache = new LinkedHashMap<>();
+    private final Set<String> changedKeys = new HashSet<>();
+    private volatile String resourceVersion;
+    private volatile boolean relistNeeded = true;
+    private volatile boolean reconnectNeeded = false;
 
     ResourceController(Resource<T> resource, Watcher<T> changeHandler, Supplier<Long> resyncSupplier, boolean useEventLoop) {
+        this(resource, changeHandler, resyncSupplier, useEventLoop, 0, 0);
+    }
+
+    ResourceController(Resource<T> resource, Watcher<T> changeHandler, Supplier<Long> resyncSupplier, boolean useEventLoop, long minDelay, long maxDelay) {
+        this(resource, changeHandler, resyncSupplier, useEventLoop, minDelay, maxDelay, ResourceControllerScheduler.getDefault());
+    }
+
+    ResourceController(Resource<T> resource, Watcher<T> changeHandler, Supplier<Long> resyncSupplier, boolean useEventLoop, long minDelay, long maxDelay, ResourceControllerScheduler scheduler) {
         this.resource = resource;
         this.changeHandler = changeHandler;
         this.resyncSupplier = resyncSupplier;
         this.useEventLoop = useEventLoop;
+        this.minDelay = minDelay;
+        this.maxDelay = Math.max(minDelay, maxDelay);
+        this.scheduler = scheduler;
+        if (useEventLoop && resource instanceof IncrementalResource) {
+            this.incrementalResource = (IncrementalResource<T>) resource;
+        } else {
+            this.incrementalResource = null;
+        }
     }
 
     public static <T> ResourceController<T> create(Resource<T> resource, Watcher<T> changeHandler) {
         Random random = new Random(System.currentTimeMillis());
-        return new ResourceController<>(resource, changeHandler, () -> 10000 + Math.abs(random.nextLong()) % 5000, true);
+        Map<String, String> env = System.getenv();
+        return new ResourceController<>(resource, changeHandler, () -> 10000 + Math.abs(random.nextLong()) % 5000, true,
+                getEnvLong(env, "RESOURCE_CONTROLLER_MIN_DELAY", DEFAULT_MIN_DELAY),
+                getEnvLong(env, "RESOURCE_CONTROLLER_MAX_DELAY", DEFAULT_MAX_DELAY));
     }
 
     public static <T> ResourceController<T> create(Resource<T> resource, Watcher<T> changeHandler, boolean useEventLoop) {
@@ -47,93 +114,350 @@ public class ResourceController<T> implements io.fabric8.kubernetes.client.Watch
         return new ResourceController<>(resource, changeHandler, () -> 10000 + Math.abs(random.nextLong()) % 5000, false);
     }
 
+    private static long getEnvLong(Map<String, String> env, String envVar, long defaultValue) {
+        String value = env.get(envVar);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
     public void start() {
+        synchronized (this) {
+            if (!registered) {
+                registered = true;
+                scheduler.register(this);
+            }
+        }
         running = true;
-        events.add(Action.ADDED);
-        watcherThread = new Thread(this);
-        watcherThread.start();
+        relistNeeded = true;
+        if (useEventLoop) {
+            updateNeeded = true;
+            schedule(0);
+        } else {
+            // Without the event loop, the resource is only listed periodically
+            updateNeeded = false;
+            resyncTime = System.currentTimeMillis() + resyncSupplier.get();
+            schedule(resyncTime - System.currentTimeMillis());
+        }
     }
 
-    @Override
-    public void run() {
-        while (running) {
-            try {
-                if (useEventLoop) {
-                    if (watches == null) {
-                        watches = resource.watchResources(this);
-                    }
-                    events.poll(resyncSupplier.get(), TimeUnit.MILLISECONDS);
-                } else {
-                    Thread.sleep(resyncSupplier.get());
+    /**
+     * Make sure a reconcile runs within the given delay.
+     */
+    private synchronized void schedule(long delay) {
+        if (!running) {
+            return;
+        }
+        if (reconciling) {
+            // The running reconcile will schedule the next one
+            rescheduleNeeded = true;
+            return;
+        }
+        delay = Math.max(0, delay);
+        long time = System.currentTimeMillis() + delay;
+        if (scheduled != null) {
+            if (scheduledTime <= time) {
+                return;
+            }
+            if (!scheduled.cancel(false)) {
+                // Already queued for a worker
+                return;
+            }
+        }
+        scheduledTime = time;
+        scheduled = scheduler.schedule(this::reconcile, delay);
+    }
+
+    /**
+     * Called for every new event, to schedule a reconcile after the coalescing window.
+     */
+    private synchronized void eventQueued() {
+        long now = System.currentTimeMillis();
+        if (firstEventTime == 0) {
+            firstEventTime = now;
+        }
+        lastEventTime = now;
+        schedule(coalesceDeadline() - now);
+    }
+
+    private long coalesceDeadline() {
+        return Math.min(lastEventTime + minDelay, firstEventTime + maxDelay);
+    }
+
+    private void reconcile() {
+        synchronized (this) {
+            scheduled = null;
+            if (!running) {
+                return;
+            }
+            if (firstEventTime != 0) {
+                // Wait for the burst of events to end
+                long remaining = coalesceDeadline() - System.currentTimeMillis();
+                if (remaining > 0) {
+                    schedule(remaining);
+                    return;
                 }
+                firstEventTime = 0;
+            }
+            reconciling = true;
+            rescheduleNeeded = false;
+        }
 
-                if (running) {
-                    // TODO: Use action and resource instead of relisting
-                    changeHandler.resourcesUpdated(resource.listResources());
+        long nextDelay;
+        reconcileLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            boolean resync = updateNeeded || start >= resyncTime;
+            updateNeeded = false;
+            if (running) {
+                if (incrementalResource != null) {
+                    syncIncremental(resync);
+                } else {
+                    sync(resync);
                 }
-            } catch (InterruptedException e) {
-                Thread.interrupted();
-            } catch (Exception e) {
-                log.warn("Exception doing resource update", e);
             }
+            long end = System.currentTimeMillis();
+            lastReconcileMillis = end - start;
+            if (resync) {
+                resyncTime = end + resyncSupplier.get();
+            }
+            nextDelay = resyncTime - end;
+        } catch (Exception e) {
+            log.warn("Exception doing resource update", e);
+            updateNeeded = true;
+            nextDelay = RETRY_DELAY;
+        } finally {
+            reconcileLock.unlock();
+        }
+
+        boolean reschedule;
+        synchronized (this) {
+            reconciling = false;
+            reschedule = rescheduleNeeded;
+            rescheduleNeeded = false;
         }
+        schedule(reschedule ? 0 : nextDelay);
     }
 
-    public void stop() {
-        running = false;
+    private void sync(boolean resync) throws Exception {
+        if (useEventLoop && watches == null) {
+            watches = resource.watchResources(this);
+        }
+        List<Event> batch = drainEvents();
+        if (batch.size() > 1) {
+            log.debug("Coalesced {} events into a single update (events received: {}, updates: {})", batch.size(), eventsReceived.get(), updatesRun.get());
+        }
+
+        if (running && (resync || !batch.isEmpty())) {
+            changeHandler.resourcesUpdated(resource.listResources());
+            updatesRun.incrementAndGet();
+        }
+    }
+
+    private void syncIncremental(boolean resync) throws Exception {
+        boolean notify = resync;
+        if (reconnectNeeded) {
+            reconnectNeeded = false;
+            closeWatches();
+        }
+
+        if (relistNeeded) {
+            closeWatches();
+            relist();
+            notify = true;
+        }
+
+        if (watches == null) {
+            log.debug("Watching resources from version {}", resourceVersion);
+            watches = incrementalResource.watchResources(this, resourceVersion);
+        }
+
+        List<Event> batch = drainEvents();
+        if (batch.size() > 1) {
+            log.debug("Coalesced {} events into a single update (events received: {}, updates: {})", batch.size(), eventsReceived.get(), updatesRun.get());
+        }
+        for (Event e : batch) {
+            notify |= applyEvent(e);
+        }
+
+        if (running && notify) {
+            changeHandler.resourcesUpdated(new LinkedHashSet<>(cache.values()), new HashSet<>(changedKeys));
+            changedKeys.clear();
+            updatesRun.incrementAndGet();
+        }
+    }
+
+    private List<Event> drainEvents() {
+        List<Event> batch = new ArrayList<>();
+        events.drainTo(batch);
+        return batch;
+    }
+
+    /**
+     * Name of the change handler, used to label the controller metrics.
+     */
+    String getHandlerName() {
+        String name = changeHandler.getClass().getSimpleName();
+        return name.isEmpty() ? changeHandler.getClass().getName() : name;
+    }
+
+    public long getEventsReceived() {
+        return eventsReceived.get();
+    }
+
+    public long getUpdatesRun() {
+        return updatesRun.get();
+    }
+
+    /**
+     * Number of events waiting for the next reconcile.
+     */
+    public int getQueueDepth() {
+        return events.size();
+    }
+
+    /**
+     * Duration of the last completed reconcile.
+     */
+    public long getLastReconcileMillis() {
+        return lastReconcileMillis;
+    }
+
+    private void relist() {
+        KubernetesResourceList<? extends HasMetadata> list = incrementalResource.listKubernetesResources();
+        changedKeys.addAll(cache.keySet());
+        cache.clear();
+        for (HasMetadata object : list.getItems()) {
+            decodeResource(object).ifPresent(decoded -> cache.put(object.getMetadata().getName(), decoded));
+        }
+        changedKeys.addAll(cache.keySet());
+        resourceVersion = list.getMetadata().getResourceVersion();
+        relistNeeded = false;
+        log.debug("Relisted {} resources at version {}", cache.size(), resourceVersion);
+    }
+
+    /**
+     * Apply a watch event to the cache, returning true if the change handler should be notified.
+     */
+    private boolean applyEvent(Event event) {
+        if (event.object == null) {
+            return true;
+        }
+
+        HasMetadata object = (HasMetadata) event.object;
+        String key = object.getMetadata().getName();
+        resourceVersion = object.getMetadata().getResourceVersion();
+
+        Optional<T> decoded = Action.DELETED.equals(event.action) ? Optional.empty() : decodeResource(object);
+        if (decoded.isPresent()) {
+            cache.put(key, decoded.get());
+        } else {
+            cache.remove(key);
+        }
+        changedKeys.add(key);
+
+        // Modifications are applied to the cache, but picked up on the next update like before
+        return !Action.MODIFIED.equals(event.action);
+    }
+
+    /**
+     * Decode an object, leaving it out of the cache if it cannot be decoded. The watch has moved past the object, so
+     * failing the whole batch would lose the events after it until the next relist.
+     */
+    private Optional<T> decodeResource(HasMetadata object) {
         try {
-            if (useEventLoop) {
-                log.debug("Putting poison pill event");
-                if (watches != null) {
-                    for (Watch watch : watches) {
-                        watch.close();
-                    }
+            return incrementalResource.decodeResource(object);
+        } catch (RuntimeException e) {
+            log.warn("Error decoding resource {} at version {}, ignoring it", object.getMetadata().getName(), object.getMetadata().getResourceVersion(), e);
+            return Optional.empty();
+        }
+    }
+
+    private void closeWatches() {
+        List<Watch> current = watches;
+        watches = null;
+        if (current != null) {
+            for (Watch watch : current) {
+                try {
+                    watch.close();
+                } catch (Exception e) {
+                    log.debug("Error closing watch", e);
                 }
-                events.put(Action.ERROR);
-            } else {
-                watcherThread.interrupt();
             }
+        }
+    }
 
-            watcherThread.join();
-            watcherThread = null;
-            watches = null;
-        } catch (InterruptedException ignored) {
-            log.warn("Interrupted while stopping", ignored);
+    public void stop() {
+        synchronized (this) {
+            running = false;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+            if (registered) {
+                registered = false;
+                scheduler.unregister(this);
+            }
         }
+        closeWatches();
+
+        // Wait for a running reconcile to complete, unless called from the change handler
+        if (!reconcileLock.isHeldByCurrentThread()) {
+            reconcileLock.lock();
+            reconcileLock.unlock();
+        }
+        events.clear();
     }
 
     @Override
     public void eventReceived(Action action, Object obj) {
+        eventsReceived.incrementAndGet();
         if (action.equals(Action.ERROR)) {
             log.error("Got error event while watching resource " + obj);
+            if (incrementalResource != null && obj instanceof Status && Integer.valueOf(HTTP_GONE).equals(((Status) obj).getCode())) {
+                relistNeeded = true;
+                reconnectNeeded = true;
+                schedule(0);
+            }
             return;
         }
 
-        switch (action) {
-            case ADDED:
-            case DELETED:
-                try {
-                    log.debug("Putting action {} on queue", action);
-                    events.put(action);
-                } catch (InterruptedException e) {
-                    log.warn("Interrupted while posting event", e);
-                }
-                break;
-            case MODIFIED:
-                break;
+        if (incrementalResource != null || !Action.MODIFIED.equals(action)) {
+            log.debug("Putting action {} on queue", action);
+            events.add(new Event(action, obj));
+            eventQueued();
         }
     }
 
     @Override
     public void onClose(KubernetesClientException cause) {
-        if (cause != null) {
-            log.info("Received onClose for address space config resource", cause);
-            stop();
-            start();
+        if (!running) {
+            log.debug("Watch for resource closed");
+        } else if (cause != null) {
+            if (incrementalResource != null) {
+                log.info("Received onClose for resource, resuming from version {}", resourceVersion, cause);
+                if (cause.getCode() == HTTP_GONE) {
+                    relistNeeded = true;
+                }
+                reconnectNeeded = true;
+            } else {
+                log.info("Received onClose for resource, rewatching", cause);
+                watches = null;
+            }
+            updateNeeded = true;
+            schedule(0);
         } else {
-            log.info("Watch for address space configs force closed, stopping");
+            log.info("Watch for resource force closed, stopping");
             watches = null;
             stop();
         }
     }
+
+    private static class Event {
+        private final Action action;
+        private final Object object;
+
+        private Event(Action action, Object object) {
+            this.action = action;
+            this.object = object;
+        }
+    }
 }
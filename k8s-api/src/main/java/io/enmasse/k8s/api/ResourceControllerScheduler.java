@@ -0,0 +1,239 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.k8s.api;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Runs the reconciles of resource controllers on a shared pool of threads, instead of a thread per controller.
+ *
+ * Delayed reconciles are kept by a timer thread, and queued for the worker pool when they are due. A controller has
+ * at most one reconcile queued, and queued reconciles run in the order they became due.
+ *
+ * The pool has a fixed maximum number of threads. A new worker is only started when a reconcile is due and all
+ * workers are busy, for instance with change handlers blocking on API calls or router requests, and workers that are
+ * idle for a while are stopped. Once the maximum is reached, due reconciles wait in the queue, where each controller
+ * has at most one, so a few slow controllers delay the others by at most one reconcile each.
+ *
+ * Metrics of the scheduler and its controllers can be written in the Prometheus text format.
+ */
+public class ResourceControllerScheduler {
+    private static final Logger log = LoggerFactory.getLogger(ResourceControllerScheduler.class.getName());
+    private static ResourceControllerScheduler defaultScheduler;
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final ScheduledExecutorService timer;
+    private final WorkQueue queue = new WorkQueue();
+    private final ThreadPoolExecutor workers;
+    private final List<ResourceController<?>> controllers = new ArrayList<>();
+    private final AtomicLong numReconciles = new AtomicLong(0);
+    private final AtomicLong totalLatencyMillis = new AtomicLong(0);
+    private final AtomicLong maxLatencyMillis = new AtomicLong(0);
+
+    public ResourceControllerScheduler(int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("At least one resource controller thread is needed");
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(createThreadFactory("resource-controller-timer"));
+        // Threads above the core size are started when the queue refuses a reconcile, see WorkQueue
+        this.workers = new ThreadPoolExecutor(1, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, queue, createThreadFactory("resource-controller"), (reconcile, executor) -> queue.enqueue(reconcile));
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get the scheduler shared by all controllers in this process. The maximum number of threads is read from the
+     * RESOURCE_CONTROLLER_THREADS environment variable.
+     */
+    public static synchronized ResourceControllerScheduler getDefault() {
+        if (defaultScheduler == null) {
+            String threads = System.getenv("RESOURCE_CONTROLLER_THREADS");
+            int numThreads = threads == null ? Math.max(4, Runtime.getRuntime().availableProcessors()) : Integer.parseInt(threads);
+            log.info("Creating resource controller scheduler with at most {} threads", numThreads);
+            defaultScheduler = new ResourceControllerScheduler(numThreads);
+        }
+        return defaultScheduler;
+    }
+
+    private static ThreadFactory createThreadFactory(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Called when a controller is started, to include it in the metrics.
+     */
+    synchronized void register(ResourceController<?> controller) {
+        controllers.add(controller);
+    }
+
+    synchronized void unregister(ResourceController<?> controller) {
+        controllers.remove(controller);
+    }
+
+    /**
+     * Number of live worker threads.
+     */
+    public int getPoolSize() {
+        return workers.getPoolSize();
+    }
+
+    /**
+     * Maximum number of reconciles that can run at once.
+     */
+    public int getMaxPoolSize() {
+        return workers.getMaximumPoolSize();
+    }
+
+    /**
+     * Number of workers running a reconcile.
+     */
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    /**
+     * Queue a reconcile for the worker pool after the given delay.
+     */
+    ScheduledFuture<?> schedule(Runnable reconcile, long delayMillis) {
+        return timer.schedule(() -> submit(reconcile), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void submit(Runnable reconcile) {
+        long due = System.currentTimeMillis();
+        workers.execute(() -> {
+            try {
+                reconcile.run();
+            } finally {
+                recordLatency(System.currentTimeMillis() - due);
+            }
+        });
+    }
+
+    private void recordLatency(long latency) {
+        numReconciles.incrementAndGet();
+        totalLatencyMillis.addAndGet(latency);
+        long max = maxLatencyMillis.get();
+        while (latency > max && !maxLatencyMillis.compareAndSet(max, latency)) {
+            max = maxLatencyMillis.get();
+        }
+    }
+
+    /**
+     * Number of reconciles that are due, but waiting for a worker thread.
+     */
+    public int getQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    public long getNumReconciles() {
+        return numReconciles.get();
+    }
+
+    /**
+     * Write the metrics in the Prometheus text format. The reconcile latency is the time from a reconcile being due
+     * until it has completed, including time spent in the queue. Controller metrics are labelled with the name of the
+     * change handler, and summed over controllers with the same handler.
+     */
+    public void writePrometheus(StringBuilder builder) {
+        writeMetric(builder, "resource_controller_queued_reconciles", "gauge", "Reconciles waiting for a worker thread", getQueueDepth());
+        writeMetric(builder, "resource_controller_workers", "gauge", "Live worker threads", getPoolSize());
+        writeMetric(builder, "resource_controller_busy_workers", "gauge", "Worker threads running a reconcile", getActiveCount());
+        writeMetric(builder, "resource_controller_max_workers", "gauge", "Maximum number of reconciles running at once", getMaxPoolSize());
+        writeHeader(builder, "resource_controller_reconcile_latency_seconds", "summary", "Time from a reconcile being due until it has completed");
+        builder.append("resource_controller_reconcile_latency_seconds_sum ").append(totalLatencyMillis.get() / 1000.0).append("\n");
+        builder.append("resource_controller_reconcile_latency_seconds_count ").append(numReconciles.get()).append("\n");
+        writeMetric(builder, "resource_controller_reconcile_latency_max_seconds", "gauge", "Longest time from a reconcile being due until it has completed", maxLatencyMillis.get() / 1000.0);
+
+        Map<String, HandlerMetrics> handlerMetrics = new TreeMap<>();
+        synchronized (this) {
+            for (ResourceController<?> controller : controllers) {
+                HandlerMetrics metrics = handlerMetrics.computeIfAbsent(controller.getHandlerName(), name -> new HandlerMetrics());
+                metrics.eventsReceived += controller.getEventsReceived();
+                metrics.updatesRun += controller.getUpdatesRun();
+                metrics.queuedEvents += controller.getQueueDepth();
+                metrics.lastReconcileMillis = Math.max(metrics.lastReconcileMillis, controller.getLastReconcileMillis());
+            }
+        }
+        writeHandlerMetric(builder, "resource_controller_events_received_total", "counter", "Watch events received", handlerMetrics, m -> m.eventsReceived);
+        writeHandlerMetric(builder, "resource_controller_updates_total", "counter", "Updates passed to the change handler", handlerMetrics, m -> m.updatesRun);
+        writeHandlerMetric(builder, "resource_controller_queued_events", "gauge", "Events waiting for the next reconcile", handlerMetrics, m -> m.queuedEvents);
+        writeHandlerMetric(builder, "resource_controller_last_reconcile_seconds", "gauge", "Duration of the last completed reconcile", handlerMetrics, m -> m.lastReconcileMillis / 1000.0);
+    }
+
+    private static void writeHeader(StringBuilder builder, String name, String type, String help) {
+        builder.append("# HELP ").append(name).append(" ").append(help).append("\n");
+        builder.append("# TYPE ").append(name).append(" ").append(type).append("\n");
+    }
+
+    private static void writeMetric(StringBuilder builder, String name, String type, String help, Number value) {
+        writeHeader(builder, name, type, help);
+        builder.append(name).append(" ").append(value).append("\n");
+    }
+
+    private static void writeHandlerMetric(StringBuilder builder, String name, String type, String help, Map<String, HandlerMetrics> handlerMetrics, Function<HandlerMetrics, Number> value) {
+        writeHeader(builder, name, type, help);
+        for (Map.Entry<String, HandlerMetrics> entry : handlerMetrics.entrySet()) {
+            builder.append(name).append("{handler=\"").append(entry.getKey()).append("\"} ").append(value.apply(entry.getValue())).append("\n");
+        }
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Refuses reconciles while all workers are busy and more may be started, so that the pool starts a worker for
+     * them. Otherwise, and once the pool is full, reconciles are queued.
+     */
+    private class WorkQueue extends LinkedBlockingQueue<Runnable> {
+        @Override
+        public boolean offer(Runnable reconcile) {
+            int poolSize = workers.getPoolSize();
+            if (poolSize < workers.getMaximumPoolSize() && workers.getActiveCount() >= poolSize) {
+                return false;
+            }
+            return super.offer(reconcile);
+        }
+
+        void enqueue(Runnable reconcile) {
+            if (!workers.isShutdown()) {
+                super.offer(reconcile);
+                // The last worker may have timed out meanwhile
+                if (workers.getPoolSize() == 0) {
+                    workers.prestartCoreThread();
+                }
+            }
+        }
+    }
+
+    private static class HandlerMetrics {
+        private long eventsReceived;
+        private long updatesRun;
+        private long queuedEvents;
+        private long lastReconcileMillis;
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.k8s.api;
+
+import io.enmasse.address.model.AddressResolver;
+import io.enmasse.address.model.AddressSpaceType;
+import io.enmasse.address.model.Schema;
+import io.enmasse.address.model.UnresolvedAddressSpaceException;
+
+/**
+ * Provides the current schema of the address model
+ */
+public interface SchemaProvider {
+    Schema getSchema();
+
+    /**
+     * Returns a resolver for addresses in the given address space type of the current schema.
+     */
+    default AddressResolver getAddressResolver(String addressSpaceType) {
+        Schema schema = getSchema();
+        AddressSpaceType type = schema.findAddressSpaceType(addressSpaceType).orElseThrow(() -> new UnresolvedAddressSpaceException("Unable to resolve address space type " + addressSpaceType));
+        return new AddressResolver(schema, type);
+    }
+}
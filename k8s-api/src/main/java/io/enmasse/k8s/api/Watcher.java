@@ -10,5 +10,16 @@ import java.util.Set;
  * Handles changes to a resource
  */
 public interface Watcher<T> {
+    /**
+     * The resources may be shared with the controller cache, and should not be modified.
+     */
     void resourcesUpdated(Set<T> resources) throws Exception;
+
+    /**
+     * Handles changes to a resource, with the names of the resources changed since the last successful update. Only
+     * called for resources kept up to date incrementally, and delegates to {@link #resourcesUpdated(Set)} by default.
+     */
+    default void resourcesUpdated(Set<T> resources, Set<String> changedKeys) throws Exception {
+        resourcesUpdated(resources);
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.k8s.api;
+
+import io.enmasse.address.model.Address;
+import io.enmasse.address.model.Status;
+import io.enmasse.address.model.v1.CodecV1;
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.ConfigMapList;
+import io.fabric8.kubernetes.api.model.DoneableConfigMap;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.kubernetes.client.dsl.Replaceable;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConfigMapAddressApiTest {
+    private static final String NAMESPACE = "myspace";
+
+    private MixedOperation<ConfigMap, ConfigMapList, DoneableConfigMap, Resource<ConfigMap, DoneableConfigMap>> configMaps;
+    private ConfigMapAddressApi addressApi;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        KubernetesClient client = mock(KubernetesClient.class);
+        configMaps = mock(MixedOperation.class);
+        when(client.configMaps()).thenReturn(configMaps);
+        when(configMaps.inNamespace(NAMESPACE)).thenReturn(configMaps);
+        addressApi = new ConfigMapAddressApi(client, NAMESPACE, 2);
+    }
+
+    @After
+    public void teardown() {
+        addressApi.close();
+    }
+
+    @Test
+    public void testReplaceStatusRetriesOnConflict() throws Exception {
+        Resource<ConfigMap, DoneableConfigMap> resource = mockResource("q1");
+        Replaceable<ConfigMap, ConfigMap> stale = mockLocked(resource, "1");
+        Replaceable<ConfigMap, ConfigMap> latest = mockLocked(resource, "2");
+        when(stale.replace(any())).thenThrow(new KubernetesClientException("conflict", 409, null));
+        when(resource.get()).thenReturn(createConfigMap(createAddress("q1", "mystore", false), "2"));
+
+        assertTrue(addressApi.replaceAddressStatus(createAddress("q1", "myqueue", true).setVersion("1").build()));
+
+        // The status is written locked to the latest version, keeping the rest of the stored address
+        ArgumentCaptor<ConfigMap> captor = ArgumentCaptor.forClass(ConfigMap.class);
+        verify(latest).replace(captor.capture());
+        Address written = CodecV1.getMapper().readValue(captor.getValue().getData().get("config.json"), Address.class);
+        assertTrue(written.getStatus().isReady());
+        assertThat(written.getAddress(), is("mystore"));
+    }
+
+    @Test
+    public void testReplaceStatusOfUnchangedLatest() throws Exception {
+        Resource<ConfigMap, DoneableConfigMap> resource = mockResource("q1");
+        Replaceable<ConfigMap, ConfigMap> stale = mockLocked(resource, "1");
+        Replaceable<ConfigMap, ConfigMap> latest = mockLocked(resource, "2");
+        when(stale.replace(any())).thenThrow(new KubernetesClientException("conflict", 409, null));
+        when(resource.get()).thenReturn(createConfigMap(createAddress("q1", "myqueue", true), "2"));
+
+        assertTrue(addressApi.replaceAddressStatus(createAddress("q1", "myqueue", true).setVersion("1").build()));
+        verify(latest, never()).replace(any());
+    }
+
+    @Test
+    public void testReplaceStatusNotFound() throws Exception {
+        Resource<ConfigMap, DoneableConfigMap> resource = mockResource("q1");
+        Replaceable<ConfigMap, ConfigMap> locked = mockLocked(resource, "1");
+        when(locked.replace(any())).thenThrow(new KubernetesClientException("not found", 404, null));
+
+        assertFalse(addressApi.replaceAddressStatus(createAddress("q1", "myqueue", true).setVersion("1").build()));
+    }
+
+    @Test
+    public void testReplaceStatusDeletedOnConflict() throws Exception {
+        Resource<ConfigMap, DoneableConfigMap> resource = mockResource("q1");
+        Replaceable<ConfigMap, ConfigMap> locked = mockLocked(resource, "1");
+        when(locked.replace(any())).thenThrow(new KubernetesClientException("conflict", 409, null));
+        when(resource.get()).thenReturn(null);
+
+        assertFalse(addressApi.replaceAddressStatus(createAddress("q1", "myqueue", true).setVersion("1").build()));
+    }
+
+    @Test
+    public void testReplaceStatusesWritesAllBeforeFailing() throws Exception {
+        Replaceable<ConfigMap, ConfigMap> failing = mockLocked(mockResource("q1"), "1");
+        Replaceable<ConfigMap, ConfigMap> written = mockLocked(mockResource("q2"), "1");
+        Replaceable<ConfigMap, ConfigMap> alsoFailing = mockLocked(mockResource("q3"), "1");
+        KubernetesClientException error = new KubernetesClientException("internal error", 500, null);
+        when(failing.replace(any())).thenThrow(error);
+        when(alsoFailing.replace(any())).thenThrow(new KubernetesClientException("internal error", 500, null));
+
+        try {
+            addressApi.replaceAddressStatuses(Arrays.asList(
+                    createAddress("q1", "q1", true).setVersion("1").build(),
+                    createAddress("q2", "q2", true).setVersion("1").build(),
+                    createAddress("q3", "q3", true).setVersion("1").build()));
+            fail("Expected failure writing statuses");
+        } catch (KubernetesClientException e) {
+            assertThat(e, is(error));
+            assertThat(e.getSuppressed().length, is(1));
+        }
+        verify(written).replace(any());
+    }
+
+    private Resource<ConfigMap, DoneableConfigMap> mockResource(String name) {
+        @SuppressWarnings("unchecked")
+        Resource<ConfigMap, DoneableConfigMap> resource = mock(Resource.class);
+        when(configMaps.withName(name)).thenReturn(resource);
+        return resource;
+    }
+
+    private static Replaceable<ConfigMap, ConfigMap> mockLocked(Resource<ConfigMap, DoneableConfigMap> resource, String version) {
+        @SuppressWarnings("unchecked")
+        Replaceable<ConfigMap, ConfigMap> locked = mock(Replaceable.class);
+        when(resource.lockResourceVersion(version)).thenReturn(locked);
+        return locked;
+    }
+
+    private static Address.Builder createAddress(String name, String address, boolean ready) {
+        return new Address.Builder()
+                .setName(name)
+                .setAddress(address)
+                .setAddressSpace("myspace")
+                .setType("queue")
+                .setPlan("small-queue")
+                .setStatus(new Status(ready));
+    }
+
+    private static ConfigMap createConfigMap(Address.Builder address, String version) throws Exception {
+        return new ConfigMapBuilder()
+                .editOrNewMetadata()
+                .withName(address.build().getName())
+                .withResourceVersion(version)
+                .endMetadata()
+                .addToData("config.json", CodecV1.getMapper().writeValueAsString(address.build()))
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.k8s.api;
+
+import io.enmasse.address.model.Schema;
+import io.enmasse.config.LabelKeys;
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.ConfigMapList;
+import io.fabric8.kubernetes.api.model.ConfigMapListBuilder;
+import io.fabric8.kubernetes.api.model.DoneableConfigMap;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
+import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConfigMapSchemaApiTest {
+    private static final String NAMESPACE = "myspace";
+
+    private FilterWatchListDeletable<ConfigMap, ConfigMapList, Boolean, io.fabric8.kubernetes.client.Watch, io.fabric8.kubernetes.client.Watcher<ConfigMap>> resourceDefinitions;
+    private ConfigMapSchemaApi schemaApi;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        KubernetesClient client = mock(KubernetesClient.class);
+        MixedOperation<ConfigMap, ConfigMapList, DoneableConfigMap, Resource<ConfigMap, DoneableConfigMap>> configMaps = mock(MixedOperation.class);
+        when(client.configMaps()).thenReturn(configMaps);
+        when(configMaps.inNamespace(NAMESPACE)).thenReturn(configMaps);
+
+        FilterWatchListDeletable<ConfigMap, ConfigMapList, Boolean, io.fabric8.kubernetes.client.Watch, io.fabric8.kubernetes.client.Watcher<ConfigMap>> plans = mock(FilterWatchListDeletable.class);
+        when(plans.list()).thenReturn(new ConfigMapList());
+        when(configMaps.withLabels(Collections.singletonMap(LabelKeys.TYPE, "address-space-plan"))).thenReturn(plans);
+        when(configMaps.withLabels(Collections.singletonMap(LabelKeys.TYPE, "address-plan"))).thenReturn(plans);
+
+        resourceDefinitions = mock(FilterWatchListDeletable.class);
+        when(configMaps.withLabels(Collections.singletonMap(LabelKeys.TYPE, "resource-definition"))).thenReturn(resourceDefinitions);
+
+        schemaApi = new ConfigMapSchemaApi(client, NAMESPACE);
+    }
+
+    @Test
+    public void testSchemaReusedUntilConfigMapsChange() {
+        when(resourceDefinitions.list()).thenReturn(createResourceDefinitions("1"));
+        Schema schema = schemaApi.getSchema();
+        assertEquals(1, schema.getResourceDefinitions().size());
+
+        // A resync listing the same config maps returns the same schema
+        when(resourceDefinitions.list()).thenReturn(createResourceDefinitions("1"));
+        assertSame(schema, schemaApi.listResources().iterator().next());
+
+        when(resourceDefinitions.list()).thenReturn(createResourceDefinitions("2"));
+        Schema updated = schemaApi.getSchema();
+        assertNotSame(schema, updated);
+        assertSame(updated, schemaApi.getSchema());
+    }
+
+    private static ConfigMapList createResourceDefinitions(String resourceVersion) {
+        ConfigMap configMap = new ConfigMapBuilder()
+                .editOrNewMetadata()
+                .withName("broker")
+                .withResourceVersion(resourceVersion)
+                .addToLabels(LabelKeys.TYPE, "resource-definition")
+                .endMetadata()
+                .addToData("definition", "{\"metadata\":{\"name\":\"broker\"}}")
+                .build();
+        return new ConfigMapListBuilder().addToItems(configMap).build();
+    }
+}
@@ -4,18 +4,29 @@
  */
 package io.enmasse.k8s.api;
 
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.ConfigMapListBuilder;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.Watch;
 import io.fabric8.kubernetes.client.Watcher;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -65,13 +76,248 @@ public class ResourceControllerTest {
         assertResource("r3");
     }
 
+    @Test
+    public void testIncrementalUpdates() {
+        TestIncrementalResource incrementalResource = new TestIncrementalResource();
+        incrementalResource.addResource("r1", "1");
+        TestWatcher incrementalWatcher = new TestWatcher();
+        ResourceController<String> incrementalController = new ResourceController<>(incrementalResource, incrementalWatcher, () -> 60_000L, true);
+        incrementalController.start();
+        try {
+            assertResource(incrementalWatcher, "r1");
+
+            incrementalController.eventReceived(Watcher.Action.ADDED, createConfigMap("r2", "2"));
+            assertResource(incrementalWatcher, "r2");
+            assertTrue(incrementalWatcher.getChangedKeys().contains("r2"));
+
+            incrementalController.eventReceived(Watcher.Action.DELETED, createConfigMap("r1", "3"));
+            assertNotResource(incrementalWatcher, "r1");
+            assertEquals(Collections.singleton("r1"), incrementalWatcher.getChangedKeys());
+
+            assertEquals(1, incrementalResource.getNumLists());
+            assertEquals(Collections.singletonList("1"), incrementalResource.getWatchVersions());
+        } finally {
+            incrementalController.stop();
+        }
+    }
+
+    @Test
+    public void testIncrementalResumeAndRelist() {
+        TestIncrementalResource incrementalResource = new TestIncrementalResource();
+        incrementalResource.addResource("r1", "1");
+        TestWatcher incrementalWatcher = new TestWatcher();
+        ResourceController<String> incrementalController = new ResourceController<>(incrementalResource, incrementalWatcher, () -> 60_000L, true);
+        incrementalController.start();
+        try {
+            assertResource(incrementalWatcher, "r1");
+
+            incrementalController.eventReceived(Watcher.Action.ADDED, createConfigMap("r2", "5"));
+            assertResource(incrementalWatcher, "r2");
+
+            incrementalController.onClose(new KubernetesClientException("connection reset"));
+            waitForWatches(incrementalResource, 2);
+            assertEquals("5", incrementalResource.getWatchVersions().get(1));
+            assertEquals(1, incrementalResource.getNumLists());
+
+            incrementalResource.addResource("r3", "7");
+            incrementalController.onClose(new KubernetesClientException("gone", 410, null));
+            assertResource(incrementalWatcher, "r3");
+            assertNotResource(incrementalWatcher, "r2");
+            assertEquals(2, incrementalResource.getNumLists());
+        } finally {
+            incrementalController.stop();
+        }
+    }
+
+    @Test
+    public void testIncrementalDecodeFailure() {
+        TestIncrementalResource incrementalResource = new TestIncrementalResource();
+        incrementalResource.addResource("r1", "1");
+        incrementalResource.addResource("invalid1", "2");
+        TestWatcher incrementalWatcher = new TestWatcher();
+        ResourceController<String> incrementalController = new ResourceController<>(incrementalResource, incrementalWatcher, () -> 60_000L, true, 500, 5_000);
+        incrementalController.start();
+        try {
+            assertResource(incrementalWatcher, "r1");
+
+            // An object that cannot be decoded does not drop the other events of the batch
+            incrementalController.eventReceived(Watcher.Action.ADDED, createConfigMap("r2", "3"));
+            incrementalController.eventReceived(Watcher.Action.MODIFIED, createConfigMap("r1", "4"));
+            incrementalController.eventReceived(Watcher.Action.ADDED, createConfigMap("invalid2", "5"));
+            incrementalController.eventReceived(Watcher.Action.ADDED, createConfigMap("r3", "6"));
+            assertResource(incrementalWatcher, "r2");
+            assertResource(incrementalWatcher, "r3");
+            assertResource(incrementalWatcher, "r1");
+            assertNotResource(incrementalWatcher, "invalid2");
+            assertEquals(1, incrementalResource.getNumLists());
+        } finally {
+            incrementalController.stop();
+        }
+    }
+
+    @Test
+    public void testEventsCoalesced() throws InterruptedException {
+        TestResource coalescingResource = new TestResource().addResource("r0");
+        BlockingWatcher coalescingWatcher = new BlockingWatcher();
+        ResourceController<String> coalescingController = new ResourceController<>(coalescingResource, coalescingWatcher, () -> 60_000L, true, 500, 5_000);
+        coalescingController.start();
+        try {
+            // Events received while the first update runs are all handled by the next one
+            assertTrue(coalescingWatcher.awaitBlocked());
+            for (int i = 1; i <= 100; i++) {
+                coalescingResource.addResource("r" + i);
+                coalescingController.eventReceived(Watcher.Action.ADDED, createConfigMap("r" + i, String.valueOf(i)));
+            }
+            coalescingWatcher.release();
+
+            waitForUpdates(coalescingController, 2);
+            assertResource(coalescingWatcher, "r100");
+            assertEquals(100, coalescingController.getEventsReceived());
+        } finally {
+            coalescingController.stop();
+        }
+    }
+
+    @Test
+    public void testControllersShareScheduler() {
+        ResourceControllerScheduler scheduler = new ResourceControllerScheduler(4);
+        List<ResourceController<String>> controllers = new ArrayList<>();
+        List<TestWatcher> watchers = new ArrayList<>();
+        try {
+            for (int i = 0; i < 20; i++) {
+                TestResource sharedResource = new TestResource().addResource("r" + i);
+                TestWatcher sharedWatcher = new TestWatcher();
+                ResourceController<String> sharedController = new ResourceController<>(sharedResource, sharedWatcher, () -> 60_000L, true, 0, 0, scheduler);
+                sharedController.start();
+                controllers.add(sharedController);
+                watchers.add(sharedWatcher);
+            }
+
+            Set<String> threads = new HashSet<>();
+            for (int i = 0; i < 20; i++) {
+                assertResource(watchers.get(i), "r" + i);
+                threads.addAll(watchers.get(i).getThreads());
+            }
+            // All controllers are reconciled by the workers of the shared scheduler
+            for (String thread : threads) {
+                assertTrue(thread.startsWith("resource-controller-"));
+            }
+            assertTrue(threads.size() <= 4);
+            assertTrue(scheduler.getPoolSize() <= 4);
+            assertTrue(scheduler.getNumReconciles() >= 20);
+
+            StringBuilder metrics = new StringBuilder();
+            scheduler.writePrometheus(metrics);
+            assertTrue(metrics.toString().contains("resource_controller_max_workers 4\n"));
+            assertTrue(metrics.toString().contains("resource_controller_updates_total{handler=\"TestWatcher\"} "));
+        } finally {
+            for (ResourceController<String> sharedController : controllers) {
+                sharedController.stop();
+            }
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testPoolSizeBounded() throws InterruptedException {
+        ResourceControllerScheduler scheduler = new ResourceControllerScheduler(4);
+        List<ResourceController<String>> controllers = new ArrayList<>();
+        List<BlockingWatcher> watchers = new ArrayList<>();
+        try {
+            for (int i = 0; i < 20; i++) {
+                BlockingWatcher blockingWatcher = new BlockingWatcher();
+                ResourceController<String> blockingController = new ResourceController<>(new TestResource().addResource("r" + i), blockingWatcher, () -> 60_000L, true, 0, 0, scheduler);
+                blockingController.start();
+                controllers.add(blockingController);
+                watchers.add(blockingWatcher);
+            }
+
+            // Blocked reconciles hold all workers, and the reconciles of the other controllers wait in the queue
+            long end = System.currentTimeMillis() + 60_000;
+            while (System.currentTimeMillis() < end && (scheduler.getActiveCount() < 4 || scheduler.getQueueDepth() < 16)) {
+                Thread.sleep(10);
+            }
+            assertEquals(4, scheduler.getPoolSize());
+            assertEquals(4, scheduler.getActiveCount());
+            assertEquals(16, scheduler.getQueueDepth());
+
+            for (int i = 0; i < 20; i++) {
+                watchers.get(i).release();
+            }
+            for (int i = 0; i < 20; i++) {
+                assertResource(watchers.get(i), "r" + i);
+            }
+            assertTrue(scheduler.getPoolSize() <= 4);
+        } finally {
+            for (BlockingWatcher blockingWatcher : watchers) {
+                blockingWatcher.release();
+            }
+            for (ResourceController<String> blockingController : controllers) {
+                blockingController.stop();
+            }
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testBlockedControllerDoesNotStarveOthers() throws InterruptedException {
+        ResourceControllerScheduler scheduler = new ResourceControllerScheduler(2);
+        BlockingWatcher blockingWatcher = new BlockingWatcher();
+        ResourceController<String> blockingController = new ResourceController<>(new TestResource().addResource("r1"), blockingWatcher, () -> 60_000L, true, 0, 0, scheduler);
+        TestWatcher otherWatcher = new TestWatcher();
+        ResourceController<String> otherController = new ResourceController<>(new TestResource().addResource("r2"), otherWatcher, () -> 60_000L, true, 0, 0, scheduler);
+        try {
+            blockingController.start();
+            assertTrue(blockingWatcher.awaitBlocked());
+
+            otherController.start();
+            assertResource(otherWatcher, "r2");
+        } finally {
+            blockingWatcher.release();
+            otherController.stop();
+            blockingController.stop();
+            scheduler.shutdown();
+        }
+    }
+
+    private void waitForUpdates(ResourceController<String> controller, long numUpdates) throws InterruptedException {
+        long end = System.currentTimeMillis() + 60_000;
+        while (System.currentTimeMillis() < end && controller.getUpdatesRun() < numUpdates) {
+            Thread.sleep(10);
+        }
+        assertEquals(numUpdates, controller.getUpdatesRun());
+    }
+
+    private static ConfigMap createConfigMap(String name, String resourceVersion) {
+        return new ConfigMapBuilder()
+                .editOrNewMetadata()
+                .withName(name)
+                .withResourceVersion(resourceVersion)
+                .endMetadata()
+                .build();
+    }
+
+    private void waitForWatches(TestIncrementalResource resource, int numWatches) {
+        long end = System.currentTimeMillis() + 60_000;
+        while (System.currentTimeMillis() < end && resource.getWatchVersions().size() < numWatches) { }
+        assertEquals(numWatches, resource.getWatchVersions().size());
+    }
+
     private void assertResource(String name) {
+        assertResource(watcher, name);
+    }
+
+    private void assertNotResource(String name) {
+        assertNotResource(watcher, name);
+    }
+
+    private void assertResource(TestWatcher watcher, String name) {
         long end = System.currentTimeMillis() + 60_000;
         while (System.currentTimeMillis() < end && !watcher.getResources().contains(name)) { }
         assertTrue(watcher.getResources().contains(name));
     }
 
-    private void assertNotResource(String name) {
+    private void assertNotResource(TestWatcher watcher, String name) {
         long end = System.currentTimeMillis() + 60_000;
         while (System.currentTimeMillis() < end && watcher.getResources().contains(name)) { }
         assertFalse(watcher.getResources().contains(name));
@@ -101,16 +347,113 @@ public class ResourceControllerTest {
         }
     }
 
+    private static class TestIncrementalResource implements IncrementalResource<String> {
+        private final List<ConfigMap> configMaps = new ArrayList<>();
+        private String resourceVersion = "0";
+        private final List<String> watchVersions = new ArrayList<>();
+        private int numLists = 0;
+
+        public synchronized void addResource(String name, String resourceVersion) {
+            this.configMaps.add(createConfigMap(name, resourceVersion));
+            this.resourceVersion = resourceVersion;
+        }
+
+        public synchronized int getNumLists() {
+            return numLists;
+        }
+
+        public synchronized List<String> getWatchVersions() {
+            return new ArrayList<>(watchVersions);
+        }
+
+        @Override
+        public synchronized KubernetesResourceList<? extends HasMetadata> listKubernetesResources() {
+            numLists++;
+            return new ConfigMapListBuilder()
+                    .withItems(configMaps)
+                    .editOrNewMetadata()
+                    .withResourceVersion(resourceVersion)
+                    .endMetadata()
+                    .build();
+        }
+
+        @Override
+        public synchronized List<Watch> watchResources(Watcher watcher, String resourceVersion) {
+            watchVersions.add(resourceVersion);
+            return Collections.singletonList(() -> {});
+        }
+
+        @Override
+        public Optional<String> decodeResource(HasMetadata object) {
+            if (object.getMetadata().getName().startsWith("invalid")) {
+                throw new IllegalArgumentException("Invalid resource " + object.getMetadata().getName());
+            }
+            return Optional.of(object.getMetadata().getName());
+        }
+
+        @Override
+        public List<Watch> watchResources(Watcher watcher) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<String> listResources() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     private static class TestWatcher implements io.enmasse.k8s.api.Watcher<String> {
         private Set<String> resources = new HashSet<>();
+        private Set<String> changedKeys = new HashSet<>();
+        private final Set<String> threads = new HashSet<>();
 
         public synchronized Set<String> getResources() {
             return new HashSet<>(resources);
         }
 
+        public synchronized Set<String> getChangedKeys() {
+            return new HashSet<>(changedKeys);
+        }
+
+        public synchronized Set<String> getThreads() {
+            return new HashSet<>(threads);
+        }
+
         @Override
         public synchronized void resourcesUpdated(Set<String> resources) throws Exception {
             this.resources = new HashSet<>(resources);
+            this.threads.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public synchronized void resourcesUpdated(Set<String> resources, Set<String> changedKeys) throws Exception {
+            this.changedKeys = new HashSet<>(changedKeys);
+            resourcesUpdated(resources);
+        }
+    }
+
+    /**
+     * Blocks the first update until released.
+     */
+    private static class BlockingWatcher extends TestWatcher {
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        public boolean awaitBlocked() throws InterruptedException {
+            return blocked.await(60, TimeUnit.SECONDS);
+        }
+
+        public void release() {
+            released.countDown();
+        }
+
+        @Override
+        public void resourcesUpdated(Set<String> resources) throws Exception {
+            if (blocked.getCount() > 0) {
+                blocked.countDown();
+                released.await(60, TimeUnit.SECONDS);
+            }
+            super.resourcesUpdated(resources);
         }
     }
 }
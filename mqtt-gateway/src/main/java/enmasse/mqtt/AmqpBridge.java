@@ -40,15 +40,16 @@ import io.vertx.proton.ProtonDelivery;
 import io.vertx.proton.ProtonLinkOptions;
 import io.vertx.proton.ProtonReceiver;
 import io.vertx.proton.ProtonSender;
+import io.vertx.proton.ProtonSession;
 import org.apache.qpid.proton.amqp.messaging.Accepted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
 import java.util.stream.Collectors;
 
 /**
@@ -65,6 +66,10 @@ public class AmqpBridge {
     private ProtonClient client;
     private ProtonConnection connection;
 
+    // when sharing a pooled connection, the lease on it and the session of this bridge
+    private AmqpConnectionPool.Lease lease;
+    private ProtonSession session;
+
     // local endpoint for handling remote connected MQTT client
     private MqttEndpoint mqttEndpoint;
 
@@ -80,8 +85,22 @@ public class AmqpBridge {
     // callback called when the MQTT client closes connection
     private Handler<AmqpBridge> mqttEndpointCloseHandler;
 
+    // bounds of the cache of links for publishing on topics
+    private int maxPublishers = AmqpPublishEndpoint.DEFAULT_MAX_PUBLISHERS;
+    private long publisherIdleTimeout = AmqpPublishEndpoint.DEFAULT_PUBLISHER_IDLE_TIMEOUT;
+    // if all topics are published through the anonymous relay
+    private boolean anonymousRelay;
+
+    private MqttGatewayMetrics metrics = new MqttGatewayMetrics();
+    // messages published by the MQTT client waiting for the messaging service disposition, per QoS level
+    private final int[] inFlight = new int[3];
+    private boolean closed;
+
     // topic subscriptions with granted QoS levels
-    private Map<String, MqttQoS> grantedQoSLevels;
+    private SubscriptionTrie<MqttQoS> grantedQoSLevels;
+
+    // MQTT 3.1.1 spec : when a message matches overlapping subscriptions, the maximum of their QoS is used
+    private static final BinaryOperator<MqttQoS> MAX_QOS = (qos1, qos2) -> (qos1.value() >= qos2.value()) ? qos1 : qos2;
 
     /**
      * Constructor
@@ -99,7 +118,7 @@ public class AmqpBridge {
      *
      * @param address   AMQP service provider address
      * @param port      AMQP service provider port
-     * @param openHandler   handler called when the open is completed (with success or not)
+     * @param openHandler   handler called when the open is completed (with success or not), before the CONNACK is sent
      */
     public void open(String address, int port, Handler<AsyncResult<AmqpBridge>> openHandler) {
 
@@ -123,151 +142,200 @@ public class AmqpBridge {
                         .disconnectHandler(this::handleRemoteDisconnect)
                         .open();
 
-                // setup MQTT endpoint handlers and AMQP endpoints
-                this.setupMqttEndpoint();
-                this.setupAmqpEndpoits();
+                this.setup(openHandler);
 
-                // setup a Future for completed connection steps with all services
-                // with AMQP_WILL and AMQP_LIST/AMQP_SUBSCRIPTIONS or AMQP_CLOSE handled
-                Future<AmqpSubscriptionsMessage> connectionFuture = Future.future();
-                connectionFuture.setHandler(ar -> {
+            } else {
 
-                    if (ar.succeeded()) {
+                this.handleConnectFailure(done.cause(), openHandler);
+            }
 
-                        this.rcvEndpoint.publishHandler(this::publishHandler);
-                        this.rcvEndpoint.pubrelHandler(this::pubrelHandler);
+        });
 
-                        AmqpSubscriptionsMessage amqpSubscriptionsMessage = ar.result();
+    }
 
-                        if (amqpSubscriptionsMessage != null) {
-                            this.mqttEndpoint.accept(!amqpSubscriptionsMessage.topicSubscriptions().isEmpty());
-                            // added topic subscriptions of a previous session in the local collection
-                            this.grantedQoSLevels = amqpSubscriptionsMessage.topicSubscriptions()
-                                    .stream()
-                                    .collect(Collectors.toMap(amqpTopicSubscription -> amqpTopicSubscription.topic(),
-                                            amqpTopicSubscription -> amqpTopicSubscription.qos()));
+    /**
+     * Open the bridge on its own session of a connection shared through the pool
+     *
+     * @param connectionPool    pool of connections to the AMQP service provider
+     * @param openHandler   handler called when the open is completed (with success or not), before the CONNACK is sent
+     */
+    public void open(AmqpConnectionPool connectionPool, Handler<AsyncResult<AmqpBridge>> openHandler) {
 
-                        } else {
-                            this.mqttEndpoint.accept(false);
-                            this.grantedQoSLevels = new HashMap<>();
-                        }
-                        LOG.info("CONNACK to MQTT client {} [accepted]", this.mqttEndpoint.clientIdentifier());
+        connectionPool.acquire(v -> this.handleSharedConnectionLost(), done -> {
 
-                        // open unique client publish address receiver
-                        this.rcvEndpoint.openPublish();
+            if (done.succeeded()) {
 
-                        openHandler.handle(Future.succeededFuture(AmqpBridge.this));
+                this.lease = done.result();
+                this.session = this.lease.connection().createSession();
+                this.session
+                        .closeHandler(remoteClose -> this.handleRemoteSessionClose(remoteClose))
+                        .open();
 
-                    } else {
+                this.setup(openHandler);
 
-                        this.mqttEndpoint.reject(MqttConnectReturnCode.CONNECTION_REFUSED_SERVER_UNAVAILABLE);
-                        LOG.error("CONNACK to MQTT client {} [rejected]", this.mqttEndpoint.clientIdentifier());
+            } else {
 
-                        openHandler.handle(Future.failedFuture(ar.cause()));
-                    }
+                this.handleConnectFailure(done.cause(), openHandler);
+            }
+        });
+    }
 
-                });
+    /**
+     * Setup the MQTT endpoint and the AMQP endpoints, then start the connection steps with the AMQP services
+     *
+     * @param openHandler   handler called when the open is completed (with success or not), before the CONNACK is sent
+     */
+    private void setup(Handler<AsyncResult<AmqpBridge>> openHandler) {
+
+        // setup MQTT endpoint handlers and AMQP endpoints
+        this.setupMqttEndpoint();
+        this.setupAmqpEndpoits();
 
-                // step 1 : send AMQP_WILL to Last Will and Testament Service
-                Future<ProtonDelivery> willFuture = Future.future();
-                // if remote MQTT has specified the will
-                if (this.mqttEndpoint.will().isWillFlag()) {
+        // setup a Future for completed connection steps with all services
+        // with AMQP_WILL and AMQP_LIST/AMQP_SUBSCRIPTIONS or AMQP_CLOSE handled
+        Future<AmqpSubscriptionsMessage> connectionFuture = Future.future();
+        connectionFuture.setHandler(ar -> {
 
-                    // sending AMQP_WILL
-                    MqttWill will = this.mqttEndpoint.will();
+            if (ar.succeeded()) {
 
-                    AmqpWillMessage amqpWillMessage =
-                            new AmqpWillMessage(will.isWillRetain(),
-                                    will.willTopic(),
-                                    MqttQoS.valueOf(will.willQos()),
-                                    Buffer.buffer(will.willMessage()));
+                this.rcvEndpoint.publishHandler(this::publishHandler);
+                this.rcvEndpoint.pubrelHandler(this::pubrelHandler);
 
-                    // specified link name for the Last Will and Testament Service as MQTT clientid
-                    ProtonLinkOptions linkOptions = new ProtonLinkOptions();
-                    linkOptions.setLinkName(this.mqttEndpoint.clientIdentifier());
+                AmqpSubscriptionsMessage amqpSubscriptionsMessage = ar.result();
 
-                    // setup and open AMQP endpoints to Last Will and Testament Service
-                    ProtonSender wsSender = this.connection.createSender(AmqpLwtServiceEndpoint.LWT_SERVICE_ENDPOINT, linkOptions);
-                    this.lwtEndpoint = new AmqpLwtServiceEndpoint(wsSender);
+                // added topic subscriptions of a previous session in the local collection
+                this.grantedQoSLevels = new SubscriptionTrie<>();
+                if (amqpSubscriptionsMessage != null) {
+                    amqpSubscriptionsMessage.topicSubscriptions().forEach(amqpTopicSubscription -> {
+                        this.grantedQoSLevels.put(amqpTopicSubscription.topic(), amqpTopicSubscription.qos());
+                    });
+                }
 
-                    this.lwtEndpoint.open();
-                    this.lwtEndpoint.sendWill(amqpWillMessage, willFuture.completer());
+                // the bridge is reported open before the CONNACK, so that it's accounted for
+                // by the time the MQTT client sees its connection accepted
+                openHandler.handle(Future.succeededFuture(AmqpBridge.this));
 
-                } else {
+                this.mqttEndpoint.accept(amqpSubscriptionsMessage != null && !amqpSubscriptionsMessage.topicSubscriptions().isEmpty());
+                LOG.info("CONNACK to MQTT client {} [accepted]", this.mqttEndpoint.clientIdentifier());
 
-                    // otherwise just complete the Future
-                    willFuture.complete();
+                // open unique client publish address receiver (unless closed by the open handler)
+                if (!this.closed) {
+                    this.rcvEndpoint.openPublish();
                 }
 
-                willFuture.compose(v -> {
+            } else {
 
-                    // handling AMQP_SUBSCRIPTIONS reply from Subscription Service
-                    this.rcvEndpoint.subscriptionsHandler(amqpSubscriptionsMessage -> {
+                this.mqttEndpoint.reject(MqttConnectReturnCode.CONNECTION_REFUSED_SERVER_UNAVAILABLE);
+                LOG.error("CONNACK to MQTT client {} [rejected]", this.mqttEndpoint.clientIdentifier());
 
-                        LOG.info("Session present: {}", !amqpSubscriptionsMessage.topicSubscriptions().isEmpty());
-                        LOG.info(amqpSubscriptionsMessage.toString());
+                openHandler.handle(Future.failedFuture(ar.cause()));
+            }
 
-                        connectionFuture.complete(amqpSubscriptionsMessage);
-                    });
+        });
 
-                    // step 2 : send AMQP_CLOSE or AMQP_LIST (based on "clean session" flag) to Subscription Service
-                    Future<ProtonDelivery> sessionFuture = Future.future();
+        // step 1 : send AMQP_WILL to Last Will and Testament Service
+        Future<ProtonDelivery> willFuture = Future.future();
+        // if remote MQTT has specified the will
+        if (this.mqttEndpoint.will().isWillFlag()) {
 
-                    if (this.mqttEndpoint.isCleanSession()) {
+            // sending AMQP_WILL
+            MqttWill will = this.mqttEndpoint.will();
 
-                        // sending AMQP_CLOSE
-                        AmqpCloseMessage amqpCloseMessage =
-                                new AmqpCloseMessage(this.mqttEndpoint.clientIdentifier());
+            AmqpWillMessage amqpWillMessage =
+                    new AmqpWillMessage(will.isWillRetain(),
+                            will.willTopic(),
+                            MqttQoS.valueOf(will.willQos()),
+                            Buffer.buffer(will.willMessage()));
 
-                        this.ssEndpoint.sendClose(amqpCloseMessage, closeAsyncResult -> {
+            // specified link name for the Last Will and Testament Service as MQTT clientid
+            ProtonLinkOptions linkOptions = new ProtonLinkOptions();
+            linkOptions.setLinkName(this.mqttEndpoint.clientIdentifier());
 
-                            // in case of AMQP_CLOSE, the connection completes on its disposition
-                            // no other AMQP message will be delivered by Subscription Service (i.e. AMQP_SUBSCRIPTIONS)
-                            if (closeAsyncResult.succeeded()) {
-                                connectionFuture.complete();
-                            }
-                        });
+            // setup and open AMQP endpoints to Last Will and Testament Service
+            ProtonSender wsSender = this.createSender(AmqpLwtServiceEndpoint.LWT_SERVICE_ENDPOINT, linkOptions);
+            this.lwtEndpoint = new AmqpLwtServiceEndpoint(wsSender);
 
-                    } else {
+            this.lwtEndpoint.open();
+            this.lwtEndpoint.sendWill(amqpWillMessage, willFuture.completer());
 
-                        // sending AMQP_LIST
-                        AmqpListMessage amqpListMessage =
-                                new AmqpListMessage(this.mqttEndpoint.clientIdentifier());
+        } else {
 
-                        this.ssEndpoint.sendList(amqpListMessage, sessionFuture.completer());
-                    }
+            // otherwise just complete the Future
+            willFuture.complete();
+        }
+
+        willFuture.compose(v -> {
+
+            // handling AMQP_SUBSCRIPTIONS reply from Subscription Service
+            this.rcvEndpoint.subscriptionsHandler(amqpSubscriptionsMessage -> {
 
-                    return sessionFuture;
+                LOG.info("Session present: {}", !amqpSubscriptionsMessage.topicSubscriptions().isEmpty());
+                LOG.debug("{}", amqpSubscriptionsMessage);
 
-                }).compose(v -> {
-                    // nothing here !??
-                }, connectionFuture);
+                connectionFuture.complete(amqpSubscriptionsMessage);
+            });
 
-                // timeout for the overall connection process
-                vertx.setTimer(AMQP_SERVICES_CONNECTION_TIMEOUT, timer -> {
-                   if (!connectionFuture.isComplete()) {
-                       connectionFuture.fail("Timeout on connecting to AMQP services");
-                   }
+            // step 2 : send AMQP_CLOSE or AMQP_LIST (based on "clean session" flag) to Subscription Service
+            Future<ProtonDelivery> sessionFuture = Future.future();
+
+            if (this.mqttEndpoint.isCleanSession()) {
+
+                // sending AMQP_CLOSE
+                AmqpCloseMessage amqpCloseMessage =
+                        new AmqpCloseMessage(this.mqttEndpoint.clientIdentifier());
+
+                this.ssEndpoint.sendClose(amqpCloseMessage, closeAsyncResult -> {
+
+                    // in case of AMQP_CLOSE, the connection completes on its disposition
+                    // no other AMQP message will be delivered by Subscription Service (i.e. AMQP_SUBSCRIPTIONS)
+                    if (closeAsyncResult.succeeded()) {
+                        connectionFuture.complete();
+                    }
                 });
 
             } else {
 
-                LOG.error("Error connecting to AMQP services ...", done.cause());
-                if (done.cause() instanceof SecurityException) {
-                    // error on the SASL mechanism side
-                    this.mqttEndpoint.reject(MqttConnectReturnCode.CONNECTION_REFUSED_NOT_AUTHORIZED);
-                } else {
-                    // no connection with the AMQP side
-                    this.mqttEndpoint.reject(MqttConnectReturnCode.CONNECTION_REFUSED_SERVER_UNAVAILABLE);
-                }
-
-                openHandler.handle(Future.failedFuture(done.cause()));
+                // sending AMQP_LIST
+                AmqpListMessage amqpListMessage =
+                        new AmqpListMessage(this.mqttEndpoint.clientIdentifier());
 
-                LOG.info("CONNACK to MQTT client {}", this.mqttEndpoint.clientIdentifier());
+                this.ssEndpoint.sendList(amqpListMessage, sessionFuture.completer());
             }
 
+            return sessionFuture;
+
+        }).compose(v -> {
+            // nothing here !??
+        }, connectionFuture);
+
+        // timeout for the overall connection process
+        vertx.setTimer(AMQP_SERVICES_CONNECTION_TIMEOUT, timer -> {
+           if (!connectionFuture.isComplete()) {
+               connectionFuture.fail("Timeout on connecting to AMQP services");
+           }
         });
+    }
+
+    /**
+     * Reject the MQTT client when the connection to the AMQP services can't be established
+     *
+     * @param cause cause of the failure
+     * @param openHandler   handler called when the open is completed (with success or not), before the CONNACK is sent
+     */
+    private void handleConnectFailure(Throwable cause, Handler<AsyncResult<AmqpBridge>> openHandler) {
+
+        LOG.error("Error connecting to AMQP services ...", cause);
+        if (cause instanceof SecurityException) {
+            // error on the SASL mechanism side
+            this.mqttEndpoint.reject(MqttConnectReturnCode.CONNECTION_REFUSED_NOT_AUTHORIZED);
+        } else {
+            // no connection with the AMQP side
+            this.mqttEndpoint.reject(MqttConnectReturnCode.CONNECTION_REFUSED_SERVER_UNAVAILABLE);
+        }
+
+        openHandler.handle(Future.failedFuture(cause));
 
+        LOG.info("CONNACK to MQTT client {}", this.mqttEndpoint.clientIdentifier());
     }
 
     /**
@@ -275,6 +343,10 @@ public class AmqpBridge {
      */
     public void close() {
 
+        // a bridge taken over while opening is closed when opened, and again when its MQTT endpoint is closed
+        if (this.closed)
+            return;
+
         if (this.lwtEndpoint != null)
             this.lwtEndpoint.close(false);
 
@@ -282,10 +354,38 @@ public class AmqpBridge {
         this.rcvEndpoint.close();
         this.pubEndpoint.close();
 
-        this.connection.close();
+        if (this.lease != null) {
+            // the pooled connection is shared with other bridges, only the session is closed
+            // (without handling the remote end of the session as a failure)
+            this.session.closeHandler(null).close();
+            this.lease.release();
+        } else {
+            this.connection.close();
+        }
 
         if (this.grantedQoSLevels != null)
             this.grantedQoSLevels.clear();
+
+        // dispositions arriving after the close aren't counted anymore
+        this.closed = true;
+        for (MqttQoS qos : new MqttQoS[] { MqttQoS.AT_LEAST_ONCE, MqttQoS.EXACTLY_ONCE }) {
+            this.metrics.inFlight(qos, -this.inFlight[qos.value()]);
+            this.inFlight[qos.value()] = 0;
+        }
+    }
+
+    private void inFlightStarted(MqttQoS qos) {
+
+        this.inFlight[qos.value()]++;
+        this.metrics.inFlight(qos, 1);
+    }
+
+    private void inFlightEnded(MqttQoS qos) {
+
+        if (!this.closed) {
+            this.inFlight[qos.value()]--;
+            this.metrics.inFlight(qos, -1);
+        }
     }
 
     /**
@@ -295,7 +395,13 @@ public class AmqpBridge {
      */
     private void publishHandler(MqttPublishMessage publish) {
 
-        LOG.info("PUBLISH [{}] from MQTT client {}", publish.messageId(), this.mqttEndpoint.clientIdentifier());
+        LOG.debug("PUBLISH [{}] from MQTT client {}", publish.messageId(), this.mqttEndpoint.clientIdentifier());
+
+        this.metrics.messageReceived(publish.qosLevel(), publish.payload().length());
+        long publishTime = System.nanoTime();
+        if (publish.qosLevel() != MqttQoS.AT_MOST_ONCE) {
+            this.inFlightStarted(publish.qosLevel());
+        }
 
         // TODO: simple way, without considering wildcards
 
@@ -303,8 +409,8 @@ public class AmqpBridge {
         if (!this.pubEndpoint.isPublisher(publish.topicName())) {
 
             // create two sender for publishing QoS 0/1 and QoS 2 messages
-            ProtonSender senderQoS01 = this.connection.createSender(publish.topicName());
-            ProtonSender senderQoS2 = this.connection.createSender(publish.topicName());
+            ProtonSender senderQoS01 = this.createSender(publish.topicName());
+            ProtonSender senderQoS2 = this.createSender(publish.topicName());
 
             this.pubEndpoint.addPublisher(publish.topicName(), new AmqpPublisher(senderQoS01, senderQoS2));
         }
@@ -320,6 +426,13 @@ public class AmqpBridge {
 
         pubEndpoint.publish(amqpPublishMessage, done -> {
 
+            if (publish.qosLevel() != MqttQoS.AT_MOST_ONCE) {
+                this.inFlightEnded(publish.qosLevel());
+                if (done.succeeded()) {
+                    this.metrics.publishSettled(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - publishTime));
+                }
+            }
+
             if (done.succeeded()) {
 
                 ProtonDelivery delivery = done.result();
@@ -328,11 +441,11 @@ public class AmqpBridge {
                     if (publish.qosLevel() == MqttQoS.AT_LEAST_ONCE) {
 
                         this.mqttEndpoint.publishAcknowledge((int) amqpPublishMessage.messageId());
-                        LOG.info("PUBACK [{}] to MQTT client {}", amqpPublishMessage.messageId(), this.mqttEndpoint.clientIdentifier());
+                        LOG.debug("PUBACK [{}] to MQTT client {}", amqpPublishMessage.messageId(), this.mqttEndpoint.clientIdentifier());
                     } else {
 
                         this.mqttEndpoint.publishReceived((int) amqpPublishMessage.messageId());
-                        LOG.info("PUBREC [{}] to MQTT client {}", amqpPublishMessage.messageId(), this.mqttEndpoint.clientIdentifier());
+                        LOG.debug("PUBREC [{}] to MQTT client {}", amqpPublishMessage.messageId(), this.mqttEndpoint.clientIdentifier());
                     }
 
                 }
@@ -353,23 +466,23 @@ public class AmqpBridge {
         // defensive ... check that current bridge has information about subscriptions and related granted QoS
         // see https://github.com/EnMasseProject/subserv/issues/8
 
-        // try to get subscribed topic (that could have wildcards) that matches the publish topic
-        String topic = (this.grantedQoSLevels.size() == 0) ? null :
-                TopicMatcher.match(this.grantedQoSLevels.keySet().stream().collect(Collectors.toList()), publish.topic());
+        // try to get the granted QoS of the subscribed topics (that could have wildcards) matching the publish topic
+        MqttQoS grantedQoS = this.grantedQoSLevels.match(publish.topic(), MAX_QOS);
 
-        if (topic != null) {
+        if (grantedQoS != null) {
 
             // MQTT 3.1.1 spec :  The QoS of Payload Messages sent in response to a Subscription MUST be
             // the minimum of the QoS of the originally published message and the maximum QoS granted by the Server
-            MqttQoS qos = (publish.qos().value() < this.grantedQoSLevels.get(topic).value()) ?
+            MqttQoS qos = (publish.qos().value() < grantedQoS.value()) ?
                     publish.qos() :
-                    this.grantedQoSLevels.get(topic);
+                    grantedQoS;
 
             this.mqttEndpoint.publish(publish.topic(), publish.payload(), qos, publish.isDup(), publish.isRetain());
+            this.metrics.messageSent(qos, (publish.payload() != null) ? publish.payload().length() : 0);
             // the the message identifier assigned to the published message
             amqpPublishData.setMessageId(this.mqttEndpoint.lastMessageId());
 
-            LOG.info("PUBLISH [{}] to MQTT client {}", this.mqttEndpoint.lastMessageId(), this.mqttEndpoint.clientIdentifier());
+            LOG.debug("PUBLISH [{}] to MQTT client {}", this.mqttEndpoint.lastMessageId(), this.mqttEndpoint.clientIdentifier());
 
             // for QoS 0, message settled immediately
             if (qos == MqttQoS.AT_MOST_ONCE) {
@@ -391,7 +504,7 @@ public class AmqpBridge {
 
         this.mqttEndpoint.publishRelease((int) pubrel.messageId());
 
-        LOG.info("PUBREL [{}] to MQTT client {}", pubrel.messageId(), this.mqttEndpoint.clientIdentifier());
+        LOG.debug("PUBREL [{}] to MQTT client {}", pubrel.messageId(), this.mqttEndpoint.clientIdentifier());
     }
 
     /**
@@ -516,7 +629,7 @@ public class AmqpBridge {
      */
     private void pubackHandler(int messageId) {
 
-        LOG.info("PUBACK [{}] from MQTT client {}", messageId, this.mqttEndpoint.clientIdentifier());
+        LOG.debug("PUBACK [{}] from MQTT client {}", messageId, this.mqttEndpoint.clientIdentifier());
 
         // a PUBLISH message with QoS 1 was sent to remote MQTT client (not settled yet at source)
         // now PUBACK is received so it's time to settle
@@ -530,7 +643,7 @@ public class AmqpBridge {
      */
     private void pubrelHandler(int messageId) {
 
-        LOG.info("PUBREL [{}] from MQTT client {}", messageId, this.mqttEndpoint.clientIdentifier());
+        LOG.debug("PUBREL [{}] from MQTT client {}", messageId, this.mqttEndpoint.clientIdentifier());
 
         // a PUBLISH message with QoS 2 was received from remote MQTT client, PUBREC was already sent
         // as reply, now that PUBREL is coming it's time to settle and reply with PUBCOMP
@@ -538,7 +651,7 @@ public class AmqpBridge {
 
         this.mqttEndpoint.publishComplete(messageId);
 
-        LOG.info("PUBCOMP [{}] to MQTT client {}", messageId, this.mqttEndpoint.clientIdentifier());
+        LOG.debug("PUBCOMP [{}] to MQTT client {}", messageId, this.mqttEndpoint.clientIdentifier());
     }
 
     /**
@@ -548,7 +661,7 @@ public class AmqpBridge {
      */
     private void pubrecHandler(int messageId) {
 
-        LOG.info("PUBREC [{}] from MQTT client {}", messageId, this.mqttEndpoint.clientIdentifier());
+        LOG.debug("PUBREC [{}] from MQTT client {}", messageId, this.mqttEndpoint.clientIdentifier());
 
         AmqpPubrelMessage amqpPubrelMessage = new AmqpPubrelMessage(messageId);
 
@@ -568,7 +681,7 @@ public class AmqpBridge {
      */
     private void pubcompHandler(int messageId) {
 
-        LOG.info("PUBCOMP [{}] from MQTT client {}", messageId, this.mqttEndpoint.clientIdentifier());
+        LOG.debug("PUBCOMP [{}] from MQTT client {}", messageId, this.mqttEndpoint.clientIdentifier());
 
         // a PUBLISH message with QoS 2 was sent to remote MQTT client (not settled yet at source)
         // then PUBREC was received. The corresponding PUBREL was sent (after PUBLISH settlement at source)
@@ -603,17 +716,23 @@ public class AmqpBridge {
         //        connection is established (and CONNACK sent to the MQTT client)
 
         // setup and open AMQP endpoint for receiving on unique client control/publish addresses
-        ProtonReceiver receiverControl = this.connection.createReceiver(String.format(AmqpReceiverEndpoint.CLIENT_CONTROL_ENDPOINT_TEMPLATE, this.mqttEndpoint.clientIdentifier()));
-        ProtonReceiver receiverPublish = this.connection.createReceiver(String.format(AmqpReceiverEndpoint.CLIENT_PUBLISH_ENDPOINT_TEMPLATE, this.mqttEndpoint.clientIdentifier()));
+        ProtonReceiver receiverControl = this.createReceiver(String.format(AmqpReceiverEndpoint.CLIENT_CONTROL_ENDPOINT_TEMPLATE, this.mqttEndpoint.clientIdentifier()));
+        ProtonReceiver receiverPublish = this.createReceiver(String.format(AmqpReceiverEndpoint.CLIENT_PUBLISH_ENDPOINT_TEMPLATE, this.mqttEndpoint.clientIdentifier()));
         this.rcvEndpoint = new AmqpReceiverEndpoint(new AmqpReceiver(receiverControl, receiverPublish));
 
         // setup and open AMQP endpoint to Subscription Service
-        ProtonSender ssSender = this.connection.createSender(AmqpSubscriptionServiceEndpoint.SUBSCRIPTION_SERVICE_ENDPOINT);
+        ProtonSender ssSender = this.createSender(AmqpSubscriptionServiceEndpoint.SUBSCRIPTION_SERVICE_ENDPOINT);
         this.ssEndpoint = new AmqpSubscriptionServiceEndpoint(ssSender);
 
         // setup and open AMQP endpoint for publishing
-        ProtonSender senderPubrel = this.connection.createSender(String.format(AmqpPublishEndpoint.AMQP_CLIENT_PUBREL_ENDPOINT_TEMPLATE, this.mqttEndpoint.clientIdentifier()));
-        this.pubEndpoint = new AmqpPublishEndpoint(senderPubrel);
+        ProtonSender senderPubrel = this.createSender(String.format(AmqpPublishEndpoint.AMQP_CLIENT_PUBREL_ENDPOINT_TEMPLATE, this.mqttEndpoint.clientIdentifier()));
+        // senders without target address, the messages carry the topic as address
+        AmqpPublisher relayPublisher = this.anonymousRelay ?
+                new AmqpPublisher(this.createSender(null), this.createSender(null)) :
+                null;
+        this.pubEndpoint = new AmqpPublishEndpoint(senderPubrel, relayPublisher)
+                .setMaxPublishers(this.maxPublishers)
+                .setPublisherIdleTimeout(this.publisherIdleTimeout);
 
         this.rcvEndpoint.openControl();
         this.ssEndpoint.open();
@@ -632,6 +751,54 @@ public class AmqpBridge {
         return this;
     }
 
+    /**
+     * Set the maximum number of links kept attached for publishing on topics
+     *
+     * @param maxPublishers maximum number of topic publishers
+     * @return  the current AmqpBridge instance
+     */
+    public AmqpBridge maxPublishers(int maxPublishers) {
+
+        this.maxPublishers = maxPublishers;
+        return this;
+    }
+
+    /**
+     * Set the time after which a link for publishing on a topic not used is detached
+     *
+     * @param publisherIdleTimeout  idle time in ms
+     * @return  the current AmqpBridge instance
+     */
+    public AmqpBridge publisherIdleTimeout(long publisherIdleTimeout) {
+
+        this.publisherIdleTimeout = publisherIdleTimeout;
+        return this;
+    }
+
+    /**
+     * Set if all the topics are published through the anonymous relay instead of a link per topic
+     *
+     * @param anonymousRelay    if the anonymous relay is used
+     * @return  the current AmqpBridge instance
+     */
+    public AmqpBridge anonymousRelay(boolean anonymousRelay) {
+
+        this.anonymousRelay = anonymousRelay;
+        return this;
+    }
+
+    /**
+     * Set the metrics the bridge records to
+     *
+     * @param metrics   gateway metrics
+     * @return  the current AmqpBridge instance
+     */
+    public AmqpBridge metrics(MqttGatewayMetrics metrics) {
+
+        this.metrics = metrics;
+        return this;
+    }
+
     /**
      * Used for calling the close handler when MQTT client closes connection
      *
@@ -685,6 +852,84 @@ public class AmqpBridge {
         }
     }
 
+    /**
+     * Handle the loss of the pooled connection shared with other bridges
+     */
+    private void handleSharedConnectionLost() {
+
+        LOG.info("Shared AMQP connection lost for client {}", this.mqttEndpoint.clientIdentifier());
+        this.closeMqttEndpoint();
+    }
+
+    /**
+     * Handle session closed by the remote AMQP container on a pooled connection
+     *
+     * @param result    result of remote session closing
+     */
+    private void handleRemoteSessionClose(AsyncResult<ProtonSession> result) {
+
+        if (result.succeeded()) {
+            LOG.info("AMQP session closed for client {}", this.mqttEndpoint.clientIdentifier());
+        } else {
+            LOG.info("AMQP session closed for client {} with error", this.mqttEndpoint.clientIdentifier(), result.cause());
+        }
+        this.session.close();
+        this.closeMqttEndpoint();
+    }
+
+    /**
+     * Close the connection with the MQTT client, taken over by a new connection with the same client identifier.
+     * The close is handled as any other connection lost, so publishing the will message.
+     */
+    public void takeOver() {
+
+        LOG.info("Connection of MQTT client {} taken over", this.mqttEndpoint.clientIdentifier());
+
+        // the link to the Last Will and Testament Service is named after the client identifier,
+        // so it's detached before the new connection attaches its own
+        if (this.lwtEndpoint != null)
+            this.lwtEndpoint.close(true);
+
+        this.closeMqttEndpoint();
+    }
+
+    private void closeMqttEndpoint() {
+
+        try {
+            this.mqttEndpoint.close();
+        } catch (IllegalStateException e) {
+            LOG.warn("MQTT endpoint for client {} already closed", this.mqttEndpoint.clientIdentifier());
+        }
+    }
+
+    /**
+     * Create a sender on the session of this bridge, or on the dedicated connection
+     *
+     * @param address   target address
+     * @return  ProtonSender instance
+     */
+    private ProtonSender createSender(String address) {
+        return this.createSender(address, new ProtonLinkOptions());
+    }
+
+    private ProtonSender createSender(String address, ProtonLinkOptions linkOptions) {
+        return (this.session != null) ?
+                this.session.createSender(address, linkOptions) :
+                this.connection.createSender(address, linkOptions);
+    }
+
+    /**
+     * Create a receiver on the session of this bridge, or on the dedicated connection
+     *
+     * @param address   source address
+     * @return  ProtonReceiver instance
+     */
+    private ProtonReceiver createReceiver(String address) {
+        return (this.session != null) ?
+                this.session.createReceiver(address) :
+                this.connection.createReceiver(address);
+    }
+
     /**
      * AMQP bridge identifier
      *
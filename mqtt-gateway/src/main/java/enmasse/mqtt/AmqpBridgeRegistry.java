@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package enmasse.mqtt;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the bridges by client identifier, shared by all the MQTT gateway verticle instances
+ *
+ * A bridge belongs to the event loop of the verticle instance which accepted its MQTT connection,
+ * so it's always closed on that event loop, even when taken over by a bridge registered from another one.
+ */
+public class AmqpBridgeRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AmqpBridgeRegistry.class);
+
+    private final ConcurrentMap<String, Registration> bridges = new ConcurrentHashMap<>();
+
+    /**
+     * Register a bridge, taking over the bridge already registered with the same client identifier
+     * which is closed on its own context
+     *
+     * @param bridge    bridge to register
+     * @param context   context the bridge belongs to
+     * @param handler   handler called on the context of the bridge when the previous one is taken over
+     */
+    public void register(AmqpBridge bridge, Context context, Handler<Void> handler) {
+
+        Registration previous = this.bridges.put(bridge.id(), new Registration(bridge, context));
+        if (previous != null && previous.bridge != bridge) {
+
+            LOG.info("MQTT client {} connected again, taking over the previous connection", bridge.id());
+            previous.context.runOnContext(v -> {
+                previous.bridge.takeOver();
+                context.runOnContext(handler);
+            });
+        } else {
+            handler.handle(null);
+        }
+    }
+
+    /**
+     * Unregister a bridge, if it wasn't already taken over
+     *
+     * @param bridge    bridge to unregister
+     * @return  if the bridge was registered
+     */
+    public boolean unregister(AmqpBridge bridge) {
+
+        boolean[] removed = new boolean[1];
+        this.bridges.computeIfPresent(bridge.id(), (id, registration) -> {
+            removed[0] = (registration.bridge == bridge);
+            return removed[0] ? null : registration;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Check if a bridge is registered, so not taken over by another one with the same client identifier
+     *
+     * @param bridge    bridge to check
+     * @return  if the bridge is registered
+     */
+    public boolean isRegistered(AmqpBridge bridge) {
+
+        Registration registration = this.bridges.get(bridge.id());
+        return (registration != null) && (registration.bridge == bridge);
+    }
+
+    /**
+     * @return  number of registered bridges
+     */
+    public int size() {
+        return this.bridges.size();
+    }
+
+    /**
+     * Bridge with the context it belongs to
+     */
+    private static class Registration {
+
+        private final AmqpBridge bridge;
+        private final Context context;
+
+        private Registration(AmqpBridge bridge, Context context) {
+            this.bridge = bridge;
+            this.context = context;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package enmasse.mqtt;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.proton.ProtonClient;
+import io.vertx.proton.ProtonClientOptions;
+import io.vertx.proton.ProtonConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pool of AMQP connections to the messaging service shared by the AMQP bridges
+ *
+ * Every bridge takes a lease on the pooled connection with the fewest leases and opens its own
+ * session on it, so the connections to the messaging service are bound by the pool size and not
+ * by the number of connected MQTT clients. Connections are opened on the first lease and kept open
+ * until lost or until the pool is closed. The pool must be used from the Vert.x context which created it.
+ */
+public class AmqpConnectionPool {
+
+    private static final int HEARTBEAT = 30000; // in ms
+
+    private static final Logger LOG = LoggerFactory.getLogger(AmqpConnectionPool.class);
+
+    private final Vertx vertx;
+    private final String address;
+    private final int port;
+
+    private final List<PooledConnection> connections;
+
+    /**
+     * Constructor
+     *
+     * @param vertx Vert.x instance
+     * @param address   AMQP service provider address
+     * @param port  AMQP service provider port
+     * @param size  maximum number of connections
+     */
+    public AmqpConnectionPool(Vertx vertx, String address, int port, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Connection pool size must be at least 1");
+        }
+        this.vertx = vertx;
+        this.address = address;
+        this.port = port;
+        this.connections = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            this.connections.add(new PooledConnection());
+        }
+    }
+
+    /**
+     * Take a lease on a pooled connection, connecting to the AMQP service provider if needed
+     *
+     * @param connectionLostHandler handler called if the leased connection is lost before the lease is released
+     * @param leaseHandler  handler called with the lease when the connection is available (or with the failure)
+     */
+    public void acquire(Handler<Void> connectionLostHandler, Handler<AsyncResult<Lease>> leaseHandler) {
+
+        PooledConnection pooled = this.connections.get(0);
+        for (PooledConnection candidate : this.connections) {
+            if (candidate.leases.size() < pooled.leases.size()) {
+                pooled = candidate;
+            }
+        }
+        pooled.acquire(new Lease(pooled, connectionLostHandler), leaseHandler);
+    }
+
+    /**
+     * Number of pooled connections currently open
+     *
+     * @return  number of open connections
+     */
+    public int openConnections() {
+        return (int) this.connections.stream().filter(pooled -> pooled.connection != null).count();
+    }
+
+    /**
+     * Close all the pooled connections, without notifying the leases
+     */
+    public void close() {
+
+        for (PooledConnection pooled : this.connections) {
+            pooled.leases.clear();
+            if (pooled.connection != null) {
+                pooled.connection.close();
+                pooled.connection = null;
+            }
+        }
+    }
+
+    /**
+     * Lease on a pooled connection held by an AMQP bridge
+     */
+    public static class Lease {
+
+        private final PooledConnection pooled;
+        private final Handler<Void> connectionLostHandler;
+
+        private Lease(PooledConnection pooled, Handler<Void> connectionLostHandler) {
+            this.pooled = pooled;
+            this.connectionLostHandler = connectionLostHandler;
+        }
+
+        /**
+         * The leased connection
+         *
+         * @return  ProtonConnection instance
+         */
+        public ProtonConnection connection() {
+            return this.pooled.connection;
+        }
+
+        /**
+         * Release the lease, the connection stays open for the other leases
+         */
+        public void release() {
+            this.pooled.leases.remove(this);
+        }
+    }
+
+    private class PooledConnection {
+
+        private ProtonConnection connection;
+        private boolean connecting;
+        private final Set<Lease> leases = new LinkedHashSet<>();
+        private final List<Handler<AsyncResult<ProtonConnection>>> waiting = new ArrayList<>();
+
+        private void acquire(Lease lease, Handler<AsyncResult<Lease>> leaseHandler) {
+
+            this.leases.add(lease);
+            if (this.connection != null) {
+                leaseHandler.handle(Future.succeededFuture(lease));
+                return;
+            }
+
+            this.waiting.add(done -> {
+                if (done.succeeded()) {
+                    leaseHandler.handle(Future.succeededFuture(lease));
+                } else {
+                    this.leases.remove(lease);
+                    leaseHandler.handle(Future.failedFuture(done.cause()));
+                }
+            });
+            if (!this.connecting) {
+                this.connect();
+            }
+        }
+
+        private void connect() {
+
+            this.connecting = true;
+
+            ProtonClientOptions clientOptions = new ProtonClientOptions();
+            clientOptions.setHeartbeat(HEARTBEAT);
+
+            // NOTE : without username/password Vert.x Proton just provides SASL ANONYMOUS as supported mechanism
+            ProtonClient.create(vertx).connect(clientOptions, address, port, done -> {
+
+                this.connecting = false;
+
+                List<Handler<AsyncResult<ProtonConnection>>> handlers = new ArrayList<>(this.waiting);
+                this.waiting.clear();
+
+                if (done.succeeded()) {
+
+                    ProtonConnection connection = done.result();
+                    connection
+                            .closeHandler(remoteClose -> this.handleConnectionLost(connection))
+                            .disconnectHandler(this::handleConnectionLost)
+                            .open();
+                    this.connection = connection;
+
+                    LOG.info("Opened pooled AMQP connection to {}:{}", address, port);
+                    handlers.forEach(handler -> handler.handle(Future.succeededFuture(connection)));
+
+                } else {
+
+                    LOG.error("Error opening pooled AMQP connection to {}:{}", address, port, done.cause());
+                    handlers.forEach(handler -> handler.handle(Future.failedFuture(done.cause())));
+                }
+            });
+        }
+
+        private void handleConnectionLost(ProtonConnection connection) {
+
+            if (connection != this.connection) {
+                return;
+            }
+
+            LOG.info("Pooled AMQP connection with {} lost, closing {} bridges", connection.getRemoteContainer(), this.leases.size());
+            this.connection = null;
+            connection.disconnect();
+
+            List<Lease> lost = new ArrayList<>(this.leases);
+            this.leases.clear();
+            lost.forEach(lease -> lease.connectionLostHandler.handle(null));
+        }
+    }
+}
@@ -11,6 +11,7 @@ import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
@@ -38,8 +39,15 @@ public class Application {
     private int maxInstances;
     @Value(value = "${enmasse.mqtt.startuptimeout:20}")
     private int startupTimeout;
+    @Value(value = "${enmasse.mqtt.metricsport:8889}")
+    private int metricsPort;
+    // provides a new MQTT gateway instance for each verticle deployed
     @Autowired
-    private MqttGateway mqttGateway;
+    private ObjectFactory<MqttGateway> mqttGatewayFactory;
+
+    // shared by all the MQTT gateway instances
+    private final MqttGatewayMetrics metrics = new MqttGatewayMetrics();
+    private final AmqpBridgeRegistry bridgeRegistry = new AmqpBridgeRegistry();
 
     private AtomicBoolean running = new AtomicBoolean();
 
@@ -71,6 +79,10 @@ public class Application {
                 // start deploying more verticle instances
                 this.deployVerticles(instanceCount, startFuture);
 
+                if (this.metricsPort > 0) {
+                    this.startMetricsServer();
+                }
+
                 // wait for deploying end
                 if (latch.await(this.startupTimeout, TimeUnit.SECONDS)) {
                     LOG.info("MQTT gateway startup completed successfully");
@@ -105,7 +117,11 @@ public class Application {
             Future<Void> result = Future.future();
             results.add(result);
 
-            this.vertx.deployVerticle(this.mqttGateway, done -> {
+            MqttGateway mqttGateway = this.mqttGatewayFactory.getObject()
+                    .setMetrics(this.metrics)
+                    .setBridgeRegistry(this.bridgeRegistry);
+
+            this.vertx.deployVerticle(mqttGateway, done -> {
                 if (done.succeeded()) {
                     LOG.debug("Verticle instance {} deployed [{}]", instanceId, done.result());
                     result.complete();
@@ -126,6 +142,32 @@ public class Application {
         });
     }
 
+    /**
+     * Start the HTTP server exposing the gateway metrics in the Prometheus text format on /metrics
+     */
+    private void startMetricsServer() {
+
+        this.vertx.createHttpServer()
+                .requestHandler(request -> {
+                    if ("/metrics".equals(request.path())) {
+                        StringBuilder metrics = new StringBuilder();
+                        this.metrics.writePrometheus(metrics);
+                        request.response()
+                                .putHeader("Content-Type", "text/plain; version=0.0.4")
+                                .setStatusCode(200)
+                                .end(metrics.toString());
+                    } else {
+                        request.response().setStatusCode(200).end();
+                    }
+                }).listen(this.metricsPort, done -> {
+                    if (done.succeeded()) {
+                        LOG.info("Metrics available on port {}", this.metricsPort);
+                    } else {
+                        LOG.error("Could not start the metrics server on port {}", this.metricsPort, done.cause());
+                    }
+                });
+    }
+
     @PreDestroy
     public void shutdown() {
         if (this.running.compareAndSet(true, false)) {
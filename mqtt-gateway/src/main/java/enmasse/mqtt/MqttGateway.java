@@ -6,7 +6,9 @@
 package enmasse.mqtt;
 
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.net.PemKeyCertOptions;
 import io.vertx.mqtt.MqttEndpoint;
 import io.vertx.mqtt.MqttServer;
@@ -14,16 +16,23 @@ import io.vertx.mqtt.MqttServerOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 
 /**
  * Vert.x based MQTT gateway for EnMasse
+ *
+ * Each verticle instance runs on its own event loop, all sharing the listening port,
+ * so a new instance is created for each deployment.
  */
 @Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class MqttGateway extends AbstractVerticle {
 
     private static final Logger LOG = LoggerFactory.getLogger(MqttGateway.class);
@@ -34,6 +43,14 @@ public class MqttGateway extends AbstractVerticle {
     // connection info to the messaging service
     private String messagingServiceHost;
     private int messagingServicePort;
+    // number of AMQP connections shared by the clients without credentials (0 for a connection per client)
+    private int connectionPoolSize;
+
+    // bounds of the cache of links for publishing on topics, per client
+    private int maxPublishers;
+    private int publisherIdleTimeout;
+    // if all topics are published through the anonymous relay
+    private boolean anonymousRelay;
 
     // SSL/TLS support stuff
     private boolean ssl;
@@ -42,7 +59,14 @@ public class MqttGateway extends AbstractVerticle {
 
     private MqttServer server;
 
-    private Map<String, AmqpBridge> bridges;
+    // open bridges of the clients connected to this instance
+    private Set<AmqpBridge> bridges;
+
+    private AmqpConnectionPool connectionPool;
+
+    private MqttGatewayMetrics metrics = new MqttGatewayMetrics();
+
+    private AmqpBridgeRegistry bridgeRegistry = new AmqpBridgeRegistry();
 
     /**
      * Set the IP address the MQTT gateway will bind to
@@ -92,6 +116,100 @@ public class MqttGateway extends AbstractVerticle {
         return this;
     }
 
+    /**
+     * Set the number of AMQP connections to the messaging service shared by the MQTT clients
+     * which don't provide credentials, each client using its own session on a pooled connection.
+     * With 0, every MQTT client has its own AMQP connection.
+     *
+     * @param connectionPoolSize    number of pooled AMQP connections
+     * @return  current MQTT gateway instance
+     */
+    @Value(value = "${enmasse.mqtt.connectionpoolsize:0}")
+    public MqttGateway setConnectionPoolSize(int connectionPoolSize) {
+        this.connectionPoolSize = connectionPoolSize;
+        return this;
+    }
+
+    /**
+     * Set the maximum number of AMQP links kept attached by a client for publishing on topics,
+     * the least recently used being detached when the maximum is reached
+     *
+     * @param maxPublishers maximum number of topic publishers per client
+     * @return  current MQTT gateway instance
+     */
+    @Value(value = "${enmasse.mqtt.maxpublishers:100}")
+    public MqttGateway setMaxPublishers(int maxPublishers) {
+        this.maxPublishers = maxPublishers;
+        return this;
+    }
+
+    /**
+     * Set the time after which an AMQP link for publishing on a topic not used is detached
+     *
+     * @param publisherIdleTimeout  idle time in seconds
+     * @return  current MQTT gateway instance
+     */
+    @Value(value = "${enmasse.mqtt.publisheridletimeout:300}")
+    public MqttGateway setPublisherIdleTimeout(int publisherIdleTimeout) {
+        this.publisherIdleTimeout = publisherIdleTimeout;
+        return this;
+    }
+
+    /**
+     * Set if the clients publish on all the topics through the anonymous relay of the messaging service,
+     * with the topic as message address, instead of attaching a link per topic.
+     * Topics served through link routes can't be reached through the anonymous relay.
+     *
+     * @param anonymousRelay    if the anonymous relay is used
+     * @return  current MQTT gateway instance
+     */
+    @Value(value = "${enmasse.mqtt.anonymousrelay:false}")
+    public MqttGateway setAnonymousRelay(boolean anonymousRelay) {
+        this.anonymousRelay = anonymousRelay;
+        return this;
+    }
+
+    /**
+     * Set the metrics the MQTT gateway records to
+     *
+     * @param metrics   gateway metrics
+     * @return  current MQTT gateway instance
+     */
+    public MqttGateway setMetrics(MqttGatewayMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Metrics of the MQTT gateway
+     *
+     * @return  gateway metrics
+     */
+    public MqttGatewayMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Set the registry of the open bridges, shared with the other instances of the MQTT gateway
+     * for taking over a client connecting again with the same client identifier
+     *
+     * @param bridgeRegistry    registry of the bridges
+     * @return  current MQTT gateway instance
+     */
+    public MqttGateway setBridgeRegistry(AmqpBridgeRegistry bridgeRegistry) {
+        this.bridgeRegistry = bridgeRegistry;
+        return this;
+    }
+
+    /**
+     * Registry of the open bridges
+     *
+     * @return  registry of the bridges
+     */
+    public AmqpBridgeRegistry getBridgeRegistry() {
+        return this.bridgeRegistry;
+    }
+
     /**
      * Set the SSL/TLS support needed for the MQTT connections
      *
@@ -158,10 +276,16 @@ public class MqttGateway extends AbstractVerticle {
 
                     if (done.succeeded()) {
 
-                        this.bridges = new HashMap<>();
+                        this.bridges = new HashSet<>();
+                        if (this.connectionPoolSize > 0) {
+                            this.connectionPool = new AmqpConnectionPool(this.vertx, this.messagingServiceHost, this.messagingServicePort, this.connectionPoolSize);
+                        }
 
                         LOG.info("MQTT gateway running on {}:{}", this.bindAddress, this.server.actualPort());
                         LOG.info("AMQP messaging service on {}:{}", this.messagingServiceHost, this.messagingServicePort);
+                        if (this.connectionPool != null) {
+                            LOG.info("Sharing {} AMQP connections between clients without credentials", this.connectionPoolSize);
+                        }
                         startFuture.complete();
                     } else {
                         LOG.error("Error while starting up MQTT gateway", done.cause());
@@ -180,23 +304,53 @@ public class MqttGateway extends AbstractVerticle {
 
         LOG.info("CONNECT from MQTT client {}", mqttEndpoint.clientIdentifier());
 
-        AmqpBridge bridge = new AmqpBridge(this.vertx, mqttEndpoint);
+        long connectTime = System.nanoTime();
+
+        AmqpBridge bridge = new AmqpBridge(this.vertx, mqttEndpoint)
+                .metrics(this.metrics)
+                .maxPublishers(this.maxPublishers)
+                .publisherIdleTimeout(this.publisherIdleTimeout * 1000L)
+                .anonymousRelay(this.anonymousRelay);
 
         bridge.mqttEndpointCloseHandler(amqpBridge -> {
 
-            this.bridges.remove(amqpBridge.id());
+            this.bridgeRegistry.unregister(amqpBridge);
+            if (this.bridges.remove(amqpBridge)) {
+                this.metrics.bridgeClosed();
+            }
             amqpBridge.close();
             LOG.info("Closed AMQP bridge for client {}", amqpBridge.id());
+        });
 
-        }).open(this.messagingServiceHost, this.messagingServicePort, done -> {
+        Handler<AsyncResult<AmqpBridge>> openHandler = done -> {
 
             if (done.succeeded()) {
 
-                LOG.info("Opened AMQP bridge for client {}", done.result().id());
-                this.bridges.put(done.result().id(), done.result());
+                if (this.bridgeRegistry.isRegistered(bridge)) {
+                    LOG.info("Opened AMQP bridge for client {}", bridge.id());
+                    this.bridges.add(bridge);
+                    this.metrics.bridgeOpened(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectTime));
+                } else {
+                    // taken over by a new connection with the same client identifier while opening
+                    bridge.close();
+                    LOG.info("Closed AMQP bridge for client {}", bridge.id());
+                }
             } else {
+                this.bridgeRegistry.unregister(bridge);
                 LOG.info("Error opening the AMQP bridge ...", done.cause());
             }
+        };
+
+        // MQTT 3.1.1 spec : the client already connected with the same client identifier is disconnected
+        // (from this or another instance) before the will and the session of the new connection are sent
+        this.bridgeRegistry.register(bridge, this.context, v -> {
+
+            // a client with credentials needs its own connection, authenticated with them
+            if (this.connectionPool != null && mqttEndpoint.auth() == null) {
+                bridge.open(this.connectionPool, openHandler);
+            } else {
+                bridge.open(this.messagingServiceHost, this.messagingServicePort, openHandler);
+            }
         });
     }
 
@@ -225,9 +379,16 @@ public class MqttGateway extends AbstractVerticle {
 
         if (this.server != null) {
 
-            this.bridges.entrySet().stream().forEach(entry -> {
-                entry.getValue().close();
+            this.bridges.forEach(bridge -> {
+                bridge.close();
+                this.bridgeRegistry.unregister(bridge);
+                this.metrics.bridgeClosed();
             });
+            this.bridges.clear();
+
+            if (this.connectionPool != null) {
+                this.connectionPool.close();
+            }
 
             this.server.close(shutdownTracker.completer());
         } else {
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package enmasse.mqtt;
+
+import io.enmasse.metrics.LatencyHistogram;
+import io.netty.handler.codec.mqtt.MqttQoS;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the MQTT gateway, shared by all the bridges and written in the Prometheus text format
+ *
+ * Recording only bumps counters, so it can be done on the event loop for every message.
+ */
+public class MqttGatewayMetrics {
+
+    private static final int QOS_LEVELS = 3;
+
+    // messages published by the MQTT clients, per QoS level
+    private final LongAdder[] messagesReceived = newAdders(QOS_LEVELS);
+    // messages published to the MQTT clients, per QoS level
+    private final LongAdder[] messagesSent = newAdders(QOS_LEVELS);
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    // messages published by the MQTT clients waiting for the disposition of the messaging service, per QoS level
+    private final LongAdder[] inFlight = newAdders(QOS_LEVELS);
+    private final LongAdder activeBridges = new LongAdder();
+
+    private final LatencyHistogram bridgeOpenLatency = new LatencyHistogram("mqtt_gateway_bridge_open_seconds",
+            "Time from the CONNECT of an MQTT client to its bridge being open");
+    private final LatencyHistogram publishSettleLatency = new LatencyHistogram("mqtt_gateway_publish_settle_seconds",
+            "Time from a QoS 1 or 2 PUBLISH of an MQTT client to the disposition of the messaging service");
+
+    private static LongAdder[] newAdders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Record a message published by an MQTT client
+     *
+     * @param qos   QoS level of the message
+     * @param bytes payload size
+     */
+    public void messageReceived(MqttQoS qos, int bytes) {
+        this.messagesReceived[qos.value()].increment();
+        this.bytesReceived.add(bytes);
+    }
+
+    /**
+     * Record a message published to an MQTT client
+     *
+     * @param qos   QoS level of the message
+     * @param bytes payload size
+     */
+    public void messageSent(MqttQoS qos, int bytes) {
+        this.messagesSent[qos.value()].increment();
+        this.bytesSent.add(bytes);
+    }
+
+    /**
+     * Update the number of messages published by MQTT clients waiting for the messaging service disposition
+     *
+     * @param qos   QoS level of the messages
+     * @param delta change of the number of messages
+     */
+    public void inFlight(MqttQoS qos, int delta) {
+        this.inFlight[qos.value()].add(delta);
+    }
+
+    /**
+     * Record the disposition of a message published by an MQTT client
+     *
+     * @param latencyMillis time since the PUBLISH was received
+     */
+    public void publishSettled(long latencyMillis) {
+        this.publishSettleLatency.record(latencyMillis);
+    }
+
+    /**
+     * Record a bridge being open
+     *
+     * @param latencyMillis time since the CONNECT was received
+     */
+    public void bridgeOpened(long latencyMillis) {
+        this.bridgeOpenLatency.record(latencyMillis);
+        this.activeBridges.increment();
+    }
+
+    /**
+     * Record an open bridge being closed
+     */
+    public void bridgeClosed() {
+        this.activeBridges.decrement();
+    }
+
+    public long getActiveBridges() {
+        return this.activeBridges.sum();
+    }
+
+    public long getMessagesReceived(MqttQoS qos) {
+        return this.messagesReceived[qos.value()].sum();
+    }
+
+    public long getMessagesSent(MqttQoS qos) {
+        return this.messagesSent[qos.value()].sum();
+    }
+
+    public long getInFlight(MqttQoS qos) {
+        return this.inFlight[qos.value()].sum();
+    }
+
+    /**
+     * Write the metrics in the Prometheus text format
+     *
+     * @param builder   builder to write the metrics to
+     */
+    public void writePrometheus(StringBuilder builder) {
+
+        writePerQoS(builder, "mqtt_gateway_messages_received_total", "counter", "Messages published by MQTT clients", this.messagesReceived);
+        writePerQoS(builder, "mqtt_gateway_messages_sent_total", "counter", "Messages published to MQTT clients", this.messagesSent);
+        write(builder, "mqtt_gateway_bytes_received_total", "counter", "Payload bytes published by MQTT clients", this.bytesReceived.sum());
+        write(builder, "mqtt_gateway_bytes_sent_total", "counter", "Payload bytes published to MQTT clients", this.bytesSent.sum());
+
+        builder.append("# HELP mqtt_gateway_inflight_messages Messages published by MQTT clients waiting for the messaging service disposition\n");
+        builder.append("# TYPE mqtt_gateway_inflight_messages gauge\n");
+        for (MqttQoS qos : new MqttQoS[] { MqttQoS.AT_LEAST_ONCE, MqttQoS.EXACTLY_ONCE }) {
+            builder.append("mqtt_gateway_inflight_messages{qos=\"").append(qos.value()).append("\"} ").append(this.inFlight[qos.value()].sum()).append("\n");
+        }
+
+        write(builder, "mqtt_gateway_active_bridges", "gauge", "MQTT clients with an open bridge", this.activeBridges.sum());
+
+        this.bridgeOpenLatency.writePrometheus(builder);
+        this.publishSettleLatency.writePrometheus(builder);
+    }
+
+    private static void writePerQoS(StringBuilder builder, String name, String type, String help, LongAdder[] values) {
+        builder.append("# HELP ").append(name).append(" ").append(help).append("\n");
+        builder.append("# TYPE ").append(name).append(" ").append(type).append("\n");
+        for (int qos = 0; qos < values.length; qos++) {
+            builder.append(name).append("{qos=\"").append(qos).append("\"} ").append(values[qos].sum()).append("\n");
+        }
+    }
+
+    private static void write(StringBuilder builder, String name, String type, String help, long value) {
+        builder.append("# HELP ").append(name).append(" ").append(help).append("\n");
+        builder.append("# TYPE ").append(name).append(" ").append(type).append("\n");
+        builder.append(name).append(" ").append(value).append("\n");
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package enmasse.mqtt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BinaryOperator;
+
+/**
+ * Topic subscriptions, each with a value, kept as a trie of topic levels.
+ *
+ * The subscriptions matching a published topic are found by walking the levels of the topic once, without
+ * allocating. Wildcards follow {@link TopicMatcher} : "+" matches a single non empty level, while "#" matches all
+ * the remaining levels, of which there must be at least one.
+ *
+ * Not thread safe, it's meant to be used on the Vert.x context of a single client.
+ *
+ * @param <V>   type of the value of a subscription
+ */
+public class SubscriptionTrie<V> {
+
+    private static final char SEPARATOR = '/';
+    private static final String PLUS_WILDCARD = "+";
+    private static final String SHARP_WILDCARD = "#";
+
+    private Node<V> root = new Node<>();
+    private int size;
+
+    /**
+     * Add a subscription, replacing the value of the same subscription if present
+     *
+     * @param topicFilter   topic with wildcards (for subscription)
+     * @param value value of the subscription
+     */
+    public void put(String topicFilter, V value) {
+
+        if (value == null) {
+            throw new IllegalArgumentException("value cannot be null");
+        }
+
+        Node<V> node = this.root;
+        for (String level : levels(topicFilter)) {
+            node = node.getOrCreateChild(level);
+        }
+        if (node.value == null) {
+            this.size++;
+        }
+        node.value = value;
+    }
+
+    /**
+     * Remove a subscription
+     *
+     * @param topicFilter   topic with wildcards (for subscription)
+     * @return  value of the removed subscription, or null if there was no such subscription
+     */
+    public V remove(String topicFilter) {
+
+        List<String> levels = levels(topicFilter);
+        List<Node<V>> path = new ArrayList<>(levels.size() + 1);
+        Node<V> node = this.root;
+        path.add(node);
+        for (String level : levels) {
+            node = node.getChild(level);
+            if (node == null) {
+                return null;
+            }
+            path.add(node);
+        }
+
+        V value = node.value;
+        if (value != null) {
+            node.value = null;
+            this.size--;
+            // prune the nodes left without subscriptions
+            for (int i = levels.size(); i > 0 && path.get(i).isEmpty(); i--) {
+                path.get(i - 1).removeChild(levels.get(i - 1));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Find the subscriptions matching a published topic
+     *
+     * @param topic fixed topic (for publishing)
+     * @param merge function combining the values of two matching subscriptions
+     * @return  the value of the matching subscription, merged with the values of any other matching ones,
+     *          or null if there is no matching subscription
+     */
+    public V match(String topic, BinaryOperator<V> merge) {
+
+        if (this.size == 0) {
+            return null;
+        }
+        return match(this.root, topic, 0, null, merge);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public void clear() {
+        this.root = new Node<>();
+        this.size = 0;
+    }
+
+    /**
+     * Walk the trie from a node, with the level of the topic starting at the provided index. An index past the
+     * end of the topic means that there are no levels left.
+     */
+    private static <V> V match(Node<V> node, String topic, int start, V result, BinaryOperator<V> merge) {
+
+        if (start > topic.length()) {
+            return merge(result, node.value, merge);
+        }
+
+        int end = topic.indexOf(SEPARATOR, start);
+        if (end < 0) {
+            end = topic.length();
+        }
+
+        if (node.sharp != null) {
+            result = merge(result, node.sharp.value, merge);
+        }
+        if (node.plus != null && end > start) {
+            result = match(node.plus, topic, end + 1, result, merge);
+        }
+        Node<V> child = node.getChild(topic, start, end);
+        if (child != null) {
+            result = match(child, topic, end + 1, result, merge);
+        }
+        return result;
+    }
+
+    private static <V> V merge(V result, V value, BinaryOperator<V> merge) {
+        if (value == null) {
+            return result;
+        }
+        return (result == null) ? value : merge.apply(result, value);
+    }
+
+    private static List<String> levels(String topicFilter) {
+
+        List<String> levels = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = topicFilter.indexOf(SEPARATOR, start)) >= 0) {
+            levels.add(topicFilter.substring(start, end));
+            start = end + 1;
+        }
+        levels.add(topicFilter.substring(start));
+        return levels;
+    }
+
+    /**
+     * A level of the trie. Children for fixed levels are kept in an open addressing table, looked up
+     * by a region of the topic so that no substring is needed.
+     */
+    private static class Node<V> {
+
+        private V value;
+        private Node<V> plus;
+        private Node<V> sharp;
+        private String[] keys;
+        private Node<V>[] children;
+        private int numChildren;
+
+        private Node<V> getChild(String level) {
+
+            if (PLUS_WILDCARD.equals(level)) {
+                return this.plus;
+            } else if (SHARP_WILDCARD.equals(level)) {
+                return this.sharp;
+            } else {
+                return this.getChild(level, 0, level.length());
+            }
+        }
+
+        private Node<V> getChild(String topic, int start, int end) {
+
+            if (this.keys == null) {
+                return null;
+            }
+            int length = end - start;
+            int mask = this.keys.length - 1;
+            for (int i = spread(hash(topic, start, end)) & mask; this.keys[i] != null; i = (i + 1) & mask) {
+                String key = this.keys[i];
+                if (key.length() == length && key.regionMatches(0, topic, start, length)) {
+                    return this.children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node<V> getOrCreateChild(String level) {
+
+            Node<V> child = this.getChild(level);
+            if (child == null) {
+                child = new Node<>();
+                if (PLUS_WILDCARD.equals(level)) {
+                    this.plus = child;
+                } else if (SHARP_WILDCARD.equals(level)) {
+                    this.sharp = child;
+                } else {
+                    if (this.keys == null || (this.numChildren + 1) * 2 > this.keys.length) {
+                        this.resize(this.keys == null ? 4 : this.keys.length * 2);
+                    }
+                    this.insert(level, child);
+                    this.numChildren++;
+                }
+            }
+            return child;
+        }
+
+        private void removeChild(String level) {
+
+            if (PLUS_WILDCARD.equals(level)) {
+                this.plus = null;
+            } else if (SHARP_WILDCARD.equals(level)) {
+                this.sharp = null;
+            } else if (this.getChild(level) != null) {
+                // rebuild the table without the child, unsubscribing is far less frequent than matching
+                String[] oldKeys = this.keys;
+                Node<V>[] oldChildren = this.children;
+                this.numChildren--;
+                if (this.numChildren == 0) {
+                    this.keys = null;
+                    this.children = null;
+                } else {
+                    this.keys = new String[oldKeys.length];
+                    this.children = newArray(oldKeys.length);
+                    for (int i = 0; i < oldKeys.length; i++) {
+                        if (oldKeys[i] != null && !oldKeys[i].equals(level)) {
+                            this.insert(oldKeys[i], oldChildren[i]);
+                        }
+                    }
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return this.value == null && this.plus == null && this.sharp == null && this.numChildren == 0;
+        }
+
+        private void resize(int capacity) {
+
+            String[] oldKeys = this.keys;
+            Node<V>[] oldChildren = this.children;
+            this.keys = new String[capacity];
+            this.children = newArray(capacity);
+            if (oldKeys != null) {
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != null) {
+                        this.insert(oldKeys[i], oldChildren[i]);
+                    }
+                }
+            }
+        }
+
+        private void insert(String key, Node<V> child) {
+
+            int mask = this.keys.length - 1;
+            int i = spread(key.hashCode()) & mask;
+            while (this.keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            this.keys[i] = key;
+            this.children[i] = child;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newArray(int capacity) {
+            return (Node<V>[]) new Node[capacity];
+        }
+
+        /**
+         * Same as the hash code of the substring, without creating it
+         */
+        private static int hash(String topic, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + topic.charAt(i);
+            }
+            return hash;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
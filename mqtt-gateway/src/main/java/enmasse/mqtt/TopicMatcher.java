@@ -6,19 +6,19 @@
 package enmasse.mqtt;
 
 import java.util.List;
-import java.util.regex.Pattern;
 
 /**
  * Provides matching feature between "wildcarded" topics (for subscription)
  * with a fixed topic (for publishing)
+ *
+ * The topics are compared level by level : "+" matches a single non empty level, while "#" matches all
+ * the remaining levels, of which there must be at least one
  */
 public class TopicMatcher {
 
-    private static final String PLUS_WILDCARD = "\\+";
-    private static final String SHARP_WILDCARD = "#";
-
-    private static final String PLUS_WILDCARD_REPLACE = "[^/]\\+";
-    private static final String SHARP_WILDCARD_REPLACE = ".*";
+    private static final char SEPARATOR = '/';
+    private static final char PLUS_WILDCARD = '+';
+    private static final char SHARP_WILDCARD = '#';
 
     /**
      * Verify if the topic matches the "wildcarded" topic provided
@@ -29,12 +29,44 @@ public class TopicMatcher {
      */
     public static boolean isMatch(String wildcardedTopic, String topic) {
 
-        String topicReplaced =
-                wildcardedTopic.replaceAll(PLUS_WILDCARD, PLUS_WILDCARD_REPLACE).replaceAll(SHARP_WILDCARD, SHARP_WILDCARD_REPLACE);
+        // start of the current level in both topics, past the end when there are no levels left
+        int wildcardedStart = 0;
+        int topicStart = 0;
+
+        while (wildcardedStart <= wildcardedTopic.length()) {
+
+            int wildcardedEnd = levelEnd(wildcardedTopic, wildcardedStart);
+            int wildcardedLength = wildcardedEnd - wildcardedStart;
+
+            if (wildcardedLength == 1 && wildcardedTopic.charAt(wildcardedStart) == SHARP_WILDCARD) {
+                return topicStart <= topic.length();
+            }
+            if (topicStart > topic.length()) {
+                return false;
+            }
+
+            int topicEnd = levelEnd(topic, topicStart);
+            int topicLength = topicEnd - topicStart;
+
+            if (wildcardedLength == 1 && wildcardedTopic.charAt(wildcardedStart) == PLUS_WILDCARD) {
+                if (topicLength == 0) {
+                    return false;
+                }
+            } else if (wildcardedLength != topicLength ||
+                    !wildcardedTopic.regionMatches(wildcardedStart, topic, topicStart, topicLength)) {
+                return false;
+            }
+
+            wildcardedStart = wildcardedEnd + 1;
+            topicStart = topicEnd + 1;
+        }
 
-        Pattern pattern = Pattern.compile(topicReplaced);
+        return topicStart > topic.length();
+    }
 
-        return pattern.matcher(topic).matches();
+    private static int levelEnd(String topic, int start) {
+        int end = topic.indexOf(SEPARATOR, start);
+        return (end < 0) ? topic.length() : end;
     }
 
     /**
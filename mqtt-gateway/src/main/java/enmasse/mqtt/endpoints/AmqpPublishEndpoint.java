@@ -19,10 +19,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Publisher endpoint
+ *
+ * The links for publishing on topics are kept in a cache bounded by size and idle time, the least recently
+ * used and the idle ones being detached when publishing. A publisher with messages not yet acknowledged or
+ * settled is never detached. With an anonymous relay publisher, all the topics are published on its links
+ * and the topic is carried only by the message address.
  */
 public class AmqpPublishEndpoint {
 
@@ -30,20 +38,63 @@ public class AmqpPublishEndpoint {
 
     public static final String AMQP_CLIENT_PUBREL_ENDPOINT_TEMPLATE = "$mqtt.%s.pubrel";
 
+    public static final int DEFAULT_MAX_PUBLISHERS = 100;
+    public static final long DEFAULT_PUBLISHER_IDLE_TIMEOUT = 300000; // in ms
+
     // all delivery for published messages if they need settlement (messageId -> delivery)
     private Map<Object, ProtonDelivery> deliveries;
-    // links for publishing message on topic (topic -> link/senders couple)
+    // publishers of the deliveries waiting for settlement (messageId -> publisher)
+    private Map<Object, AmqpPublisher> deliveryPublishers;
+    // links for publishing message on topic (topic -> link/senders couple), in least recently used order
     private Map<String, AmqpPublisher> publishers;
+    // links with no target address for publishing on all the topics, if any
+    private final AmqpPublisher relayPublisher;
     // sender for PUBREL messages
     private ProtonSender senderPubrel;
 
+    private int maxPublishers = DEFAULT_MAX_PUBLISHERS;
+    private long publisherIdleTimeout = TimeUnit.MILLISECONDS.toNanos(DEFAULT_PUBLISHER_IDLE_TIMEOUT);
+
     /**
      * Constructor
      *
      * @param senderPubrel  ProtonSender instance related to client PUBREL address
      */
     public AmqpPublishEndpoint(ProtonSender senderPubrel) {
+        this(senderPubrel, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param senderPubrel  ProtonSender instance related to client PUBREL address
+     * @param relayPublisher    publisher with anonymous relay links used for all the topics (null for a publisher per topic)
+     */
+    public AmqpPublishEndpoint(ProtonSender senderPubrel, AmqpPublisher relayPublisher) {
         this.senderPubrel = senderPubrel;
+        this.relayPublisher = relayPublisher;
+    }
+
+    /**
+     * Set the maximum number of topic publishers kept attached
+     *
+     * @param maxPublishers maximum number of publishers
+     * @return  current AmqpPublishEndpoint instance
+     */
+    public AmqpPublishEndpoint setMaxPublishers(int maxPublishers) {
+        this.maxPublishers = maxPublishers;
+        return this;
+    }
+
+    /**
+     * Set the time after which a topic publisher not used is detached
+     *
+     * @param publisherIdleTimeout  idle time in ms
+     * @return  current AmqpPublishEndpoint instance
+     */
+    public AmqpPublishEndpoint setPublisherIdleTimeout(long publisherIdleTimeout) {
+        this.publisherIdleTimeout = TimeUnit.MILLISECONDS.toNanos(publisherIdleTimeout);
+        return this;
     }
 
     /**
@@ -52,7 +103,18 @@ public class AmqpPublishEndpoint {
     public void open() {
 
         this.deliveries = new HashMap<>();
-        this.publishers = new HashMap<>();
+        this.deliveryPublishers = new HashMap<>();
+        this.publishers = new LinkedHashMap<>(16, 0.75f, true);
+
+        // attach the relay links up front, so that no publish waits for a link attach
+        if (this.relayPublisher != null) {
+
+            this.relayPublisher.senderQoS01()
+                    .setQoS(ProtonQoS.AT_LEAST_ONCE)
+                    .open();
+            this.relayPublisher.senderQoS2()
+                    .open();
+        }
     }
 
     /**
@@ -63,7 +125,7 @@ public class AmqpPublishEndpoint {
      */
     public boolean isPublisher(String topic) {
 
-        return this.publishers.containsKey(topic);
+        return (this.relayPublisher != null) || this.publishers.containsKey(topic);
     }
 
     /**
@@ -77,7 +139,41 @@ public class AmqpPublishEndpoint {
         if (this.publishers.containsKey(topic)) {
             throw new IllegalStateException(String.format("AMQP publisher for %s already exists !", topic));
         }
+        amqpPublisher.touch(System.nanoTime());
         this.publishers.put(topic, amqpPublisher);
+        this.evictPublishers(amqpPublisher, amqpPublisher.lastUsed());
+    }
+
+    /**
+     * Detach the least recently used publishers above the maximum and the idle ones,
+     * skipping the publishers with messages in flight
+     *
+     * @param current   publisher currently used, never detached
+     * @param now   current time (System.nanoTime)
+     */
+    private void evictPublishers(AmqpPublisher current, long now) {
+
+        int excess = this.publishers.size() - this.maxPublishers;
+        Iterator<Map.Entry<String, AmqpPublisher>> iterator = this.publishers.entrySet().iterator();
+        while (iterator.hasNext()) {
+
+            Map.Entry<String, AmqpPublisher> entry = iterator.next();
+            AmqpPublisher publisher = entry.getValue();
+
+            boolean idle = (now - publisher.lastUsed()) >= this.publisherIdleTimeout;
+            if (excess <= 0 && !idle) {
+                // publishers are in least recently used order, so the next ones aren't idle either
+                break;
+            }
+
+            if (publisher != current && !publisher.isInFlight()) {
+
+                LOG.debug("Detaching publisher on {}", entry.getKey());
+                publisher.close();
+                iterator.remove();
+                excess--;
+            }
+        }
     }
 
     /**
@@ -89,7 +185,15 @@ public class AmqpPublishEndpoint {
 
         // send AMQP_PUBLISH message
 
-        AmqpPublisher publisher = this.publishers.get(amqpPublishMessage.topic());
+        AmqpPublisher publisher;
+        if (this.relayPublisher != null) {
+            publisher = this.relayPublisher;
+        } else {
+            publisher = this.publishers.get(amqpPublishMessage.topic());
+            long now = System.nanoTime();
+            publisher.touch(now);
+            this.evictPublishers(publisher, now);
+        }
 
         // use sender for QoS 0/1 messages
         if (amqpPublishMessage.qos() != MqttQoS.EXACTLY_ONCE) {
@@ -100,8 +204,6 @@ public class AmqpPublishEndpoint {
                 publisher.senderQoS01()
                         .setQoS(ProtonQoS.AT_LEAST_ONCE)
                         .open();
-
-                // TODO: think about starting a timer for inactivity on this link for detaching ?
             }
 
             if (amqpPublishMessage.qos() == MqttQoS.AT_MOST_ONCE) {
@@ -111,10 +213,12 @@ public class AmqpPublishEndpoint {
 
             } else {
 
+                publisher.inFlightStarted();
                 publisher.senderQoS01().send(amqpPublishMessage.toAmqp(), delivery -> {
 
+                    publisher.inFlightEnded();
                     if (delivery.getRemoteState() == Accepted.getInstance()) {
-                        LOG.info("AMQP publish delivery {}", delivery.getRemoteState());
+                        LOG.debug("AMQP publish delivery {}", delivery.getRemoteState());
                         handler.handle(Future.succeededFuture(delivery));
                     } else {
                         handler.handle(Future.failedFuture(String.format("AMQP publish delivery %s", delivery.getRemoteState())));
@@ -132,22 +236,25 @@ public class AmqpPublishEndpoint {
                 publisher.senderQoS2()
                         // TODO: Vert.x Proton doesn't support EXACTLY_ONCE
                         .open();
-
-                // TODO: think about starting a timer for inactivity on this link for detaching ?
             }
 
+            publisher.inFlightStarted();
             publisher.senderQoS2().send(amqpPublishMessage.toAmqp(), delivery -> {
 
                 if (delivery.getRemoteState() == Accepted.getInstance()) {
-                    LOG.info("AMQP publish delivery {}", delivery.getRemoteState());
+                    LOG.debug("AMQP publish delivery {}", delivery.getRemoteState());
 
                     // received disposition not settled, store for future settlement
                     if (!delivery.remotelySettled()) {
                         this.deliveries.put(amqpPublishMessage.messageId(), delivery);
+                        this.deliveryPublishers.put(amqpPublishMessage.messageId(), publisher);
+                    } else {
+                        publisher.inFlightEnded();
                     }
 
                     handler.handle(Future.succeededFuture(delivery));
                 } else {
+                    publisher.inFlightEnded();
                     handler.handle(Future.failedFuture(String.format("AMQP publish delivery %s", delivery.getRemoteState())));
                 }
             });
@@ -176,7 +283,7 @@ public class AmqpPublishEndpoint {
         this.senderPubrel.send(amqpPubrelMessage.toAmqp(), delivery -> {
 
             if (delivery.getRemoteState() == Accepted.getInstance()) {
-                LOG.info("AMQP pubrel delivery {}", delivery.getRemoteState());
+                LOG.debug("AMQP pubrel delivery {}", delivery.getRemoteState());
                 handler.handle(Future.succeededFuture(delivery));
             } else {
                 handler.handle(Future.failedFuture(String.format("AMQP pubrel delivery %s", delivery.getRemoteState())));
@@ -199,12 +306,17 @@ public class AmqpPublishEndpoint {
             }
         }
 
+        if (this.relayPublisher != null && this.relayPublisher.isOpen()) {
+            this.relayPublisher.close();
+        }
+
         if (this.senderPubrel.isOpen()) {
             this.senderPubrel.close();
         }
 
         this.publishers.clear();
         this.deliveries.clear();
+        this.deliveryPublishers.clear();
     }
 
     /**
@@ -217,6 +329,7 @@ public class AmqpPublishEndpoint {
         if (this.deliveries.containsKey(messageId)) {
             ProtonDelivery delivery = this.deliveries.remove(messageId);
             delivery.disposition(Accepted.getInstance(), true);
+            this.deliveryPublishers.remove(messageId).inFlightEnded();
         }
     }
 }
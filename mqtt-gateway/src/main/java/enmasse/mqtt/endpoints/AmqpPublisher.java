@@ -15,6 +15,11 @@ public class AmqpPublisher {
     private final ProtonSender senderQoS01;
     private final ProtonSender senderQoS2;
 
+    // messages sent and not yet acknowledged or settled, the publisher can't be evicted until they are
+    private int inFlight;
+    // last time (System.nanoTime) the publisher was used for publishing
+    private long lastUsed;
+
     /**
      * Constructor
      *
@@ -49,6 +54,34 @@ public class AmqpPublisher {
         return (this.senderQoS01.isOpen() || this.senderQoS2.isOpen());
     }
 
+    /**
+     * If the publisher has messages not yet acknowledged or settled
+     * @return
+     */
+    boolean isInFlight() {
+        return this.inFlight > 0;
+    }
+
+    void inFlightStarted() {
+        this.inFlight++;
+    }
+
+    void inFlightEnded() {
+        this.inFlight--;
+    }
+
+    /**
+     * Last time (System.nanoTime) the publisher was used for publishing
+     * @return
+     */
+    long lastUsed() {
+        return this.lastUsed;
+    }
+
+    void touch(long now) {
+        this.lastUsed = now;
+    }
+
     /**
      * ProtonSender instance related to the publishing address for QoS 0 and 1
      * @return
@@ -94,7 +94,7 @@ public class AmqpReceiverEndpoint {
      */
     private void messageHandler(ProtonDelivery delivery, Message message) {
 
-        LOG.info("Received {}", message);
+        LOG.debug("Received {}", message);
 
         // messages without subject are just AMQP_PUBLISH messages
         if (message.getSubject() == null) {
@@ -188,7 +188,7 @@ public class AmqpReceiverEndpoint {
         if (this.deliveries.containsKey(messageId)) {
             ProtonDelivery delivery = this.deliveries.remove(messageId);
             delivery.disposition(Accepted.getInstance(), true);
-            LOG.info("AMQP message [{}] settled", messageId);
+            LOG.debug("AMQP message [{}] settled", messageId);
         }
     }
 
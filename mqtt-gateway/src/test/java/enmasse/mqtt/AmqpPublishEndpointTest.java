@@ -0,0 +1,211 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package enmasse.mqtt;
+
+import enmasse.mqtt.endpoints.AmqpPublishEndpoint;
+import enmasse.mqtt.endpoints.AmqpPublisher;
+import enmasse.mqtt.messages.AmqpPublishMessage;
+import io.enmasse.amqp.DispatchRouterJ;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.proton.ProtonClient;
+import io.vertx.proton.ProtonConnection;
+import io.vertx.proton.ProtonReceiver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Tests related to the cache of publishers and the anonymous relay of the publish endpoint
+ */
+@RunWith(VertxUnitRunner.class)
+public class AmqpPublishEndpointTest {
+
+    private static final String MQTT_MESSAGE = "Hello MQTT on EnMasse";
+
+    private Vertx vertx;
+    private DispatchRouterJ router;
+    // publishers added to the endpoint by the tests
+    private Map<String, AmqpPublisher> publishers;
+
+    @Before
+    public void before(TestContext context) {
+
+        this.vertx = Vertx.vertx();
+        this.router = new DispatchRouterJ(null);
+        this.publishers = new HashMap<>();
+        this.vertx.deployVerticle(this.router, context.asyncAssertSuccess());
+    }
+
+    @After
+    public void after(TestContext context) {
+
+        this.vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void leastRecentlyUsedEvicted(TestContext context) {
+
+        Async async = context.async();
+
+        this.connect(context, connection -> {
+
+            AmqpPublishEndpoint endpoint = new AmqpPublishEndpoint(connection.createSender("pubrel"))
+                    .setMaxPublishers(2);
+            endpoint.open();
+
+            AmqpPublisher t1 = this.publish(connection, endpoint, "t1", MqttQoS.AT_MOST_ONCE);
+            this.publish(connection, endpoint, "t2", MqttQoS.AT_MOST_ONCE);
+            this.publish(connection, endpoint, "t1", MqttQoS.AT_MOST_ONCE);
+            AmqpPublisher t2 = this.publish(connection, endpoint, "t2", MqttQoS.AT_MOST_ONCE);
+            this.publish(connection, endpoint, "t3", MqttQoS.AT_MOST_ONCE);
+
+            // t1 is the least recently used
+            context.assertFalse(endpoint.isPublisher("t1"));
+            context.assertFalse(t1.isOpen());
+            context.assertTrue(endpoint.isPublisher("t2"));
+            context.assertTrue(t2.isOpen());
+            context.assertTrue(endpoint.isPublisher("t3"));
+
+            endpoint.close();
+            async.complete();
+        });
+    }
+
+    @Test
+    public void idleEvicted(TestContext context) {
+
+        Async async = context.async();
+
+        this.connect(context, connection -> {
+
+            AmqpPublishEndpoint endpoint = new AmqpPublishEndpoint(connection.createSender("pubrel"))
+                    .setPublisherIdleTimeout(100);
+            endpoint.open();
+
+            this.publish(connection, endpoint, "t1", MqttQoS.AT_MOST_ONCE);
+            this.publish(connection, endpoint, "t2", MqttQoS.AT_MOST_ONCE);
+
+            this.vertx.setTimer(50, t -> {
+
+                this.publish(connection, endpoint, "t2", MqttQoS.AT_MOST_ONCE);
+
+                this.vertx.setTimer(75, t2 -> {
+
+                    this.publish(connection, endpoint, "t3", MqttQoS.AT_MOST_ONCE);
+
+                    // only t1 has been idle for more than 100 ms
+                    context.assertFalse(endpoint.isPublisher("t1"));
+                    context.assertTrue(endpoint.isPublisher("t2"));
+                    context.assertTrue(endpoint.isPublisher("t3"));
+
+                    endpoint.close();
+                    async.complete();
+                });
+            });
+        });
+    }
+
+    @Test
+    public void inFlightNotEvicted(TestContext context) {
+
+        Async async = context.async();
+
+        this.connect(context, connection -> {
+
+            // consumer without credit, so that the message published on t1 stays unacknowledged
+            ProtonReceiver consumer = connection.createReceiver("t1").setPrefetch(0);
+            consumer.handler((delivery, message) -> { }).openHandler(context.asyncAssertSuccess(c -> {
+
+                AmqpPublishEndpoint endpoint = new AmqpPublishEndpoint(connection.createSender("pubrel"))
+                        .setMaxPublishers(1);
+                endpoint.open();
+
+                endpoint.addPublisher("t1", new AmqpPublisher(connection.createSender("t1"), connection.createSender("t1")));
+                endpoint.publish(message("t1", MqttQoS.AT_LEAST_ONCE), context.asyncAssertSuccess(delivery -> {
+
+                    // acknowledged, so t1 is evicted on the next publish
+                    this.publish(connection, endpoint, "t2", MqttQoS.AT_MOST_ONCE);
+                    context.assertFalse(endpoint.isPublisher("t1"));
+
+                    endpoint.close();
+                    async.complete();
+                }));
+
+                this.publish(connection, endpoint, "t2", MqttQoS.AT_MOST_ONCE);
+                context.assertTrue(endpoint.isPublisher("t1"));
+
+                consumer.flow(1);
+            })).open();
+        });
+    }
+
+    @Test
+    public void anonymousRelay(TestContext context) {
+
+        Async received = context.async(2);
+        Async async = context.async();
+
+        this.connect(context, connection -> {
+
+            Async attached = context.async(2);
+            for (String topic : new String[] { "t1", "t2" }) {
+                connection.createReceiver(topic)
+                        .handler((delivery, message) -> {
+                            context.assertEquals(topic, message.getAddress());
+                            received.countDown();
+                        })
+                        .openHandler(context.asyncAssertSuccess(c -> attached.countDown()))
+                        .open();
+            }
+
+            AmqpPublisher relayPublisher = new AmqpPublisher(connection.createSender(null), connection.createSender(null));
+            AmqpPublishEndpoint endpoint = new AmqpPublishEndpoint(connection.createSender("pubrel"), relayPublisher);
+            endpoint.open();
+
+            // the relay links are attached up front and used for all the topics
+            context.assertTrue(relayPublisher.isOpen());
+            context.assertTrue(endpoint.isPublisher("t1"));
+
+            attached.handler(done -> {
+                endpoint.publish(message("t1", MqttQoS.AT_LEAST_ONCE), context.asyncAssertSuccess());
+                endpoint.publish(message("t2", MqttQoS.AT_LEAST_ONCE), context.asyncAssertSuccess(delivery -> async.complete()));
+            });
+        });
+    }
+
+    private void connect(TestContext context, Consumer<ProtonConnection> connectionConsumer) {
+
+        ProtonClient.create(this.vertx).connect("localhost", this.router.getNormalPort(), context.asyncAssertSuccess(connection -> {
+            connection.open();
+            connectionConsumer.accept(connection);
+        }));
+    }
+
+    private AmqpPublisher publish(ProtonConnection connection, AmqpPublishEndpoint endpoint, String topic, MqttQoS qos) {
+
+        if (!endpoint.isPublisher(topic)) {
+            this.publishers.put(topic, new AmqpPublisher(connection.createSender(topic), connection.createSender(topic)));
+            endpoint.addPublisher(topic, this.publishers.get(topic));
+        }
+        endpoint.publish(message(topic, qos), done -> { });
+        return this.publishers.get(topic);
+    }
+
+    private static AmqpPublishMessage message(String topic, MqttQoS qos) {
+
+        return new AmqpPublishMessage(1, qos, false, false, topic, Buffer.buffer(MQTT_MESSAGE));
+    }
+}
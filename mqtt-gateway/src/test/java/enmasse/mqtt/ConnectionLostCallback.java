@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package enmasse.mqtt;
+
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Completes when the connection is lost
+ */
+class ConnectionLostCallback implements MqttCallback {
+
+    private final CountDownLatch lost;
+
+    ConnectionLostCallback(CountDownLatch lost) {
+        this.lost = lost;
+    }
+
+    @Override
+    public void connectionLost(Throwable cause) {
+        this.lost.countDown();
+    }
+
+    @Override
+    public void messageArrived(String topic, MqttMessage message) throws Exception {
+    }
+
+    @Override
+    public void deliveryComplete(IMqttDeliveryToken token) {
+    }
+}
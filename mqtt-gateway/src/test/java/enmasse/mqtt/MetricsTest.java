@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package enmasse.mqtt;
+
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests related to the gateway metrics
+ */
+@RunWith(VertxUnitRunner.class)
+public class MetricsTest extends MockMqttGatewayTestBase {
+
+    private static final String MQTT_TOPIC = "mytopic";
+    private static final String MQTT_MESSAGE = "Hello MQTT on EnMasse";
+    private static final String PUBLISHER_ID = "my_publisher_id";
+
+    @Before
+    public void before(TestContext context) {
+        super.setup(context, false);
+    }
+
+    @After
+    public void after(TestContext context) {
+        super.tearDown(context);
+    }
+
+    @Test
+    public void publishMetrics(TestContext context) throws Exception {
+
+        MqttGatewayMetrics metrics = this.mqttGateway.getMetrics();
+
+        MqttClient client = new MqttClient(String.format("tcp://%s:%d", MQTT_BIND_ADDRESS, MQTT_LISTEN_PORT), PUBLISHER_ID, new MemoryPersistence());
+        client.connect();
+        // the bridge is counted before the CONNACK is sent
+        context.assertEquals(1L, metrics.getActiveBridges());
+
+        // the QoS 1 publish returns on PUBACK, so the QoS 0 one sent before has been handled too
+        client.publish(MQTT_TOPIC, MQTT_MESSAGE.getBytes(), 0, false);
+        client.publish(MQTT_TOPIC, MQTT_MESSAGE.getBytes(), 1, false);
+
+        context.assertEquals(1L, metrics.getMessagesReceived(MqttQoS.AT_MOST_ONCE));
+        context.assertEquals(1L, metrics.getMessagesReceived(MqttQoS.AT_LEAST_ONCE));
+        context.assertEquals(0L, metrics.getInFlight(MqttQoS.AT_LEAST_ONCE));
+
+        StringBuilder prometheus = new StringBuilder();
+        metrics.writePrometheus(prometheus);
+        String text = prometheus.toString();
+        context.assertTrue(text.contains("mqtt_gateway_messages_received_total{qos=\"1\"} 1\n"));
+        context.assertTrue(text.contains("mqtt_gateway_bytes_received_total " + (2 * MQTT_MESSAGE.length()) + "\n"));
+        context.assertTrue(text.contains("mqtt_gateway_publish_settle_seconds_count 1\n"));
+        context.assertTrue(text.contains("mqtt_gateway_bridge_open_seconds_count 1\n"));
+
+        client.disconnect();
+        for (int i = 0; i < 50 && metrics.getActiveBridges() > 0; i++) {
+            Thread.sleep(100);
+        }
+        context.assertEquals(0L, metrics.getActiveBridges());
+    }
+}
@@ -51,6 +51,17 @@ public abstract class MockMqttGatewayTestBase {
      * @param ssl   if SSL/TLS support is needed
      */
     protected void setup(TestContext context, boolean ssl) {
+        this.setup(context, ssl, 0);
+    }
+
+    /**
+     * Setup the MQTT gateway test base
+     *
+     * @param context   test context
+     * @param ssl   if SSL/TLS support is needed
+     * @param connectionPoolSize    number of AMQP connections shared by the MQTT clients (0 for a connection per client)
+     */
+    protected void setup(TestContext context, boolean ssl, int connectionPoolSize) {
 
         this.vertx = Vertx.vertx();
 
@@ -69,7 +80,8 @@ public abstract class MockMqttGatewayTestBase {
                 .setBindAddress(MQTT_BIND_ADDRESS)
                 .setListenPort(port)
                 .setMessagingServiceHost(MESSAGING_SERVICE_HOST)
-                .setMessagingServicePort(router.getNormalPort());
+                .setMessagingServicePort(router.getNormalPort())
+                .setConnectionPoolSize(connectionPoolSize);
 
         if (ssl) {
             this.mqttGateway
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package enmasse.mqtt;
+
+import ch.qos.logback.classic.Level;
+import enmasse.mqtt.mocks.MockBroker;
+import enmasse.mqtt.mocks.MockLwtService;
+import enmasse.mqtt.mocks.MockSubscriptionService;
+import io.enmasse.amqp.DispatchRouterJ;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Verticle;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.mqtt.MqttClient;
+import io.vertx.mqtt.MqttClientOptions;
+import io.vertx.proton.ProtonClient;
+import io.vertx.proton.ProtonConnection;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the connection and the QoS 1 publish throughput of the MQTT gateway with an increasing number
+ * of verticle instances, each instance having its own event loop, up to the number of available processors.
+ *
+ * The mocked messaging service runs on its own event loops, which bounds the throughput as well,
+ * so the numbers are only meaningful compared to each other.
+ *
+ * Not run as part of the tests. Run the main method with the test classpath,
+ * optionally passing the number of clients and the number of messages per client.
+ */
+public class MqttGatewayScalingBenchmark {
+
+    private static final String MQTT_BIND_ADDRESS = "localhost";
+    private static final int MQTT_LISTEN_PORT = 1884;
+    private static final String MQTT_TOPIC = "benchmark";
+    private static final Buffer MQTT_MESSAGE = Buffer.buffer("Hello MQTT on EnMasse");
+
+    // QoS 1 messages published by a client without waiting for the PUBACK
+    private static final int PUBLISH_WINDOW = 10;
+    private static final long TIMEOUT = 300;
+
+    private final int numClients;
+    private final int numMessages;
+
+    public MqttGatewayScalingBenchmark(int numClients, int numMessages) {
+        this.numClients = numClients;
+        this.numMessages = numMessages;
+    }
+
+    /**
+     * Run the benchmark with the given number of MQTT gateway instances
+     *
+     * @param instances number of MQTT gateway verticle instances
+     * @param report    if the throughput is printed, not for warming up
+     * @throws Exception
+     */
+    public void run(int instances, boolean report) throws Exception {
+
+        Vertx service = Vertx.vertx();
+        Vertx gateway = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(instances));
+        Vertx clients = Vertx.vertx();
+
+        try {
+
+            DispatchRouterJ router = new DispatchRouterJ(null);
+            router.addLinkRoute("$lwt", "lwt-service");
+            deploy(service, router);
+
+            deploy(service, new MockBroker()
+                    .setInternalServiceHost(MQTT_BIND_ADDRESS)
+                    .setInternalServicePort(router.getRouteContainerPort()));
+            deploy(service, new MockLwtService()
+                    .setInternalServiceHost(MQTT_BIND_ADDRESS)
+                    .setInternalServicePort(router.getRouteContainerPort()));
+            deploy(service, new MockSubscriptionService()
+                    .setInternalServiceHost(MQTT_BIND_ADDRESS)
+                    .setInternalServicePort(router.getRouteContainerPort()));
+
+            // the published messages are routed to a consumer accepting them, not link routed to the broker,
+            // as the router would attach the links of all the clients with the same names on the broker connection
+            this.attachConsumer(service, router.getNormalPort());
+
+            MqttGatewayMetrics metrics = new MqttGatewayMetrics();
+            AmqpBridgeRegistry bridgeRegistry = new AmqpBridgeRegistry();
+            for (int i = 0; i < instances; i++) {
+                deploy(gateway, new MqttGateway()
+                        .setBindAddress(MQTT_BIND_ADDRESS)
+                        .setListenPort(MQTT_LISTEN_PORT)
+                        .setMessagingServiceHost(MQTT_BIND_ADDRESS)
+                        .setMessagingServicePort(router.getNormalPort())
+                        .setMaxPublishers(100)
+                        .setPublisherIdleTimeout(300)
+                        .setMetrics(metrics)
+                        .setBridgeRegistry(bridgeRegistry));
+            }
+
+            long start = System.nanoTime();
+            List<MqttClient> connected = this.connect(clients);
+            double connectSeconds = (System.nanoTime() - start) / 1e9;
+
+            start = System.nanoTime();
+            this.publish(clients, connected);
+            double publishSeconds = (System.nanoTime() - start) / 1e9;
+
+            if (report) {
+                System.out.printf("%9d %12.0f %14.0f%n", instances,
+                        this.numClients / connectSeconds, ((long) this.numClients * this.numMessages) / publishSeconds);
+            }
+
+            connected.forEach(MqttClient::disconnect);
+
+        } finally {
+            close(clients);
+            close(gateway);
+            close(service);
+        }
+    }
+
+    /**
+     * Attach a consumer accepting the messages published on the topic
+     *
+     * @param vertx Vert.x instance running the consumer
+     * @param port  router port
+     */
+    private void attachConsumer(Vertx vertx, int port) throws Exception {
+
+        CompletableFuture<Void> attached = new CompletableFuture<>();
+        ProtonClient.create(vertx).connect(MQTT_BIND_ADDRESS, port, ar -> {
+            if (ar.succeeded()) {
+                ProtonConnection connection = ar.result().open();
+                connection.createReceiver(MQTT_TOPIC)
+                        .handler((delivery, message) -> { })
+                        .openHandler(done -> attached.complete(null))
+                        .open();
+            } else {
+                attached.completeExceptionally(ar.cause());
+            }
+        });
+        attached.get(TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Connect all the clients at once
+     *
+     * @param vertx Vert.x instance running the clients
+     * @return  connected clients
+     */
+    private List<MqttClient> connect(Vertx vertx) throws Exception {
+
+        List<MqttClient> clients = new ArrayList<>();
+        List<Future> connected = new ArrayList<>();
+
+        for (int i = 0; i < this.numClients; i++) {
+
+            MqttClient client = MqttClient.create(vertx, new MqttClientOptions()
+                    .setClientId("client-" + i)
+                    .setMaxInflightQueue(PUBLISH_WINDOW));
+            clients.add(client);
+
+            Future<Void> done = Future.future();
+            connected.add(done);
+            vertx.runOnContext(v -> client.connect(MQTT_LISTEN_PORT, MQTT_BIND_ADDRESS, ar -> {
+                if (ar.succeeded()) {
+                    done.complete();
+                } else {
+                    done.fail(ar.cause());
+                }
+            }));
+        }
+
+        await(CompositeFuture.all(connected));
+        return clients;
+    }
+
+    /**
+     * Publish the messages of all the clients at once, each client keeping a window of unacknowledged messages
+     *
+     * @param vertx Vert.x instance running the clients
+     * @param clients   connected clients
+     */
+    private void publish(Vertx vertx, List<MqttClient> clients) throws Exception {
+
+        List<Future> published = clients.stream().map(client -> {
+
+            Future<Void> done = Future.future();
+            int[] sent = new int[1];
+            int[] acknowledged = new int[1];
+
+            client.publishCompletionHandler(messageId -> {
+                if (++acknowledged[0] == this.numMessages) {
+                    done.complete();
+                } else if (sent[0] < this.numMessages) {
+                    sent[0]++;
+                    client.publish(MQTT_TOPIC, MQTT_MESSAGE, MqttQoS.AT_LEAST_ONCE, false, false);
+                }
+            });
+
+            vertx.runOnContext(v -> {
+                while (sent[0] < Math.min(PUBLISH_WINDOW, this.numMessages)) {
+                    sent[0]++;
+                    client.publish(MQTT_TOPIC, MQTT_MESSAGE, MqttQoS.AT_LEAST_ONCE, false, false);
+                }
+            });
+            return done;
+
+        }).collect(Collectors.toList());
+
+        await(CompositeFuture.all(published));
+    }
+
+    private static void deploy(Vertx vertx, Verticle verticle) throws Exception {
+
+        CompletableFuture<String> deployed = new CompletableFuture<>();
+        vertx.deployVerticle(verticle, ar -> {
+            if (ar.succeeded()) {
+                deployed.complete(ar.result());
+            } else {
+                deployed.completeExceptionally(ar.cause());
+            }
+        });
+        deployed.get(TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    private static void await(CompositeFuture future) throws Exception {
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        future.setHandler(ar -> {
+            if (ar.succeeded()) {
+                done.complete(null);
+            } else {
+                done.completeExceptionally(ar.cause());
+            }
+        });
+        done.get(TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    private static void close(Vertx vertx) throws Exception {
+
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        vertx.close(ar -> closed.complete(null));
+        closed.get(TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        // logging every connection and message would be measured as well
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.ERROR);
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("enmasse.mqtt")).setLevel(Level.ERROR);
+        java.util.logging.Logger.getLogger("io.vertx").setLevel(java.util.logging.Level.WARNING);
+
+        int numClients = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int numMessages = (args.length > 1) ? Integer.parseInt(args[1]) : 500;
+        MqttGatewayScalingBenchmark benchmark = new MqttGatewayScalingBenchmark(numClients, numMessages);
+
+        benchmark.run(1, false);
+
+        System.out.printf("%d clients, %d QoS 1 messages per client%n", numClients, numMessages);
+        System.out.printf("%9s %12s %14s%n", "instances", "connects/s", "messages/s");
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int instances = 1; instances <= processors; instances *= 2) {
+            benchmark.run(instances, true);
+        }
+        if (Integer.bitCount(processors) != 1) {
+            benchmark.run(processors, true);
+        }
+    }
+}
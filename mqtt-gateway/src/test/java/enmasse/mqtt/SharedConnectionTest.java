@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package enmasse.mqtt;
+
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.proton.ProtonConnection;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tests related to MQTT clients sharing pooled AMQP connections
+ */
+@RunWith(VertxUnitRunner.class)
+public class SharedConnectionTest extends MockMqttGatewayTestBase {
+
+    private static final String MQTT_TOPIC = "mytopic";
+    private static final String MQTT_MESSAGE = "Hello MQTT on EnMasse";
+    private static final String SUBSCRIBER_ID = "my_subscriber_id";
+    private static final String PUBLISHER_ID = "my_publisher_id";
+
+    @Before
+    public void before(TestContext context) {
+        super.setup(context, false, 1);
+    }
+
+    @After
+    public void after(TestContext context) {
+        super.tearDown(context);
+    }
+
+    @Test
+    public void subscribeAndWaitPublished(TestContext context) {
+
+        Async async = context.async();
+
+        try {
+
+            MemoryPersistence subscriberPersistence = new MemoryPersistence();
+            MqttClient subscriber = new MqttClient(String.format("tcp://%s:%d", MQTT_BIND_ADDRESS, MQTT_LISTEN_PORT), SUBSCRIBER_ID, subscriberPersistence);
+            subscriber.connect();
+
+            subscriber.subscribe(MQTT_TOPIC, 1, (topic, message) -> {
+
+                LOG.info("topic: {} message: {}", topic, message);
+                async.complete();
+            });
+
+            MemoryPersistence publisherPersistence = new MemoryPersistence();
+            MqttClient publisher = new MqttClient(String.format("tcp://%s:%d", MQTT_BIND_ADDRESS, MQTT_LISTEN_PORT), PUBLISHER_ID, publisherPersistence);
+            publisher.connect();
+
+            publisher.publish(MQTT_TOPIC, MQTT_MESSAGE.getBytes(), 1, false);
+
+            async.await();
+
+            // both clients use their own session on the single pooled connection to the router
+            context.assertEquals(1, this.router.getNumClientConnections());
+
+            // closing a client only ends its session, the other client still uses the shared connection
+            publisher.disconnect();
+
+            subscriber.unsubscribe(MQTT_TOPIC);
+            subscriber.disconnect();
+
+        } catch (MqttException e) {
+
+            context.assertTrue(false);
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    public void sharedConnectionLost(TestContext context) throws Exception {
+
+        List<MqttClient> clients = new ArrayList<>();
+        CountDownLatch lost = new CountDownLatch(2);
+        for (String clientId : Arrays.asList(SUBSCRIBER_ID, PUBLISHER_ID)) {
+
+            MqttClient client = new MqttClient(String.format("tcp://%s:%d", MQTT_BIND_ADDRESS, MQTT_LISTEN_PORT), clientId, new MemoryPersistence());
+            client.setCallback(new ConnectionLostCallback(lost));
+            client.connect();
+            clients.add(client);
+        }
+        context.assertEquals(1, this.router.getNumClientConnections());
+
+        // stopping the router closes the pooled connection, so the MQTT connections of all the bridges sharing it
+        Async undeployed = context.async();
+        this.vertx.undeploy(this.router.deploymentID(), context.asyncAssertSuccess(v -> undeployed.complete()));
+        undeployed.awaitSuccess();
+
+        context.assertTrue(lost.await(10, TimeUnit.SECONDS));
+        for (MqttClient client : clients) {
+            context.assertFalse(client.isConnected());
+        }
+    }
+
+    @Test
+    public void leasesSpreadOverPool(TestContext context) {
+
+        AmqpConnectionPool pool = new AmqpConnectionPool(this.vertx, MESSAGING_SERVICE_HOST, this.router.getNormalPort(), 2);
+        List<AmqpConnectionPool.Lease> leases = new ArrayList<>();
+
+        Async async = context.async(3);
+        this.vertx.runOnContext(v -> {
+            for (int i = 0; i < 3; i++) {
+                pool.acquire(lost -> context.fail("Connection lost"), context.asyncAssertSuccess(lease -> {
+                    leases.add(lease);
+                    async.countDown();
+                }));
+            }
+        });
+        async.awaitSuccess();
+
+        context.assertEquals(2, pool.openConnections());
+        // the third lease shares a connection with one of the first two
+        Map<ProtonConnection, Long> leasesPerConnection =
+                leases.stream().collect(Collectors.groupingBy(AmqpConnectionPool.Lease::connection, Collectors.counting()));
+        context.assertEquals(2, leasesPerConnection.size());
+        context.assertEquals(3L, leasesPerConnection.values().stream().mapToLong(Long::longValue).sum());
+
+        Async closed = context.async();
+        this.vertx.runOnContext(v -> {
+            leases.forEach(AmqpConnectionPool.Lease::release);
+            pool.close();
+            context.assertEquals(0, pool.openConnections());
+            closed.complete();
+        });
+    }
+}
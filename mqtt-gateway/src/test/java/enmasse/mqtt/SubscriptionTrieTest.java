@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package enmasse.mqtt;
+
+import io.netty.handler.codec.mqtt.MqttQoS;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BinaryOperator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests related to matching topics against the subscriptions trie
+ */
+public class SubscriptionTrieTest {
+
+    private static final BinaryOperator<MqttQoS> MAX_QOS = (qos1, qos2) -> (qos1.value() >= qos2.value()) ? qos1 : qos2;
+
+    @Test
+    public void testSameMatchesAsTopicMatcher() {
+
+        List<String> subTopics = Arrays.asList("mytopic/foo", "mytopic/#", "mytopic/+/bar", "mytopic/foo/+",
+                "mytopic/+/bar/+/foo", "#", "+", "+/+", "mytopic/", "/mytopic");
+        List<String> pubTopics = Arrays.asList("mytopic/foo", "mytopic/bar", "mytopic", "mytopic/", "mytopic/foo/bar",
+                "mytopic/another/bar", "mytopic//bar", "mytopic/a/bar/b/foo", "mytopic/a/bar/b/foo/c", "", "/", "/mytopic");
+
+        for (String subTopic : subTopics) {
+
+            SubscriptionTrie<String> trie = new SubscriptionTrie<>();
+            trie.put(subTopic, subTopic);
+
+            for (String pubTopic : pubTopics) {
+                assertEquals(subTopic + " with " + pubTopic,
+                        TopicMatcher.isMatch(subTopic, pubTopic), trie.match(pubTopic, (a, b) -> a) != null);
+            }
+        }
+    }
+
+    @Test
+    public void testOverlappingSubscriptions() {
+
+        SubscriptionTrie<MqttQoS> trie = new SubscriptionTrie<>();
+        trie.put("mytopic/foo", MqttQoS.AT_MOST_ONCE);
+        trie.put("mytopic/+", MqttQoS.EXACTLY_ONCE);
+        trie.put("mytopic/#", MqttQoS.AT_LEAST_ONCE);
+
+        assertEquals(MqttQoS.EXACTLY_ONCE, trie.match("mytopic/foo", MAX_QOS));
+        assertEquals(MqttQoS.AT_LEAST_ONCE, trie.match("mytopic/foo/bar", MAX_QOS));
+        assertNull(trie.match("another/foo", MAX_QOS));
+    }
+
+    @Test
+    public void testUnsubscribe() {
+
+        SubscriptionTrie<MqttQoS> trie = new SubscriptionTrie<>();
+        for (int i = 0; i < 100; i++) {
+            trie.put("mytopic/" + i + "/+", MqttQoS.AT_LEAST_ONCE);
+        }
+        trie.put("mytopic/#", MqttQoS.AT_MOST_ONCE);
+        assertEquals(101, trie.size());
+
+        assertEquals(MqttQoS.AT_LEAST_ONCE, trie.remove("mytopic/42/+"));
+        assertNull(trie.remove("mytopic/42/+"));
+        assertNull(trie.remove("mytopic/42"));
+        assertEquals(100, trie.size());
+
+        assertEquals(MqttQoS.AT_MOST_ONCE, trie.match("mytopic/42/foo", MAX_QOS));
+        assertEquals(MqttQoS.AT_LEAST_ONCE, trie.match("mytopic/43/foo", MAX_QOS));
+
+        assertEquals(MqttQoS.AT_MOST_ONCE, trie.remove("mytopic/#"));
+        assertNull(trie.match("mytopic/42/foo", MAX_QOS));
+        assertEquals(MqttQoS.AT_LEAST_ONCE, trie.match("mytopic/99/foo", MAX_QOS));
+
+        trie.clear();
+        assertEquals(0, trie.size());
+        assertNull(trie.match("mytopic/99/foo", MAX_QOS));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package enmasse.mqtt;
+
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttTopic;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests related to a client connecting again with the same client identifier,
+ * with two MQTT gateway instances sharing the listening port
+ */
+@RunWith(VertxUnitRunner.class)
+public class TakeOverTest extends MockMqttGatewayTestBase {
+
+    private static final String MQTT_TOPIC = "mytopic";
+    private static final String MQTT_MESSAGE = "Hello MQTT on EnMasse";
+    private static final String CLIENT_ID = "my_client_id";
+    private static final String MQTT_WILL_TOPIC = "will";
+    // the mock Last Will and Testament Service publishes the will of this client even on DISCONNECT
+    private static final String WILL_CLIENT_ID = "ignore-disconnect";
+    private static final String SUBSCRIBER_CLIENT_ID = "subscriber_id";
+
+    @Before
+    public void before(TestContext context) {
+        super.setup(context, false);
+
+        // second instance, accepting connections in turn with the first one
+        MqttGateway secondGateway = new MqttGateway()
+                .setBindAddress(MQTT_BIND_ADDRESS)
+                .setListenPort(MQTT_LISTEN_PORT)
+                .setMessagingServiceHost(MESSAGING_SERVICE_HOST)
+                .setMessagingServicePort(this.router.getNormalPort())
+                .setMetrics(this.mqttGateway.getMetrics())
+                .setBridgeRegistry(this.mqttGateway.getBridgeRegistry());
+
+        deployVerticle(secondGateway, context);
+    }
+
+    @After
+    public void after(TestContext context) {
+        super.tearDown(context);
+    }
+
+    @Test
+    public void takeOver(TestContext context) throws Exception {
+
+        List<MqttClient> clients = new ArrayList<>();
+        List<CountDownLatch> lost = new ArrayList<>();
+
+        // connections are spread over both instances, so clients are taken over on the same and on the other one
+        for (int i = 0; i < 4; i++) {
+
+            CountDownLatch latch = new CountDownLatch(1);
+            MqttClient client = new MqttClient(String.format("tcp://%s:%d", MQTT_BIND_ADDRESS, MQTT_LISTEN_PORT), CLIENT_ID, new MemoryPersistence());
+            client.setCallback(new ConnectionLostCallback(latch));
+            client.connect();
+
+            if (!clients.isEmpty()) {
+                // the previous connection is closed by the gateway
+                context.assertTrue(lost.get(lost.size() - 1).await(10, TimeUnit.SECONDS));
+            }
+            clients.add(client);
+            lost.add(latch);
+        }
+
+        MqttClient last = clients.get(clients.size() - 1);
+        context.assertTrue(last.isConnected());
+
+        // the taken over bridges are closed asynchronously, the last one is counted before its CONNACK
+        MqttGatewayMetrics metrics = this.mqttGateway.getMetrics();
+        for (int i = 0; i < 50 && metrics.getActiveBridges() != 1; i++) {
+            Thread.sleep(100);
+        }
+        context.assertEquals(1L, metrics.getActiveBridges());
+        context.assertEquals(1, this.mqttGateway.getBridgeRegistry().size());
+
+        last.publish(MQTT_TOPIC, MQTT_MESSAGE.getBytes(), 1, false);
+        last.disconnect();
+    }
+
+    @Test
+    public void takeOverWithWill(TestContext context) throws Exception {
+
+        BlockingQueue<String> wills = new LinkedBlockingQueue<>();
+        MqttClient subscriber = new MqttClient(String.format("tcp://%s:%d", MQTT_BIND_ADDRESS, MQTT_LISTEN_PORT), SUBSCRIBER_CLIENT_ID, new MemoryPersistence());
+        subscriber.connect();
+        subscriber.subscribe(MQTT_WILL_TOPIC, 1, (topic, message) -> wills.add(new String(message.getPayload())));
+
+        CountDownLatch lost = new CountDownLatch(1);
+        MqttClient first = new MqttClient(String.format("tcp://%s:%d", MQTT_BIND_ADDRESS, MQTT_LISTEN_PORT), WILL_CLIENT_ID, new MemoryPersistence());
+        first.setCallback(new ConnectionLostCallback(lost));
+        first.connect(willOptions("first will"));
+
+        MqttClient second = new MqttClient(String.format("tcp://%s:%d", MQTT_BIND_ADDRESS, MQTT_LISTEN_PORT), WILL_CLIENT_ID, new MemoryPersistence());
+        second.connect(willOptions("second will"));
+        context.assertTrue(lost.await(10, TimeUnit.SECONDS));
+
+        // the will of the taken over connection is published, without replacing the one of the new connection
+        context.assertEquals("first will", wills.poll(10, TimeUnit.SECONDS));
+
+        second.disconnect();
+        context.assertEquals("second will", wills.poll(10, TimeUnit.SECONDS));
+
+        subscriber.disconnect();
+    }
+
+    private static MqttConnectOptions willOptions(String will) {
+
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setWill(new MqttTopic(MQTT_WILL_TOPIC, null), will.getBytes(), 1, false);
+        return options;
+    }
+}
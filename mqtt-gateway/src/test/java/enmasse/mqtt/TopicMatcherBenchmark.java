@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package enmasse.mqtt;
+
+import io.netty.handler.codec.mqtt.MqttQoS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Compares finding the granted QoS for a published topic using the subscriptions trie, with matching each
+ * subscription using regular expressions, which is how it was done before the trie.
+ *
+ * Not run as part of the tests. Run the main method with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class TopicMatcherBenchmark {
+
+    private static final BinaryOperator<MqttQoS> MAX_QOS = (qos1, qos2) -> (qos1.value() >= qos2.value()) ? qos1 : qos2;
+
+    @Param({"10", "50"})
+    public int numSubscriptions;
+
+    private Map<String, MqttQoS> grantedQoSLevels;
+    private SubscriptionTrie<MqttQoS> trie;
+    private String[] topics;
+    private int next;
+
+    @Setup
+    public void setup() {
+        this.grantedQoSLevels = new HashMap<>();
+        this.trie = new SubscriptionTrie<>();
+        for (int i = 0; i < this.numSubscriptions; i++) {
+            String subTopic;
+            switch (i % 3) {
+                case 0:
+                    subTopic = "building/" + i + "/+/temperature";
+                    break;
+                case 1:
+                    subTopic = "building/" + i + "/#";
+                    break;
+                default:
+                    subTopic = "building/" + i + "/floor/humidity";
+                    break;
+            }
+            this.grantedQoSLevels.put(subTopic, MqttQoS.AT_LEAST_ONCE);
+            this.trie.put(subTopic, MqttQoS.AT_LEAST_ONCE);
+        }
+
+        // the last subscriptions, and a topic without any subscription
+        this.topics = new String[] {
+                "building/" + (this.numSubscriptions - 3) + "/floor/temperature",
+                "building/" + (this.numSubscriptions - 2) + "/floor/pressure",
+                "building/" + (this.numSubscriptions - 1) + "/floor/humidity",
+                "building/unknown/floor/humidity"
+        };
+    }
+
+    private String nextTopic() {
+        this.next = (this.next + 1) % this.topics.length;
+        return this.topics[this.next];
+    }
+
+    @Benchmark
+    public MqttQoS trie() {
+        return this.trie.match(this.nextTopic(), MAX_QOS);
+    }
+
+    @Benchmark
+    public MqttQoS topicMatcher() {
+        String topic = TopicMatcher.match(this.grantedQoSLevels.keySet().stream().collect(Collectors.toList()), this.nextTopic());
+        return (topic == null) ? null : this.grantedQoSLevels.get(topic);
+    }
+
+    @Benchmark
+    public MqttQoS regexTopicMatcher() {
+        String topic = RegexTopicMatcher.match(this.grantedQoSLevels.keySet().stream().collect(Collectors.toList()), this.nextTopic());
+        return (topic == null) ? null : this.grantedQoSLevels.get(topic);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TopicMatcherBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * The topic matcher compiling a regular expression for every subscription
+     */
+    private static class RegexTopicMatcher {
+
+        private static boolean isMatch(String wildcardedTopic, String topic) {
+
+            String topicReplaced =
+                    wildcardedTopic.replaceAll("\\+", "[^/]\\+").replaceAll("#", ".*");
+
+            Pattern pattern = Pattern.compile(topicReplaced);
+
+            return pattern.matcher(topic).matches();
+        }
+
+        private static String match(List<String> wildcardedTopics, String topic) {
+
+            for (String wildcardedTopic: wildcardedTopics) {
+
+                if (isMatch(wildcardedTopic, topic)) {
+                    return wildcardedTopic;
+                }
+            }
+
+            return null;
+        }
+    }
+}
@@ -188,6 +188,9 @@ public class MockLwtService extends AbstractVerticle {
                 this.willAction(receiver.getName(), MockBroker.EB_WILL_ACTION_DELIVERY);
             }
         }
+
+        // detach on this side as well, so the link name can be used by a new connection of the same client
+        receiver.close();
     }
 
     /**
@@ -11,6 +11,7 @@ import org.slf4j.LoggerFactory;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -28,27 +29,52 @@ public class ArtemisAdapter implements Broker {
 
     @Override
     public Set<String> getQueueNames() throws TimeoutException {
-        Set<String> queues = artemis.getQueueNames();
-        Set<String> connectors = artemis.getConnectorNames();
+        CompletableFuture<Set<String>> queues = artemis.getQueueNamesAsync();
+        CompletableFuture<Set<String>> connectors = artemis.getConnectorNamesAsync();
 
-        queues.retainAll(connectors);
-        return queues;
+        return artemis.await(queues.thenCombine(connectors, (queueNames, connectorNames) -> {
+            queueNames.retainAll(connectorNames);
+            return queueNames;
+        }));
+    }
+
+    @Override
+    public BrokerLoad getLoad() throws TimeoutException {
+        CompletableFuture<Long> messageCount = artemis.getTotalMessageCountAsync();
+        CompletableFuture<Long> consumerCount = artemis.getTotalConsumerCountAsync();
+        CompletableFuture<Long> memoryUsage = artemis.getAddressMemoryUsagePercentageAsync();
+        return new BrokerLoad(artemis.await(messageCount), artemis.await(consumerCount), artemis.await(memoryUsage));
     }
 
     @Override
     public void createQueue(String address) throws TimeoutException {
-        artemis.createQueue(address, address);
+        artemis.await(createQueueAsync(address));
+    }
+
+    @Override
+    public void deleteQueue(String address) throws TimeoutException {
+        artemis.await(deleteQueueAsync(address));
+    }
+
+    /**
+     * Send the requests for the queue and its connector together. The broker handles them in order.
+     */
+    @Override
+    public CompletableFuture<Void> createQueueAsync(String address) {
         Map<String, String> connectorParams = new HashMap<>();
         connectorParams.put("host", messagingHost);
         connectorParams.put("port", messagingPort);
         connectorParams.put("containerId", address);
         connectorParams.put("clusterId", address);
-        artemis.createConnectorService(address, connectorParams);
+        return CompletableFuture.allOf(
+                artemis.createQueueAsync(address, address),
+                artemis.createConnectorServiceAsync(address, connectorParams));
     }
 
     @Override
-    public void deleteQueue(String address) throws TimeoutException {
-        artemis.destroyConnectorService(address);
-        artemis.destroyQueue(address);
+    public CompletableFuture<Void> deleteQueueAsync(String address) {
+        return CompletableFuture.allOf(
+                artemis.destroyConnectorServiceAsync(address),
+                artemis.destroyQueueAsync(address));
     }
 }
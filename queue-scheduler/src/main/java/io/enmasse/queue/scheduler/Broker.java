@@ -6,6 +6,7 @@
 package io.enmasse.queue.scheduler;
 
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -15,4 +16,37 @@ public interface Broker {
     Set<String> getQueueNames() throws TimeoutException;
     void createQueue(String address) throws TimeoutException;
     void deleteQueue(String address) throws TimeoutException;
+
+    /**
+     * Sample the current load of the broker, or return null if the broker does not report its load.
+     */
+    default BrokerLoad getLoad() throws TimeoutException {
+        return null;
+    }
+
+    /**
+     * Create a queue without waiting for the broker. Brokers that can have several requests outstanding override this
+     * to pipeline the operations of a batch.
+     */
+    default CompletableFuture<Void> createQueueAsync(String address) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+            createQueue(address);
+            result.complete(null);
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    default CompletableFuture<Void> deleteQueueAsync(String address) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+            deleteQueue(address);
+            result.complete(null);
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package io.enmasse.queue.scheduler;
+
+/**
+ * A sample of how loaded a broker is.
+ */
+public class BrokerLoad {
+    private final long messageCount;
+    private final long consumerCount;
+    private final long memoryUsagePercentage;
+
+    public BrokerLoad(long messageCount, long consumerCount, long memoryUsagePercentage) {
+        this.messageCount = messageCount;
+        this.consumerCount = consumerCount;
+        this.memoryUsagePercentage = memoryUsagePercentage;
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    public long getConsumerCount() {
+        return consumerCount;
+    }
+
+    public long getMemoryUsagePercentage() {
+        return memoryUsagePercentage;
+    }
+
+    @Override
+    public String toString() {
+        return "{messageCount=" + messageCount + ",consumerCount=" + consumerCount + ",memoryUsagePercentage=" + memoryUsagePercentage + "}";
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package io.enmasse.queue.scheduler;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Places queues by number of queues, weighted by the sampled load of the brokers.
+ *
+ * The load of a broker is its message count, consumer count and memory usage, each relative to the average of the
+ * group, averaged. A broker with average load counts its queues twice, an idle broker once and a broker with three
+ * times the average load four times. Brokers without a sample are taken to have average load, and when all brokers
+ * are equally loaded, queues are placed as by {@link QueueCountPlacement}.
+ */
+public class LoadAwarePlacement implements PlacementStrategy {
+    private final double loadWeight;
+    // Guarded by the scheduler state
+    private final Map<String, Map<String, Double>> relativeLoads = new HashMap<>();
+
+    public LoadAwarePlacement() {
+        this(1.0);
+    }
+
+    public LoadAwarePlacement(double loadWeight) {
+        this.loadWeight = loadWeight;
+    }
+
+    @Override
+    public boolean isLoadAware() {
+        return true;
+    }
+
+    @Override
+    public double getCost(String groupId, String brokerId, int numQueues) {
+        double relativeLoad = relativeLoads.getOrDefault(groupId, Collections.emptyMap()).getOrDefault(brokerId, 1.0);
+        return (numQueues + 1) * (1 + loadWeight * relativeLoad);
+    }
+
+    @Override
+    public void loadSampled(String groupId, Map<String, BrokerLoad> loads) {
+        Map<String, Double> relative = new HashMap<>();
+        for (String brokerId : loads.keySet()) {
+            relative.put(brokerId, 0.0);
+        }
+
+        int numMetrics = 0;
+        numMetrics += addRelative(loads, relative, BrokerLoad::getMessageCount);
+        numMetrics += addRelative(loads, relative, BrokerLoad::getConsumerCount);
+        numMetrics += addRelative(loads, relative, BrokerLoad::getMemoryUsagePercentage);
+
+        if (numMetrics == 0) {
+            relativeLoads.remove(groupId);
+        } else {
+            int divisor = numMetrics;
+            relative.replaceAll((brokerId, value) -> value / divisor);
+            relativeLoads.put(groupId, relative);
+        }
+    }
+
+    /**
+     * Add the metric of each broker relative to the group average, unless no broker has any of it.
+     */
+    private static int addRelative(Map<String, BrokerLoad> loads, Map<String, Double> relative, ToLongFunction<BrokerLoad> metric) {
+        double total = 0;
+        for (BrokerLoad load : loads.values()) {
+            total += metric.applyAsLong(load);
+        }
+        if (total <= 0) {
+            return 0;
+        }
+        double average = total / loads.size();
+        for (Map.Entry<String, BrokerLoad> entry : loads.entrySet()) {
+            relative.merge(entry.getKey(), metric.applyAsLong(entry.getValue()) / average, Double::sum);
+        }
+        return 1;
+    }
+}
@@ -21,6 +21,10 @@ public class Main {
         int listenPort = Integer.parseInt(getEnvOrThrow("LISTEN_PORT"));
         String requestTimeoutStr = System.getenv("DEFAULT_BROKER_REQUEST_TIMEOUT");
         Long requestTimeout = requestTimeoutStr != null ? Long.parseLong(requestTimeoutStr) : null;
+        PlacementStrategy placementStrategy = PlacementStrategy.create(System.getenv("QUEUE_PLACEMENT_STRATEGY"));
+        String loadSampleIntervalStr = System.getenv("LOAD_SAMPLE_INTERVAL");
+        long loadSampleInterval = loadSampleIntervalStr != null ? Long.parseLong(loadSampleIntervalStr) : 30;
+        SchedulerState schedulerState = new SchedulerState(null, placementStrategy);
 
         QueueScheduler scheduler = new QueueScheduler(
                 connection -> {
@@ -39,7 +43,7 @@ public class Main {
                     });
                     return broker;
                 },
-                new SchedulerState(),
+                schedulerState,
                 listenPort,
                 certDir);
 
@@ -56,6 +60,14 @@ public class Main {
 
         vertx.deployVerticle(configServiceClient);
         vertx.deployVerticle(scheduler);
+
+        if (placementStrategy.isLoadAware()) {
+            vertx.setPeriodic(TimeUnit.SECONDS.toMillis(loadSampleInterval), id ->
+                    vertx.executeBlocking(future -> {
+                        schedulerState.sampleLoad();
+                        future.complete();
+                    }, false, result -> {}));
+        }
     }
 
     private static String getEnvOrThrow(String env) {
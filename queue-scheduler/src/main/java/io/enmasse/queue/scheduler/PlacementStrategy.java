@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package io.enmasse.queue.scheduler;
+
+import java.util.Map;
+
+/**
+ * Decides which broker of a group a pooled queue is placed on. Each queue goes to the broker with the lowest cost.
+ */
+public interface PlacementStrategy {
+    String QUEUE_COUNT = "queue-count";
+    String BROKER_LOAD = "broker-load";
+
+    /**
+     * The cost of placing one more queue on a broker that already has the given number of queues.
+     */
+    double getCost(String groupId, String brokerId, int numQueues);
+
+    /**
+     * Whether the strategy uses the load of the brokers, and so needs it to be sampled.
+     */
+    default boolean isLoadAware() {
+        return false;
+    }
+
+    /**
+     * Called with the latest load of the brokers in a group. Brokers that did not report their load are left out.
+     */
+    default void loadSampled(String groupId, Map<String, BrokerLoad> loads) {
+    }
+
+    static PlacementStrategy create(String name) {
+        if (name == null || QUEUE_COUNT.equals(name)) {
+            return new QueueCountPlacement();
+        } else if (BROKER_LOAD.equals(name)) {
+            return new LoadAwarePlacement();
+        } else {
+            throw new IllegalArgumentException("Unknown placement strategy " + name);
+        }
+    }
+}
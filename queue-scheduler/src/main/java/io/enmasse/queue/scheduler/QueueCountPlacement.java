@@ -0,0 +1,16 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package io.enmasse.queue.scheduler;
+
+/**
+ * Places queues on the broker with the fewest queues.
+ */
+public class QueueCountPlacement implements PlacementStrategy {
+    @Override
+    public double getCost(String groupId, String brokerId, int numQueues) {
+        return numQueues;
+    }
+}
@@ -10,41 +10,71 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeoutException;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Contains the mapping from queue to broker and ensures there is only one modifying the state at a time.
+ * Contains the mapping from queue to broker.
+ *
+ * Scheduling decisions are made while holding the lock on the state, using the queues the scheduler knows to be on
+ * each broker. The resulting queue operations are applied afterwards without holding the lock. Operations on the same
+ * broker are applied in order, while operations on different brokers are applied concurrently, so that a slow broker
+ * only delays its own operations.
+ *
+ * Pooled queues are placed on the broker with the lowest cost according to the placement strategy. Strategies using
+ * the load of the brokers are given samples of it when {@link #sampleLoad()} is called.
  */
 public class SchedulerState implements StateListener {
     private static final Logger log = LoggerFactory.getLogger(SchedulerState.class.getName());
-    private final Map<String, Map<String, Broker>> brokerGroupMap = new LinkedHashMap<>();
+    private final Map<String, Map<String, BrokerState>> brokerGroupMap = new LinkedHashMap<>();
     private final Map<String, Set<Address>> addressMap = new LinkedHashMap<>();
+    private final Set<String> groupsNeedingResync = new HashSet<>();
     private final StateListener chainedListener;
+    private final ExecutorService executor;
+    private final PlacementStrategy placementStrategy;
 
-    public SchedulerState(StateListener chainedListener) {
+    public SchedulerState(StateListener chainedListener, ExecutorService executor, PlacementStrategy placementStrategy) {
         this.chainedListener = chainedListener;
+        this.executor = executor;
+        this.placementStrategy = placementStrategy;
+    }
+
+    public SchedulerState(StateListener chainedListener, ExecutorService executor) {
+        this(chainedListener, executor, new QueueCountPlacement());
+    }
+
+    public SchedulerState(StateListener chainedListener, PlacementStrategy placementStrategy) {
+        this(chainedListener, Executors.newCachedThreadPool(new BrokerOperationThreadFactory()), placementStrategy);
+    }
+
+    public SchedulerState(StateListener chainedListener) {
+        this(chainedListener, new QueueCountPlacement());
     }
 
     public SchedulerState() {
         this(null);
     }
 
-    public synchronized void addressesChanged(Map<String, Set<Address>> updatedMap) throws TimeoutException {
-        Set<String> removedGroups = new HashSet<>(addressMap.keySet());
-        removedGroups.removeAll(updatedMap.keySet());
-        removedGroups.forEach(addressMap::remove);
+    public void addressesChanged(Map<String, Set<Address>> updatedMap) throws TimeoutException {
+        synchronized (this) {
+            Set<String> removedGroups = new HashSet<>(addressMap.keySet());
+            removedGroups.removeAll(updatedMap.keySet());
+            removedGroups.forEach(addressMap::remove);
 
-        for (Map.Entry<String, Set<Address>> entry : updatedMap.entrySet()) {
-            groupUpdated(entry.getKey(), entry.getValue());
+            for (Map.Entry<String, Set<Address>> entry : updatedMap.entrySet()) {
+                groupUpdated(entry.getKey(), entry.getValue());
+            }
         }
         if (chainedListener != null) {
             chainedListener.addressesChanged(updatedMap);
         }
     }
 
-    private synchronized void groupUpdated(String groupId, Set<Address> addresses) throws TimeoutException {
+    private void groupUpdated(String groupId, Set<Address> addresses) {
         Set<Address> existing = addressMap.getOrDefault(groupId, Collections.emptySet());
 
         Set<Address> removed = new HashSet<>(existing);
@@ -55,7 +85,9 @@ public class SchedulerState implements StateListener {
         }
 
         Set<Address> added = new HashSet<>(addresses);
-        added.removeAll(existing);
+        if (!groupsNeedingResync.remove(groupId)) {
+            added.removeAll(existing);
+        }
         if (!added.isEmpty()) {
             log.info("Adding addresses for {}: {}", groupId, added);
             addAddresses(groupId, addresses, added);
@@ -66,58 +98,102 @@ public class SchedulerState implements StateListener {
     }
 
 
-    public synchronized void brokerAdded(String groupId, String brokerId, Broker broker) throws TimeoutException {
-        if (!brokerGroupMap.containsKey(groupId)) {
-            brokerGroupMap.put(groupId, new LinkedHashMap<>());
-        }
+    public void brokerAdded(String groupId, String brokerId, Broker broker) throws TimeoutException {
+        // Only the new broker is asked for its queues, and outside of the lock
+        Set<String> queueNames = broker.getQueueNames();
 
-        if (brokerGroupMap.get(groupId).containsKey(brokerId)) {
-            throw new IllegalArgumentException("Broker with id " + brokerId + " already exists in group " + groupId);
-        }
-        brokerGroupMap.get(groupId).put(brokerId, broker);
+        synchronized (this) {
+            if (!brokerGroupMap.containsKey(groupId)) {
+                brokerGroupMap.put(groupId, new LinkedHashMap<>());
+            }
 
-        Set<Address> addresses = addressMap.getOrDefault(groupId, Collections.emptySet());
-        log.info("Broker " + brokerId + " in group " + groupId + " was added, distributing addresses: " + addresses);
-        if (addresses.size() == 1) {
-            deployQueue(broker, addresses.iterator().next().getAddress());
-        } else {
-            distributeAddressesByNumQueues(groupId, addresses);
+            if (brokerGroupMap.get(groupId).containsKey(brokerId)) {
+                throw new IllegalArgumentException("Broker with id " + brokerId + " already exists in group " + groupId);
+            }
+            BrokerState brokerState = new BrokerState(groupId, brokerId, broker, queueNames);
+            brokerGroupMap.get(groupId).put(brokerId, brokerState);
+
+            Set<Address> addresses = addressMap.getOrDefault(groupId, Collections.emptySet());
+            log.info("Broker " + brokerId + " in group " + groupId + " was added, distributing addresses: " + addresses);
+            if (addresses.size() == 1) {
+                distributeAddressesAll(groupId, addresses);
+            } else {
+                distributeAddressesByNumQueues(groupId, addresses);
+            }
         }
         if (chainedListener != null) {
             chainedListener.brokerAdded(groupId, brokerId, broker);
         }
     }
 
-    private static void deployQueue(Broker broker, String address) throws TimeoutException {
-        broker.createQueue(address);
+    public void brokerRemoved(String groupId, String brokerId) throws TimeoutException {
+        synchronized (this) {
+            Map<String, BrokerState> brokerMap = brokerGroupMap.get(groupId);
+            if (brokerMap != null && brokerMap.containsKey(brokerId)) {
+                brokerMap.remove(brokerId).removed = true;
+                if (brokerMap.isEmpty()) {
+                    brokerGroupMap.remove(groupId);
+                }
+                Set<Address> addresses = addressMap.getOrDefault(groupId, Collections.emptySet());
+                // If colocated queues, ensure missing queues are recreated on other brokers.
+                if (addresses.size() > 1) {
+                    distributeAddressesByNumQueues(groupId, addresses);
+                }
+                log.info("Broker " + brokerId + " in group " + groupId + " was removed");
+            } else {
+                log.info("Broker was already removed, ignoring");
+            }
+        }
+        if (chainedListener != null) {
+            chainedListener.brokerRemoved(groupId, brokerId);
+        }
     }
 
-    private static void deleteQueue(Broker broker, String address) throws TimeoutException {
-        broker.deleteQueue(address);
-    }
+    /**
+     * Sample the load of all brokers and pass it to the placement strategy, if it uses it. The brokers are queried
+     * concurrently and without holding the lock.
+     */
+    public void sampleLoad() {
+        if (!placementStrategy.isLoadAware()) {
+            return;
+        }
 
-    public synchronized void brokerRemoved(String groupId, String brokerId) throws TimeoutException {
-        Map<String, Broker> brokerMap = brokerGroupMap.get(groupId);
-        if (brokerMap != null && brokerMap.containsKey(brokerId)) {
-            brokerMap.remove(brokerId);
-            if (brokerMap.isEmpty()) {
-                brokerGroupMap.remove(groupId);
+        Map<String, Map<String, CompletableFuture<BrokerLoad>>> samples = new LinkedHashMap<>();
+        synchronized (this) {
+            for (Map.Entry<String, Map<String, BrokerState>> group : brokerGroupMap.entrySet()) {
+                Map<String, CompletableFuture<BrokerLoad>> groupSamples = new LinkedHashMap<>();
+                for (BrokerState brokerState : group.getValue().values()) {
+                    groupSamples.put(brokerState.brokerId, CompletableFuture.supplyAsync(() -> sampleLoad(brokerState), executor));
+                }
+                samples.put(group.getKey(), groupSamples);
             }
-            Set<Address> addresses = addressMap.getOrDefault(groupId, Collections.emptySet());
-            // If colocated queues, ensure missing queues are recreated on other brokers.
-            if (addresses.size() > 1) {
-                distributeAddressesByNumQueues(groupId, addresses);
+        }
+
+        for (Map.Entry<String, Map<String, CompletableFuture<BrokerLoad>>> group : samples.entrySet()) {
+            Map<String, BrokerLoad> loads = new LinkedHashMap<>();
+            for (Map.Entry<String, CompletableFuture<BrokerLoad>> sample : group.getValue().entrySet()) {
+                BrokerLoad load = sample.getValue().join();
+                if (load != null) {
+                    loads.put(sample.getKey(), load);
+                }
+            }
+            log.debug("Sampled load of group {}: {}", group.getKey(), loads);
+            synchronized (this) {
+                placementStrategy.loadSampled(group.getKey(), loads);
             }
-            log.info("Broker " + brokerId + " in group " + groupId + " was removed");
-        } else {
-            log.info("Broker was already removed, ignoring");
         }
-        if (chainedListener != null) {
-            chainedListener.brokerRemoved(groupId, brokerId);
+    }
+
+    private static BrokerLoad sampleLoad(BrokerState brokerState) {
+        try {
+            return brokerState.broker.getLoad();
+        } catch (Exception e) {
+            log.info("Error sampling load of broker {} in group {}: {}", brokerState.brokerId, brokerState.groupId, e.getMessage());
+            return null;
         }
     }
 
-    private void addAddresses(String groupId, Set<Address> addresses, Set<Address> added) throws TimeoutException {
+    private void addAddresses(String groupId, Set<Address> addresses, Set<Address> added) {
 
         // TODO: Fetch this information from somewhere, but assume > 1 address means shared flavor
         if (addresses.size() > 1) {
@@ -127,70 +203,163 @@ public class SchedulerState implements StateListener {
         }
     }
 
-    private void distributeAddressesByNumQueues(String groupId, Set<Address> addresses) throws TimeoutException {
-        Map<String, Broker> brokerMap = brokerGroupMap.get(groupId);
+    private void distributeAddressesByNumQueues(String groupId, Set<Address> addresses) {
+        Map<String, BrokerState> brokerMap = brokerGroupMap.get(groupId);
         if (brokerMap == null) {
             return;
         }
 
-
-        Map<String, Address> addressesToDeploy = addresses.stream().collect(Collectors.toMap(Address::getAddress, Function.identity()));
+        Set<String> addressesToDeploy = new LinkedHashSet<>();
+        for (Address address : addresses) {
+            addressesToDeploy.add(address.getAddress());
+        }
 
         // Remove addresses that are already distributed. This is to avoid changes in broker list to affect where queues are scheduler
+        for (BrokerState brokerState : brokerMap.values()) {
+            addressesToDeploy.removeAll(brokerState.queueNames);
+        }
+
+        PriorityQueue<BrokerState> brokerByCost = new PriorityQueue<>(brokerMap.size(),
+                Comparator.comparingDouble(b -> placementStrategy.getCost(groupId, b.brokerId, b.queueNames.size())));
+        brokerByCost.addAll(brokerMap.values());
+
+        Map<BrokerState, List<QueueOperation>> operations = new LinkedHashMap<>();
+        for (String address : addressesToDeploy) {
+            BrokerState brokerState = brokerByCost.poll();
+            deployQueue(operations, brokerState, address);
+            brokerByCost.offer(brokerState);
+        }
+        submit(operations);
+    }
 
-        List<BrokerInfo> brokerInfos = new ArrayList<>();
-        for (Map.Entry<String, Broker> entry : brokerMap.entrySet()) {
-            BrokerInfo brokerInfo = new BrokerInfo(entry.getKey(), entry.getValue(), entry.getValue().getQueueNames());
-            addressesToDeploy.keySet().removeAll(brokerInfo.queueNames);
-            brokerInfos.add(brokerInfo);
+    private void distributeAddressesAll(String groupId, Set<Address> addresses) {
+        Map<BrokerState, List<QueueOperation>> operations = new LinkedHashMap<>();
+        for (Address address : addresses) {
+            for (BrokerState brokerState : brokerGroupMap.getOrDefault(groupId, Collections.emptyMap()).values()) {
+                if (!brokerState.queueNames.contains(address.getAddress())) {
+                    deployQueue(operations, brokerState, address.getAddress());
+                }
+            }
         }
+        submit(operations);
+    }
 
-        PriorityQueue<BrokerInfo> brokerByNumQueues = new PriorityQueue<>(brokerInfos.size(), (a, b) -> {
-            if (a.queueNames.size() < b.queueNames.size()) {
-                return -1;
-            } else if (a.queueNames.size() > b.queueNames.size()) {
-                return 1;
-            } else {
-                return 0;
+    private void deleteAddresses(String groupId, Set<Address> removed) {
+        Map<BrokerState, List<QueueOperation>> operations = new LinkedHashMap<>();
+        for (BrokerState brokerState : brokerGroupMap.getOrDefault(groupId, Collections.emptyMap()).values()) {
+            for (Address address : removed) {
+                if (brokerState.queueNames.remove(address.getAddress())) {
+                    operations.computeIfAbsent(brokerState, b -> new ArrayList<>()).add(new QueueOperation(address.getAddress(), false));
+                }
+            }
+        }
+        submit(operations);
+    }
+
+    private static void deployQueue(Map<BrokerState, List<QueueOperation>> operations, BrokerState brokerState, String address) {
+        brokerState.queueNames.add(address);
+        operations.computeIfAbsent(brokerState, b -> new ArrayList<>()).add(new QueueOperation(address, true));
+    }
+
+    /**
+     * Queue a batch of operations for each broker, to be applied after the operations already queued for it. A batch
+     * is applied whatever the outcome of the previous one, so that a failure can't stop the operations of the broker.
+     */
+    private void submit(Map<BrokerState, List<QueueOperation>> operations) {
+        for (Map.Entry<BrokerState, List<QueueOperation>> entry : operations.entrySet()) {
+            BrokerState brokerState = entry.getKey();
+            List<QueueOperation> batch = entry.getValue();
+            brokerState.pending = brokerState.pending.handleAsync((ignored, e) -> {
+                apply(brokerState, batch);
+                return null;
+            }, executor);
+        }
+    }
+
+    /**
+     * Apply a batch of operations on a broker. The operations are all issued before waiting for them, so that brokers
+     * able to pipeline requests only take about one round trip per batch.
+     */
+    private void apply(BrokerState brokerState, List<QueueOperation> batch) {
+        List<CompletableFuture<Void>> results = new ArrayList<>(batch.size());
+        for (QueueOperation operation : batch) {
+            if (brokerState.removed) {
+                log.info("Broker {} in group {} was removed, skipping {} queue operations", brokerState.brokerId, brokerState.groupId, batch.size() - results.size());
+                break;
             }
-        });
+            CompletableFuture<Void> result;
+            try {
+                result = operation.create
+                        ? brokerState.broker.createQueueAsync(operation.address)
+                        : brokerState.broker.deleteQueueAsync(operation.address);
+            } catch (RuntimeException e) {
+                // E.g. the client of the broker being closed
+                result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+            }
+            results.add(result.whenComplete((ignored, e) -> {
+                if (e != null) {
+                    log.warn("Error {} queue {} on broker {} in group {}", operation.create ? "creating" : "deleting", operation.address, brokerState.brokerId, brokerState.groupId, e);
+                    operationFailed(brokerState, operation);
+                }
+            }));
+        }
 
-        brokerByNumQueues.addAll(brokerInfos);
+        try {
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+        } catch (Exception e) {
+            // Failures are handled per operation
+        }
+        log.debug("Applied {} queue operations on broker {} in group {}", results.size(), brokerState.brokerId, brokerState.groupId);
+    }
 
-        for (Address address : addressesToDeploy.values()) {
-            BrokerInfo brokerInfo = brokerByNumQueues.poll();
-            Broker broker = brokerInfo.broker;
-            deployQueue(broker, address.getAddress());
-            brokerInfo.queueNames.add(address.getAddress());
-            brokerByNumQueues.offer(brokerInfo);
+    /**
+     * Revert the known queues of the broker, and have the group redistributed on the next address update.
+     */
+    private synchronized void operationFailed(BrokerState brokerState, QueueOperation operation) {
+        if (operation.create) {
+            brokerState.queueNames.remove(operation.address);
+        } else {
+            brokerState.queueNames.add(operation.address);
         }
+        groupsNeedingResync.add(brokerState.groupId);
     }
 
-    private static class BrokerInfo {
+    private static class BrokerState {
+        final String groupId;
         final String brokerId;
         final Broker broker;
+        // Guarded by the scheduler state
         final Set<String> queueNames;
+        CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+        volatile boolean removed = false;
 
-        private BrokerInfo(String brokerId, Broker broker, Set<String> queueNames) {
+        private BrokerState(String groupId, String brokerId, Broker broker, Set<String> queueNames) {
+            this.groupId = groupId;
             this.brokerId = brokerId;
             this.broker = broker;
             this.queueNames = new HashSet<>(queueNames);
         }
     }
 
-    private void distributeAddressesAll(String groupId, Set<Address> addresses) throws TimeoutException {
-        for (Address address : addresses) {
-            for (Broker  broker : brokerGroupMap.getOrDefault(groupId, Collections.emptyMap()).values()) {
-                deployQueue(broker, address.getAddress());
-            }
+    private static class QueueOperation {
+        final String address;
+        final boolean create;
+
+        private QueueOperation(String address, boolean create) {
+            this.address = address;
+            this.create = create;
         }
     }
 
-    private void deleteAddresses(String groupId, Set<Address> removed) throws TimeoutException {
-        for (Broker broker : brokerGroupMap.getOrDefault(groupId, Collections.emptyMap()).values()) {
-            for (Address address : removed) {
-                deleteQueue(broker, address.getAddress());
-            }
+    private static class BrokerOperationThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "broker-operations-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
     }
 }
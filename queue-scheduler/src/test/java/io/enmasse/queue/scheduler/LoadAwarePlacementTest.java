@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package io.enmasse.queue.scheduler;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoadAwarePlacementTest {
+
+    @Test
+    public void testEqualLoadPlacesByQueueCount() {
+        LoadAwarePlacement placement = new LoadAwarePlacement();
+        Map<String, BrokerLoad> loads = new HashMap<>();
+        loads.put("broker-0", new BrokerLoad(100, 2, 10));
+        loads.put("broker-1", new BrokerLoad(100, 2, 10));
+        placement.loadSampled("group", loads);
+
+        assertTrue(placement.getCost("group", "broker-0", 3) < placement.getCost("group", "broker-1", 4));
+        assertEquals(placement.getCost("group", "broker-0", 3), placement.getCost("group", "broker-1", 3), 0.0001);
+    }
+
+    @Test
+    public void testLoadedBrokerGetsFewerQueues() {
+        LoadAwarePlacement placement = new LoadAwarePlacement();
+        Map<String, BrokerLoad> loads = new HashMap<>();
+        loads.put("broker-0", new BrokerLoad(1000, 0, 0));
+        loads.put("broker-1", new BrokerLoad(0, 0, 0));
+        placement.loadSampled("group", loads);
+
+        // The loaded broker has twice the average message count, so its queues count three times
+        assertEquals(3 * placement.getCost("group", "broker-1", 9), placement.getCost("group", "broker-0", 9), 0.0001);
+        assertTrue(placement.getCost("group", "broker-1", 25) < placement.getCost("group", "broker-0", 9));
+
+        // Brokers without a sample, or in other groups, have average load
+        assertEquals(2 * placement.getCost("group", "broker-1", 9), placement.getCost("group", "broker-2", 9), 0.0001);
+        assertEquals(placement.getCost("other", "broker-0", 9), placement.getCost("group", "broker-2", 9), 0.0001);
+    }
+
+    @Test
+    public void testSimulatedLoadLowersPeakBacklog() throws Exception {
+        // Placement cannot know which new queues will be hot, so compare over several runs
+        long byCount = 0;
+        long byLoad = 0;
+        for (long seed = 0; seed < 10; seed++) {
+            PlacementSimulation simulation = new PlacementSimulation(4, 50, 10, seed);
+            PlacementSimulation.Result countResult = simulation.run(new QueueCountPlacement());
+            PlacementSimulation.Result loadResult = simulation.run(new LoadAwarePlacement());
+            assertEquals(countResult.getAverageBacklog(), loadResult.getAverageBacklog(), 0.0001);
+            byCount += countResult.getMaxBacklog();
+            byLoad += loadResult.getMaxBacklog();
+        }
+        assertTrue("Expected lower peak backlog with load-aware placement, by count: " + byCount + ", by load: " + byLoad,
+                byLoad < byCount);
+    }
+}
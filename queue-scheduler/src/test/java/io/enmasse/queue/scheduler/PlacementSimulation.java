@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package io.enmasse.queue.scheduler;
+
+import io.enmasse.address.model.Address;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Replays synthetic load against simulated brokers through the scheduler, to compare placement strategies.
+ *
+ * Queues are added in rounds. Most queues are consumed about as fast as they are produced to, while a few are hot and
+ * build up a backlog. Between rounds, the load of the brokers is sampled and every queue is given one tick of traffic.
+ * The result is the backlog of each broker at the end.
+ *
+ * Run the main method with the test classpath to print a comparison of the strategies.
+ */
+public class PlacementSimulation {
+    private final int numBrokers;
+    private final int numRounds;
+    private final int queuesPerRound;
+    private final long seed;
+
+    public PlacementSimulation(int numBrokers, int numRounds, int queuesPerRound, long seed) {
+        this.numBrokers = numBrokers;
+        this.numRounds = numRounds;
+        this.queuesPerRound = queuesPerRound;
+        this.seed = seed;
+    }
+
+    public Result run(PlacementStrategy strategy) throws Exception {
+        Random random = new Random(seed);
+        Map<String, Long> backlogPerTick = new HashMap<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SchedulerState state = new SchedulerState(null, executor, strategy);
+            List<SimulatedBroker> brokers = new ArrayList<>();
+            for (int i = 0; i < numBrokers; i++) {
+                SimulatedBroker broker = new SimulatedBroker(backlogPerTick);
+                brokers.add(broker);
+                state.brokerAdded("group", "broker-" + i, broker);
+            }
+
+            Set<Address> addresses = new LinkedHashSet<>();
+            for (int round = 0; round < numRounds; round++) {
+                for (int i = 0; i < queuesPerRound; i++) {
+                    String address = "queue-" + round + "-" + i;
+                    backlogPerTick.put(address, random.nextInt(10) == 0 ? 50L + random.nextInt(100) : random.nextInt(3));
+                    addresses.add(createQueue(address));
+                }
+
+                state.sampleLoad();
+                state.addressesChanged(Collections.singletonMap("group", new LinkedHashSet<>(addresses)));
+                // Operations are applied in order on the single thread, so this waits for them
+                executor.submit(() -> { }).get();
+
+                for (SimulatedBroker broker : brokers) {
+                    broker.tick();
+                }
+            }
+
+            List<Long> backlogs = new ArrayList<>();
+            for (SimulatedBroker broker : brokers) {
+                backlogs.add(broker.getLoad().getMessageCount());
+            }
+            return new Result(backlogs);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Address createQueue(String address) {
+        return new Address.Builder()
+                .setName(address)
+                .setAddress(address)
+                .setType("queue")
+                .setPlan("pooled-inmemory")
+                .build();
+    }
+
+    public static class Result {
+        private final List<Long> backlogs;
+
+        Result(List<Long> backlogs) {
+            this.backlogs = backlogs;
+        }
+
+        public long getMaxBacklog() {
+            return Collections.max(backlogs);
+        }
+
+        public double getAverageBacklog() {
+            return backlogs.stream().mapToLong(Long::longValue).average().orElse(0);
+        }
+
+        @Override
+        public String toString() {
+            return "max " + getMaxBacklog() + ", average " + getAverageBacklog() + ", per broker " + backlogs;
+        }
+    }
+
+    /**
+     * A broker where each queue grows its backlog by a fixed amount per tick.
+     */
+    private static class SimulatedBroker implements Broker {
+        private static final long MEMORY_CAPACITY = 100_000;
+        private final Map<String, Long> backlogPerTick;
+        private final Map<String, Long> backlogs = new LinkedHashMap<>();
+
+        private SimulatedBroker(Map<String, Long> backlogPerTick) {
+            this.backlogPerTick = backlogPerTick;
+        }
+
+        @Override
+        public synchronized Set<String> getQueueNames() {
+            return new LinkedHashSet<>(backlogs.keySet());
+        }
+
+        @Override
+        public synchronized void createQueue(String address) {
+            backlogs.put(address, 0L);
+        }
+
+        @Override
+        public synchronized void deleteQueue(String address) {
+            backlogs.remove(address);
+        }
+
+        @Override
+        public synchronized BrokerLoad getLoad() {
+            long messageCount = backlogs.values().stream().mapToLong(Long::longValue).sum();
+            return new BrokerLoad(messageCount, backlogs.size(), Math.min(100, messageCount * 100 / MEMORY_CAPACITY));
+        }
+
+        private synchronized void tick() {
+            backlogs.replaceAll((address, backlog) -> backlog + backlogPerTick.get(address));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        PlacementSimulation simulation = new PlacementSimulation(4, 50, 10, 42);
+        System.out.println("queue-count: " + simulation.run(new QueueCountPlacement()));
+        System.out.println("broker-load: " + simulation.run(new LoadAwarePlacement()));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+
+package io.enmasse.queue.scheduler;
+
+import io.enmasse.address.model.Address;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class SchedulerStateTest {
+
+    @Test
+    public void testSlowBrokerDoesNotBlockOtherGroups() throws Exception {
+        SchedulerState state = new SchedulerState();
+        CountDownLatch release = new CountDownLatch(1);
+        FakeBroker slow = new FakeBroker(release);
+        FakeBroker fast = new FakeBroker(null);
+
+        state.brokerAdded("slow-group", "slow", slow);
+        state.brokerAdded("fast-group", "fast", fast);
+
+        Map<String, Set<Address>> addresses = new HashMap<>();
+        addresses.put("slow-group", createQueues("slow", 100));
+        addresses.put("fast-group", createQueues("fast", 100));
+
+        long start = System.nanoTime();
+        state.addressesChanged(addresses);
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+
+        fast.waitForQueues(100);
+        assertThat(slow.getQueueNames().size(), is(0));
+
+        release.countDown();
+        slow.waitForQueues(100);
+    }
+
+    @Test
+    public void testFailedQueueRetried() throws Exception {
+        SchedulerState state = new SchedulerState();
+        FakeBroker broker = new FakeBroker(null);
+        broker.failNext = true;
+        state.brokerAdded("group", "broker", broker);
+
+        Set<Address> addresses = createQueues("queue", 2);
+        state.addressesChanged(Collections.singletonMap("group", addresses));
+        broker.waitForQueues(1);
+
+        state.addressesChanged(Collections.singletonMap("group", addresses));
+        broker.waitForQueues(2);
+        assertThat(broker.getQueueNames(), hasItem("queue-0"));
+        assertThat(broker.getQueueNames(), hasItem("queue-1"));
+    }
+
+    @Test
+    public void testSynchronousFailureDoesNotStopLaterBatches() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SchedulerState state = new SchedulerState(null, executor);
+            FakeBroker broker = new FakeBroker(null);
+            broker.throwNext = true;
+            state.brokerAdded("group", "broker", broker);
+
+            state.addressesChanged(Collections.singletonMap("group", createQueues("queue", 1)));
+            broker.waitForAttempts(1);
+            // The failure is recorded when the failed batch completes, before the next task of the executor runs
+            executor.submit(() -> { }).get(60, TimeUnit.SECONDS);
+            assertThat(broker.getQueueNames().size(), is(0));
+
+            // The batch after the failed one is still applied, and the failed queue is created again by the resync
+            state.addressesChanged(Collections.singletonMap("group", createQueues("queue", 2)));
+            broker.waitForQueues(2);
+            assertThat(broker.getQueueNames(), hasItem("queue-0"));
+            assertThat(broker.getQueueNames(), hasItem("queue-1"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Set<Address> createQueues(String prefix, int numQueues) {
+        Set<Address> addresses = new HashSet<>();
+        for (int i = 0; i < numQueues; i++) {
+            addresses.add(new Address.Builder()
+                    .setName(prefix + "-" + i)
+                    .setAddress(prefix + "-" + i)
+                    .setType("queue")
+                    .setPlan("pooled-inmemory")
+                    .build());
+        }
+        return addresses;
+    }
+
+    private static class FakeBroker implements Broker {
+        private final CountDownLatch release;
+        private final Set<String> queues = new LinkedHashSet<>();
+        private volatile boolean failNext = false;
+        private volatile boolean throwNext = false;
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private FakeBroker(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public synchronized Set<String> getQueueNames() {
+            return new LinkedHashSet<>(queues);
+        }
+
+        @Override
+        public CompletableFuture<Void> createQueueAsync(String address) {
+            attempts.incrementAndGet();
+            if (throwNext) {
+                throwNext = false;
+                throw new IllegalStateException("Client closed");
+            }
+            return Broker.super.createQueueAsync(address);
+        }
+
+        @Override
+        public void createQueue(String address) throws TimeoutException {
+            try {
+                if (release != null) {
+                    release.await();
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            if (failNext) {
+                failNext = false;
+                throw new TimeoutException("Timed out creating " + address);
+            }
+            synchronized (this) {
+                queues.add(address);
+            }
+        }
+
+        @Override
+        public synchronized void deleteQueue(String address) {
+            queues.remove(address);
+        }
+
+        private void waitForAttempts(int numAttempts) throws InterruptedException {
+            long endTime = System.currentTimeMillis() + 60_000;
+            while (System.currentTimeMillis() < endTime && attempts.get() < numAttempts) {
+                Thread.sleep(10);
+            }
+            assertThat(attempts.get(), is(numAttempts));
+        }
+
+        private void waitForQueues(int numQueues) throws InterruptedException {
+            long endTime = System.currentTimeMillis() + 60_000;
+            while (System.currentTimeMillis() < endTime && getQueueNames().size() != numQueues) {
+                Thread.sleep(10);
+            }
+            assertThat(getQueueNames().size(), is(numQueues));
+        }
+    }
+}
@@ -5,9 +5,9 @@
 package io.enmasse.controller.standard;
 
 import io.enmasse.address.model.*;
-import io.enmasse.amqp.SyncRequestClient;
 import io.enmasse.config.AnnotationKeys;
 import io.enmasse.k8s.api.*;
+import io.enmasse.metrics.LatencyHistogram;
 import io.fabric8.kubernetes.api.model.Container;
 import io.fabric8.kubernetes.api.model.ContainerPort;
 import io.fabric8.kubernetes.api.model.Pod;
@@ -25,7 +25,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import static io.enmasse.address.model.Status.Phase.Active;
@@ -37,6 +40,14 @@ import static io.enmasse.k8s.api.EventLogger.Type.Warning;
 
 /**
  * Controller for a single standard address space
+ *
+ * Addresses are reconciled incrementally. Only addresses with keys changed since the last pass, as given by the
+ * resource controller, or that are not yet active and ready, are provisioned, checked and written back. All addresses
+ * are checked at least once per status check interval, to pick up changes in router and broker state.
+ *
+ * A router that responded before, but does not respond in time to a check, is unknown for that check. Addresses keep
+ * their previous readiness while a router is unknown, and are only no longer ready once it has missed a number of
+ * checks in a row.
  */
 public class AddressController extends AbstractVerticle implements Watcher<Address> {
     private static final Logger log = LoggerFactory.getLogger(AddressController.class);
@@ -45,11 +56,29 @@ public class AddressController extends AbstractVerticle implements Watcher<Addre
     private final Kubernetes kubernetes;
     private final BrokerSetGenerator clusterGenerator;
     private Watch watch;
+    private RouterStatusCollector routerStatusCollector;
     private final String certDir;
     private final EventLogger eventLogger;
     private final SchemaProvider schemaProvider;
+    private final AddressControllerOptions options;
+    private final LatencyHistogram routerStatusLatency = new LatencyHistogram("router_status_collection_seconds", "Time to collect status from a router");
+    private final LatencyHistogram routerConnectLatency = new LatencyHistogram("router_management_connect_seconds", "Time to connect to the management of a router");
+    private final LatencyHistogram routerRequestLatency = new LatencyHistogram("router_management_request_seconds", "Time to get a response to a router management request");
+
+    private long lastFullCheck = 0;
+    // Checks missed in a row by routers that responded before
+    private final Map<String, Integer> routerMissedChecks = new HashMap<>();
 
     public AddressController(String addressSpaceName, AddressApi addressApi, Kubernetes kubernetes, BrokerSetGenerator clusterGenerator, String certDir, EventLogger eventLogger, SchemaProvider schemaProvider) {
+        this(addressSpaceName, addressApi, kubernetes, clusterGenerator, certDir, eventLogger, schemaProvider, new AddressControllerOptions(Collections.emptyMap()));
+    }
+
+    public AddressController(String addressSpaceName, AddressApi addressApi, Kubernetes kubernetes, BrokerSetGenerator clusterGenerator, String certDir, EventLogger eventLogger, SchemaProvider schemaProvider, AddressControllerOptions options) {
+        this(addressSpaceName, addressApi, kubernetes, clusterGenerator, certDir, eventLogger, schemaProvider, options, null);
+    }
+
+    AddressController(String addressSpaceName, AddressApi addressApi, Kubernetes kubernetes, BrokerSetGenerator clusterGenerator, String certDir, EventLogger eventLogger, SchemaProvider schemaProvider, AddressControllerOptions options, RouterStatusCollector routerStatusCollector) {
+        this.routerStatusCollector = routerStatusCollector;
         this.addressSpaceName = addressSpaceName;
         this.addressApi = addressApi;
         this.kubernetes = kubernetes;
@@ -57,6 +86,7 @@ public class AddressController extends AbstractVerticle implements Watcher<Addre
         this.certDir = certDir;
         this.eventLogger = eventLogger;
         this.schemaProvider = schemaProvider;
+        this.options = options;
     }
 
     @Override
@@ -78,38 +108,135 @@ public class AddressController extends AbstractVerticle implements Watcher<Addre
     }
 
     @Override
-    public synchronized void resourcesUpdated(Set<Address> addressSet) throws Exception {
-        log.info("Check addresses in address space controller: " + addressSet.stream().map(Address::getAddress).collect(Collectors.toList()));
+    public synchronized void stop() {
+        if (watch != null) {
+            try {
+                watch.close();
+            } catch (Exception e) {
+                log.warn("Error closing address watch", e);
+            }
+        }
+        if (routerStatusCollector != null) {
+            routerStatusCollector.close();
+        }
+        addressApi.close();
+        kubernetes.close();
+    }
 
-        Schema schema = schemaProvider.getSchema();
-        AddressSpaceType addressSpaceType = schema.findAddressSpaceType("standard").orElseThrow(() -> new RuntimeException("Unable to start standard-controller: standard address space not found in schema!"));
-        AddressResolver addressResolver = new AddressResolver(schema, addressSpaceType);
+    /**
+     * Without the changed keys, all addresses are checked.
+     */
+    @Override
+    public synchronized void resourcesUpdated(Set<Address> resources) throws Exception {
+        reconcile(resources, Collections.emptySet(), true);
+    }
+
+    @Override
+    public synchronized void resourcesUpdated(Set<Address> resources, Set<String> changedKeys) throws Exception {
+        reconcile(resources, changedKeys, false);
+    }
+
+    private void reconcile(Set<Address> resources, Set<String> changedKeys, boolean checkAll) throws Exception {
+        // The addresses may be shared with the controller cache, so work on copies when updating status
+        Set<Address> addressSet = resources.stream()
+                .map(address -> new Address.Builder(address).build())
+                .collect(Collectors.toSet());
+        Map<String, Address> originals = new HashMap<>();
+        for (Address address : resources) {
+            originals.put(address.getName(), address);
+        }
+
+        long now = System.currentTimeMillis();
+        boolean fullCheck = checkAll || now - lastFullCheck >= options.getStatusCheckInterval();
+        Set<Address> changed = fullCheck ? addressSet : addressSet.stream()
+                .filter(address -> needsReconcile(address, changedKeys))
+                .collect(Collectors.toSet());
+        boolean removed = changedKeys.stream().anyMatch(name -> !originals.containsKey(name));
+        if (!fullCheck && changed.isEmpty() && !removed) {
+            log.debug("No changes to {} addresses in address space controller", addressSet.size());
+            return;
+        }
+        log.info("Check addresses in address space controller: " + changed.stream().map(Address::getAddress).collect(Collectors.toList()));
+
+        AddressResolver addressResolver = schemaProvider.getAddressResolver("standard");
+        AddressSpaceType addressSpaceType = addressResolver.getAddressSpaceType();
         if (addressSpaceType.getPlans().isEmpty()) {
             log.info("No address space plan available");
             return;
         }
         AddressSpacePlan addressSpacePlan = addressSpaceType.getPlans().get(0);
 
-        AddressProvisioner provisioner = new AddressProvisioner(addressResolver, addressSpacePlan, clusterGenerator, kubernetes, eventLogger);
+        Set<Address> pending = filterByPhases(changed, Arrays.asList(Pending));
+        if (!pending.isEmpty()) {
+            AddressProvisioner provisioner = new AddressProvisioner(addressResolver, addressSpacePlan, clusterGenerator, kubernetes, eventLogger);
 
-        Map<String, Map<String, Double>> usageMap = provisioner.checkUsage(filterByNotPhases(addressSet, Arrays.asList(Pending)));
-        Map<Address, Map<String, Double>> neededMap = provisioner.checkQuota(usageMap, filterByPhases(addressSet, Arrays.asList(Pending)));
+            Map<String, Map<String, Double>> usageMap = provisioner.checkUsage(filterByNotPhases(addressSet, Arrays.asList(Pending)));
+            Map<Address, Map<String, Double>> neededMap = provisioner.checkQuota(usageMap, pending);
 
-        provisioner.provisionResources(usageMap, neededMap);
+            provisioner.provisionResources(usageMap, neededMap);
+        }
 
-        checkStatuses(filterByPhases(addressSet, Arrays.asList(Status.Phase.Configuring, Status.Phase.Active)), addressResolver);
-        for (Address address : filterByPhases(addressSet, Arrays.asList(Status.Phase.Configuring, Status.Phase.Active))) {
+        checkStatuses(filterByPhases(changed, Arrays.asList(Status.Phase.Configuring, Status.Phase.Active)), addressResolver);
+        for (Address address : filterByPhases(changed, Arrays.asList(Status.Phase.Configuring, Status.Phase.Active))) {
             if (address.getStatus().isReady()) {
                 address.getStatus().setPhase(Active);
             }
         }
 
         deprovisionUnused(filterByNotPhases(addressSet, Arrays.asList(Terminating)));
-        for (Address address : addressSet) {
-            addressApi.replaceAddress(address);
+
+        int numReplaced = 0;
+        List<Address> statusUpdates = new ArrayList<>();
+        for (Address address : changed) {
+            Address original = originals.get(address.getName());
+            if (!isSameSpec(original, address)) {
+                addressApi.replaceAddress(address);
+                numReplaced++;
+            } else if (!isSameStatus(original, address)) {
+                statusUpdates.add(address);
+                numReplaced++;
+            }
+        }
+        addressApi.replaceAddressStatuses(statusUpdates);
+        if (fullCheck) {
+            lastFullCheck = now;
         }
-        garbageCollectTerminating(filterByPhases(addressSet, Arrays.asList(Status.Phase.Terminating)), addressResolver);
+        log.info("Checked {} of {} addresses, {} updated", changed.size(), addressSet.size(), numReplaced);
+        garbageCollectTerminating(filterByPhases(changed, Arrays.asList(Status.Phase.Terminating)), addressResolver);
+    }
 
+    /**
+     * An address needs to be reconciled if it has changed since the last pass, or is not yet active and ready.
+     */
+    private static boolean needsReconcile(Address address, Set<String> changedKeys) {
+        return changedKeys.contains(address.getName())
+                || !Active.equals(address.getStatus().getPhase())
+                || !address.getStatus().isReady();
+    }
+
+    private static boolean isSameSpec(Address previous, Address current) {
+        return previous != null
+                && Objects.equals(previous.getType(), current.getType())
+                && Objects.equals(previous.getPlan(), current.getPlan())
+                && previous.getAnnotations().equals(current.getAnnotations());
+    }
+
+    private static boolean isSameStatus(Address previous, Address current) {
+        return previous != null
+                && previous.getStatus().equals(current.getStatus())
+                && previous.getStatus().getMessages().equals(current.getStatus().getMessages());
+    }
+
+    public LatencyHistogram getRouterStatusLatency() {
+        return routerStatusLatency;
+    }
+
+    public LatencyHistogram getRouterConnectLatency() {
+        return routerConnectLatency;
+    }
+
+    public LatencyHistogram getRouterRequestLatency() {
+        return routerRequestLatency;
     }
 
     private void deprovisionUnused(Set<Address> addressSet) {
@@ -163,24 +290,60 @@ public class AddressController extends AbstractVerticle implements Watcher<Addre
 
     private Map<Address, Integer> checkStatuses(Set<Address> addresses, AddressResolver addressResolver) throws Exception {
         Map<Address, Integer> numOk = new HashMap<>();
+        if (addresses.isEmpty()) {
+            return numOk;
+        }
+        Map<String, Boolean> previouslyReady = new HashMap<>();
         for (Address address : addresses) {
+            previouslyReady.put(address.getName(), address.getStatus().isReady());
             address.getStatus().setReady(true).clearMessages();
         }
         // TODO: Instead of going to the routers directly, list routers, and perform a request against the
         // router agent to do the check
-        RouterStatusCollector routerStatusCollector = new RouterStatusCollector(vertx, certDir);
-        List<RouterStatus> routerStatusList = new ArrayList<>();
-        for (Pod router : kubernetes.listRouters()) {
+        if (routerStatusCollector == null) {
+            routerStatusCollector = new RouterStatusCollector(vertx, certDir, routerStatusLatency, routerConnectLatency, routerRequestLatency);
+        }
+        List<Pod> routers = kubernetes.listRouters();
+        routerStatusCollector.retainRouters(routers);
+
+        // Collect from all routers at once, and wait for them until the deadline
+        Map<String, CompletableFuture<RouterStatus>> collecting = new LinkedHashMap<>();
+        for (Pod router : routers) {
             if (router.getStatus().getPodIP() != null && !"".equals(router.getStatus().getPodIP())) {
-                try {
-                    RouterStatus routerStatus = routerStatusCollector.collect(router);
-                    if (routerStatus != null) {
-                        routerStatusList.add(routerStatus);
+                collecting.put(router.getMetadata().getName(), routerStatusCollector.collectAsync(router));
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + options.getRouterStatusTimeout();
+        List<RouterStatus> routerStatusList = new ArrayList<>();
+        List<String> unknownRouters = new ArrayList<>();
+        List<String> unresponsiveRouters = new ArrayList<>();
+        routerMissedChecks.keySet().retainAll(collecting.keySet());
+        for (Map.Entry<String, CompletableFuture<RouterStatus>> entry : collecting.entrySet()) {
+            String routerName = entry.getKey();
+            try {
+                RouterStatus routerStatus = entry.getValue().get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                routerMissedChecks.remove(routerName);
+                if (routerStatus != null) {
+                    routerStatusList.add(routerStatus);
+                }
+            } catch (TimeoutException e) {
+                if (routerStatusCollector.getLastStatus(routerName) != null) {
+                    int missed = routerMissedChecks.merge(routerName, 1, Integer::sum);
+                    log.info("No status from router {} within {} ms, {} checks missed in a row", routerName, options.getRouterStatusTimeout(), missed);
+                    if (missed < options.getRouterStatusMaxMissed()) {
+                        unknownRouters.add(routerName);
+                    } else {
+                        unresponsiveRouters.add(routerName);
                     }
-                } catch (Exception e) {
-                    log.info("Error requesting router status from {}. Ignoring", router.getMetadata().getName(), e);
-                    eventLogger.log(RouterCheckFailed, e.getMessage(), Warning, AddressSpace, addressSpaceName);
+                } else {
+                    log.info("No status from router {} within {} ms. Ignoring", routerName, options.getRouterStatusTimeout());
+                    eventLogger.log(RouterCheckFailed, "Timed out requesting router status from " + routerName, Warning, AddressSpace, addressSpaceName);
                 }
+            } catch (Exception e) {
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                log.info("Error requesting router status from {}. Ignoring", routerName, cause);
+                eventLogger.log(RouterCheckFailed, cause.getMessage(), Warning, AddressSpace, addressSpaceName);
             }
         }
 
@@ -217,12 +380,32 @@ public class AddressController extends AbstractVerticle implements Watcher<Addre
                     }
                     break;
             }
+            ok += checkUnknownRouters(address, previouslyReady.get(address.getName()), unknownRouters, unresponsiveRouters);
             numOk.put(address, ok);
         }
 
         return numOk;
     }
 
+    /**
+     * An unknown router leaves the address as ready as it was before, but is not enough to consider the address gone
+     * from the router, so it counts as found. A router that has missed too many checks makes the address not ready.
+     */
+    private static int checkUnknownRouters(Address address, boolean wasReady, List<String> unknownRouters, List<String> unresponsiveRouters) {
+        int ok = 0;
+        for (String routerName : unknownRouters) {
+            if (!wasReady) {
+                address.getStatus().setReady(false);
+            }
+            address.getStatus().appendMessage("Status of " + routerName + " is unknown, router did not respond in time");
+            ok++;
+        }
+        for (String routerName : unresponsiveRouters) {
+            address.getStatus().setReady(false).appendMessage("Router " + routerName + " did not respond to several status checks in a row");
+        }
+        return ok;
+    }
+
     private int checkBrokerStatus(Address address, Map<String, Integer> clusterOk, AddressPlan addressPlan) {
         String clusterId = isPooled(addressPlan) ? "broker" : address.getName();
         if (!clusterOk.containsKey(clusterId)) {
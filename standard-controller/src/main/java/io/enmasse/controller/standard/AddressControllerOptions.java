@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.controller.standard;
+
+import java.util.Map;
+
+public class AddressControllerOptions {
+    private final Map<String, String> env;
+
+    public AddressControllerOptions(Map<String, String> env) {
+        this.env = env;
+    }
+
+    /**
+     * Interval in milliseconds at which all addresses are checked, not only the changed ones.
+     */
+    public long getStatusCheckInterval() {
+        return getLong("STATUS_CHECK_INTERVAL", 30_000);
+    }
+
+    /**
+     * Time in milliseconds to wait for status from all routers in a check.
+     */
+    public long getRouterStatusTimeout() {
+        return getLong("ROUTER_STATUS_TIMEOUT", 5_000);
+    }
+
+    /**
+     * Number of checks in a row a router that responded before may miss, before its addresses are no longer ready.
+     */
+    public long getRouterStatusMaxMissed() {
+        return getLong("ROUTER_STATUS_MAX_MISSED", 3);
+    }
+
+    private long getLong(String envVar, long defaultValue) {
+        String value = env.get(envVar);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+}
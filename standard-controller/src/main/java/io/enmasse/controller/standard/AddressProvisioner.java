@@ -25,6 +25,7 @@ public class AddressProvisioner {
     private final BrokerSetGenerator clusterGenerator;
     private final Kubernetes kubernetes;
     private final EventLogger eventLogger;
+    private final BrokerPlacement brokerPlacement;
 
     public AddressProvisioner(AddressResolver addressResolver, AddressSpacePlan addressSpacePlan, BrokerSetGenerator clusterGenerator, Kubernetes kubernetes, EventLogger eventLogger) {
         this.addressResolver = addressResolver;
@@ -32,6 +33,20 @@ public class AddressProvisioner {
         this.clusterGenerator = clusterGenerator;
         this.kubernetes = kubernetes;
         this.eventLogger = eventLogger;
+        this.brokerPlacement = createBrokerPlacement(addressSpacePlan);
+    }
+
+    private static BrokerPlacement createBrokerPlacement(AddressSpacePlan addressSpacePlan) {
+        String strategy = addressSpacePlan.getAnnotations().getOrDefault(AnnotationKeys.BROKER_PLACEMENT, BrokerPlacement.FIRST_FIT_DECREASING);
+        switch (strategy) {
+            case BrokerPlacement.BEST_FIT:
+                return new BestFitPlacement();
+            case BrokerPlacement.FIRST_FIT_DECREASING:
+                return new FirstFitDecreasingPlacement();
+            default:
+                log.warn("Unknown broker placement '{}' in plan {}, using {}", strategy, addressSpacePlan.getName(), BrokerPlacement.FIRST_FIT_DECREASING);
+                return new FirstFitDecreasingPlacement();
+        }
     }
 
     /**
@@ -65,10 +80,12 @@ public class AddressProvisioner {
         Map<Address, Map<String, Double>> neededPerAddressMap = new HashMap<>();
         Map<String, Double> limits = computeLimits();
         Map<String, Map<String, Double>> newUsageMap = copyUsageMap(usageMap);
+        UsageTotals totals = new UsageTotals(newUsageMap);
         for (Address address : addressSet) {
-            Map<String, Double> neededMap = checkQuotaForAddress(limits, newUsageMap, address);
+            Map<String, Double> neededMap = checkQuotaForAddress(limits, newUsageMap, totals, address);
             if (neededMap != null) {
                 addToUsage(newUsageMap, address);
+                totals.add(addressResolver.getPlan(addressResolver.getType(address), address));
                 neededPerAddressMap.put(address, neededMap);
             }
         }
@@ -86,7 +103,7 @@ public class AddressProvisioner {
         return newUsageMap;
     }
 
-    private Map<String, Double> checkQuotaForAddress(Map<String, Double> limits, Map<String, Map<String, Double>> usageMap, Address address) {
+    private Map<String, Double> checkQuotaForAddress(Map<String, Double> limits, Map<String, Map<String, Double>> usageMap, UsageTotals totals, Address address) {
         Map<String, Double> neededMap = new HashMap<>();
         AddressType addressType = addressResolver.getType(address);
         AddressPlan addressPlan = addressResolver.getPlan(addressType, address);
@@ -109,15 +126,15 @@ public class AddressProvisioner {
 
             neededMap.put(resourceRequest.getResourceName(), needed);
 
-            if (sumMap(resourceUsage) + needed > limits.get(resourceRequest.getResourceName())) {
+            if (totals.get(resourceRequest.getResourceName()) + needed > limits.get(resourceRequest.getResourceName())) {
                 address.getStatus().setPhase(Status.Phase.Pending);
                 address.getStatus().appendMessage("Quota exceeded");
                 return null;
             }
         }
 
-        log.info("address: {}, usage: {}, needed: {}, aggregate: {}", address.getAddress(), usageMap, neededMap, limits);
-        if (sumTotal(usageMap) + sumMap(neededMap) > limits.get("aggregate")) {
+        log.debug("address: {}, usage: {}, needed: {}, aggregate: {}", address.getAddress(), totals, neededMap, limits);
+        if (totals.getAggregate() + sumMap(neededMap) > limits.get("aggregate")) {
             address.getStatus().setPhase(Status.Phase.Pending);
             address.getStatus().appendMessage("Quota exceeded");
             return null;
@@ -125,17 +142,7 @@ public class AddressProvisioner {
         return neededMap;
     }
 
-    private double sumTotal(Map<String, Map<String, Double>> usageMap) {
-        double totalUsage = 0.0;
-        for (Map<String, Double> usage : usageMap.values()) {
-            for (double value : usage.values()) {
-                totalUsage += value;
-            }
-        }
-        return totalUsage;
-    }
-
-    private double sumMap(Map<String, Double> resourceUsage) {
+    private static double sumMap(Map<String, Double> resourceUsage) {
         double used = 0.0;
         for (double value : resourceUsage.values()) {
             used += value;
@@ -169,18 +176,83 @@ public class AddressProvisioner {
 
     public void provisionResources(Map<String, Map<String, Double>> usageMap, Map<Address, Map<String, Double>> neededMap) {
         Map<String, Map<String, Double>> newUsageMap = copyUsageMap(usageMap);
+        Map<Address, String> pooledPlacement = placePooledAddresses(newUsageMap, neededMap.keySet());
 
         for (Map.Entry<Address, Map<String, Double>> entry : neededMap.entrySet()) {
             Address address = entry.getKey();
             // Update usage map if provisioning was successful
-            if (provisionResources(newUsageMap, entry.getValue(), address)) {
+            if (provisionResources(newUsageMap, entry.getValue(), address, pooledPlacement)) {
                 addToUsage(newUsageMap, address);
             }
         }
 
     }
 
-    private boolean provisionResources(Map<String, Map<String, Double>> usageMap, Map<String, Double> neededMap, Address address) {
+    /**
+     * Places all pooled addresses on brokers at once, so that the placement can consider them together, and scales
+     * the pooled broker set to the number of brokers in the plan. Addresses placed on brokers that do not exist yet
+     * are left out, and are placed once the brokers are running.
+     */
+    private Map<Address, String> placePooledAddresses(Map<String, Map<String, Double>> usageMap, Set<Address> addressSet) {
+        List<Address> pooled = new ArrayList<>();
+        List<Double> credits = new ArrayList<>();
+        ResourceDefinition resourceDefinition = null;
+        for (Address address : addressSet) {
+            AddressType addressType = addressResolver.getType(address);
+            AddressPlan addressPlan = addressResolver.getPlan(addressType, address);
+            for (ResourceRequest resourceRequest : addressPlan.getRequiredResources()) {
+                if ("broker".equals(resourceRequest.getResourceName()) && resourceRequest.getAmount() < 1) {
+                    pooled.add(address);
+                    credits.add(resourceRequest.getAmount());
+                    if (resourceDefinition == null) {
+                        resourceDefinition = addressResolver.getResourceDefinition(addressPlan, resourceRequest.getResourceName());
+                    }
+                }
+            }
+        }
+
+        if (pooled.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // Brokers with usage but no running pod are kept so that they are not scaled away, but are full so that
+        // no address is placed on them
+        Map<String, Double> resourceUsage = usageMap.getOrDefault("broker", Collections.emptyMap());
+        Set<String> runningBrokers = new LinkedHashSet<>(kubernetes.listBrokers("broker"));
+        Set<String> brokerSet = new LinkedHashSet<>(runningBrokers);
+        for (String brokerId : resourceUsage.keySet()) {
+            if (!"all".equals(brokerId)) {
+                brokerSet.add(brokerId);
+            }
+        }
+        List<String> brokers = new ArrayList<>(brokerSet);
+
+        double[] brokerUsage = new double[brokers.size()];
+        for (int i = 0; i < brokerUsage.length; i++) {
+            brokerUsage[i] = runningBrokers.contains(brokers.get(i)) ? resourceUsage.getOrDefault(brokers.get(i), 0.0) : 1.0;
+        }
+        double[] addressCredits = new double[credits.size()];
+        for (int i = 0; i < addressCredits.length; i++) {
+            addressCredits[i] = credits.get(i);
+        }
+
+        PlacementPlan plan = brokerPlacement.place(brokerUsage, addressCredits);
+        log.info("Require {} pooled brokers for {} existing brokers and {} new addresses", plan.getNumBrokers(), brokers.size(), pooled.size());
+        if (!provisionBroker("broker", resourceDefinition, plan.getNumBrokers(), null)) {
+            return Collections.emptyMap();
+        }
+
+        Map<Address, String> placement = new HashMap<>();
+        for (int i = 0; i < pooled.size(); i++) {
+            int broker = plan.getBroker(i);
+            if (broker >= 0 && broker < brokers.size() && runningBrokers.contains(brokers.get(broker))) {
+                placement.put(pooled.get(i), brokers.get(broker));
+            }
+        }
+        return placement;
+    }
+
+    private boolean provisionResources(Map<String, Map<String, Double>> usageMap, Map<String, Double> neededMap, Address address, Map<Address, String> pooledPlacement) {
 
         AddressType addressType = addressResolver.getType(address);
         AddressPlan addressPlan = addressResolver.getPlan(addressType, address);
@@ -199,19 +271,7 @@ public class AddressProvisioner {
                 log.info("Require ceil(usage({}) + needed({})) = {} routers", sumUsage, needed, required);
                 success = provisionRouter(required);
             } else if ("broker".equals(resourceRequest.getResourceName()) && resourceRequest.getAmount() < 1) {
-                double sumUsage = sumMap(resourceUsage);
-                double shardedUsage = resourceUsage.getOrDefault("all", 0.0);
-                double needed = neededMap.get(resourceRequest.getResourceName());
-                int required = (int) Math.ceil(sumUsage
-                        - shardedUsage
-                        + needed);
-
-                log.info("Require ceil(usage({}) - sharded({}) + needed({})) = {} pooled brokers", sumUsage, shardedUsage, needed, required);
-                ResourceDefinition resourceDefinition = addressResolver.getResourceDefinition(addressPlan, resourceRequest.getResourceName());
-                success = provisionBroker(resourceRequest.getResourceName(), resourceDefinition, required, null);
-                if (success) {
-                    success = scheduleAddress(resourceRequest.getResourceName(), address, resourceUsage, resourceRequest.getAmount());
-                }
+                success = scheduleAddress(resourceRequest.getResourceName(), address, pooledPlacement.get(address));
             } else if ("broker".equals(resourceRequest.getResourceName())) {
                 double sumUsage = resourceUsage.getOrDefault("all", 0.0);
                 double needed = neededMap.get(resourceRequest.getResourceName());
@@ -237,24 +297,11 @@ public class AddressProvisioner {
     }
 
 
-    private boolean scheduleAddress(String clusterId, Address address, Map<String, Double> usageMap, double credit) {
-
-        List<BrokerInfo> brokers = new ArrayList<>();
-
+    private boolean scheduleAddress(String clusterId, Address address, String brokerId) {
         address.getAnnotations().put(AnnotationKeys.CLUSTER_ID, clusterId);
-
-        // Add all brokers we know about
-        for (String host : kubernetes.listBrokers(clusterId)) {
-            brokers.add(new BrokerInfo(host, usageMap.getOrDefault(host, 0.0)));
-        }
-
-        brokers.sort(Comparator.comparingDouble(BrokerInfo::getCredit));
-
-        for (BrokerInfo brokerInfo : brokers) {
-            if (brokerInfo.getCredit() + credit < 1) {
-                address.getAnnotations().put(AnnotationKeys.BROKER_ID, brokerInfo.getBrokerId());
-                return true;
-            }
+        if (brokerId != null) {
+            address.getAnnotations().put(AnnotationKeys.BROKER_ID, brokerId);
+            return true;
         }
         log.warn("Unable to find broker for scheduling {}", address);
         return false;
@@ -292,28 +339,47 @@ public class AddressProvisioner {
         } catch (Exception e) {
             log.warn("Error creating broker", e);
             eventLogger.log(BrokerCreateFailed, "Error creating broker: " + e.getMessage(), Warning, Broker, clusterId);
-            address.getStatus().setPhase(Status.Phase.Failed);
-            address.getStatus().appendMessage("Error creating broker: " + e.getMessage());
+            if (address != null) {
+                address.getStatus().setPhase(Status.Phase.Failed);
+                address.getStatus().appendMessage("Error creating broker: " + e.getMessage());
+            }
         }
         return false;
     }
 
-    private static class BrokerInfo {
-        private final String brokerId;
-        private final double credit;
+    /**
+     * Running totals of the usage per resource and in aggregate, so that they are not summed for every address.
+     */
+    private static class UsageTotals {
+        private final Map<String, Double> totals = new HashMap<>();
+        private double aggregate = 0.0;
+
+        private UsageTotals(Map<String, Map<String, Double>> usageMap) {
+            for (Map.Entry<String, Map<String, Double>> entry : usageMap.entrySet()) {
+                double total = sumMap(entry.getValue());
+                totals.put(entry.getKey(), total);
+                aggregate += total;
+            }
+        }
 
-        public String getBrokerId() {
-            return brokerId;
+        private double get(String resourceName) {
+            return totals.getOrDefault(resourceName, 0.0);
         }
 
-        public double getCredit() {
-            return credit;
+        private double getAggregate() {
+            return aggregate;
         }
 
-        private BrokerInfo(String brokerId, double credit) {
-            this.brokerId = brokerId;
-            this.credit = credit;
+        private void add(AddressPlan addressPlan) {
+            for (ResourceRequest resourceRequest : addressPlan.getRequiredResources()) {
+                totals.merge(resourceRequest.getResourceName(), resourceRequest.getAmount(), Double::sum);
+                aggregate += resourceRequest.getAmount();
+            }
         }
 
+        @Override
+        public String toString() {
+            return totals.toString();
+        }
     }
 }
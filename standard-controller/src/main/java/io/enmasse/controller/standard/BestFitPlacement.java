@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.controller.standard;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Places the largest addresses first, each on the broker with the least room left that still fits it.
+ *
+ * The brokers are kept in a tree keyed by free capacity, so that the best broker is found and moved in O(log n),
+ * and placing n addresses takes O(n log n). Brokers with the same free capacity are used in the order they got it.
+ */
+public class BestFitPlacement implements BrokerPlacement {
+    @Override
+    public PlacementPlan place(double[] brokerUsage, double[] credits) {
+        TreeMap<Double, Deque<Integer>> brokersByFree = new TreeMap<>();
+
+        // The most used brokers have the least free capacity
+        for (int broker : BrokerPlacement.decreasingOrder(brokerUsage)) {
+            addBroker(brokersByFree, 1.0 - brokerUsage[broker], broker);
+        }
+
+        int[] brokers = new int[credits.length];
+        int numBrokers = brokerUsage.length;
+        for (int address : BrokerPlacement.decreasingOrder(credits)) {
+            double credit = credits[address];
+            if (!(1.0 > credit)) {
+                brokers[address] = -1;
+                continue;
+            }
+
+            Map.Entry<Double, Deque<Integer>> best = brokersByFree.higherEntry(credit);
+            int broker;
+            if (best == null) {
+                broker = numBrokers++;
+                addBroker(brokersByFree, 1.0 - credit, broker);
+            } else {
+                Deque<Integer> sameFree = best.getValue();
+                broker = sameFree.peekFirst();
+                double remaining = best.getKey() - credit;
+                // A broker keeps its place if the address does not change its free capacity
+                if (remaining != best.getKey()) {
+                    sameFree.pollFirst();
+                    if (sameFree.isEmpty()) {
+                        brokersByFree.remove(best.getKey());
+                    }
+                    addBroker(brokersByFree, remaining, broker);
+                }
+            }
+            brokers[address] = broker;
+        }
+        return new PlacementPlan(brokers, numBrokers);
+    }
+
+    private static void addBroker(TreeMap<Double, Deque<Integer>> brokersByFree, double free, int broker) {
+        brokersByFree.computeIfAbsent(free, f -> new ArrayDeque<>()).addLast(broker);
+    }
+}
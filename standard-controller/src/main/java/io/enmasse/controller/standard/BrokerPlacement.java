@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.controller.standard;
+
+/**
+ * Strategy for placing pooled addresses on brokers. The strategy is selected by the
+ * {@link io.enmasse.config.AnnotationKeys#BROKER_PLACEMENT} annotation of the address space plan.
+ */
+public interface BrokerPlacement {
+    String FIRST_FIT_DECREASING = "first-fit-decreasing";
+    String BEST_FIT = "best-fit";
+
+    /**
+     * Place addresses on brokers with a capacity of 1. An address fits on a broker if the usage of the broker plus
+     * the credit of the address is less than 1. Brokers are added when an address does not fit on any broker.
+     *
+     * @param brokerUsage the current usage of each existing broker
+     * @param credits the broker credit of each address
+     * @return the plan, where brokers beyond the existing brokers are new brokers
+     */
+    PlacementPlan place(double[] brokerUsage, double[] credits);
+
+    /**
+     * Returns the indexes of the values ordered by decreasing value. Equal values keep their order.
+     */
+    static int[] decreasingOrder(double[] values) {
+        int[] order = new int[values.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        int[] buffer = new int[order.length];
+        for (int width = 1; width < order.length; width *= 2) {
+            for (int lo = 0; lo < order.length - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, order.length);
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                while (i < mid && j < hi) {
+                    buffer[k++] = values[order[j]] > values[order[i]] ? order[j++] : order[i++];
+                }
+                while (i < mid) {
+                    buffer[k++] = order[i++];
+                }
+                while (j < hi) {
+                    buffer[k++] = order[j++];
+                }
+                System.arraycopy(buffer, lo, order, lo, hi - lo);
+            }
+        }
+        return order;
+    }
+}
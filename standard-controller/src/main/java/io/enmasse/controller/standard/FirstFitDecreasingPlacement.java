@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.controller.standard;
+
+/**
+ * Places the largest addresses first, each on the first broker with room for it.
+ *
+ * The free capacity of the brokers is kept in a tree of maximums, so that the first broker with room is found in
+ * O(log m) for m brokers, and the plan is computed in O(n log n) for n addresses.
+ */
+public class FirstFitDecreasingPlacement implements BrokerPlacement {
+    @Override
+    public PlacementPlan place(double[] brokerUsage, double[] credits) {
+        int numBins = brokerUsage.length + credits.length;
+        int size = 1;
+        while (size < numBins) {
+            size *= 2;
+        }
+
+        // Leaves hold the free capacity of each broker, inner nodes the maximum of their children
+        double[] tree = new double[2 * size];
+        for (int i = 0; i < size; i++) {
+            if (i < brokerUsage.length) {
+                tree[size + i] = 1.0 - brokerUsage[i];
+            } else if (i < numBins) {
+                tree[size + i] = 1.0;
+            } else {
+                tree[size + i] = -1.0;
+            }
+        }
+        for (int node = size - 1; node > 0; node--) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+
+        int[] brokers = new int[credits.length];
+        int numBrokers = brokerUsage.length;
+        for (int address : BrokerPlacement.decreasingOrder(credits)) {
+            double credit = credits[address];
+            if (!(tree[1] > credit)) {
+                brokers[address] = -1;
+                continue;
+            }
+
+            int node = 1;
+            while (node < size) {
+                node = tree[2 * node] > credit ? 2 * node : 2 * node + 1;
+            }
+            int broker = node - size;
+            brokers[address] = broker;
+            numBrokers = Math.max(numBrokers, broker + 1);
+
+            tree[node] -= credit;
+            for (node /= 2; node > 0; node /= 2) {
+                tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+        return new PlacementPlan(brokers, numBrokers);
+    }
+}
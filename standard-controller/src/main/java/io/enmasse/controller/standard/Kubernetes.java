@@ -54,4 +54,9 @@ public interface Kubernetes {
 
     void scaleDeployment(String deploymentName, int numReplicas);
     void scaleStatefulSet(String setName, int numReplicas);
+
+    /**
+     * Release the resources held for reading from Kubernetes.
+     */
+    default void close() {}
 }
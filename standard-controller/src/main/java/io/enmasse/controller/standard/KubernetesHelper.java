@@ -8,9 +8,14 @@ import io.enmasse.config.AnnotationKeys;
 import io.enmasse.config.LabelKeys;
 import io.enmasse.k8s.api.AddressApi;
 import io.enmasse.k8s.api.ConfigMapAddressApi;
+import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.KubernetesList;
+import io.fabric8.kubernetes.api.model.PersistentVolumeClaim;
 import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.extensions.Deployment;
+import io.fabric8.kubernetes.api.model.extensions.StatefulSet;
 import io.fabric8.kubernetes.client.internal.readiness.Readiness;
 import io.fabric8.openshift.client.OpenShiftClient;
 import io.fabric8.openshift.client.ParameterValue;
@@ -24,15 +29,40 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Kubernetes operations for the standard controller.
+ *
+ * Reads are served from local caches of the resources in the namespace, which are kept up to date by watches.
+ * Resources created and deleted through this class are applied to the caches right away.
+ */
 public class KubernetesHelper implements Kubernetes {
     private static final Logger log = LoggerFactory.getLogger(KubernetesHelper.class);
     private final File templateDir;
     private static final String TEMPLATE_SUFFIX = ".json";
     private final OpenShiftClient client;
+    private final ResourceCache<Pod> pods;
+    private final ResourceCache<Deployment> deployments;
+    private final ResourceCache<StatefulSet> statefulSets;
+    private final ResourceCache<PersistentVolumeClaim> persistentVolumeClaims;
+    private final ResourceCache<ConfigMap> configMaps;
+    private final ResourceCache<Service> services;
+    private final Map<String, ResourceCache<? extends HasMetadata>> cachesByKind = new HashMap<>();
 
     public KubernetesHelper(OpenShiftClient client, File templateDir) {
         this.client = client;
         this.templateDir = templateDir;
+        this.pods = addCache(new ResourceCache<>(Pod.class, () -> client.pods().list(), (version, watcher) -> client.pods().withResourceVersion(version).watch(watcher)));
+        this.deployments = addCache(new ResourceCache<>(Deployment.class, () -> client.extensions().deployments().list(), (version, watcher) -> client.extensions().deployments().withResourceVersion(version).watch(watcher)));
+        this.statefulSets = addCache(new ResourceCache<>(StatefulSet.class, () -> client.apps().statefulSets().list(), (version, watcher) -> client.apps().statefulSets().withResourceVersion(version).watch(watcher)));
+        this.persistentVolumeClaims = addCache(new ResourceCache<>(PersistentVolumeClaim.class, () -> client.persistentVolumeClaims().list(), (version, watcher) -> client.persistentVolumeClaims().withResourceVersion(version).watch(watcher)));
+        // Address config maps are never part of a cluster, and are watched separately through the address API
+        this.configMaps = addCache(new ResourceCache<>(ConfigMap.class, () -> client.configMaps().withLabelNotIn(LabelKeys.TYPE, "address-config").list(), (version, watcher) -> client.configMaps().withLabelNotIn(LabelKeys.TYPE, "address-config").withResourceVersion(version).watch(watcher)));
+        this.services = addCache(new ResourceCache<>(Service.class, () -> client.services().list(), (version, watcher) -> client.services().withResourceVersion(version).watch(watcher)));
+    }
+
+    private <T extends HasMetadata> ResourceCache<T> addCache(ResourceCache<T> cache) {
+        cachesByKind.put(cache.getKind(), cache);
+        return cache;
     }
 
     @Override
@@ -41,11 +71,11 @@ public class KubernetesHelper implements Kubernetes {
 
         // Add other resources part of a destination cluster
         List<HasMetadata> objects = new ArrayList<>();
-        objects.addAll(client.extensions().deployments().list().getItems());
-        objects.addAll(client.apps().statefulSets().list().getItems());
-        objects.addAll(client.persistentVolumeClaims().list().getItems());
-        objects.addAll(client.configMaps().list().getItems());
-        objects.addAll(client.services().list().getItems());
+        objects.addAll(deployments.list());
+        objects.addAll(statefulSets.list());
+        objects.addAll(persistentVolumeClaims.list());
+        objects.addAll(configMaps.list());
+        objects.addAll(services.list());
 
         for (HasMetadata config : objects) {
             Map<String, String> annotations = config.getMetadata().getAnnotations();
@@ -89,17 +119,33 @@ public class KubernetesHelper implements Kubernetes {
 
     @Override
     public List<Pod> listRouters() {
-        return client.pods().withLabel(LabelKeys.CAPABILITY, "router").list().getItems();
+        return pods.list().stream()
+                .filter(pod -> pod.getMetadata().getLabels() != null && "router".equals(pod.getMetadata().getLabels().get(LabelKeys.CAPABILITY)))
+                .collect(Collectors.toList());
     }
 
     @Override
     public void create(KubernetesList resources) {
-        client.lists().create(resources);
+        KubernetesList created = client.lists().create(resources);
+        if (created != null) {
+            for (HasMetadata resource : created.getItems()) {
+                ResourceCache<? extends HasMetadata> cache = cachesByKind.get(resource.getKind());
+                if (cache != null) {
+                    cache.putIfKind(resource);
+                }
+            }
+        }
     }
 
     @Override
     public void delete(KubernetesList resources) {
         client.lists().delete(resources);
+        for (HasMetadata resource : resources.getItems()) {
+            ResourceCache<? extends HasMetadata> cache = cachesByKind.get(resource.getKind());
+            if (cache != null) {
+                cache.remove(resource.getMetadata().getName());
+            }
+        }
     }
 
     @Override
@@ -110,7 +156,7 @@ public class KubernetesHelper implements Kubernetes {
     @Override
     public List<String> listBrokers(String clusterId) {
         List<String> addresses = new ArrayList<>();
-        for (Pod pod : client.pods().list().getItems()) {
+        for (Pod pod : pods.list()) {
             if (pod.getMetadata().getAnnotations() != null &&
                     clusterId.equals(pod.getMetadata().getAnnotations().get(AnnotationKeys.CLUSTER_ID))) {
 
@@ -133,6 +179,16 @@ public class KubernetesHelper implements Kubernetes {
         client.apps().statefulSets().withName(setName).scale(numReplicas);
     }
 
+    /**
+     * Stops the watches of the caches.
+     */
+    @Override
+    public void close() {
+        for (ResourceCache<? extends HasMetadata> cache : cachesByKind.values()) {
+            cache.close();
+        }
+    }
+
     @Override
     public KubernetesList processTemplate(String templateName, ParameterValue... parameterValues) {
         if (templateDir != null) {
@@ -55,7 +55,8 @@ public class Main {
                 clusterGenerator,
                 certDir,
                 eventLogger,
-                schemaProvider);
+                schemaProvider,
+                new AddressControllerOptions(env));
 
         log.info("Deploying address space controller for " + addressSpace);
         Vertx vertx = Vertx.vertx();
@@ -67,7 +68,21 @@ public class Main {
             }
         });
         vertx.createHttpServer()
-                .requestHandler(request -> request.response().setStatusCode(200).end()).listen(8889);
+                .requestHandler(request -> {
+                    if ("/metrics".equals(request.path())) {
+                        StringBuilder metrics = new StringBuilder();
+                        addressController.getRouterStatusLatency().writePrometheus(metrics);
+                        addressController.getRouterConnectLatency().writePrometheus(metrics);
+                        addressController.getRouterRequestLatency().writePrometheus(metrics);
+                        ResourceControllerScheduler.getDefault().writePrometheus(metrics);
+                        request.response()
+                                .putHeader("Content-Type", "text/plain; version=0.0.4")
+                                .setStatusCode(200)
+                                .end(metrics.toString());
+                    } else {
+                        request.response().setStatusCode(200).end();
+                    }
+                }).listen(8889);
     }
 
     private static Optional<String> getEnv(Map<String, String> env, String envVar) {
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.controller.standard;
+
+/**
+ * The brokers chosen by a {@link BrokerPlacement} for a set of addresses.
+ */
+public class PlacementPlan {
+    private final int[] brokers;
+    private final int numBrokers;
+
+    PlacementPlan(int[] brokers, int numBrokers) {
+        this.brokers = brokers;
+        this.numBrokers = numBrokers;
+    }
+
+    /**
+     * Returns the broker index of the address at the given index, or -1 if the address does not fit on a broker.
+     */
+    public int getBroker(int address) {
+        return brokers[address];
+    }
+
+    /**
+     * Returns the number of brokers needed, including the existing brokers.
+     */
+    public int getNumBrokers() {
+        return numBrokers;
+    }
+}
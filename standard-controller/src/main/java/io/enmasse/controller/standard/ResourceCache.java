@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.controller.standard;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * A local cache of the resources of one kind, kept up to date by a watch.
+ *
+ * The cache is filled by listing the resources on the first read, and then updated from a watch started at the
+ * version of the list. If the watch fails or is closed, the cache is refilled on the next read. Once the cache is
+ * closed, reads list the resources without caching them.
+ */
+class ResourceCache<T extends HasMetadata> implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ResourceCache.class);
+    private final Class<T> type;
+    private final String kind;
+    private final Supplier<? extends KubernetesResourceList<?>> lister;
+    private final BiFunction<String, Watcher<T>, Watch> watcher;
+
+    // Guarded by this
+    private final Map<String, T> resources = new LinkedHashMap<>();
+    private boolean synced = false;
+    private Watch watch;
+    private long generation = 0;
+    private boolean closed = false;
+
+    ResourceCache(Class<T> type, Supplier<? extends KubernetesResourceList<?>> lister, BiFunction<String, Watcher<T>, Watch> watcher) {
+        this.type = type;
+        this.kind = type.getSimpleName();
+        this.lister = lister;
+        this.watcher = watcher;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public synchronized List<T> list() {
+        if (closed) {
+            return getItems(lister.get());
+        }
+        if (!synced) {
+            sync();
+        }
+        return new ArrayList<>(resources.values());
+    }
+
+    private void sync() {
+        closeWatch();
+        KubernetesResourceList<?> list = lister.get();
+        resources.clear();
+        for (T resource : getItems(list)) {
+            resources.put(resource.getMetadata().getName(), resource);
+        }
+
+        long watchGeneration = ++generation;
+        watch = watcher.apply(list.getMetadata().getResourceVersion(), new Watcher<T>() {
+            @Override
+            public void eventReceived(Action action, T resource) {
+                handleEvent(watchGeneration, action, resource);
+            }
+
+            @Override
+            public void onClose(KubernetesClientException cause) {
+                handleClose(watchGeneration, cause);
+            }
+        });
+        synced = true;
+        log.debug("Cached {} resources of kind {}", resources.size(), kind);
+    }
+
+    /**
+     * The kubernetes list types do not declare their item type, so the items are checked against the cached kind.
+     */
+    private List<T> getItems(KubernetesResourceList<?> list) {
+        List<T> items = new ArrayList<>(list.getItems().size());
+        for (HasMetadata item : list.getItems()) {
+            items.add(type.cast(item));
+        }
+        return items;
+    }
+
+    private synchronized void handleEvent(long watchGeneration, Watcher.Action action, T resource) {
+        if (watchGeneration != generation) {
+            return;
+        }
+        switch (action) {
+            case ADDED:
+            case MODIFIED:
+                resources.put(resource.getMetadata().getName(), resource);
+                break;
+            case DELETED:
+                resources.remove(resource.getMetadata().getName());
+                break;
+            case ERROR:
+                log.info("Error watching resources of kind {}, relisting on next read", kind);
+                synced = false;
+                break;
+        }
+    }
+
+    private synchronized void handleClose(long watchGeneration, KubernetesClientException cause) {
+        if (watchGeneration == generation) {
+            log.info("Watch for resources of kind {} closed, relisting on next read", kind, cause);
+            watch = null;
+            synced = false;
+        }
+    }
+
+    /**
+     * Update the cache with a resource that has been created or changed by this process, without waiting for the
+     * watch event.
+     */
+    public synchronized void put(T resource) {
+        if (synced) {
+            resources.put(resource.getMetadata().getName(), resource);
+        }
+    }
+
+    /**
+     * Update the cache with a resource of any kind that has been created by this process, if it is of the kind of
+     * the cache.
+     */
+    public void putIfKind(HasMetadata resource) {
+        if (type.isInstance(resource)) {
+            put(type.cast(resource));
+        }
+    }
+
+    /**
+     * Remove a resource that has been deleted by this process, without waiting for the watch event.
+     */
+    public synchronized void remove(String name) {
+        resources.remove(name);
+    }
+
+    private void closeWatch() {
+        if (watch != null) {
+            try {
+                watch.close();
+            } catch (Exception e) {
+                log.debug("Error closing watch for resources of kind {}", kind, e);
+            }
+            watch = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        generation++;
+        closeWatch();
+        synced = false;
+        resources.clear();
+    }
+}
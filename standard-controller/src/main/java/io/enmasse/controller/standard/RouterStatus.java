@@ -5,7 +5,6 @@
 package io.enmasse.controller.standard;
 
 import io.enmasse.address.model.Address;
-import io.enmasse.amqp.SyncRequestClient;
 import io.enmasse.config.AnnotationKeys;
 import io.fabric8.kubernetes.api.model.Container;
 import io.fabric8.kubernetes.api.model.ContainerPort;
@@ -36,12 +35,43 @@ class RouterStatus {
     private final List<List<String>> linkRoutes;
     private final List<String> connections;
 
+    // Indexes built from the lists, so that each check is a lookup instead of a scan
+    private final Set<String> addressIndex;
+    private final Map<String, Integer> autoLinkCount;
+    private final Map<String, Set<String>> activeAutoLinkDirs;
+    private final Map<String, Integer> linkRouteCount;
+    private final Map<String, Map<String, Set<String>>> activeLinkRouteDirs;
+    private final NavigableSet<String> connectionIndex;
+
     RouterStatus(String routerId, List<String> addresses, List<List<String>> autoLinks, List<List<String>> linkRoutes, List<String> connections) {
         this.routerId = routerId;
         this.addresses = addresses;
         this.autoLinks = autoLinks;
         this.linkRoutes = linkRoutes;
         this.connections = connections;
+
+        this.addressIndex = new HashSet<>(addresses);
+        this.autoLinkCount = new HashMap<>();
+        this.activeAutoLinkDirs = new HashMap<>();
+        this.linkRouteCount = new HashMap<>();
+        this.activeLinkRouteDirs = new HashMap<>();
+        this.connectionIndex = new TreeSet<>(connections);
+        for (List<String> autoLink : autoLinks) {
+            String addr = autoLink.get(0);
+            autoLinkCount.merge(addr, 1, Integer::sum);
+            if ("active".equals(autoLink.get(3))) {
+                activeAutoLinkDirs.computeIfAbsent(addr, k -> new HashSet<>()).add(autoLink.get(2));
+            }
+        }
+        for (List<String> linkRoute : linkRoutes) {
+            String prefix = linkRoute.get(0);
+            linkRouteCount.merge(prefix, 1, Integer::sum);
+            if ("active".equals(linkRoute.get(3))) {
+                activeLinkRouteDirs.computeIfAbsent(prefix, k -> new HashMap<>())
+                        .computeIfAbsent(linkRoute.get(1), k -> new HashSet<>())
+                        .add(linkRoute.get(2));
+            }
+        }
     }
 
     public String getRouterId() {
@@ -50,7 +80,7 @@ class RouterStatus {
 
     public int checkAddress(Address address) {
         int ok = 0;
-        boolean found = addresses.contains(address.getAddress());
+        boolean found = addressIndex.contains(address.getAddress());
         if (!found) {
             address.getStatus().setReady(false).appendMessage("Address " + address.getAddress() + " not found on " + routerId);
         } else {
@@ -60,15 +90,7 @@ class RouterStatus {
     }
 
     public int checkAutoLinks(Address address) {
-
-        int ok = 0;
-        for (List<String> autoLink : autoLinks) {
-            String addr = autoLink.get(0);
-
-            if (addr.equals(address.getAddress())) {
-                ok++;
-            }
-        }
+        int ok = autoLinkCount.getOrDefault(address.getAddress(), 0);
 
         if (ok < 2) {
             address.getStatus().setReady(false).appendMessage("Address " + address.getAddress() + " is missing autoLinks on " + routerId);
@@ -78,16 +100,7 @@ class RouterStatus {
     }
 
     public int checkLinkRoutes(Address address) {
-        int ok = 0;
-
-        for (List<String> linkRoute : linkRoutes) {
-            String prefix = linkRoute.get(0);
-
-            // Pooled topics have active link routes
-            if (prefix.equals(address.getAddress())) {
-                ok++;
-            }
-        }
+        int ok = linkRouteCount.getOrDefault(address.getAddress(), 0);
 
         if (ok < 2) {
             address.getStatus().setReady(false).appendMessage("Address " + address.getAddress() + " is missing linkRoutes on " + routerId);
@@ -101,16 +114,7 @@ class RouterStatus {
         Set<String> active = new HashSet<>();
 
         for (RouterStatus routerStatus : routerStatusList) {
-
-            for (List<String> autoLink : routerStatus.autoLinks) {
-                String addr = autoLink.get(0);
-                String dir = autoLink.get(2);
-                String operStatus = autoLink.get(3);
-
-                if (addr.equals(address.getAddress()) && operStatus.equals("active")) {
-                    active.add(dir);
-                }
-            }
+            active.addAll(routerStatus.activeAutoLinkDirs.getOrDefault(address.getAddress(), Collections.emptySet()));
         }
 
         if (active.size() < 2) {
@@ -126,17 +130,10 @@ class RouterStatus {
         Set<String> active = new HashSet<>();
         String brokerId = address.getAnnotations().get(AnnotationKeys.BROKER_ID);
 
-        for (RouterStatus routerStatus : routerStatusList) {
-
-            for (List<String> linkRoute : routerStatus.linkRoutes) {
-                String addr = linkRoute.get(0);
-                String containerId = linkRoute.get(1);
-                String dir = linkRoute.get(2);
-                String operStatus = linkRoute.get(3);
-
-                if (addr.equals(address.getAddress()) && brokerId != null && brokerId.equals(containerId) && operStatus.equals("active")) {
-                    active.add(dir);
-                }
+        if (brokerId != null) {
+            for (RouterStatus routerStatus : routerStatusList) {
+                active.addAll(routerStatus.activeLinkRouteDirs.getOrDefault(address.getAddress(), Collections.emptyMap())
+                        .getOrDefault(brokerId, Collections.emptySet()));
             }
         }
 
@@ -151,11 +148,10 @@ class RouterStatus {
     public static int checkConnection(Address address, List<RouterStatus> routerStatusList) {
         int ok = 0;
         for (RouterStatus routerStatus : routerStatusList) {
-            for (String containerId : routerStatus.connections) {
-                if (containerId.startsWith(address.getName())) {
-                    ok++;
-                    break;
-                }
+            // The smallest container id not before the name is the only candidate for having it as prefix
+            String containerId = routerStatus.connectionIndex.ceiling(address.getName());
+            if (containerId != null && containerId.startsWith(address.getName())) {
+                ok++;
             }
         }
 
@@ -4,7 +4,8 @@
  */
 package io.enmasse.controller.standard;
 
-import io.enmasse.amqp.SyncRequestClient;
+import io.enmasse.amqp.ProtonRequestClient;
+import io.enmasse.metrics.LatencyHistogram;
 import io.fabric8.kubernetes.api.model.Container;
 import io.fabric8.kubernetes.api.model.ContainerPort;
 import io.fabric8.kubernetes.api.model.Pod;
@@ -21,19 +22,48 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
-class RouterStatusCollector {
+/**
+ * Collects status from the routers of the address space.
+ *
+ * Management connections are kept open between collections, with one client per router pod. The queries for a
+ * router are sent at the same time on its connection. The latest status of each router is kept, so that a router
+ * that does not respond in time can be told from one that never responded.
+ */
+class RouterStatusCollector implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(RouterStatusCollector.class);
+    private static final long QUERY_TIMEOUT_SECONDS = 10;
     private final Vertx vertx;
-    private final String certDir;
+    private final ProtonClientOptions clientOptions;
+    private final Map<String, ProtonRequestClient> clients = new HashMap<>();
+    private final Map<String, RouterStatus> lastStatus = new ConcurrentHashMap<>();
+    private final LatencyHistogram latencyHistogram;
+    private final LatencyHistogram connectLatency;
+    private final LatencyHistogram requestLatency;
 
-    public RouterStatusCollector(Vertx vertx, String certDir) {
+    public RouterStatusCollector(Vertx vertx, String certDir, LatencyHistogram latencyHistogram, LatencyHistogram connectLatency, LatencyHistogram requestLatency) {
         this.vertx = vertx;
-        this.certDir = certDir;
+        this.latencyHistogram = latencyHistogram;
+        this.connectLatency = connectLatency;
+        this.requestLatency = requestLatency;
+        this.clientOptions = new ProtonClientOptions()
+                .setSsl(true)
+                .addEnabledSaslMechanism("EXTERNAL")
+                .setHostnameVerificationAlgorithm("")
+                .setPemTrustOptions(new PemTrustOptions()
+                        .addCertPath(new File(certDir, "ca.crt").getAbsolutePath()))
+                .setPemKeyCertOptions(new PemKeyCertOptions()
+                        .setCertPath(new File(certDir, "tls.crt").getAbsolutePath())
+                        .setKeyPath(new File(certDir, "tls.key").getAbsolutePath()));
     }
 
-    public RouterStatus collect(Pod router) throws Exception {
+    /**
+     * Start collecting the status of a router. The future completes with null if the router has no management port.
+     */
+    public CompletableFuture<RouterStatus> collectAsync(Pod router) {
         int port = 0;
         for (Container container : router.getSpec().getContainers()) {
             if (container.getName().equals("router")) {
@@ -47,34 +77,80 @@ class RouterStatusCollector {
 
         if (port != 0) {
             log.debug("Checking router status of router " + router.getStatus().getPodIP());
-            ProtonClientOptions clientOptions = new ProtonClientOptions()
-                    .setSsl(true)
-                    .addEnabledSaslMechanism("EXTERNAL")
-                    .setHostnameVerificationAlgorithm("")
-                    .setPemTrustOptions(new PemTrustOptions()
-                            .addCertPath(new File(certDir, "ca.crt").getAbsolutePath()))
-                    .setPemKeyCertOptions(new PemKeyCertOptions()
-                            .setCertPath(new File(certDir, "tls.crt").getAbsolutePath())
-                            .setKeyPath(new File(certDir, "tls.key").getAbsolutePath()));
-            SyncRequestClient client = new SyncRequestClient(router.getStatus().getPodIP(), port, vertx, clientOptions);
-
-            List<String> addresses = filterOnAttribute(collectRouter(client,"org.apache.qpid.dispatch.router.config.address",
-                    Arrays.asList("prefix")), 0);
-
-            List<List<String>> autoLinks = collectRouter(client, "org.apache.qpid.dispatch.router.config.autoLink",
+            String routerId = router.getMetadata().getName();
+            ProtonRequestClient client = getClient(routerId, router.getStatus().getPodIP(), port);
+            long start = System.currentTimeMillis();
+
+            CompletableFuture<List<List<String>>> addresses = collectRouter(client, "org.apache.qpid.dispatch.router.config.address",
+                    Arrays.asList("prefix"));
+            CompletableFuture<List<List<String>>> autoLinks = collectRouter(client, "org.apache.qpid.dispatch.router.config.autoLink",
                     Arrays.asList("addr", "containerId", "dir", "operStatus"));
-            List<List<String>> linkRoutes = collectRouter(client, "org.apache.qpid.dispatch.router.config.linkRoute",
+            CompletableFuture<List<List<String>>> linkRoutes = collectRouter(client, "org.apache.qpid.dispatch.router.config.linkRoute",
                     Arrays.asList("prefix", "containerId", "dir", "operStatus"));
-            List<String> connections = filterOnAttribute(collectRouter(client, "org.apache.qpid.dispatch.connection",
-                    Arrays.asList("container")), 0);
+            CompletableFuture<List<List<String>>> connections = collectRouter(client, "org.apache.qpid.dispatch.connection",
+                    Arrays.asList("container"));
 
-
-            String routerId = router.getMetadata().getName();
-            return new RouterStatus(routerId, addresses, autoLinks, linkRoutes, connections);
+            return CompletableFuture.allOf(addresses, autoLinks, linkRoutes, connections)
+                    .thenApply(v -> new RouterStatus(routerId, filterOnAttribute(addresses.join(), 0), autoLinks.join(), linkRoutes.join(), filterOnAttribute(connections.join(), 0)))
+                    .whenComplete((status, error) -> {
+                        latencyHistogram.record(System.currentTimeMillis() - start);
+                        if (status != null) {
+                            lastStatus.put(routerId, status);
+                        }
+                    });
         } else {
             log.info("Unable to find appropriate router port, skipping address check");
-            return null;
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Get the latest status collected from a router, or null if none has been collected.
+     */
+    public RouterStatus getLastStatus(String routerName) {
+        return lastStatus.get(routerName);
+    }
+
+    private synchronized ProtonRequestClient getClient(String routerName, String host, int port) {
+        ProtonRequestClient client = clients.get(routerName);
+        if (client != null && (!client.getHost().equals(host) || client.getPort() != port)) {
+            log.debug("Router {} moved to {}:{}, replacing client", routerName, host, port);
+            client.close();
+            client = null;
+        }
+        if (client == null) {
+            client = new ProtonRequestClient(host, port, vertx, clientOptions, connectLatency, requestLatency);
+            clients.put(routerName, client);
         }
+        return client;
+    }
+
+    /**
+     * Close the clients of routers that are no longer present.
+     */
+    public synchronized void retainRouters(Collection<Pod> routers) {
+        Set<String> names = new HashSet<>();
+        for (Pod router : routers) {
+            names.add(router.getMetadata().getName());
+        }
+        Iterator<Map.Entry<String, ProtonRequestClient>> it = clients.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, ProtonRequestClient> entry = it.next();
+            if (!names.contains(entry.getKey())) {
+                log.debug("Closing client for removed router {}", entry.getKey());
+                entry.getValue().close();
+                it.remove();
+                lastStatus.remove(entry.getKey());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (ProtonRequestClient client : clients.values()) {
+            client.close();
+        }
+        clients.clear();
     }
 
     private static List<String> filterOnAttribute(List<List<String>> list, int attrNum) {
@@ -85,11 +161,11 @@ class RouterStatusCollector {
         return filtered;
     }
 
-    private static List<List<String>> collectRouter(SyncRequestClient client, String entityType, List<String> attributeNames) throws Exception {
+    private static CompletableFuture<List<List<String>>> collectRouter(ProtonRequestClient client, String entityType, List<String> attributeNames) {
         Map<String, Object> properties = new LinkedHashMap<>();
         properties.put("operation", "QUERY");
         properties.put("entityType", entityType);
-        Map body = new LinkedHashMap<>();
+        Map<String, Object> body = new LinkedHashMap<>();
 
         body.put("attributeNames", attributeNames);
 
@@ -98,10 +174,17 @@ class RouterStatusCollector {
         message.setApplicationProperties(new ApplicationProperties(properties));
         message.setBody(new AmqpValue(body));
 
-        Message response = client.request(message, 10, TimeUnit.SECONDS);
+        return client.requestAsync(message, QUERY_TIMEOUT_SECONDS, TimeUnit.SECONDS).thenApply(RouterStatusCollector::getResults);
+    }
+
+    /**
+     * The body of a query response is decoded from AMQP without type information. The results hold one list of
+     * attribute values per entity, and all attributes queried by the collector are strings.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<List<String>> getResults(Message response) {
         AmqpValue value = (AmqpValue) response.getBody();
-        Map values = (Map) value.getValue();
-        List<List<String>> results = (List<List<String>>) values.get("results");
-        return results;
+        Map<String, Object> values = (Map<String, Object>) value.getValue();
+        return (List<List<String>>) values.get("results");
     }
 }
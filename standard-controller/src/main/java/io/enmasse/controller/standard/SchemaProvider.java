@@ -1,11 +0,0 @@
-/*
- * Copyright 2016-2018, EnMasse authors.
- * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
- */
-package io.enmasse.controller.standard;
-
-import io.enmasse.address.model.Schema;
-
-public interface SchemaProvider {
-    Schema getSchema();
-}
@@ -16,6 +16,8 @@ import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
 import io.fabric8.kubernetes.api.model.KubernetesList;
 import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.openshift.client.OpenShiftClient;
 import org.junit.Before;
@@ -25,6 +27,7 @@ import org.mockito.internal.util.collections.Sets;
 import org.mockito.internal.verification.VerificationModeFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.hasItem;
@@ -98,4 +101,109 @@ public class AddressControllerTest {
         verify(mockHelper).delete(any());
         verify(mockHelper).delete(eq(oldList));
     }
+
+    @Test
+    public void testUnchangedAddressesNotReplaced() throws Exception {
+        AddressController incrementalController = new AddressController("me", mockApi, mockHelper, mockGenerator, null, mock(EventLogger.class), new StandardControllerSchema()::getSchema,
+                new AddressControllerOptions(Collections.singletonMap("STATUS_CHECK_INTERVAL", "60000")));
+        Address configuring = new Address.Builder()
+                .setName("a1")
+                .setAddress("a1")
+                .setType("anycast")
+                .setPlan("small-anycast")
+                .setStatus(new Status(false).setPhase(Status.Phase.Configuring))
+                .build();
+        Address active = new Address.Builder()
+                .setName("a2")
+                .setAddress("a2")
+                .setType("anycast")
+                .setPlan("small-anycast")
+                .setStatus(new Status(true).setPhase(Status.Phase.Active))
+                .build();
+
+        incrementalController.resourcesUpdated(Sets.newSet(configuring, active), Sets.newSet("a1", "a2"));
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(mockApi).replaceAddressStatuses(captor.capture());
+        assertThat(captor.getValue().size(), is(1));
+        Address replaced = (Address) captor.getValue().iterator().next();
+        assertThat(replaced.getAddress(), is("a1"));
+        assertThat(replaced.getStatus().getPhase(), is(Status.Phase.Active));
+
+        incrementalController.resourcesUpdated(Sets.newSet(replaced, active), Collections.emptySet());
+        verify(mockApi, times(1)).replaceAddressStatuses(any());
+        verify(mockApi, never()).replaceAddress(any());
+        verify(mockHelper, times(1)).listRouters();
+
+        // An address with a changed key is checked again, but not written if it is unchanged
+        incrementalController.resourcesUpdated(Sets.newSet(replaced, active), Collections.singleton("a2"));
+        verify(mockHelper, times(2)).listRouters();
+        verify(mockApi, times(2)).replaceAddressStatuses(captor.capture());
+        assertTrue(captor.getValue().isEmpty());
+        verify(mockApi, never()).replaceAddress(any());
+    }
+
+    @Test
+    public void testUnknownRouterKeepsReadiness() throws Exception {
+        RouterStatusCollector mockCollector = mock(RouterStatusCollector.class);
+        Map<String, String> env = new HashMap<>();
+        env.put("ROUTER_STATUS_TIMEOUT", "10");
+        env.put("ROUTER_STATUS_MAX_MISSED", "2");
+        AddressController routerController = new AddressController("me", mockApi, mockHelper, mockGenerator, null, mock(EventLogger.class), new StandardControllerSchema()::getSchema,
+                new AddressControllerOptions(env), mockCollector);
+
+        RouterStatus status1 = new RouterStatus("router-1", Arrays.asList("a1", "a2"), Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+        RouterStatus status2 = new RouterStatus("router-2", Arrays.asList("a1", "a2"), Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+        when(mockHelper.listRouters()).thenReturn(Arrays.asList(createRouter("router-1"), createRouter("router-2")));
+        when(mockCollector.getLastStatus(eq("router-2"))).thenReturn(status2);
+        // router-2 never responds in time
+        when(mockCollector.collectAsync(any())).thenAnswer(invocation -> {
+            Pod router = invocation.getArgument(0);
+            return "router-1".equals(router.getMetadata().getName()) ? CompletableFuture.completedFuture(status1) : new CompletableFuture<>();
+        });
+
+        Address a1 = createActiveAnycast("a1");
+        Address a2 = createActiveAnycast("a2");
+        routerController.resourcesUpdated(Sets.newSet(a1, a2));
+
+        // The addresses stay ready, with a message about the unknown router
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(mockApi).replaceAddressStatuses(captor.capture());
+        assertThat(captor.getValue().size(), is(2));
+        Set<Address> checked = new HashSet<>();
+        for (Object updated : captor.getValue()) {
+            Address address = (Address) updated;
+            assertTrue(address.getStatus().isReady());
+            assertThat(address.getStatus().getMessages(), hasItem("Status of router-2 is unknown, router did not respond in time"));
+            checked.add(address);
+        }
+
+        // Once the router has missed too many checks in a row, the addresses are no longer ready
+        routerController.resourcesUpdated(checked);
+        verify(mockApi, times(2)).replaceAddressStatuses(captor.capture());
+        assertThat(captor.getValue().size(), is(2));
+        for (Object updated : captor.getValue()) {
+            assertFalse(((Address) updated).getStatus().isReady());
+        }
+    }
+
+    private static Address createActiveAnycast(String name) {
+        return new Address.Builder()
+                .setName(name)
+                .setAddress(name)
+                .setType("anycast")
+                .setPlan("small-anycast")
+                .setStatus(new Status(true).setPhase(Status.Phase.Active))
+                .build();
+    }
+
+    private static Pod createRouter(String name) {
+        return new PodBuilder()
+                .editOrNewMetadata()
+                .withName(name)
+                .endMetadata()
+                .editOrNewStatus()
+                .withPodIP("10.0.0.1")
+                .endStatus()
+                .build();
+    }
 }
@@ -235,6 +235,92 @@ public class AddressProvisionerTest {
         assertThat(queue.getAnnotations().get(AnnotationKeys.BROKER_ID), is("broker-1"));
     }
 
+    @Test
+    public void testPlacementScalesPooledBrokers() {
+        Set<Address> addresses = new HashSet<>();
+        addresses.add(new Address.Builder()
+                .setAddress("q1")
+                .setPlan("small-queue")
+                .setType("queue")
+                .putAnnotation(AnnotationKeys.BROKER_ID, "broker-0")
+                .build());
+
+        AddressProvisioner provisioner = createProvisioner();
+        Map<String, Map<String, Double>> usageMap = provisioner.checkUsage(addresses);
+
+        Address q2 = new Address.Builder()
+                .setAddress("q2")
+                .setPlan("small-queue")
+                .setType("queue")
+                .build();
+        Address q3 = new Address.Builder()
+                .setAddress("q3")
+                .setPlan("small-queue")
+                .setType("queue")
+                .build();
+        Map<Address, Map<String, Double>> provisionMap = provisioner.checkQuota(usageMap, Sets.newSet(q2, q3));
+        assertThat(provisionMap.size(), is(2));
+
+        when(kubernetes.listClusters()).thenReturn(Arrays.asList(new AddressCluster("broker", new KubernetesList())));
+        when(kubernetes.listBrokers(eq("broker"))).thenReturn(Arrays.asList("broker-0"));
+        provisioner.provisionResources(usageMap, provisionMap);
+        verify(kubernetes, times(1)).scaleStatefulSet(eq("broker"), eq(2));
+
+        // One queue fits next to q1, the other waits for the new broker
+        List<Address> placed = new ArrayList<>();
+        for (Address queue : Arrays.asList(q2, q3)) {
+            if (queue.getStatus().getPhase() == Status.Phase.Configuring) {
+                placed.add(queue);
+            } else {
+                assertNull(queue.getAnnotations().get(AnnotationKeys.BROKER_ID));
+            }
+        }
+        assertThat(placed.size(), is(1));
+        assertThat(placed.get(0).getAnnotations().get(AnnotationKeys.BROKER_ID), is("broker-0"));
+    }
+
+    @Test
+    public void testPlacementSkipsBrokersWithoutPod() {
+        Set<Address> addresses = new HashSet<>();
+        addresses.add(new Address.Builder()
+                .setAddress("q1")
+                .setPlan("small-queue")
+                .setType("queue")
+                .putAnnotation(AnnotationKeys.BROKER_ID, "broker-0")
+                .build());
+        addresses.add(new Address.Builder()
+                .setAddress("q2")
+                .setPlan("small-queue")
+                .setType("queue")
+                .putAnnotation(AnnotationKeys.BROKER_ID, "broker-0")
+                .build());
+        addresses.add(new Address.Builder()
+                .setAddress("q3")
+                .setPlan("small-queue")
+                .setType("queue")
+                .putAnnotation(AnnotationKeys.BROKER_ID, "broker-1")
+                .build());
+
+        AddressProvisioner provisioner = createProvisioner();
+        Map<String, Map<String, Double>> usageMap = provisioner.checkUsage(addresses);
+
+        Address queue = new Address.Builder()
+                .setAddress("q4")
+                .setPlan("small-queue")
+                .setType("queue")
+                .build();
+        Map<Address, Map<String, Double>> provisionMap = provisioner.checkQuota(usageMap, Sets.newSet(queue));
+
+        // broker-1 has room for the queue, but its pod is not running
+        when(kubernetes.listClusters()).thenReturn(Arrays.asList(new AddressCluster("broker", new KubernetesList())));
+        when(kubernetes.listBrokers(eq("broker"))).thenReturn(Arrays.asList("broker-0"));
+        provisioner.provisionResources(usageMap, provisionMap);
+
+        verify(kubernetes).scaleStatefulSet(eq("broker"), eq(3));
+        assertThat(queue.getStatus().getPhase(), is(Pending));
+        assertNull(queue.getAnnotations().get(AnnotationKeys.BROKER_ID));
+    }
+
     @Test
     public void testProvisioningSharded() {
         Set<Address> addresses = new HashSet<>();
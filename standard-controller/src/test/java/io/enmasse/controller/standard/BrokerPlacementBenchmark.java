@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.controller.standard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the pooled broker placement strategies with placing each address on the least used broker with room for
+ * it, which is how addresses were placed before the placement strategies.
+ *
+ * Not run as part of the tests. Run the main method with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class BrokerPlacementBenchmark {
+    @Param({"10000"})
+    public int numAddresses;
+
+    @Param({"50"})
+    public int numBrokers;
+
+    private double[] brokerUsage;
+    private double[] credits;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1234);
+        brokerUsage = new double[numBrokers];
+        for (int i = 0; i < numBrokers; i++) {
+            brokerUsage[i] = random.nextDouble() * 0.5;
+        }
+        double[] planCredits = {0.001, 0.002, 0.003, 0.005};
+        credits = new double[numAddresses];
+        for (int i = 0; i < numAddresses; i++) {
+            credits[i] = planCredits[random.nextInt(planCredits.length)];
+        }
+    }
+
+    @Benchmark
+    public PlacementPlan firstFitDecreasing() {
+        return new FirstFitDecreasingPlacement().place(brokerUsage, credits);
+    }
+
+    @Benchmark
+    public PlacementPlan bestFit() {
+        return new BestFitPlacement().place(brokerUsage, credits);
+    }
+
+    @Benchmark
+    public int[] leastUsed() {
+        return placeOnLeastUsed(brokerUsage, credits);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        BrokerPlacementBenchmark benchmark = new BrokerPlacementBenchmark();
+        benchmark.numAddresses = 10000;
+        benchmark.numBrokers = 50;
+        benchmark.setup();
+        System.out.println("Brokers needed with first-fit-decreasing: " + benchmark.firstFitDecreasing().getNumBrokers());
+        System.out.println("Brokers needed with best-fit: " + benchmark.bestFit().getNumBrokers());
+        int placed = 0;
+        for (int broker : benchmark.leastUsed()) {
+            placed += broker >= 0 ? 1 : 0;
+        }
+        System.out.println("Addresses placed on the least used broker: " + placed + " of " + benchmark.numAddresses);
+
+        new Runner(new OptionsBuilder()
+                .include(BrokerPlacementBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * Places each address in turn on the least used broker with room for it, sorting the brokers for every address.
+     */
+    private static int[] placeOnLeastUsed(double[] brokerUsage, double[] credits) {
+        double[] used = brokerUsage.clone();
+        List<Integer> brokers = new ArrayList<>();
+        for (int i = 0; i < used.length; i++) {
+            brokers.add(i);
+        }
+        int[] placement = new int[credits.length];
+        for (int address = 0; address < credits.length; address++) {
+            brokers.sort(Comparator.comparingDouble(broker -> used[broker]));
+            placement[address] = -1;
+            for (int broker : brokers) {
+                if (used[broker] + credits[address] < 1) {
+                    used[broker] += credits[address];
+                    placement[address] = broker;
+                    break;
+                }
+            }
+        }
+        return placement;
+    }
+}
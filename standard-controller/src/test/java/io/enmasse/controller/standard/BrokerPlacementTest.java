@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.controller.standard;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BrokerPlacementTest {
+
+    @Test
+    public void testDecreasingOrder() {
+        assertArrayEquals(new int[]{1, 3, 0, 2, 4}, BrokerPlacement.decreasingOrder(new double[]{0.2, 0.5, 0.1, 0.5, 0.1}));
+        assertArrayEquals(new int[0], BrokerPlacement.decreasingOrder(new double[0]));
+    }
+
+    @Test
+    public void testFirstFitDecreasing() {
+        PlacementPlan plan = new FirstFitDecreasingPlacement().place(new double[]{0.2, 0.6}, new double[]{0.3});
+        assertEquals(0, plan.getBroker(0));
+        assertEquals(2, plan.getNumBrokers());
+
+        plan = new FirstFitDecreasingPlacement().place(new double[0], new double[]{0.3, 0.6, 0.6, 1.0});
+        assertEquals(0, plan.getBroker(0));
+        assertEquals(0, plan.getBroker(1));
+        assertEquals(1, plan.getBroker(2));
+        assertEquals(-1, plan.getBroker(3));
+        assertEquals(2, plan.getNumBrokers());
+    }
+
+    @Test
+    public void testBestFit() {
+        PlacementPlan plan = new BestFitPlacement().place(new double[]{0.2, 0.6}, new double[]{0.3});
+        assertEquals(1, plan.getBroker(0));
+        assertEquals(2, plan.getNumBrokers());
+
+        plan = new BestFitPlacement().place(new double[0], new double[]{0.3, 0.6, 0.6, 1.0});
+        assertEquals(0, plan.getBroker(0));
+        assertEquals(0, plan.getBroker(1));
+        assertEquals(1, plan.getBroker(2));
+        assertEquals(-1, plan.getBroker(3));
+        assertEquals(2, plan.getNumBrokers());
+    }
+
+    @Test
+    public void testBrokersNotOversubscribed() {
+        Random random = new Random(42);
+        double[] brokerUsage = new double[50];
+        for (int i = 0; i < brokerUsage.length; i++) {
+            brokerUsage[i] = random.nextDouble() * 0.5;
+        }
+        double[] credits = new double[10000];
+        for (int i = 0; i < credits.length; i++) {
+            credits[i] = 0.001 + random.nextDouble() * 0.05;
+        }
+
+        for (BrokerPlacement placement : new BrokerPlacement[]{new FirstFitDecreasingPlacement(), new BestFitPlacement()}) {
+            PlacementPlan plan = placement.place(brokerUsage, credits);
+            double[] used = new double[plan.getNumBrokers()];
+            double total = 0.0;
+            System.arraycopy(brokerUsage, 0, used, 0, brokerUsage.length);
+            for (double usage : brokerUsage) {
+                total += usage;
+            }
+            for (int i = 0; i < credits.length; i++) {
+                used[plan.getBroker(i)] += credits[i];
+                total += credits[i];
+            }
+            for (double usage : used) {
+                assertTrue(usage < 1.0);
+            }
+            // Small addresses pack well, needing at most one broker more than the total usage
+            assertTrue(plan.getNumBrokers() <= Math.ceil(total) + 1);
+        }
+    }
+}
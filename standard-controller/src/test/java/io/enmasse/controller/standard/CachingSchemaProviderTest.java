@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.controller.standard;
+
+import io.enmasse.address.model.AddressResolver;
+import io.enmasse.address.model.UnresolvedAddressSpaceException;
+import io.enmasse.k8s.api.CachingSchemaProvider;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class CachingSchemaProviderTest {
+
+    @Test
+    public void testResolverReusedUntilSchemaChanges() {
+        CachingSchemaProvider schemaProvider = new CachingSchemaProvider();
+        StandardControllerSchema schema = new StandardControllerSchema();
+        schemaProvider.resourcesUpdated(Collections.singleton(schema.getSchema()));
+
+        AddressResolver resolver = schemaProvider.getAddressResolver("standard");
+        assertSame(schema.getType(), resolver.getAddressSpaceType());
+        assertSame(resolver, schemaProvider.getAddressResolver("standard"));
+
+        schemaProvider.resourcesUpdated(Collections.singleton(schema.getSchema()));
+        assertSame(resolver, schemaProvider.getAddressResolver("standard"));
+
+        StandardControllerSchema updated = new StandardControllerSchema();
+        schemaProvider.resourcesUpdated(Collections.singleton(updated.getSchema()));
+        AddressResolver updatedResolver = schemaProvider.getAddressResolver("standard");
+        assertNotSame(resolver, updatedResolver);
+        assertSame(updated.getType(), updatedResolver.getAddressSpaceType());
+    }
+
+    @Test(expected = UnresolvedAddressSpaceException.class)
+    public void testUnknownAddressSpaceType() {
+        CachingSchemaProvider schemaProvider = new CachingSchemaProvider();
+        schemaProvider.resourcesUpdated(Collections.singleton(new StandardControllerSchema().getSchema()));
+        schemaProvider.getAddressResolver("brokered");
+    }
+}
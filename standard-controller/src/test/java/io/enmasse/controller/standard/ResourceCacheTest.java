@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.controller.standard;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.ConfigMapList;
+import io.fabric8.kubernetes.api.model.ConfigMapListBuilder;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watcher;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class ResourceCacheTest {
+    private List<ConfigMap> stored;
+    private int numLists;
+    private List<String> watchVersions;
+    private Watcher<ConfigMap> watcher;
+    private ResourceCache<ConfigMap> cache;
+
+    @Before
+    public void setup() {
+        stored = new ArrayList<>();
+        numLists = 0;
+        watchVersions = new ArrayList<>();
+        cache = new ResourceCache<>(ConfigMap.class, this::list, (version, w) -> {
+            watchVersions.add(version);
+            watcher = w;
+            return () -> {};
+        });
+    }
+
+    private ConfigMapList list() {
+        numLists++;
+        return new ConfigMapListBuilder()
+                .withItems(stored)
+                .editOrNewMetadata()
+                .withResourceVersion(String.valueOf(numLists))
+                .endMetadata()
+                .build();
+    }
+
+    @Test
+    public void testUpdatedFromWatch() {
+        stored.add(createConfigMap("c1"));
+        assertEquals(names("c1"), names(cache.list()));
+        assertEquals(1, numLists);
+        assertEquals("1", watchVersions.get(0));
+
+        watcher.eventReceived(Watcher.Action.ADDED, createConfigMap("c2"));
+        watcher.eventReceived(Watcher.Action.DELETED, createConfigMap("c1"));
+        assertEquals(names("c2"), names(cache.list()));
+
+        cache.put(createConfigMap("c3"));
+        cache.remove("c2");
+        assertEquals(names("c3"), names(cache.list()));
+        assertEquals(1, numLists);
+    }
+
+    @Test
+    public void testRelistAfterClose() {
+        stored.add(createConfigMap("c1"));
+        cache.list();
+        Watcher<ConfigMap> firstWatcher = watcher;
+
+        stored.add(createConfigMap("c2"));
+        firstWatcher.onClose(new KubernetesClientException("connection reset"));
+        assertEquals(names("c1", "c2"), names(cache.list()));
+        assertEquals(2, numLists);
+
+        // Events from the closed watch are ignored
+        firstWatcher.eventReceived(Watcher.Action.DELETED, createConfigMap("c2"));
+        assertEquals(names("c1", "c2"), names(cache.list()));
+    }
+
+    @Test
+    public void testPutIfKind() {
+        cache.list();
+        cache.putIfKind(createConfigMap("c1"));
+        cache.putIfKind(new ServiceBuilder().editOrNewMetadata().withName("s1").endMetadata().build());
+        assertEquals(names("c1"), names(cache.list()));
+    }
+
+    @Test
+    public void testNotCachedAfterClose() {
+        stored.add(createConfigMap("c1"));
+        cache.list();
+        cache.close();
+
+        // Reads are served by listing, without starting another watch
+        stored.add(createConfigMap("c2"));
+        assertEquals(names("c1", "c2"), names(cache.list()));
+        assertEquals(2, numLists);
+        assertEquals(1, watchVersions.size());
+    }
+
+    private static ConfigMap createConfigMap(String name) {
+        return new ConfigMapBuilder()
+                .editOrNewMetadata()
+                .withName(name)
+                .endMetadata()
+                .build();
+    }
+
+    private static Set<String> names(String... names) {
+        return Arrays.stream(names).collect(Collectors.toSet());
+    }
+
+    private static Set<String> names(List<ConfigMap> configMaps) {
+        return configMaps.stream().map(c -> c.getMetadata().getName()).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.controller.standard;
+
+import io.enmasse.address.model.Address;
+import io.enmasse.address.model.Status;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares checking queue status against the router status indexes with scanning the router status lists, which is
+ * how the checks were done before the indexes.
+ *
+ * Not run as part of the tests. Run the main method with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class RouterStatusBenchmark {
+    @Param({"1000", "10000"})
+    public int numAddresses;
+
+    @Param({"3"})
+    public int numRouters;
+
+    private List<Address> addresses;
+    private List<RouterStatus> routerStatusList;
+    private List<ListScanRouterStatus> listScanStatusList;
+
+    @Setup
+    public void setup() {
+        addresses = new ArrayList<>();
+        List<String> addressNames = new ArrayList<>();
+        List<List<String>> autoLinks = new ArrayList<>();
+        for (int i = 0; i < numAddresses; i++) {
+            String name = "queue-" + i;
+            addresses.add(new Address.Builder()
+                    .setAddress(name)
+                    .setType("queue")
+                    .setPlan("pooled-queue")
+                    .setStatus(new Status(true))
+                    .build());
+            addressNames.add(name);
+            autoLinks.add(Arrays.asList(name, "broker-0", "in", "active"));
+            autoLinks.add(Arrays.asList(name, "broker-0", "out", "active"));
+        }
+
+        routerStatusList = new ArrayList<>();
+        listScanStatusList = new ArrayList<>();
+        for (int i = 0; i < numRouters; i++) {
+            routerStatusList.add(new RouterStatus("router-" + i, addressNames, autoLinks, new ArrayList<>(), new ArrayList<>()));
+            listScanStatusList.add(new ListScanRouterStatus(addressNames, autoLinks));
+        }
+    }
+
+    @Benchmark
+    public int indexed() {
+        int ok = 0;
+        for (Address address : addresses) {
+            for (RouterStatus routerStatus : routerStatusList) {
+                ok += routerStatus.checkAddress(address);
+                ok += routerStatus.checkAutoLinks(address);
+            }
+            ok += RouterStatus.checkActiveAutoLink(address, routerStatusList);
+        }
+        return ok;
+    }
+
+    @Benchmark
+    public int listScan() {
+        int ok = 0;
+        for (Address address : addresses) {
+            for (ListScanRouterStatus routerStatus : listScanStatusList) {
+                ok += routerStatus.checkAddress(address);
+                ok += routerStatus.checkAutoLinks(address);
+            }
+            ok += ListScanRouterStatus.checkActiveAutoLink(address, listScanStatusList);
+        }
+        return ok;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RouterStatusBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * The queue checks of router status, scanning the lists for every address.
+     */
+    private static class ListScanRouterStatus {
+        private final List<String> addresses;
+        private final List<List<String>> autoLinks;
+
+        private ListScanRouterStatus(List<String> addresses, List<List<String>> autoLinks) {
+            this.addresses = addresses;
+            this.autoLinks = autoLinks;
+        }
+
+        private int checkAddress(Address address) {
+            return addresses.contains(address.getAddress()) ? 1 : 0;
+        }
+
+        private int checkAutoLinks(Address address) {
+            int ok = 0;
+            for (List<String> autoLink : autoLinks) {
+                if (autoLink.get(0).equals(address.getAddress())) {
+                    ok++;
+                }
+            }
+            return ok;
+        }
+
+        private static int checkActiveAutoLink(Address address, List<ListScanRouterStatus> routerStatusList) {
+            Set<String> active = new HashSet<>();
+            for (ListScanRouterStatus routerStatus : routerStatusList) {
+                for (List<String> autoLink : routerStatus.autoLinks) {
+                    if (autoLink.get(0).equals(address.getAddress()) && autoLink.get(3).equals("active")) {
+                        active.add(autoLink.get(2));
+                    }
+                }
+            }
+            return active.size() < 2 ? 0 : 1;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018, EnMasse authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.enmasse.controller.standard;
+
+import io.enmasse.address.model.Address;
+import io.enmasse.address.model.Status;
+import io.enmasse.config.AnnotationKeys;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RouterStatusTest {
+
+    @Test
+    public void testQueueChecks() {
+        RouterStatus routerStatus = new RouterStatus("router-0",
+                Arrays.asList("q1", "q2"),
+                Arrays.asList(
+                        Arrays.asList("q1", "broker-0", "in", "active"),
+                        Arrays.asList("q1", "broker-0", "out", "active"),
+                        Arrays.asList("q2", "broker-0", "in", "active"),
+                        Arrays.asList("q2", "broker-0", "out", "inactive")),
+                Collections.emptyList(),
+                Collections.emptyList());
+        List<RouterStatus> routerStatusList = Collections.singletonList(routerStatus);
+
+        Address q1 = createAddress("q1", "queue");
+        assertEquals(1, routerStatus.checkAddress(q1));
+        assertEquals(2, routerStatus.checkAutoLinks(q1));
+        assertEquals(1, RouterStatus.checkActiveAutoLink(q1, routerStatusList));
+        assertTrue(q1.getStatus().isReady());
+
+        Address q2 = createAddress("q2", "queue");
+        assertEquals(2, routerStatus.checkAutoLinks(q2));
+        assertEquals(0, RouterStatus.checkActiveAutoLink(q2, routerStatusList));
+        assertFalse(q2.getStatus().isReady());
+
+        Address q3 = createAddress("q3", "queue");
+        assertEquals(0, routerStatus.checkAddress(q3));
+        assertEquals(0, routerStatus.checkAutoLinks(q3));
+        assertFalse(q3.getStatus().isReady());
+    }
+
+    @Test
+    public void testTopicChecks() {
+        RouterStatus routerStatus = new RouterStatus("router-0",
+                Collections.emptyList(),
+                Collections.emptyList(),
+                Arrays.asList(
+                        Arrays.asList("t1", "broker-0", "in", "active"),
+                        Arrays.asList("t1", "broker-0", "out", "active"),
+                        Arrays.asList("t1", "broker-1", "in", "active")),
+                Arrays.asList("broker-0", "t2-abc-0"));
+        List<RouterStatus> routerStatusList = Collections.singletonList(routerStatus);
+
+        Address t1 = new Address.Builder(createAddress("t1", "topic"))
+                .putAnnotation(AnnotationKeys.BROKER_ID, "broker-0")
+                .build();
+        assertEquals(3, routerStatus.checkLinkRoutes(t1));
+        assertEquals(1, RouterStatus.checkActiveLinkRoute(t1, routerStatusList));
+
+        Address t1OtherBroker = new Address.Builder(createAddress("t1", "topic"))
+                .putAnnotation(AnnotationKeys.BROKER_ID, "broker-1")
+                .build();
+        assertEquals(0, RouterStatus.checkActiveLinkRoute(t1OtherBroker, routerStatusList));
+
+        Address t2 = new Address.Builder(createAddress("t2", "topic")).setName("t2").build();
+        assertEquals(1, RouterStatus.checkConnection(t2, routerStatusList));
+
+        Address t3 = new Address.Builder(createAddress("t3", "topic")).setName("t3").build();
+        assertEquals(0, RouterStatus.checkConnection(t3, routerStatusList));
+    }
+
+    private static Address createAddress(String address, String type) {
+        return new Address.Builder()
+                .setAddress(address)
+                .setType(type)
+                .setPlan("plan")
+                .setStatus(new Status(true))
+                .build();
+    }
+}